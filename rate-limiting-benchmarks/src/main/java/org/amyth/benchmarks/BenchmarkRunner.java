@@ -0,0 +1,73 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.amyth.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks.jar}: runs JMH once per thread count with the GC
+ * profiler attached, writing one JSON result file per run.
+ * <pre>
+ * java -jar rate-limiting-benchmarks/target/benchmarks.jar --threads 1,4,16 \
+ *      RateLimiterBenchmark -p store=CAFFEINE,MAPPED_FILE -p keys=1,1000000
+ * </pre>
+ * {@code --threads} defaults to {@code 1,4,<cores>}; all other arguments are regular JMH
+ * options ({@code -h} lists them).
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Integer> threadCounts = new ArrayList<>();
+        List<String> jmhArgs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                for (String t : args[++i].split(",")) threadCounts.add(Integer.parseInt(t.trim()));
+            } else {
+                jmhArgs.add(args[i]);
+            }
+        }
+        if (threadCounts.isEmpty()) {
+            int cores = Runtime.getRuntime().availableProcessors();
+            threadCounts.add(1);
+            if (cores > 4) threadCounts.add(4);
+            if (cores > 1) threadCounts.add(cores);
+        }
+
+        CommandLineOptions cli = new CommandLineOptions(jmhArgs.toArray(String[]::new));
+        for (int threads : threadCounts) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(cli)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("jmh-result-t" + threads + ".json");
+            if (cli.getProfilers().isEmpty()) {
+                options.addProfiler(GCProfiler.class);
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
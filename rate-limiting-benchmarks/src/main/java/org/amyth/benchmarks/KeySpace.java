@@ -0,0 +1,72 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.benchmarks;
+
+/**
+ * Pre-built client keys, so building them is not part of the measured path (or of the
+ * bytes allocated per operation).
+ */
+final class KeySpace {
+
+    private final String[] keys;
+
+    private KeySpace(String[] keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Builds {@code cardinality} short keys ({@code c0}, {@code c1}, ... in base 36), each
+     * prefixed and suffixed as the caller needs, e.g. to make store bucket keys.
+     */
+    static KeySpace of(int cardinality, String prefix, String suffix) {
+        if (cardinality <= 0) throw new IllegalArgumentException("cardinality must be > 0");
+        String[] keys = new String[cardinality];
+        for (int i = 0; i < cardinality; i++) {
+            keys[i] = prefix + "c" + Integer.toString(i, 36) + suffix;
+        }
+        return new KeySpace(keys);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    String get(int index) {
+        return keys[index];
+    }
+
+    /** Picks a key uniformly from a random number drawn by {@link Cursor}. */
+    String pick(Cursor cursor) {
+        return keys.length == 1 ? keys[0] : keys[cursor.next(keys.length)];
+    }
+
+    /** Per-thread xorshift generator: no shared state, no allocation. */
+    static final class Cursor {
+        private long x;
+
+        Cursor(long seed) {
+            this.x = seed == 0 ? 0x9E3779B97F4A7C15L : seed;
+        }
+
+        int next(int bound) {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            return (int) ((x >>> 1) % bound);
+        }
+    }
+}
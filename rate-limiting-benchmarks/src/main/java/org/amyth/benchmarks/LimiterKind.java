@@ -0,0 +1,46 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.benchmarks;
+
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.api.RateLimiter;
+
+import java.time.Clock;
+
+/**
+ * The {@link RateLimiter} implementations a benchmark can run, selected with {@code -p limiter=...}.
+ * New algorithms are added here to be measured against every {@link StoreKind}.
+ */
+public enum LimiterKind {
+
+    SLIDING_WINDOW {
+        @Override
+        public RateLimiter create(RateLimitStore store, int buckets) {
+            return new SlidingWindowRateLimiter(store, Clock.systemUTC(), buckets);
+        }
+    };
+
+    /**
+     * Creates a limiter over a store.
+     *
+     * @param store   backing store
+     * @param buckets sub-buckets per window, for algorithms that use them
+     * @return a new limiter
+     */
+    public abstract RateLimiter create(RateLimitStore store, int buckets);
+}
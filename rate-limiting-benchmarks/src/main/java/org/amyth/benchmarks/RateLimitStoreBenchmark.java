@@ -0,0 +1,95 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.amyth.benchmarks;
+
+import org.amyth.core.api.RateLimitStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw {@link RateLimitStore} operations, without a limiter on top: the increment of the
+ * current bucket and the reads of the older ones a sliding window issues per hit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RateLimitStoreBenchmark {
+
+    private static final long TTL_MILLIS = 60_000;
+
+    @Param({"CAFFEINE", "MAPPED_FILE", "SHARED_MEMORY", "SHARDED", "CLUSTER", "WRITE_BEHIND"})
+    public StoreKind store;
+
+    @Param({"1", "1000", "1000000", "10000000"})
+    public int keys;
+
+    private StoreKind.Fixture fixture;
+    private KeySpace bucketKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = store.open(Math.min(RateLimiterBenchmark.MAX_TRACKED, keys));
+        bucketKeys = KeySpace.of(keys, "rl:", ":1");
+        // reads should find a live bucket
+        RateLimitStore s = fixture.store();
+        for (int i = 0; i < Math.min(keys, RateLimiterBenchmark.MAX_TRACKED); i++) {
+            s.incrementAndGet(bucketKeys.get(i), TTL_MILLIS);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    /** Per-thread random stream over the key space. */
+    @State(Scope.Thread)
+    public static class Client {
+        KeySpace.Cursor cursor;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams params) {
+            cursor = new KeySpace.Cursor(0x5DEECE66DL * (params.getThreadIndex() + 1));
+        }
+    }
+
+    @Benchmark
+    public long incrementAndGet(Client client) {
+        return fixture.store().incrementAndGet(bucketKeys.pick(client.cursor), TTL_MILLIS);
+    }
+
+    @Benchmark
+    public long get(Client client) {
+        return fixture.store().get(bucketKeys.pick(client.cursor));
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.amyth.benchmarks;
+
+import org.amyth.core.api.RateLimiter;
+import org.amyth.core.model.HitResult;
+import org.amyth.core.model.LimitRule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one {@link RateLimiter#hit} for every limiter and store combination.
+ * <p>
+ * {@code keys} is the number of distinct clients hit uniformly at random: 1 is a single
+ * hot key (maximum contention), 10M is a cold, cache-hostile key space. The default
+ * {@code permits} keeps every request allowed; run with {@code -p permits=1} for the
+ * rejected path. {@link #hit} reports throughput, {@link #hitLatency} the latency
+ * distribution (p99 and friends) and {@link #decide} the allocation-free variant used by
+ * the web integrations; add {@code -prof gc} (the default in
+ * {@link BenchmarkRunner}) for bytes allocated per hit.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class RateLimiterBenchmark {
+
+    /** Upper bound on live buckets a store is sized for; larger key spaces exercise eviction. */
+    static final long MAX_TRACKED = 1L << 22;
+
+    @Param({"SLIDING_WINDOW"})
+    public LimiterKind limiter;
+
+    @Param({"CAFFEINE", "MAPPED_FILE", "SHARED_MEMORY", "SHARDED", "CLUSTER", "WRITE_BEHIND"})
+    public StoreKind store;
+
+    @Param({"1", "6", "60"})
+    public int buckets;
+
+    @Param({"1", "1000", "1000000", "10000000"})
+    public int keys;
+
+    @Param({"1000000000"})
+    public long permits;
+
+    private StoreKind.Fixture fixture;
+    private RateLimiter rateLimiter;
+    private KeySpace keySpace;
+    private LimitRule rule;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fixture = store.open(Math.min(MAX_TRACKED, (long) keys * buckets));
+        rateLimiter = limiter.create(fixture.store(), buckets);
+        keySpace = KeySpace.of(keys, "", "");
+        rule = new LimitRule(permits, Duration.ofMinutes(1));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fixture.close();
+    }
+
+    /** Per-thread random stream over the key space. */
+    @State(Scope.Thread)
+    public static class Client {
+        KeySpace.Cursor cursor;
+
+        @Setup(Level.Trial)
+        public void setUp(ThreadParams params) {
+            cursor = new KeySpace.Cursor(0x5DEECE66DL * (params.getThreadIndex() + 1));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public HitResult hit(Client client) {
+        return rateLimiter.hit(keySpace.pick(client.cursor), rule);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public HitResult hitLatency(Client client) {
+        return rateLimiter.hit(keySpace.pick(client.cursor), rule);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public long decide(Client client) {
+        return rateLimiter.decide(keySpace.pick(client.cursor), rule);
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.benchmarks;
+
+import org.amyth.autoconfigure.store.redis.RedisShard;
+import org.amyth.autoconfigure.store.redis.RespStandIn;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.amyth.core.store.cluster.GossipRateLimitStore;
+import org.amyth.core.store.hybrid.WriteBehindRateLimitStore;
+import org.amyth.core.store.mmap.MappedFileRateLimitStore;
+import org.amyth.core.store.mmap.SharedMemoryRateLimitStore;
+import org.amyth.core.store.sharded.ShardedRateLimitStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The stores a benchmark can run against, selected with {@code -p store=...}.
+ * <p>
+ * Every store is sized for {@code maxKeys} live buckets. {@link #REDIS} needs a running
+ * server ({@code -Dbench.redis.uri}, default {@code redis://localhost:6379}) and is
+ * therefore not part of the default parameter lists.
+ * </p>
+ */
+public enum StoreKind {
+
+    CAFFEINE {
+        @Override
+        public Fixture open(long maxKeys) {
+            return new Fixture(new CaffeineRateLimitStore(maxKeys), () -> { });
+        }
+    },
+
+    MAPPED_FILE {
+        @Override
+        public Fixture open(long maxKeys) {
+            Path file = tempFile(null);
+            MappedFileRateLimitStore store = new MappedFileRateLimitStore(file, slots(maxKeys), Clock.systemUTC());
+            return new Fixture(store, () -> {
+                store.close();
+                delete(file);
+            });
+        }
+    },
+
+    SHARED_MEMORY {
+        @Override
+        public Fixture open(long maxKeys) {
+            Path shm = Path.of("/dev/shm");
+            Path file = tempFile(Files.isDirectory(shm) ? shm : null);
+            SharedMemoryRateLimitStore store = new SharedMemoryRateLimitStore(file, slots(maxKeys));
+            return new Fixture(store, () -> {
+                store.close();
+                delete(file);
+            });
+        }
+    },
+
+    /** Four in-memory shards behind the consistent-hash ring, isolating the routing cost. */
+    SHARDED {
+        @Override
+        public Fixture open(long maxKeys) {
+            Map<String, RateLimitStore> shards = new LinkedHashMap<>();
+            for (int i = 0; i < 4; i++) shards.put("shard-" + i, new CaffeineRateLimitStore(maxKeys / 4 + 1));
+            ShardedRateLimitStore store = new ShardedRateLimitStore(shards, 160);
+            return new Fixture(store, () -> { });
+        }
+    },
+
+    /** A gossip node without peers: local counting plus the sender's bookkeeping. */
+    CLUSTER {
+        @Override
+        public Fixture open(long maxKeys) {
+            GossipRateLimitStore store = new GossipRateLimitStore("bench", new InetSocketAddress("127.0.0.1", 0),
+                    List.of(), Duration.ofMillis(100), 50, maxKeys);
+            return new Fixture(store, store::close);
+        }
+    },
+
+    /** Write-behind over an in-memory remote, isolating the local tier and flusher. */
+    WRITE_BEHIND {
+        @Override
+        public Fixture open(long maxKeys) {
+            WriteBehindRateLimitStore store = new WriteBehindRateLimitStore(
+                    new CaffeineRateLimitStore(maxKeys), Duration.ofMillis(100), maxKeys);
+            return new Fixture(store, store::close);
+        }
+    },
+
+    REDIS {
+        @Override
+        public Fixture open(long maxKeys) {
+            RedisShard store = RedisShard.connect(System.getProperty("bench.redis.uri", "redis://localhost:6379"),
+                    "bench:");
+            return new Fixture(store, store::close);
+        }
+    },
+
+    /**
+     * The Redis store against the in-process {@link RespStandIn}: server time is not
+     * representative, but the client path is, and the round trips per operation are
+     * printed when the fixture closes.
+     */
+    REDIS_STAND_IN {
+        @Override
+        public Fixture open(long maxKeys) {
+            RespStandIn server = RespStandIn.start();
+            RedisShard store = RedisShard.connect("redis://127.0.0.1:" + server.port(), "bench:");
+            return new Fixture(store, () -> {
+                store.close();
+                RespStandIn.Stats stats = server.stats();
+                System.out.printf("%nREDIS_STAND_IN %s %s%n", stats, server.commandCounts());
+                server.close();
+            });
+        }
+    };
+
+    /**
+     * Creates a fresh store.
+     *
+     * @param maxKeys number of live buckets the store should hold without evicting
+     * @return the store and how to dispose of it
+     */
+    public abstract Fixture open(long maxKeys);
+
+    /**
+     * An open store and its cleanup.
+     *
+     * @param store   the store under test
+     * @param cleanup releases threads, connections and files
+     */
+    public record Fixture(RateLimitStore store, Runnable cleanup) implements AutoCloseable {
+        @Override
+        public void close() {
+            cleanup.run();
+        }
+    }
+
+    private static int slots(long maxKeys) {
+        // half-full table, within the mapped store's maximum
+        return (int) Math.min(1L << 26, Math.max(1024, maxKeys * 2));
+    }
+
+    private static Path tempFile(Path dir) {
+        try {
+            return dir == null
+                    ? Files.createTempFile("rl-bench", ".mmap")
+                    : Files.createTempFile(dir, "rl-bench", ".mmap");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.amyth.benchmarks.http;
+
+import org.amyth.core.annotation.RateLimit;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.context.annotation.Import;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimal applications measured by {@link HttpOverheadBenchmark}. Each exposes the same
+ * handler three times: without {@code @RateLimit} (the baseline), limited with a quota that
+ * is never exhausted (allowed path) and limited to one request per hour (rejected path).
+ */
+final class BenchApps {
+
+    static final String PLAIN = "/plain";
+    static final String ALLOWED = "/limited";
+    static final String REJECTED = "/rejected";
+
+    private BenchApps() {
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @Import(MvcEndpoints.class)
+    static class MvcApp {
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @Import(FluxEndpoints.class)
+    static class FluxApp {
+    }
+
+    @RestController
+    static class MvcEndpoints {
+        @GetMapping(PLAIN)
+        String plain() {
+            return "ok";
+        }
+
+        @RateLimit(permits = Long.MAX_VALUE / 2, window = 1, unit = TimeUnit.MINUTES)
+        @GetMapping(ALLOWED)
+        String limited() {
+            return "ok";
+        }
+
+        @RateLimit(permits = 1, window = 1, unit = TimeUnit.HOURS)
+        @GetMapping(REJECTED)
+        String rejected() {
+            return "ok";
+        }
+    }
+
+    @RestController
+    static class FluxEndpoints {
+        @GetMapping(PLAIN)
+        Mono<String> plain() {
+            return Mono.just("ok");
+        }
+
+        @RateLimit(permits = Long.MAX_VALUE / 2, window = 1, unit = TimeUnit.MINUTES)
+        @GetMapping(ALLOWED)
+        Mono<String> limited() {
+            return Mono.just("ok");
+        }
+
+        @RateLimit(permits = 1, window = 1, unit = TimeUnit.HOURS)
+        @GetMapping(REJECTED)
+        Mono<String> rejected() {
+            return Mono.just("ok");
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.amyth.benchmarks.http;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model HTTP load generator issuing requests at a fixed arrival rate.
+ * <p>
+ * Request {@code i} is scheduled for {@code start + i / rate}, sent asynchronously, and its
+ * latency is measured from that <em>intended</em> time, not from when it was actually sent.
+ * A stalled server therefore shows up as latency of every request that should have been
+ * sent during the stall, instead of silently lowering the offered load (coordinated
+ * omission).
+ * </p>
+ */
+final class FixedRateLoadGenerator {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final HttpClient client;
+
+    FixedRateLoadGenerator() {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    /**
+     * Outcome of one run.
+     *
+     * @param latencies latency from intended send time, in nanoseconds
+     * @param ok        2xx responses
+     * @param rejected  429 responses
+     * @param other     other statuses
+     * @param errors    requests that failed without a response
+     * @param lateSends requests sent more than one period after their intended time; a high
+     *                  share means the generator itself is saturated and the run is not valid
+     */
+    record Result(Histogram latencies, long ok, long rejected, long other, long errors, long lateSends) {}
+
+    /**
+     * Offers {@code ratePerSecond} requests per second for {@code duration} and waits for
+     * all of them to complete.
+     */
+    Result run(HttpRequest request, int ratePerSecond, Duration duration) throws InterruptedException {
+        long period = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        Recorder recorder = new Recorder(MAX_LATENCY_NANOS, 3);
+        LongAdder ok = new LongAdder(), rejected = new LongAdder(), other = new LongAdder(), errors = new LongAdder();
+        Phaser outstanding = new Phaser(1);
+        long late = 0;
+
+        long start = System.nanoTime() + period;
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + i * period;
+            if (intended - end >= 0) break;
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(Math.min(intended - now, 20_000));
+            }
+            if (now - intended > period) late++;
+            outstanding.register();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                recorder.recordValue(Math.min(System.nanoTime() - intended, MAX_LATENCY_NANOS));
+                if (error != null) {
+                    errors.increment();
+                } else if (response.statusCode() / 100 == 2) {
+                    ok.increment();
+                } else if (response.statusCode() == 429) {
+                    rejected.increment();
+                } else {
+                    other.increment();
+                }
+                outstanding.arriveAndDeregister();
+            });
+        }
+        try {
+            outstanding.awaitAdvanceInterruptibly(outstanding.arrive(), 60, TimeUnit.SECONDS);
+        } catch (java.util.concurrent.TimeoutException e) {
+            throw new IllegalStateException("Requests still outstanding 60s after the run", e);
+        }
+        return new Result(recorder.getIntervalHistogram(), ok.sum(), rejected.sum(), other.sum(), errors.sum(), late);
+    }
+
+    /** Combines the results of several runs of the same request. */
+    static Result merge(List<Result> results) {
+        Histogram all = new Histogram(MAX_LATENCY_NANOS, 3);
+        long ok = 0, rejected = 0, other = 0, errors = 0, late = 0;
+        for (Result r : results) {
+            all.add(r.latencies());
+            ok += r.ok();
+            rejected += r.rejected();
+            other += r.other();
+            errors += r.errors();
+            late += r.lateSends();
+        }
+        return new Result(all, ok, rejected, other, errors, late);
+    }
+
+    static HttpRequest get(URI uri, String... headers) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(uri).GET().timeout(Duration.ofSeconds(30));
+        if (headers.length > 0) b.headers(headers);
+        return b.build();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.amyth.benchmarks.http;
+
+import org.HdrHistogram.Histogram;
+import org.amyth.autoconfigure.store.redis.RespStandIn;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * End-to-end cost of {@code @RateLimit} per request in a running application.
+ * <p>
+ * Boots the MVC and WebFlux auto-configurations in-process on a random port, offers a fixed
+ * request rate with {@link FixedRateLoadGenerator} and reports latency percentiles of the
+ * unannotated baseline endpoint, of the allowed path and of the rejected path, together with
+ * the difference to the baseline. The three paths are measured in alternation over several
+ * rounds, so JIT warm-up and background noise do not favour whichever runs last. Rejected requests carry their own client address
+ * ({@code X-Forwarded-For}) so they never share a counter with allowed ones.
+ * </p>
+ * <pre>
+ * java -cp rate-limiting-benchmarks/target/benchmarks.jar org.amyth.benchmarks.http.HttpOverheadBenchmark \
+ *      --rate 2000 --warmup 10s --duration 30s --rounds 3 --stacks MVC,WEBFLUX --stores CAFFEINE,REDIS
+ * </pre>
+ * Give the load generator its own cores (e.g. {@code taskset}) and check the {@code late %}
+ * column: requests the generator could not send on time mean it, not the application, was
+ * the bottleneck.
+ * The REDIS rows need a server at {@code -Dbench.redis.uri} (default {@code redis://localhost:6379},
+ * e.g. {@code docker run -p 6379:6379 redis:7-alpine}) and are skipped when it is unreachable.
+ * {@code REDIS_STAND_IN} runs the Redis store against the in-process {@link RespStandIn} and
+ * also prints the Redis commands and round trips per request.
+ */
+public final class HttpOverheadBenchmark {
+
+    private HttpOverheadBenchmark() {
+    }
+
+    enum Stack { MVC, WEBFLUX }
+
+    public static void main(String[] args) throws Exception {
+        int rate = 2_000;
+        Duration warmup = Duration.ofSeconds(10);
+        Duration duration = Duration.ofSeconds(30);
+        int rounds = 3;
+        List<Stack> stacks = List.of(Stack.MVC, Stack.WEBFLUX);
+        List<String> stores = List.of("CAFFEINE", "REDIS");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String v = args[i + 1];
+            switch (args[i]) {
+                case "--rate" -> rate = Integer.parseInt(v);
+                case "--warmup" -> warmup = DurationStyle.detectAndParse(v);
+                case "--duration" -> duration = DurationStyle.detectAndParse(v);
+                case "--rounds" -> rounds = Integer.parseInt(v);
+                case "--stacks" -> stacks = List.of(v.split(",")).stream()
+                        .map(s -> Stack.valueOf(s.trim().toUpperCase(Locale.ROOT))).toList();
+                case "--stores" -> stores = List.of(v.toUpperCase(Locale.ROOT).split(","));
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        String redisUri = System.getProperty("bench.redis.uri", "redis://localhost:6379");
+
+        FixedRateLoadGenerator load = new FixedRateLoadGenerator();
+        List<String> rows = new ArrayList<>();
+        rows.add(String.format(Locale.ROOT, "%-8s %-9s %-9s %9s %8s %8s %10s %10s %10s %10s %10s %10s %10s %7s",
+                "stack", "store", "path", "requests", "2xx", "429",
+                "p50 us", "p90 us", "p99 us", "p99.9 us", "max us", "d-p50 us", "d-p99 us", "late %"));
+        for (Stack stack : stacks) {
+            for (String store : stores) {
+                if (store.trim().equals("REDIS") && !reachable(URI.create(redisUri))) {
+                    rows.add(String.format(Locale.ROOT, "%-8s %-9s skipped: no Redis at %s", stack, store, redisUri));
+                    continue;
+                }
+                RespStandIn standIn = store.trim().equals("REDIS_STAND_IN") ? RespStandIn.start() : null;
+                String backend = standIn == null ? store.trim() : "REDIS";
+                String uri = standIn == null ? redisUri : "redis://127.0.0.1:" + standIn.port();
+                try (ConfigurableApplicationContext ctx = boot(stack, backend, uri)) {
+                    String base = "http://127.0.0.1:" + ctx.getEnvironment().getProperty("local.server.port");
+                    HttpRequest plain = FixedRateLoadGenerator.get(URI.create(base + BenchApps.PLAIN));
+                    HttpRequest allowed = FixedRateLoadGenerator.get(URI.create(base + BenchApps.ALLOWED));
+                    HttpRequest rejected = FixedRateLoadGenerator.get(URI.create(base + BenchApps.REJECTED),
+                            "X-Forwarded-For", "203.0.113.7");
+
+                    for (HttpRequest r : List.of(plain, allowed, rejected)) load.run(r, rate, warmup);
+                    if (standIn != null) standIn.resetStats();
+
+                    List<List<FixedRateLoadGenerator.Result>> runs = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+                    Duration slice = duration.dividedBy(rounds);
+                    for (int round = 0; round < rounds; round++) {
+                        runs.get(0).add(load.run(plain, rate, slice));
+                        runs.get(1).add(load.run(allowed, rate, slice));
+                        runs.get(2).add(load.run(rejected, rate, slice));
+                    }
+                    FixedRateLoadGenerator.Result baseline = FixedRateLoadGenerator.merge(runs.get(0));
+                    rows.add(row(stack, store, "plain", baseline, baseline));
+                    FixedRateLoadGenerator.Result allowedRuns = FixedRateLoadGenerator.merge(runs.get(1));
+                    FixedRateLoadGenerator.Result rejectedRuns = FixedRateLoadGenerator.merge(runs.get(2));
+                    rows.add(row(stack, store, "allowed", allowedRuns, baseline));
+                    rows.add(row(stack, store, "rejected", rejectedRuns, baseline));
+                    if (standIn != null) {
+                        // only the limited paths reach the store
+                        RespStandIn.Stats io = standIn.stats();
+                        long requests = Math.max(1, allowedRuns.latencies().getTotalCount()
+                                + rejectedRuns.latencies().getTotalCount());
+                        rows.add(String.format(Locale.ROOT, "%-8s %-9s redis: %.2f commands, %.2f round trips per request",
+                                stack, store, (double) io.commands() / requests, (double) io.roundTrips() / requests));
+                    }
+                } finally {
+                    if (standIn != null) standIn.close();
+                }
+            }
+        }
+        System.out.printf(Locale.ROOT, "%nOffered load %d req/s, %s per path in %d rounds, latency from intended send time%n",
+                rate, duration, rounds);
+        rows.forEach(System.out::println);
+    }
+
+    private static ConfigurableApplicationContext boot(Stack stack, String store, String redisUri) {
+        Class<?> app = stack == Stack.MVC ? BenchApps.MvcApp.class : BenchApps.FluxApp.class;
+        return new SpringApplicationBuilder(app)
+                .web(stack == Stack.MVC ? WebApplicationType.SERVLET : WebApplicationType.REACTIVE)
+                .properties(
+                        "server.port=0",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "ratelimit.backend=" + store,
+                        "spring.data.redis.url=" + redisUri)
+                .run();
+    }
+
+    private static String row(Stack stack, String store, String path,
+                              FixedRateLoadGenerator.Result r, FixedRateLoadGenerator.Result baseline) {
+        Histogram h = r.latencies();
+        Histogram b = baseline.latencies();
+        return String.format(Locale.ROOT, "%-8s %-9s %-9s %9d %8d %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f %7.2f",
+                stack, store, path, h.getTotalCount(), r.ok(), r.rejected(),
+                us(h.getValueAtPercentile(50)), us(h.getValueAtPercentile(90)), us(h.getValueAtPercentile(99)),
+                us(h.getValueAtPercentile(99.9)), us(h.getMaxValue()),
+                us(h.getValueAtPercentile(50) - b.getValueAtPercentile(50)),
+                us(h.getValueAtPercentile(99) - b.getValueAtPercentile(99)),
+                100.0 * r.lateSends() / Math.max(1, h.getTotalCount()));
+    }
+
+    private static double us(long nanos) {
+        return nanos / 1_000.0;
+    }
+
+    private static boolean reachable(URI redis) {
+        try (Socket s = new Socket()) {
+            s.connect(new InetSocketAddress(redis.getHost(), redis.getPort() > 0 ? redis.getPort() : 6379), 500);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -18,11 +18,16 @@ package org.amyth.core.algo;
 
 import org.amyth.core.api.RateLimitStore;
 import org.amyth.core.api.RateLimiter;
+import org.amyth.core.model.HitRequest;
 import org.amyth.core.model.HitResult;
 import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.amyth.core.model.WindowState;
 
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -30,11 +35,17 @@ import java.util.Objects;
  * Divides the time window into multiple buckets for more accurate rate limiting.
  * Provides smooth rate limiting by considering partial windows rather than
  * fixed boundaries.
+ * <p>
+ * A key's buckets are stored as {@code rl:{<key>}:<bucket>}. The braces are a Redis Cluster
+ * hash tag: all buckets of one key map to the same slot, so a store may read and update a
+ * whole window in one script.
+ * </p>
  */
 public class SlidingWindowRateLimiter implements RateLimiter {
     private final RateLimitStore store;
     private final Clock clock;
     private final int buckets;
+    private volatile boolean storeSubtracts = true; // until the store turns out unable to take hits back
 
     /**
      * Creates a new sliding window rate limiter.
@@ -56,29 +67,161 @@ public class SlidingWindowRateLimiter implements RateLimiter {
     @Override
     public HitResult hit(String key, LimitRule rule) {
         Objects.requireNonNull(key, "key");
-        Objects.requireNonNull(rule, "rule");
+        long bucketSize = bucketSize(rule);
+        long currentBucket = Math.floorDiv(clock.millis(), bucketSize);
+        long total = count(key, rule, currentBucket);
 
-        long windowMs = rule.window().toMillis();
-        if (windowMs <= 0) throw new IllegalArgumentException("window must be > 0");
+        boolean allowed = total <= rule.permits();
+        long remaining = Math.max(0, rule.permits() - total);
+        long resetAtMs = (currentBucket + 1) * bucketSize;
 
-        long bucketSize = Math.max(1, windowMs / buckets); // defend against tiny windows
-        long now = clock.millis();
-        long currentBucket = Math.floorDiv(now, bucketSize);
+        return new HitResult(allowed, remaining, Instant.ofEpochMilli(resetAtMs));
+    }
 
-        String bucketKey = "rl:%s:%d".formatted(key, currentBucket);
+    @Override
+    public long decide(String key, LimitRule rule) {
+        Objects.requireNonNull(key, "key");
+        long bucketSize = bucketSize(rule);
+        long currentBucket = Math.floorDiv(clock.millis(), bucketSize);
+        long total = count(key, rule, currentBucket);
+        long resetAtMs = (currentBucket + 1) * bucketSize;
+        return PackedDecision.pack(total <= rule.permits(), rule.permits() - total, Math.floorDiv(resetAtMs, 1000));
+    }
+
+    @Override
+    public long decide(String key, LimitRule rule, long permits) {
+        Objects.requireNonNull(key, "key");
+        if (permits < 1) throw new IllegalArgumentException("permits must be >= 1");
+        long bucketSize = bucketSize(rule);
+        long currentBucket = Math.floorDiv(clock.millis(), bucketSize);
+        long total = store.addAndSum(keyBase(key), currentBucket, buckets - 1, permits, rule.window().toMillis());
+        long resetAtMs = (currentBucket + 1) * bucketSize;
+        return PackedDecision.pack(total <= rule.permits(), rule.permits() - total, Math.floorDiv(resetAtMs, 1000));
+    }
 
-        long total = store.incrementAndGet(bucketKey, windowMs);
+    /**
+     * Records the hits in the current bucket and, when the window is then over the limit,
+     * takes them back from that same bucket, whatever the time by then. With a store that
+     * cannot take hits back ({@link RateLimitStore#subtract}) the first refusal stays counted
+     * and later attempts read the window before recording, as the default does.
+     */
+    @Override
+    public long tryAcquire(String key, LimitRule rule, long permits) {
+        Objects.requireNonNull(key, "key");
+        if (!storeSubtracts) return RateLimiter.super.tryAcquire(key, rule, permits);
+        if (permits < 1) throw new IllegalArgumentException("permits must be >= 1");
+        long bucketSize = bucketSize(rule);
+        long currentBucket = Math.floorDiv(clock.millis(), bucketSize);
+        String keyBase = keyBase(key);
+        long total = store.addAndSum(keyBase, currentBucket, buckets - 1, permits, rule.window().toMillis());
+        long resetEpochSecond = Math.floorDiv((currentBucket + 1) * bucketSize, 1000);
+        if (total <= rule.permits()) {
+            return PackedDecision.pack(true, rule.permits() - total, resetEpochSecond);
+        }
+        if (!store.subtract(keyBase + currentBucket, permits)) storeSubtracts = false;
+        return PackedDecision.pack(false, rule.permits() - (total - permits), resetEpochSecond);
+    }
 
-        // Sum previous (buckets - 1) buckets
-        for (int i = 1; i < buckets; i++) {
-            long b = currentBucket - i;
-            total += store.get("rl:%s:%d".formatted(key, b));
+    @Override
+    public long[] decideAll(List<HitRequest> requests) {
+        int n = requests.size();
+        long[] resetAtMs = new long[n];
+        long[] totals = addAll(requests, resetAtMs);
+        long[] decisions = new long[n];
+        for (int i = 0; i < n; i++) {
+            LimitRule rule = requests.get(i).rule();
+            decisions[i] = PackedDecision.pack(totals[i] <= rule.permits(), rule.permits() - totals[i],
+                    Math.floorDiv(resetAtMs[i], 1000));
         }
+        return decisions;
+    }
 
-        boolean allowed = total <= rule.permits();
+    @Override
+    public List<HitResult> hitAll(List<HitRequest> requests) {
+        int n = requests.size();
+        long[] resetAtMs = new long[n];
+        long[] totals = addAll(requests, resetAtMs);
+        List<HitResult> results = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            LimitRule rule = requests.get(i).rule();
+            results.add(new HitResult(totals[i] <= rule.permits(), Math.max(0, rule.permits() - totals[i]),
+                    Instant.ofEpochMilli(resetAtMs[i])));
+        }
+        return results;
+    }
+
+    // every item's window in one store operation, at one instant; fills in when each current bucket ends
+    private long[] addAll(List<HitRequest> requests, long[] resetAtMs) {
+        int n = requests.size();
+        String[] keyBases = new String[n];
+        long[] currentBuckets = new long[n];
+        long[] deltas = new long[n];
+        long[] ttls = new long[n];
+        long now = clock.millis();
+        for (int i = 0; i < n; i++) {
+            HitRequest r = requests.get(i);
+            long bucketSize = bucketSize(r.rule());
+            keyBases[i] = keyBase(r.key());
+            currentBuckets[i] = Math.floorDiv(now, bucketSize);
+            resetAtMs[i] = (currentBuckets[i] + 1) * bucketSize;
+            deltas[i] = r.cost();
+            ttls[i] = r.rule().window().toMillis();
+        }
+        return store.addAndSumAll(keyBases, currentBuckets, buckets - 1, deltas, ttls);
+    }
+
+    // current bucket plus the previous (buckets - 1), in one store operation
+    private long count(String key, LimitRule rule, long currentBucket) {
+        return store.incrementAndSum(keyBase(key), currentBucket, buckets - 1, rule.window().toMillis());
+    }
+
+    @Override
+    public WindowState peek(String key, LimitRule rule) {
+        Objects.requireNonNull(key, "key");
+        long bucketSize = bucketSize(rule);
+        long currentBucket = Math.floorDiv(clock.millis(), bucketSize);
+        String keyBase = keyBase(key);
+        long total = 0;
+        for (int i = 0; i < buckets; i++) {
+            total += store.get(keyBase + (currentBucket - i));
+        }
         long remaining = Math.max(0, rule.permits() - total);
-        long resetAtMs = (currentBucket + 1) * bucketSize;
+        return new WindowState(key, total, remaining, Instant.ofEpochMilli((currentBucket + 1) * bucketSize));
+    }
 
-        return new HitResult(allowed, remaining, Instant.ofEpochMilli(resetAtMs));
+    /** Hits recorded now count until their bucket slides out, {@code buckets} buckets later; no store call is made. */
+    @Override
+    public Instant countedUntil(String key, LimitRule rule) {
+        Objects.requireNonNull(key, "key");
+        long bucketSize = bucketSize(rule);
+        long currentBucket = Math.floorDiv(clock.millis(), bucketSize);
+        return Instant.ofEpochMilli((currentBucket + buckets) * bucketSize);
+    }
+
+    @Override
+    public void reset(String key, LimitRule rule) {
+        Objects.requireNonNull(key, "key");
+        long currentBucket = Math.floorDiv(clock.millis(), bucketSize(rule));
+        String keyBase = keyBase(key);
+        for (int i = 0; i < buckets; i++) {
+            store.delete(keyBase + (currentBucket - i));
+        }
+    }
+
+    /**
+     * Returns the common prefix of a key's bucket keys, the bucket index following it.
+     *
+     * @param key the rate limit key
+     * @return {@code rl:{<key>}:}
+     */
+    public static String keyBase(String key) {
+        return "rl:{" + key + "}:";
+    }
+
+    private long bucketSize(LimitRule rule) {
+        Objects.requireNonNull(rule, "rule");
+        long windowMs = rule.window().toMillis();
+        if (windowMs <= 0) throw new IllegalArgumentException("window must be > 0");
+        return Math.max(1, windowMs / buckets);
     }
 }
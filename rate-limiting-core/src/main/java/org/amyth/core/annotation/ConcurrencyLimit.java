@@ -0,0 +1,104 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.amyth.core.annotation;
+
+import org.amyth.core.api.KeyStrategy;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Annotation for limiting how many requests per key run at the same time.
+ * <p>
+ * Where {@link RateLimit} counts how many requests start within a window, {@code @ConcurrencyLimit}
+ * bounds how many are still in flight: a permit is taken when the request starts and returned
+ * when its response, or the {@code Flux} of a streaming endpoint, completes, fails or is
+ * cancelled by the client. Both annotations can be combined on one handler.
+ * </p>
+ * <h2>Usage Examples</h2>
+ * <pre>{@code
+ * // At most 2 open event streams per client IP
+ * @ConcurrencyLimit(permits = 2)
+ * @GetMapping(value = "/sse/ticks", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+ * public Flux<ServerSentEvent<Tick>> ticks() { ... }
+ *
+ * // At most 5 concurrent exports per API key
+ * @ConcurrencyLimit(permits = 5, strategy = KeyStrategy.HEADER, strategyArg = "X-Api-Key")
+ * public Report export() { ... }
+ * }</pre>
+ * <p>
+ * On the Redis backend permits are leases that the holding node renews while the request
+ * runs; if the node dies, its permits expire after {@link #lease()} instead of being held forever.
+ * </p>
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Inherited
+public @interface ConcurrencyLimit {
+    /**
+     * Maximum number of requests per key in flight at the same time.
+     *
+     * @return the maximum number of concurrent requests
+     */
+    long permits() default 10;
+
+    /**
+     * SpEL expression to extract the key, as in {@link RateLimit#key()}.
+     * If empty, uses the default for the selected {@link #strategy()}.
+     *
+     * @return the SpEL expression for key extraction
+     */
+    String key() default "";
+
+    /**
+     * Strategy for resolving the key, as in {@link RateLimit#strategy()}.
+     *
+     * @return the strategy to use for key resolution
+     */
+    KeyStrategy strategy() default KeyStrategy.IP;
+
+    /**
+     * Argument for the selected strategy, such as cookie or header name.
+     *
+     * @return the argument for the selected strategy
+     */
+    String strategyArg() default "";
+
+    /**
+     * How long a permit survives once its node stops renewing it, on distributed backends.
+     * <p>
+     * Used together with {@link #leaseUnit()}. Live requests keep their permits however long
+     * they run; the lease only bounds how long a crashed node's permits linger.
+     * </p>
+     *
+     * @return the lease duration
+     */
+    long lease() default 30;
+
+    /**
+     * Time unit for the lease duration.
+     *
+     * @return the time unit for the lease duration
+     */
+    TimeUnit leaseUnit() default TimeUnit.SECONDS;
+
+    /**
+     * HTTP status code returned when the key already has {@link #permits()} requests in flight.
+     *
+     * @return the HTTP status code to use when the limit is reached
+     */
+    int httpStatus() default 429;
+}
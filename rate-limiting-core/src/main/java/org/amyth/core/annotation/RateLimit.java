@@ -17,6 +17,7 @@
 package org.amyth.core.annotation;
 
 import org.amyth.core.api.KeyStrategy;
+import org.amyth.core.api.LimitOutcome;
 
 import java.lang.annotation.*;
 import java.util.concurrent.TimeUnit;
@@ -65,10 +66,25 @@ import java.util.concurrent.TimeUnit;
  *   <li><b>strategyArg</b>: Argument for the selected strategy, such as cookie or header name.</li>
  *   <li><b>sendHeaders</b>: Whether to send rate limit headers in the response.</li>
  *   <li><b>httpStatus</b>: HTTP status code returned when the rate limit is exceeded.</li>
+ *   <li><b>maxWait</b>: How long an over-limit request may be delayed, waiting for a permit, before it is rejected.</li>
+ *   <li><b>maxWaitUnit</b>: Time unit for the maximum wait.</li>
+ *   <li><b>maxWaiting</b>: Maximum number of requests of one key waiting at once.</li>
+ *   <li><b>onLimit</b>: What happens to a call of a bean method that is not a web handler when over the limit.</li>
  * </ul>
  * <p>
  * This annotation can be applied at the method or class level. When applied at the class level, all methods inherit the rate limit unless overridden.
  * </p>
+ * <p>
+ * Besides controllers, the annotation limits the public methods of any Spring bean, such as services,
+ * {@code @Scheduled} jobs and message listeners. There {@link #key()} is evaluated against the method
+ * arguments (e.g. {@code "#tenantId"}, {@code "#p0"}), the key strategy does not apply, and
+ * {@link #onLimit()} decides what happens to a call over the limit:
+ * </p>
+ * <pre>{@code
+ * @RateLimit(permits = 10, window = 1, unit = TimeUnit.SECONDS, key = "'import:' + #tenantId",
+ *            onLimit = LimitOutcome.BLOCK)
+ * public void importBatch(String tenantId, List<Row> rows) { ... }
+ * }</pre>
  */
 @Target({ElementType.METHOD, ElementType.TYPE})
 @Retention(RetentionPolicy.RUNTIME)
@@ -129,7 +145,8 @@ public @interface RateLimit {
     /**
      * Argument for the selected strategy, such as cookie or header name.
      * <p>
-     * Used with COOKIE (e.g., "SESSIONID"), HEADER (e.g., "X-Api-Key"), or USER (e.g., claim name).
+     * Used with COOKIE (e.g., "SESSIONID"), HEADER (e.g., "X-Api-Key"), USER (e.g., claim name), or
+     * SUBNET (prefix lengths, e.g., "24/48").
      * </p>
      *
      * @return the argument for the selected strategy
@@ -155,4 +172,47 @@ public @interface RateLimit {
      * @return the HTTP status code to use when rate limit is exceeded
      */
     int httpStatus() default 429;
+
+    /**
+     * How long a request over the limit may be delayed until a permit frees up, instead of
+     * being rejected at once.
+     * <p>
+     * Default is 0: over-limit requests are rejected immediately. Suited to internal callers
+     * that would rather absorb a burst as latency than retry it. The request is admitted as
+     * soon as the window has slid far enough, and rejected with {@link #httpStatus()} if that
+     * is further away than this.
+     * </p>
+     *
+     * @return the maximum wait, in {@link #maxWaitUnit()}
+     */
+    long maxWait() default 0;
+
+    /**
+     * Time unit for the maximum wait.
+     *
+     * @return the time unit of {@link #maxWait()}
+     */
+    TimeUnit maxWaitUnit() default TimeUnit.MILLISECONDS;
+
+    /**
+     * Maximum number of requests of one key waiting for a permit at once.
+     * <p>
+     * Further over-limit requests of the key are rejected immediately, so a flood from one
+     * client cannot pile up delayed requests.
+     * </p>
+     *
+     * @return the bound of the key's wait queue
+     */
+    int maxWaiting() default 16;
+
+    /**
+     * What happens to a call over the limit, for bean methods that are not web handlers.
+     * <p>
+     * Default is {@link LimitOutcome#THROW}. Ignored by controllers, which answer with
+     * {@link #httpStatus()}. Without a {@link #key()} all calls of the method share one limit.
+     * </p>
+     *
+     * @return the outcome of an over-limit call
+     */
+    LimitOutcome onLimit() default LimitOutcome.THROW;
 }
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.amyth.core.api;
+
+import java.time.Duration;
+
+/**
+ * Limits how many requests per key are in flight at the same time.
+ * <p>
+ * A permit is acquired when a request or stream starts and released when it ends,
+ * however it ends. Unlike {@link RateLimiter}, which counts starts per window, this
+ * bounds the work that is running right now, e.g. open SSE streams or slow requests.
+ * </p>
+ */
+public interface ConcurrencyLimiter {
+
+    /** A held permit. */
+    interface Permit {
+        /**
+         * Returns the permit. Calling it again has no effect.
+         */
+        void release();
+    }
+
+    /**
+     * Acquires a permit for a key unless {@code limit} permits are already held.
+     *
+     * @param key   the unique identifier of the client or resource
+     * @param limit the maximum number of permits held for the key at once
+     * @param lease how long a distributed implementation keeps a permit whose holder
+     *              stopped renewing it, e.g. because its node crashed
+     * @return the permit, or {@code null} when the key is at its limit
+     */
+    Permit tryAcquire(String key, long limit, Duration lease);
+
+    /**
+     * Returns the number of permits currently held for a key.
+     *
+     * @param key the unique identifier of the client or resource
+     * @return the number of requests in flight
+     */
+    long inFlight(String key);
+}
@@ -25,6 +25,7 @@ package org.amyth.core.api;
  * </p>
  * <ul>
  *   <li><b>IP</b>: Uses the client's IP address. Suitable for anonymous clients or when you want to limit by network origin. May use X-Forwarded-For if configured.</li>
+ *   <li><b>SUBNET</b>: Uses the client's subnet, its IP address cut to a prefix length given by {@code strategyArg}. Keeps clients that rotate addresses within a network from multiplying keys.</li>
  *   <li><b>COOKIE</b>: Uses a specific cookie value, as specified by {@code strategyArg}. Useful for session-based rate limiting.</li>
  *   <li><b>HEADER</b>: Uses a specific HTTP header value, as specified by {@code strategyArg}. Common for API keys or custom tokens.</li>
  *   <li><b>USER</b>: Uses the authenticated user's ID or username (from Principal or JWT). Best for per-user rate limiting in authenticated systems.</li>
@@ -40,6 +41,16 @@ public enum KeyStrategy {
      */
     IP,
 
+    /**
+     * Client subnet: the IP address, as for {@link #IP}, cut to a prefix length.
+     * <p>
+     * Use this strategy when clients can change address within their network, as an IPv6 host within its /64. The
+     * prefix lengths are given via {@code strategyArg} as {@code "<ipv4>/<ipv6>"}, e.g. {@code "24/48"}, defaulting
+     * to the configured ones; see {@link org.amyth.core.keys.SubnetKeyResolver}.
+     * </p>
+     */
+    SUBNET,
+
     /**
      * A cookie value, specified via {@code strategyArg} in {@code @RateLimit}.
      * <p>
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.api;
+
+/**
+ * What happens to a call of a rate-limited bean method when its key is over the limit.
+ * <p>
+ * Selected with {@code @RateLimit(onLimit = ...)} on service methods, scheduled jobs and message
+ * listeners. Web handlers always answer with {@code @RateLimit(httpStatus = ...)} instead.
+ * </p>
+ * <ul>
+ *   <li><b>THROW</b>: Fails the call with a {@code RateLimitExceededException} (default).</li>
+ *   <li><b>BLOCK</b>: Waits for a permit, up to a bounded time, then fails as {@code THROW} does.</li>
+ *   <li><b>DROP</b>: Skips the call and returns an empty result.</li>
+ * </ul>
+ * With {@code THROW} and {@code DROP} the call may first wait up to {@code @RateLimit.maxWait()}.
+ * Waiting calls take a place in bounded wait queues; a call that finds them full ends at once.
+ */
+public enum LimitOutcome {
+    /**
+     * Fail the call with a {@code RateLimitExceededException}, which tells the caller how long to
+     * back off. Reactive methods return a publisher failing with it.
+     */
+    THROW,
+
+    /**
+     * Wait for a permit, up to {@code maxWait} or, when that is not set, a configured maximum
+     * ({@code ratelimit.max-block-wait}, one minute by default), then fail as {@link #THROW} does.
+     * <p>
+     * Suited to consumers that should slow down rather than lose work, such as message listeners:
+     * the blocked thread stops pulling messages. Reactive methods wait without blocking a thread.
+     * </p>
+     */
+    BLOCK,
+
+    /**
+     * Skip the call: return {@code null}, {@code Optional.empty()} or the primitive default
+     * (0, {@code false}), or an empty publisher for reactive methods.
+     * <p>
+     * Suited to work that may be lost, such as cache refreshes or best-effort notifications.
+     * </p>
+     */
+    DROP
+}
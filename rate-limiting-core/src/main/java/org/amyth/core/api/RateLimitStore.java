@@ -31,6 +31,98 @@ public interface RateLimitStore {
      */
     long incrementAndGet(String bucketKey, long ttlMillis);
 
+    /**
+     * Atomically add {@code delta} hits to a window bucket and return the current count.
+     * Used to apply several hits in one store operation (e.g. flushing locally aggregated counts).
+     * The default implementation falls back to {@code delta} single increments; stores should override it.
+     * @param bucketKey the unique identifier for the rate limit bucket
+     * @param delta number of hits to add (0 just reads the count)
+     * @param ttlMillis time-to-live in milliseconds for the bucket, applied when it is created
+     * @return the updated count value after adding
+     */
+    default long addAndGet(String bucketKey, long delta, long ttlMillis) {
+        if (delta < 0) throw new IllegalArgumentException("delta must be >= 0");
+        long v = get(bucketKey);
+        for (long i = 0; i < delta; i++) {
+            v = incrementAndGet(bucketKey, ttlMillis);
+        }
+        return v;
+    }
+
+    /**
+     * Takes back up to {@code hits} hits counted in a bucket, e.g. those of a decision that was
+     * refused and is not going to be used. The count never goes below zero, and a bucket that
+     * does not exist, e.g. because it expired meanwhile, is not created.
+     * The default implementation cannot take hits back and leaves the bucket as it is; stores
+     * should override it.
+     * @param bucketKey the unique identifier for the rate limit bucket
+     * @param hits number of hits to take back, at least 1
+     * @return whether the store takes hits back; false if it left the bucket as it was
+     */
+    default boolean subtract(String bucketKey, long hits) {
+        return false;
+    }
+
+    /**
+     * Increments the current bucket of a sliding window and returns its new count plus the counts
+     * of the {@code olderBuckets} buckets before it, in a single store operation where the store
+     * supports it (one script round trip on Redis). Bucket keys are {@code keyBase + bucketIndex}.
+     * The default implementation issues one increment followed by {@code olderBuckets} reads.
+     * @param keyBase common prefix of the window's bucket keys, e.g. {@code "rl:client:"}
+     * @param currentBucket index of the bucket to increment
+     * @param olderBuckets number of preceding buckets to include in the sum
+     * @param ttlMillis time-to-live in milliseconds for the current bucket, applied when it is created
+     * @return the count of the current bucket after incrementing, plus the older buckets' counts
+     */
+    default long incrementAndSum(String keyBase, long currentBucket, int olderBuckets, long ttlMillis) {
+        long total = incrementAndGet(keyBase + currentBucket, ttlMillis);
+        for (int i = 1; i <= olderBuckets; i++) {
+            total += get(keyBase + (currentBucket - i));
+        }
+        return total;
+    }
+
+    /**
+     * Adds {@code delta} hits to the current bucket of a sliding window and returns its new count
+     * plus the counts of the {@code olderBuckets} buckets before it, like {@link #incrementAndSum}
+     * for several hits at once (one script round trip on Redis).
+     * The default implementation issues one {@link #addAndGet} followed by {@code olderBuckets} reads.
+     * @param keyBase common prefix of the window's bucket keys, e.g. {@code "rl:client:"}
+     * @param currentBucket index of the bucket to add to
+     * @param olderBuckets number of preceding buckets to include in the sum
+     * @param delta number of hits to add
+     * @param ttlMillis time-to-live in milliseconds for the current bucket, applied when it is created
+     * @return the count of the current bucket after adding, plus the older buckets' counts
+     */
+    default long addAndSum(String keyBase, long currentBucket, int olderBuckets, long delta, long ttlMillis) {
+        long total = addAndGet(keyBase + currentBucket, delta, ttlMillis);
+        for (int i = 1; i <= olderBuckets; i++) {
+            total += get(keyBase + (currentBucket - i));
+        }
+        return total;
+    }
+
+    /**
+     * Applies {@link #addAndSum} to many windows at once, in order, in as few store operations
+     * as the store allows (one script per chunk on Redis). All windows have the same number of
+     * buckets; the arrays are parallel, one entry per window.
+     * The default implementation calls {@link #addAndSum} for each window.
+     * @param keyBases common prefix of each window's bucket keys
+     * @param currentBuckets index of each window's bucket to add to
+     * @param olderBuckets number of preceding buckets to include in each sum
+     * @param deltas number of hits to add to each window
+     * @param ttlMillis time-to-live in milliseconds of each window's current bucket, applied when it is created
+     * @return the count of each window after adding, current bucket plus older buckets
+     */
+    default long[] addAndSumAll(String[] keyBases, long[] currentBuckets, int olderBuckets, long[] deltas,
+                                long[] ttlMillis) {
+        long[] totals = new long[keyBases.length];
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = addAndSum(keyBases[i], currentBuckets[i], olderBuckets, deltas[i], ttlMillis[i]);
+        }
+        return totals;
+    }
+
     /**
      * Retrieves the current count for the given bucket.
      *
@@ -39,6 +131,20 @@ public interface RateLimitStore {
      */
     long get(String bucketKey);
 
+    /**
+     * Retrieves the current counts of many buckets in as few store operations as the store
+     * allows (one MGET per chunk on Redis), e.g. to refresh a local view of them.
+     * The default implementation calls {@link #get} for each bucket.
+     *
+     * @param bucketKeys the buckets to read
+     * @return the count of each bucket, in order, 0 for a bucket that does not exist
+     */
+    default long[] getAll(String[] bucketKeys) {
+        long[] counts = new long[bucketKeys.length];
+        for (int i = 0; i < counts.length; i++) counts[i] = get(bucketKeys[i]);
+        return counts;
+    }
+
     /**
      * Sets or updates the expiration time for a bucket.
      *
@@ -46,4 +152,13 @@ public interface RateLimitStore {
      * @param ttlMillis time-to-live in milliseconds for the bucket
      */
     void expire(String bucketKey, long ttlMillis);
+
+    /**
+     * Removes a bucket, e.g. to unblock a client. The default implementation expires it immediately.
+     *
+     * @param bucketKey the unique identifier for the rate limit bucket
+     */
+    default void delete(String bucketKey) {
+        expire(bucketKey, 0);
+    }
 }
@@ -16,8 +16,15 @@
 
 package org.amyth.core.api;
 
+import org.amyth.core.model.HitRequest;
 import org.amyth.core.model.HitResult;
 import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.amyth.core.model.WindowState;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Core interface for rate limiting operations.
@@ -34,4 +41,137 @@ public interface RateLimiter {
      * @return a HitResult containing whether the request is allowed and remaining permits
      */
     HitResult hit(String key, LimitRule rule);
+
+    /**
+     * Records a hit like {@link #hit}, returning the result as a {@link PackedDecision}
+     * instead of an object. Implementations should override this so that deciding a
+     * request allocates nothing; the default packs the result of {@link #hit}.
+     *
+     * @param key  the unique identifier for the rate limit bucket
+     * @param rule the rate limiting rule defining permits and time window
+     * @return the decision, read with the {@link PackedDecision} accessors
+     */
+    default long decide(String key, LimitRule rule) {
+        return PackedDecision.of(hit(key, rule));
+    }
+
+    /**
+     * Records {@code permits} hits at once, e.g. a batch of permits a stream takes ahead of
+     * the elements that use them. The decision is allowed when the window, counting all of
+     * them, is within the limit; when it is not, all of them stay counted, as a blocked hit does.
+     * Implementations should override this to record the hits in one store operation; the
+     * default records them one by one and returns the last decision.
+     *
+     * @param key     the unique identifier for the rate limit bucket
+     * @param rule    the rate limiting rule defining permits and time window
+     * @param permits the number of hits to record, at least 1
+     * @return the decision, read with the {@link PackedDecision} accessors
+     */
+    default long decide(String key, LimitRule rule, long permits) {
+        if (permits < 1) throw new IllegalArgumentException("permits must be >= 1");
+        long decision = decide(key, rule);
+        for (long i = 1; i < permits; i++) {
+            decision = decide(key, rule);
+        }
+        return decision;
+    }
+
+    /**
+     * Records {@code permits} hits only if the window has room for all of them, e.g. for a
+     * request that waits for its turn rather than being rejected. Unlike
+     * {@link #decide(String, LimitRule, long)}, a refused attempt leaves the window as it was,
+     * so retrying does not fill the window it waits on; the refused decision reports the
+     * permits the window has left.
+     * The default reads the window first and records the hits only when they fit. Hits of
+     * concurrent requests may still push the recorded ones over the limit, in which case they
+     * stay counted, as a blocked hit does.
+     *
+     * @param key     the unique identifier for the rate limit bucket
+     * @param rule    the rate limiting rule defining permits and time window
+     * @param permits the number of hits to record, at least 1
+     * @return the decision, read with the {@link PackedDecision} accessors
+     * @throws UnsupportedOperationException if the limiter cannot inspect its state
+     */
+    default long tryAcquire(String key, LimitRule rule, long permits) {
+        if (permits < 1) throw new IllegalArgumentException("permits must be >= 1");
+        WindowState state = peek(key, rule);
+        if (state.count() + permits > rule.permits()) {
+            return PackedDecision.pack(false, state.remaining(), state.resetAt().getEpochSecond());
+        }
+        return decide(key, rule, permits);
+    }
+
+    /**
+     * Records the hits of many keys at once, e.g. every tenant of a batch, in as few store
+     * operations as the store allows (one script per chunk of items on Redis). Items are
+     * decided in order, so an item sees the hits of earlier items with the same key; each is
+     * counted like {@link #decide(String, LimitRule, long)}, whether allowed or not.
+     * The default decides them one by one.
+     *
+     * @param requests the items to record
+     * @return the decision of each item, in order, read with the {@link PackedDecision} accessors
+     */
+    default long[] decideAll(List<HitRequest> requests) {
+        long[] decisions = new long[requests.size()];
+        for (int i = 0; i < decisions.length; i++) {
+            HitRequest r = requests.get(i);
+            decisions[i] = decide(r.key(), r.rule(), r.cost());
+        }
+        return decisions;
+    }
+
+    /**
+     * Records the hits of many keys at once, like {@link #decideAll}, returning result objects.
+     * The default unpacks the decisions of {@link #decideAll}, so reset times are rounded down
+     * to the second.
+     *
+     * @param requests the items to record
+     * @return the result of each item, in order
+     */
+    default List<HitResult> hitAll(List<HitRequest> requests) {
+        long[] decisions = decideAll(requests);
+        List<HitResult> results = new ArrayList<>(decisions.length);
+        for (long d : decisions) {
+            results.add(new HitResult(PackedDecision.allowed(d), PackedDecision.remaining(d),
+                    Instant.ofEpochSecond(PackedDecision.resetEpochSecond(d))));
+        }
+        return results;
+    }
+
+    /**
+     * Reads the state of a key's window without recording a hit.
+     *
+     * @param key  the unique identifier for the rate limit bucket
+     * @param rule the rate limiting rule defining permits and time window
+     * @return the count, remaining permits and reset time of the key
+     * @throws UnsupportedOperationException if the limiter cannot inspect its state
+     */
+    default WindowState peek(String key, LimitRule rule) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support peek");
+    }
+
+    /**
+     * Tells until when hits recorded for a key now count against its window, e.g. to hand out
+     * permits taken in advance only while they are still counted. The default reads the window
+     * and returns the end of its current bucket, which hits recorded now outlast.
+     *
+     * @param key  the unique identifier for the rate limit bucket
+     * @param rule the rate limiting rule defining permits and time window
+     * @return the instant before which hits recorded now still count
+     * @throws UnsupportedOperationException if the limiter cannot inspect its state
+     */
+    default Instant countedUntil(String key, LimitRule rule) {
+        return peek(key, rule).resetAt();
+    }
+
+    /**
+     * Clears a key's window, so that its next request starts from a full quota.
+     *
+     * @param key  the unique identifier for the rate limit bucket
+     * @param rule the rate limiting rule defining permits and time window
+     * @throws UnsupportedOperationException if the limiter cannot reset its state
+     */
+    default void reset(String key, LimitRule rule) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support reset");
+    }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.api;
+
+import org.amyth.core.model.KeyPage;
+
+/**
+ * A store whose live bucket keys can be listed, page by page, without blocking
+ * request traffic: in-memory stores page through a snapshot of their keys, Redis uses
+ * {@code SCAN}.
+ */
+public interface ScannableRateLimitStore extends RateLimitStore {
+
+    /**
+     * Returns the next page of live bucket keys. Keys created or removed during a scan
+     * may or may not be returned, and a key may appear on more than one page.
+     *
+     * @param cursor cursor returned with the previous page, or {@code null} to start
+     * @param count  maximum number of keys in the page
+     * @return the page and the cursor of the next one
+     * @throws IllegalArgumentException if the cursor was not returned by this store, or has expired
+     */
+    KeyPage scan(String cursor, int count);
+}
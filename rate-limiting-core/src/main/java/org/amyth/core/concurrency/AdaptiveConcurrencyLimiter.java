@@ -0,0 +1,226 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.concurrency;
+
+import org.amyth.core.api.ConcurrencyLimiter;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * An in-flight limit that adapts to observed latency.
+ * <p>
+ * Requests take a permit while the number in flight is below the current limit, and report
+ * their latency when they release it. Once per window the limit moves by the gradient
+ * {@code targetLatency / averageLatency}, clamped to {@code [0.5, 1]}: it shrinks in
+ * proportion while latency is above target and, while latency is on target and the limit
+ * is actually being used, grows by {@code sqrt(limit)}. The step is smoothed and kept within
+ * {@code [minLimit, maxLimit]}. A slowing downstream thus cuts the concurrency sent to it
+ * before queues build up, and the limit recovers once latency does.
+ * </p>
+ * <p>
+ * Samples are gathered in striped adders and folded in by whichever request closes the
+ * window, so the hot path takes no lock. Samples racing with a window change may be lost,
+ * which only makes the estimate slightly noisier.
+ * </p>
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    /**
+     * Tuning of the limit.
+     *
+     * @param initialLimit  limit before any latency has been observed
+     * @param minLimit      lowest limit, so that some traffic always gets through to measure latency
+     * @param maxLimit      highest limit
+     * @param targetLatency latency the limit steers towards
+     * @param window        how often the limit is recomputed
+     * @param minSamples    fewest completed requests a window needs to move the limit, or the limit if lower
+     * @param smoothing     share of a new estimate taken per window, in {@code (0, 1]}
+     */
+    public record Options(int initialLimit, int minLimit, int maxLimit, Duration targetLatency, Duration window,
+                          int minSamples, double smoothing) {
+
+        /** 20 initially, between 1 and 1000, steering to 100ms, recomputed every 250ms. */
+        public static final Options DEFAULTS = new Options(20, 1, 1000, Duration.ofMillis(100),
+                Duration.ofMillis(250), 10, 0.5);
+
+        public Options {
+            if (minLimit < 1 || maxLimit < minLimit) throw new IllegalArgumentException("need 1 <= minLimit <= maxLimit");
+            if (targetLatency.isNegative() || targetLatency.isZero()) throw new IllegalArgumentException("targetLatency must be > 0");
+            if (!(smoothing > 0 && smoothing <= 1)) throw new IllegalArgumentException("smoothing must be in (0, 1]");
+            initialLimit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        }
+    }
+
+    /** A permit of this limiter. */
+    public final class Permit implements ConcurrencyLimiter.Permit {
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        /**
+         * Returns the permit and records the request's latency.
+         */
+        @Override
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                sample(nanoTime.getAsLong() - startNanos);
+            }
+        }
+
+        /**
+         * Returns the permit without recording a latency, e.g. when the request was
+         * rejected by another limit or is a stream whose duration says nothing about load.
+         */
+        public void ignore() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private final Options options;
+    private final LongSupplier nanoTime;
+    private final long targetNanos;
+    private final long windowNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+    private volatile double limit;
+    private volatile long lastLatencyNanos;
+
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder latencySum = new LongAdder();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong windowStart;
+
+    /**
+     * Creates a limiter.
+     *
+     * @param options tuning of the limit
+     */
+    public AdaptiveConcurrencyLimiter(Options options) {
+        this(options, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(Options options, LongSupplier nanoTime) {
+        this.options = Objects.requireNonNull(options, "options");
+        this.nanoTime = nanoTime;
+        this.targetNanos = options.targetLatency().toNanos();
+        this.windowNanos = Math.max(1, options.window().toNanos());
+        this.limit = options.initialLimit();
+        this.windowStart = new AtomicLong(nanoTime.getAsLong());
+    }
+
+    /**
+     * Takes a permit if fewer requests than the current limit are in flight.
+     *
+     * @return the permit, or {@code null} when the limit is reached
+     */
+    public Permit tryAcquire() {
+        int max = getLimit();
+        for (int n = inFlight.get(); ; n = inFlight.get()) {
+            if (n >= max) {
+                rejected.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(n, n + 1)) {
+                peakInFlight.accumulateAndGet(n + 1, Math::max);
+                return new Permit(nanoTime.getAsLong());
+            }
+        }
+    }
+
+    private void sample(long latencyNanos) {
+        samples.increment();
+        latencySum.add(latencyNanos);
+        long start = windowStart.get();
+        long now = nanoTime.getAsLong();
+        if (now - start >= windowNanos && samples.sum() >= Math.min(options.minSamples(), getLimit())
+                && windowStart.compareAndSet(start, now)) {
+            long count = samples.sumThenReset();
+            long sum = latencySum.sumThenReset();
+            int peak = peakInFlight.getAndSet(inFlight.get());
+            if (count > 0) adjust(sum / count, peak);
+        }
+    }
+
+    private void adjust(long avgNanos, int peak) {
+        lastLatencyNanos = avgNanos;
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, (double) targetNanos / Math.max(1, avgNanos)));
+        double estimate = current * gradient;
+        // grow only when on target and the limit is what holds traffic back
+        if (gradient >= 1.0 && peak * 2 >= (int) current) estimate += Math.sqrt(current);
+        double next = current + (estimate - current) * options.smoothing();
+        limit = Math.max(options.minLimit(), Math.min(options.maxLimit(), next));
+    }
+
+    /**
+     * Gets the current limit.
+     *
+     * @return the number of requests allowed in flight
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Gets the number of requests holding a permit.
+     *
+     * @return the requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the number of requests turned away because the limit was reached.
+     *
+     * @return the count of rejected requests
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Gets the average latency of the last window that moved the limit.
+     *
+     * @return the latency, zero before the first window closed
+     */
+    public Duration getLatency() {
+        return Duration.ofNanos(lastLatencyNanos);
+    }
+
+    /**
+     * Gets the tuning of this limiter.
+     *
+     * @return the options
+     */
+    public Options getOptions() {
+        return options;
+    }
+}
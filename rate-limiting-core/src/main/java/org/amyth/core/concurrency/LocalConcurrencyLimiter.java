@@ -0,0 +1,87 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.amyth.core.concurrency;
+
+import org.amyth.core.api.ConcurrencyLimiter;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-process {@link ConcurrencyLimiter}.
+ * <p>
+ * Counts permits per key in a concurrent map; a key's entry is created by its first
+ * permit and removed with its last, so idle keys take no memory. Permits cannot outlive
+ * the process, so the lease is ignored.
+ * </p>
+ */
+public class LocalConcurrencyLimiter implements ConcurrencyLimiter {
+
+    /** Permits held for a key; only changed inside the map's per-key compute. */
+    private static final class Slot {
+        volatile long held;
+    }
+
+    private final class LocalPermit extends AtomicBoolean implements Permit {
+        private final String key;
+        private boolean admitted;
+
+        LocalPermit(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public void release() {
+            if (compareAndSet(false, true)) {
+                slots.computeIfPresent(key, (k, s) -> --s.held == 0 ? null : s);
+            }
+        }
+    }
+
+    private final ConcurrentHashMap<String, Slot> slots = new ConcurrentHashMap<>();
+
+    @Override
+    public Permit tryAcquire(String key, long limit, Duration lease) {
+        Objects.requireNonNull(key, "key");
+        LocalPermit permit = new LocalPermit(key);
+        slots.compute(key, (k, s) -> {
+            if (s == null) s = new Slot();
+            if (s.held < limit) {
+                s.held++;
+                permit.admitted = true;
+            }
+            return s.held == 0 ? null : s;
+        });
+        return permit.admitted ? permit : null;
+    }
+
+    @Override
+    public long inFlight(String key) {
+        Slot s = slots.get(key);
+        return s == null ? 0 : s.held;
+    }
+
+    /**
+     * Returns the number of keys holding at least one permit.
+     *
+     * @return the number of busy keys
+     */
+    public int size() {
+        return slots.size();
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.keys;
+
+import org.amyth.core.api.HttpRequestContext;
+import org.amyth.core.api.KeyResolver;
+
+/**
+ * A KeyResolver implementation that limits whole subnets rather than single addresses: the
+ * client's IP address is cut to a prefix length, a /24 for IPv4 and a /64 for IPv6 by default,
+ * and the key is the subnet in CIDR notation, e.g. {@code 203.0.113.0/24} or
+ * {@code 2001:db8:1:2::/64}. A client rotating through the addresses of its subnet then counts
+ * against one key, which also bounds the number of keys the store holds during an attack.
+ *
+ * Addresses are parsed from their text without {@code InetAddress} (so never a DNS lookup)
+ * and without allocating, the 128 bits of an IPv6 address held in two longs; only the key
+ * itself is allocated. IPv4-mapped IPv6 addresses count as IPv4, brackets and zone ids are
+ * ignored, and text that is not an address (e.g. {@code unknown}) is the key as it is.
+ */
+public final class SubnetKeyResolver implements KeyResolver {
+
+    /** The default IPv4 prefix length, a /24. */
+    public static final int DEFAULT_IPV4_PREFIX = 24;
+
+    /** The default IPv6 prefix length, a /64, what a single site is usually given. */
+    public static final int DEFAULT_IPV6_PREFIX = 64;
+
+    private final int ipv4Prefix;
+    private final int ipv6Prefix;
+
+    /**
+     * Constructs a resolver using the default prefix lengths, /24 and /64.
+     */
+    public SubnetKeyResolver() {
+        this(DEFAULT_IPV4_PREFIX, DEFAULT_IPV6_PREFIX);
+    }
+
+    /**
+     * Constructs a new SubnetKeyResolver.
+     *
+     * @param ipv4Prefix the prefix length IPv4 addresses are cut to, 0 to 32
+     * @param ipv6Prefix the prefix length IPv6 addresses are cut to, 0 to 128
+     */
+    public SubnetKeyResolver(int ipv4Prefix, int ipv6Prefix) {
+        if (ipv4Prefix < 0 || ipv4Prefix > 32) throw new IllegalArgumentException("ipv4Prefix must be in [0, 32]");
+        if (ipv6Prefix < 0 || ipv6Prefix > 128) throw new IllegalArgumentException("ipv6Prefix must be in [0, 128]");
+        this.ipv4Prefix = ipv4Prefix;
+        this.ipv6Prefix = ipv6Prefix;
+    }
+
+    /**
+     * Returns a resolver with the prefix lengths given as {@code "<ipv4>/<ipv6>"}, e.g.
+     * {@code "24/48"}; a part left empty, as in {@code "/56"} or {@code "16"}, keeps this
+     * resolver's length.
+     *
+     * @param spec the prefix lengths, e.g. the {@code strategyArg} of a {@code SUBNET} limit
+     * @return a resolver with those prefix lengths, or this one if {@code spec} is empty
+     * @throws IllegalArgumentException if a length is not a number in range
+     */
+    public SubnetKeyResolver withPrefixes(String spec) {
+        if (spec == null || spec.isBlank()) return this;
+        int slash = spec.indexOf('/');
+        String v4 = (slash < 0 ? spec : spec.substring(0, slash)).trim();
+        String v6 = slash < 0 ? "" : spec.substring(slash + 1).trim();
+        try {
+            return new SubnetKeyResolver(v4.isEmpty() ? ipv4Prefix : Integer.parseInt(v4),
+                    v6.isEmpty() ? ipv6Prefix : Integer.parseInt(v6));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Subnet prefixes must be '<ipv4>/<ipv6>', was '" + spec + "'", e);
+        }
+    }
+
+    /**
+     * Resolves the rate limit key using the subnet of the client's IP address.
+     *
+     * @param ctx the HTTP request context
+     * @return the client's subnet as the rate limit key
+     */
+    @Override
+    public String resolve(HttpRequestContext ctx) {
+        return key(ctx.clientIp());
+    }
+
+    /**
+     * Returns the subnet of an address as a key.
+     *
+     * @param address an IPv4 or IPv6 address as text
+     * @return the subnet in CIDR notation, or {@code address} if it is not an IP address
+     */
+    public String key(String address) {
+        if (address == null) return "unknown";
+        int from = 0;
+        int to = address.length();
+        if (to > 1 && address.charAt(0) == '[' && address.charAt(to - 1) == ']') {
+            from = 1;
+            to--;
+        }
+        int zone = address.indexOf('%', from);
+        if (zone >= 0 && zone < to) to = zone;
+        int colon = address.indexOf(':', from);
+        String key = colon >= 0 && colon < to ? ipv6Key(address, from, to) : ipv4Key(parseIpv4(address, from, to));
+        return key != null ? key : address;
+    }
+
+    private String ipv4Key(long address) {
+        if (address < 0) return null;
+        long masked = ipv4Prefix == 0 ? 0 : address & (0xFFFF_FFFFL << (32 - ipv4Prefix));
+        StringBuilder sb = new StringBuilder(18);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            sb.append((masked >>> shift) & 0xFF);
+            if (shift > 0) sb.append('.');
+        }
+        return sb.append('/').append(ipv4Prefix).toString();
+    }
+
+    private String ipv6Key(String s, int from, int to) {
+        long hi = 0, lo = 0;          // the groups before "::", or all of them without one
+        long tailHi = 0, tailLo = 0;  // the groups after "::"
+        int head = 0, tail = 0;
+        boolean gap = false;
+        int i = from;
+        if (to - from >= 2 && s.charAt(i) == ':' && s.charAt(i + 1) == ':') {
+            gap = true;
+            i += 2;
+        }
+        while (i < to) {
+            int start = i;
+            int group = 0;
+            for (int d; i < to && i - start <= 4 && (d = hexDigit(s.charAt(i))) >= 0; i++) {
+                group = group << 4 | d;
+            }
+            if (i < to && s.charAt(i) == '.') {
+                // a trailing IPv4 address, as in ::ffff:203.0.113.10, gives the last two groups
+                long v4 = parseIpv4(s, start, to);
+                if (v4 < 0 || head + tail > 6) return null;
+                if (gap) {
+                    tailHi = tailHi << 32 | tailLo >>> 32;
+                    tailLo = tailLo << 32 | v4;
+                    tail += 2;
+                } else {
+                    hi = hi << 32 | lo >>> 32;
+                    lo = lo << 32 | v4;
+                    head += 2;
+                }
+                break;
+            }
+            if (i == start || i - start > 4 || head + tail == 8) return null;
+            if (gap) {
+                tailHi = tailHi << 16 | tailLo >>> 48;
+                tailLo = tailLo << 16 | group;
+                tail++;
+            } else {
+                hi = hi << 16 | lo >>> 48;
+                lo = lo << 16 | group;
+                head++;
+            }
+            if (i == to) break;
+            if (s.charAt(i++) != ':' || i == to) return null;
+            if (s.charAt(i) == ':') {
+                if (gap) return null;
+                gap = true;
+                i++;
+            }
+        }
+        if (gap ? head + tail > 7 : head != 8) return null;
+        if (gap) {
+            // move the head groups to the top; the "::" between them and the tail is zeros
+            int shift = 16 * (8 - head);
+            if (head == 0) {
+                hi = 0;
+                lo = 0;
+            } else if (shift >= 64) {
+                hi = lo << (shift - 64);
+                lo = 0;
+            } else {
+                hi = hi << shift | lo >>> (64 - shift);
+                lo = lo << shift;
+            }
+            hi |= tailHi;
+            lo |= tailLo;
+        }
+        if (hi == 0 && lo >>> 32 == 0xFFFFL) return ipv4Key(lo & 0xFFFF_FFFFL);
+
+        int p = ipv6Prefix;
+        if (p <= 64) {
+            hi = p == 0 ? 0 : hi & (-1L << (64 - p));
+            lo = 0;
+        } else {
+            lo &= -1L << (128 - p);
+        }
+        int groups = (p + 15) / 16;
+        StringBuilder sb = new StringBuilder(44);
+        for (int g = 0; g < groups; g++) {
+            if (g > 0) sb.append(':');
+            long word = g < 4 ? hi >>> (48 - 16 * g) : lo >>> (48 - 16 * (g - 4));
+            appendHex(sb, (int) (word & 0xFFFF));
+        }
+        if (groups < 8) sb.append("::");
+        return sb.append('/').append(p).toString();
+    }
+
+    // the address as an unsigned 32-bit value, or -1 if the text is not a dotted quad
+    static long parseIpv4(String s, int from, int to) {
+        long address = 0;
+        int dots = 0;
+        int octet = -1;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) return -1;
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                address = address << 8 | octet;
+                dots++;
+                octet = -1;
+            } else {
+                return -1;
+            }
+        }
+        return octet < 0 || dots != 3 ? -1 : address << 8 | octet;
+    }
+
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static void appendHex(StringBuilder sb, int group) {
+        int shift = 12;
+        while (shift > 0 && (group >>> shift) == 0) shift -= 4;
+        for (; shift >= 0; shift -= 4) sb.append(Character.forDigit((group >>> shift) & 0xF, 16));
+    }
+}
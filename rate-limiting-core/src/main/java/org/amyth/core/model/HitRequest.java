@@ -0,0 +1,48 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.model;
+
+import java.util.Objects;
+
+/**
+ * One item of a bulk check: a key, its rule and how many permits it takes.
+ *
+ * @param key  the rate limit key
+ * @param rule the rule of the key
+ * @param cost the permits the item takes, at least 1 (e.g. the rows a tenant sends in a batch)
+ */
+public record HitRequest(String key, LimitRule rule, long cost) {
+
+    /**
+     * Validates the item.
+     */
+    public HitRequest {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(rule, "rule");
+        if (cost < 1) throw new IllegalArgumentException("cost must be >= 1");
+    }
+
+    /**
+     * Creates an item taking one permit.
+     *
+     * @param key  the rate limit key
+     * @param rule the rule of the key
+     */
+    public HitRequest(String key, LimitRule rule) {
+        this(key, rule, 1);
+    }
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.model;
+
+import java.util.List;
+
+/**
+ * One page of bucket keys from a store scan.
+ *
+ * @param bucketKeys the live bucket keys of this page, e.g. {@code rl:<key>:<bucket>}
+ * @param cursor     cursor of the next page, or {@code null} when the scan is complete
+ */
+public record KeyPage(List<String> bucketKeys, String cursor) {}
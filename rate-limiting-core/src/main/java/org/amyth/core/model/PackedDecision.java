@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.model;
+
+/**
+ * A rate limit decision packed into a single {@code long}, for callers that must not
+ * allocate per request.
+ * <p>
+ * Layout, high to low: 1 bit allowed, 31 bits remaining permits, 32 bits reset time in
+ * epoch seconds (unsigned, good until 2106). Remaining saturates at
+ * {@link Integer#MAX_VALUE}, so limits above two billion permits report that many.
+ * </p>
+ */
+public final class PackedDecision {
+
+    private static final long ALLOWED = 1L << 63;
+    private static final long REMAINING_MAX = Integer.MAX_VALUE;
+    private static final long RESET_MASK = 0xFFFF_FFFFL;
+
+    private PackedDecision() {}
+
+    /**
+     * Packs a decision.
+     *
+     * @param allowed          whether the request is allowed to proceed
+     * @param remaining        the number of remaining permits, clamped to {@code [0, 2^31 - 1]}
+     * @param resetEpochSecond the epoch second at which the window resets
+     * @return the packed decision
+     */
+    public static long pack(boolean allowed, long remaining, long resetEpochSecond) {
+        long r = Math.min(Math.max(remaining, 0), REMAINING_MAX);
+        return (allowed ? ALLOWED : 0) | (r << 32) | (resetEpochSecond & RESET_MASK);
+    }
+
+    /**
+     * Packs a {@link HitResult}, rounding its reset time down to the second.
+     *
+     * @param hr the result to pack
+     * @return the packed decision
+     */
+    public static long of(HitResult hr) {
+        return pack(hr.allowed(), hr.remaining(), hr.resetAt().getEpochSecond());
+    }
+
+    /**
+     * @param decision a packed decision
+     * @return whether the request is allowed to proceed
+     */
+    public static boolean allowed(long decision) {
+        return decision < 0;
+    }
+
+    /**
+     * @param decision a packed decision
+     * @return the number of remaining permits
+     */
+    public static long remaining(long decision) {
+        return (decision >>> 32) & REMAINING_MAX;
+    }
+
+    /**
+     * @param decision a packed decision
+     * @return the epoch second at which the window resets
+     */
+    public static long resetEpochSecond(long decision) {
+        return decision & RESET_MASK;
+    }
+}
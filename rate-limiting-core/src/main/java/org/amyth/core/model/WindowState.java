@@ -0,0 +1,29 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.model;
+
+import java.time.Instant;
+
+/**
+ * The current state of a key's window under a rule, read without consuming a permit.
+ *
+ * @param key       the rate limit key
+ * @param count     hits counted in the current window
+ * @param remaining permits left before the key is blocked
+ * @param resetAt   the instant the current bucket ends
+ */
+public record WindowState(String key, long count, long remaining, Instant resetAt) {}
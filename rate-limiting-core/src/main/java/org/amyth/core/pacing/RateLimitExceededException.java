@@ -0,0 +1,58 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.pacing;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a call could not get a permit within the time it was allowed to wait.
+ */
+public class RateLimitExceededException extends RuntimeException {
+
+    private final String key;
+    private final Duration retryAfter;
+
+    /**
+     * Creates the exception.
+     *
+     * @param key        the rate limit key that had no permit
+     * @param retryAfter how long until a permit may free up
+     */
+    public RateLimitExceededException(String key, Duration retryAfter) {
+        super("Rate limit of '" + key + "' exceeded, next permit in " + retryAfter.toMillis() + "ms");
+        this.key = key;
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Gets the rate limit key that had no permit.
+     *
+     * @return the key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gets how long until a permit may free up.
+     *
+     * @return the estimated wait
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.pacing;
+
+import org.amyth.core.api.RateLimiter;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.amyth.core.model.WindowState;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Paces outgoing calls with a {@link RateLimiter}, waiting for permits instead of failing.
+ * <p>
+ * A call takes its permit by recording a hit, as an incoming request would, at the moment it
+ * is released, and only if the window has room for it ({@link RateLimiter#tryAcquire});
+ * otherwise the caller waits until the current bucket ends, then tries again: a call is
+ * counted in the window it starts in, and a waiting or abandoned call is not counted at all.
+ * Because the state lives in the limiter's store, every instance sharing a central store
+ * (Redis, sharded Redis) paces against one limit, so a fleet collectively stays under a
+ * partner's quota. Stores that sync in the background (cluster gossip, Redis write-behind)
+ * let each instance see the others' calls only after the next sync, so a fleet can overshoot
+ * by what the other instances send within one sync interval.
+ * </p>
+ */
+public class RateLimitPacer {
+
+    private static final Duration FOREVER = Duration.ofMillis(Long.MAX_VALUE);
+
+    private final RateLimiter limiter;
+    private final Clock clock;
+
+    /**
+     * Creates a pacer on the system clock.
+     *
+     * @param limiter the limiter counting the calls; must support {@link RateLimiter#peek}
+     */
+    public RateLimitPacer(RateLimiter limiter) {
+        this(limiter, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a pacer.
+     *
+     * @param limiter the limiter counting the calls; must support {@link RateLimiter#peek}
+     * @param clock   the clock the limiter uses
+     */
+    public RateLimitPacer(RateLimiter limiter, Clock clock) {
+        this.limiter = Objects.requireNonNull(limiter, "limiter");
+        this.clock = Objects.requireNonNull(clock, "clock");
+    }
+
+    /**
+     * Gets the clock the pacer and its limiter tell time by.
+     *
+     * @return the clock
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * Takes a permit for a call that is about to go. The window is read first, so a call
+     * retried while the window is full costs one read.
+     *
+     * @param key  the rate limit key, e.g. the partner whose quota the call uses
+     * @param rule the partner's limit
+     * @return {@link Duration#ZERO} when the call holds a permit and may go now; otherwise no
+     *         permit was taken, and this is the time until the window may have room, after
+     *         which call {@code reserve} again
+     */
+    public Duration reserve(String key, LimitRule rule) {
+        WindowState state = limiter.peek(key, rule);
+        if (state.count() < rule.permits() && PackedDecision.allowed(limiter.tryAcquire(key, rule, 1))) {
+            return Duration.ZERO;
+        }
+        return Duration.ofMillis(Math.max(1, state.resetAt().toEpochMilli() - clock.millis()));
+    }
+
+    /**
+     * Tells how long until the window may have room for another call, without taking a permit.
+     *
+     * @param key  the rate limit key
+     * @param rule the partner's limit
+     * @return {@link Duration#ZERO} when the window has room now; otherwise the time until
+     *         its current bucket ends
+     */
+    public Duration timeUntilTurn(String key, LimitRule rule) {
+        return Duration.ofMillis(millisUntilTurn(limiter.peek(key, rule), rule, clock.millis()));
+    }
+
+    /**
+     * Tells how long until a key's window may have room for another call.
+     *
+     * @param state     the key's window, read without recording a hit
+     * @param rule      the limit
+     * @param nowMillis the current time
+     * @return 0 when the window holds fewer hits than the limit, otherwise the milliseconds
+     *         until its current bucket ends
+     */
+    public static long millisUntilTurn(WindowState state, LimitRule rule, long nowMillis) {
+        if (state.count() < rule.permits()) return 0;
+        return Math.max(1, state.resetAt().toEpochMilli() - nowMillis);
+    }
+
+    /**
+     * Waits up to {@code timeout} for a permit.
+     *
+     * @param key     the rate limit key
+     * @param rule    the partner's limit
+     * @param timeout the longest the caller may wait
+     * @return {@code true} when the call may go, {@code false} when no permit frees up in time
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public boolean tryAcquire(String key, LimitRule rule, Duration timeout) throws InterruptedException {
+        return await(key, rule, timeout).isZero();
+    }
+
+    /**
+     * Waits up to {@code maxWait} for a permit, failing if none frees up in time.
+     *
+     * @param key     the rate limit key
+     * @param rule    the partner's limit
+     * @param maxWait the longest the caller may wait
+     * @throws RateLimitExceededException if no permit frees up within {@code maxWait}
+     * @throws InterruptedException       if the thread is interrupted while waiting
+     */
+    public void acquire(String key, LimitRule rule, Duration maxWait) throws InterruptedException {
+        Duration wait = await(key, rule, maxWait);
+        if (!wait.isZero()) throw new RateLimitExceededException(key, wait);
+    }
+
+    /**
+     * Waits for a permit for as long as it takes.
+     *
+     * @param key  the rate limit key
+     * @param rule the partner's limit
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public void acquire(String key, LimitRule rule) throws InterruptedException {
+        acquire(key, rule, FOREVER);
+    }
+
+    // ZERO when acquired, otherwise the wait that would have overrun the deadline
+    private Duration await(String key, LimitRule rule, Duration timeout) throws InterruptedException {
+        long start = clock.millis();
+        long deadline = timeout.toMillis() > Long.MAX_VALUE - start ? Long.MAX_VALUE : start + timeout.toMillis();
+        Duration wait = reserve(key, rule);
+        while (!wait.isZero()) {
+            if (clock.millis() + wait.toMillis() > deadline) return wait;
+            Thread.sleep(wait.toMillis());
+            wait = reserve(key, rule);
+        }
+        return wait;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.stats;
+
+import org.amyth.core.util.Hashing;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Streaming top-K tracker for keys, in fixed memory and without locks.
+ * <p>
+ * Frequencies are estimated with a Count-Min Sketch ({@code depth} rows of {@code width}
+ * atomic counters; estimates never undercount and overcount by about {@code 2/width} of the
+ * total weight with high probability). The candidates for the top are kept in a small table
+ * of {@code 8 * k} slots: a key probes four slots picked by its hash, raises its own entry,
+ * takes a free slot, or replaces the smallest of the four if its estimate is larger. Heavy
+ * keys therefore always hold a slot, and updates are a handful of atomic operations.
+ * Keys are hashed with {@link Hashing#hash64(CharSequence)} and a random seed per tracker,
+ * not {@code String.hashCode()}, so that a client choosing its keys cannot pile its
+ * traffic onto another key's counters or slot.
+ * </p>
+ * <p>
+ * Counts only grow; {@link #decay(int)} halves everything so that the top follows recent
+ * traffic. Concurrent updates may briefly leave the same key in two slots; {@link #top(int)}
+ * reports it once.
+ * </p>
+ */
+public final class HeavyHitters {
+
+    /**
+     * A key and its estimated weight.
+     *
+     * @param key   the tracked key
+     * @param count estimated weight, never below the true (decayed) weight
+     */
+    public record Estimate(String key, long count) {}
+
+    private static final int PROBES = 4;
+
+    private static final VarHandle COUNT;
+
+    static {
+        try {
+            COUNT = MethodHandles.lookup().findVarHandle(Slot.class, "count", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final class Slot {
+        final String key;
+        final int hash;
+        volatile long count;
+
+        Slot(String key, int hash, long count) {
+            this.key = key;
+            this.hash = hash;
+            this.count = count;
+        }
+
+        void raise(long to) {
+            long c = count;
+            while (c < to && !COUNT.compareAndSet(this, c, to)) c = count;
+        }
+    }
+
+    private final int k;
+    private final int depth;
+    private final int width;
+    private final AtomicLongArray sketch;
+    private final AtomicReferenceArray<Slot> slots;
+    private final int slotMask;
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    /**
+     * Creates a tracker with a 4 x 512 sketch (16 KiB).
+     *
+     * @param k number of keys to report
+     */
+    public HeavyHitters(int k) {
+        this(k, 512, 4);
+    }
+
+    /**
+     * Creates a tracker.
+     *
+     * @param k     number of keys to report
+     * @param width counters per sketch row, rounded up to a power of two
+     * @param depth number of sketch rows
+     */
+    public HeavyHitters(int k, int width, int depth) {
+        if (k <= 0) throw new IllegalArgumentException("k must be > 0");
+        if (width <= 0 || depth <= 0) throw new IllegalArgumentException("width and depth must be > 0");
+        this.k = k;
+        this.depth = depth;
+        this.width = powerOfTwo(width);
+        this.sketch = new AtomicLongArray(this.width * depth);
+        int capacity = powerOfTwo(Math.max(PROBES, k * 8));
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.slotMask = capacity - 1;
+    }
+
+    /**
+     * Counts one occurrence of a key.
+     *
+     * @param key the key
+     * @return the key's estimated weight after the update
+     */
+    public long offer(String key) {
+        return offer(key, 1);
+    }
+
+    /**
+     * Adds {@code weight} occurrences of a key.
+     *
+     * @param key    the key
+     * @param weight occurrences to add, at least 1
+     * @return the key's estimated weight after the update
+     */
+    public long offer(String key, long weight) {
+        long h = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, sketch.addAndGet(cell(h, row), weight));
+        }
+        admit(key, (int) h, estimate);
+        return estimate;
+    }
+
+    /**
+     * Estimates the weight of a key, whether or not it is among the top.
+     *
+     * @param key the key
+     * @return the estimated weight, 0 for keys never offered
+     */
+    public long estimate(String key) {
+        long h = hash(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, sketch.get(cell(h, row)));
+        }
+        return estimate;
+    }
+
+    // keyed per instance, so that keys sharing a row cell or slot cannot be worked out ahead
+    private long hash(String key) {
+        return Hashing.mix(Hashing.hash64(key) ^ seed);
+    }
+
+    // each row mixes the hash on its own: with h1 + row * h2, keys agreeing on those few
+    // low bits would share a cell in every row, and a light key could pass for a heavy one
+    private int cell(long h, int row) {
+        return row * width + ((int) Hashing.mix(h + (row + 1) * 0x9E3779B97F4A7C15L) & (width - 1));
+    }
+
+    private void admit(String key, int hash, long estimate) {
+        int base = hash & slotMask;
+        Slot victim = null;
+        int victimIndex = -1;
+        for (int p = 0; p < PROBES; p++) {
+            int i = (base + p) & slotMask;
+            Slot s = slots.get(i);
+            if (s == null) {
+                if (slots.compareAndSet(i, null, new Slot(key, hash, estimate))) return;
+                s = slots.get(i);
+                if (s == null) continue;
+            }
+            if (s.hash == hash && s.key.equals(key)) {
+                s.raise(estimate);
+                return;
+            }
+            if (victim == null || s.count < victim.count) {
+                victim = s;
+                victimIndex = i;
+            }
+        }
+        if (victim != null && victim.count < estimate) {
+            slots.compareAndSet(victimIndex, victim, new Slot(key, hash, estimate));
+        }
+    }
+
+    /**
+     * Divides every count by {@code 2^halvings}, so that old traffic fades out of the top.
+     * Keys whose count drops to zero leave the candidate table.
+     *
+     * @param halvings number of halvings to apply, e.g. elapsed half-lives
+     */
+    public void decay(int halvings) {
+        if (halvings <= 0) return;
+        int shift = Math.min(halvings, 63);
+        for (int i = 0; i < sketch.length(); i++) {
+            if (sketch.get(i) != 0) sketch.getAndUpdate(i, v -> v >>> shift);
+        }
+        for (int i = 0; i < slots.length(); i++) {
+            Slot s = slots.get(i);
+            if (s == null) continue;
+            long c = s.count;
+            while (!COUNT.compareAndSet(s, c, c >>> shift)) c = s.count;
+            if ((c >>> shift) == 0) slots.compareAndSet(i, s, null);
+        }
+    }
+
+    /**
+     * Returns the heaviest keys, heaviest first.
+     *
+     * @param n maximum number of keys, capped at {@code k}
+     * @return up to {@code n} estimates
+     */
+    public List<Estimate> top(int n) {
+        Map<String, Long> byKey = new HashMap<>();
+        for (int i = 0; i < slots.length(); i++) {
+            Slot s = slots.get(i);
+            if (s != null && s.count > 0) byKey.merge(s.key, s.count, Math::max);
+        }
+        List<Estimate> out = new ArrayList<>(byKey.size());
+        byKey.forEach((key, count) -> out.add(new Estimate(key, count)));
+        out.sort(Comparator.comparingLong(Estimate::count).reversed().thenComparing(Estimate::key));
+        int limit = Math.min(n, k);
+        return out.size() > limit ? List.copyOf(out.subList(0, limit)) : out;
+    }
+
+    /**
+     * Gets the number of keys this tracker reports.
+     *
+     * @return k
+     */
+    public int k() {
+        return k;
+    }
+
+    private static int powerOfTwo(int n) {
+        return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+}
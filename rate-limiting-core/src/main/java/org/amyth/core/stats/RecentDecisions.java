@@ -0,0 +1,165 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.stats;
+
+import org.amyth.core.util.Hashing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size, lock-free ring of recently sampled rate limit decisions, for watching live
+ * traffic without logging every request.
+ * <p>
+ * The hot path calls {@link #sample(boolean)} first: one thread-local random draw, so an
+ * unsampled decision costs no shared write and no allocation. A sampled decision takes a
+ * sequence number from one atomic counter and is published into slot {@code seq & mask}
+ * with a compare-and-set that only ever replaces an older entry, so a slot's sequence
+ * never goes backwards. Readers follow the sequence with {@link #since(long, int)},
+ * which skips entries overwritten in the meantime and stops at the first one still being
+ * written, so a tailing reader sees every entry that was not lapped.
+ * </p>
+ * <p>
+ * Keys are kept as a 64-bit hash unless raw keys are enabled, so client identifiers do not
+ * leak into a debugging view by default; the hash still tells whether two requests share
+ * a key.
+ * </p>
+ */
+public final class RecentDecisions {
+
+    /**
+     * One sampled decision.
+     *
+     * @param seq           position in the stream, increasing by one per recorded decision
+     * @param timeMillis    wall-clock time of the decision
+     * @param route         the route, e.g. {@code "GET /api/orders"}
+     * @param key           the rate limit key, or null when only its hash is kept
+     * @param keyHash       {@link Hashing#hash64(CharSequence)} of the key
+     * @param allowed       whether the request was allowed
+     * @param remaining     permits left after the request
+     * @param durationNanos time the decision took
+     */
+    public record Decision(long seq, long timeMillis, String route, String key, long keyHash,
+                           boolean allowed, long remaining, long durationNanos) {}
+
+    private final AtomicReferenceArray<Decision> slots;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private final int sampleEvery;
+    private final boolean allBlocked;
+    private final boolean rawKeys;
+
+    /**
+     * Creates a ring.
+     *
+     * @param capacity    number of decisions kept, rounded up to a power of two
+     * @param sampleEvery record one in this many allowed decisions on average; 1 records all, 0 none
+     * @param allBlocked  whether every blocked decision is recorded regardless of sampling
+     * @param rawKeys     whether to keep the keys themselves rather than only their hashes
+     */
+    public RecentDecisions(int capacity, int sampleEvery, boolean allBlocked, boolean rawKeys) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be > 0");
+        if (sampleEvery < 0) throw new IllegalArgumentException("sampleEvery must be >= 0");
+        this.slots = new AtomicReferenceArray<>(capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1);
+        this.mask = slots.length() - 1;
+        this.sampleEvery = sampleEvery;
+        this.allBlocked = allBlocked;
+        this.rawKeys = rawKeys;
+    }
+
+    /**
+     * Decides whether a decision should be recorded.
+     *
+     * @param allowed whether the request was allowed
+     * @return true when the caller should call {@link #record}
+     */
+    public boolean sample(boolean allowed) {
+        if (!allowed && allBlocked) return true;
+        int n = sampleEvery;
+        return n == 1 || (n > 1 && ThreadLocalRandom.current().nextInt(n) == 0);
+    }
+
+    /**
+     * Records a decision, overwriting the oldest one once the ring is full.
+     *
+     * @param route         the route
+     * @param key           the rate limit key
+     * @param allowed       whether the request was allowed
+     * @param remaining     permits left after the request
+     * @param durationNanos time the decision took
+     */
+    public void record(String route, String key, boolean allowed, long remaining, long durationNanos) {
+        long seq = next.getAndIncrement();
+        Decision d = new Decision(seq, System.currentTimeMillis(), route,
+                rawKeys ? key : null, Hashing.hash64(key), allowed, remaining, durationNanos);
+        int i = (int) (seq & mask);
+        // a writer descheduled for a whole lap must not put its older entry back over a newer one
+        for (Decision prev = slots.get(i); prev == null || prev.seq() < seq; prev = slots.get(i)) {
+            if (slots.compareAndSet(i, prev, d)) return;
+        }
+    }
+
+    /**
+     * Returns the decisions recorded after a given one, oldest first.
+     *
+     * @param afterSeq sequence of the last decision already seen; -1 for everything still held
+     * @param max      maximum number of decisions to return
+     * @return up to {@code max} decisions; the last one's {@code seq} is the next cursor
+     */
+    public List<Decision> since(long afterSeq, int max) {
+        long end = next.get();
+        long from = Math.max(afterSeq + 1, end - slots.length());
+        List<Decision> out = new ArrayList<>((int) Math.min(Math.max(0, end - from), max));
+        for (long seq = from; seq < end && out.size() < max; seq++) {
+            Decision d = slots.getAcquire((int) (seq & mask));
+            if (d == null || d.seq() < seq) break; // still being written
+            if (d.seq() == seq) out.add(d);        // else lapped by a writer
+        }
+        return out;
+    }
+
+    /**
+     * Returns the most recent decisions, oldest first.
+     *
+     * @param n maximum number of decisions
+     * @return up to {@code n} of the latest decisions
+     */
+    public List<Decision> latest(int n) {
+        return since(next.get() - 1 - n, n);
+    }
+
+    /**
+     * Returns the sequence of the latest recorded decision.
+     *
+     * @return the sequence, -1 when nothing has been recorded yet
+     */
+    public long lastSeq() {
+        return next.get() - 1;
+    }
+
+    /**
+     * Returns the number of decisions the ring holds at most.
+     *
+     * @return the capacity
+     */
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -19,12 +19,19 @@ package org.amyth.core.store.caffeine;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.RemovalCause;
 import com.github.benmanes.caffeine.cache.Ticker;
-import org.amyth.core.api.RateLimitStore;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.amyth.core.api.ScannableRateLimitStore;
+import org.amyth.core.model.KeyPage;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * RateLimitStore implementation backed by Caffeine in-memory cache.
@@ -32,9 +39,68 @@ import java.util.concurrent.atomic.AtomicLong;
  * Provides atomic increment and expiration for rate limit buckets.
  * Suitable for single-node deployments or ephemeral rate limiting.
  * </p>
+ * <p>
+ * The cache is bounded by {@code maxSize}; once full, Caffeine evicts buckets to make
+ * room. Evicting a bucket whose window is still open silently resets its count and lets
+ * a blocked client back in, so every counter carries its own deadline and such live
+ * evictions are counted separately in {@link #stats()}: a non-zero value means the store
+ * is too small for the number of active keys.
+ * </p>
  */
-public class CaffeineRateLimitStore implements RateLimitStore {
-    private final Cache<String, AtomicLong> cache;
+public class CaffeineRateLimitStore implements ScannableRateLimitStore {
+
+    /**
+     * Rough heap cost of one bucket besides its key: the cache node, the counter and the
+     * key's String and array headers. Used for {@link Stats#estimatedBytes()}.
+     */
+    static final long ENTRY_OVERHEAD_BYTES = 160;
+
+    private static final int KEY_LENGTH_SAMPLE = 32;
+
+    /** Key snapshots of unfinished scans kept at most; the oldest is dropped beyond this. */
+    static final int MAX_OPEN_SCANS = 16;
+
+    /** How long a scan's key snapshot is kept after its last page was read. */
+    static final Duration SCAN_IDLE = Duration.ofMinutes(5);
+
+    /**
+     * Cache statistics.
+     *
+     * @param size           buckets currently held
+     * @param hits           lookups that found a bucket
+     * @param misses         lookups that did not, including the creation of new buckets
+     * @param evictions      buckets evicted because the cache was full
+     * @param liveEvictions  evicted buckets whose window had not yet expired; their counts were lost
+     * @param estimatedBytes rough heap footprint of the buckets
+     */
+    public record Stats(long size, long hits, long misses, long evictions, long liveEvictions,
+                        long estimatedBytes) {
+
+        /**
+         * Whether live buckets have been evicted, i.e. counts were reset early and
+         * clients may have been let through that should have been blocked.
+         *
+         * @return true when {@code liveEvictions > 0}
+         */
+        public boolean underCounting() {
+            return liveEvictions > 0;
+        }
+    }
+
+    /** A bucket's count and the time, in ticker nanos, at which its window ends. */
+    static final class Counter extends AtomicLong {
+        volatile long expiresAtNanos;
+
+        Counter(long expiresAtNanos) {
+            this.expiresAtNanos = expiresAtNanos;
+        }
+    }
+
+    private final Cache<String, Counter> cache;
+    private final Ticker ticker;
+    private final LongAdder liveEvictions = new LongAdder();
+    private final Cache<Long, String[]> scans;
+    private final AtomicLong scanIds = new AtomicLong();
 
     /**
      * Constructs a CaffeineRateLimitStore with the specified maximum cache size.
@@ -42,56 +108,170 @@ public class CaffeineRateLimitStore implements RateLimitStore {
      * @param maxSize the maximum number of entries the cache can hold
      */
     public CaffeineRateLimitStore(long maxSize) {
-        this.cache = Caffeine.newBuilder()
-                .maximumSize(maxSize)
-                .build();
+        this(maxSize, Ticker.systemTicker());
     }
 
     /**
      * Constructs a CaffeineRateLimitStore with custom cache size and ticker.
-     * Allows for custom expiration policies via the provided ticker.
+     * The ticker drives bucket expiry, so tests can advance time by hand.
      *
      * @param maxSize the maximum number of entries the cache can hold
      * @param ticker  the ticker to use for cache expiration
      */
     public CaffeineRateLimitStore(long maxSize, Ticker ticker) {
+        this.ticker = ticker;
         this.cache = Caffeine.newBuilder()
                 .maximumSize(maxSize)
-                .expireAfter(new Expiry<String, AtomicLong>() {
-                    @Override
-                    public long expireAfterCreate(String key, AtomicLong value, long currentTime) {
-                        return TimeUnit.MILLISECONDS.toNanos(0); // default, overwritten per entry
-                    }
-                    @Override
-                    public long expireAfterUpdate(String key, AtomicLong value, long currentTime, long currentDuration) {
-                        return currentDuration;
-                    }
-                    @Override
-                    public long expireAfterRead(String key, AtomicLong value, long currentTime, long currentDuration) {
-                        return currentDuration;
-                    }
-                })
+                .recordStats()
+                .evictionListener(this::onEviction)
+                .expireAfter(new BucketExpiry())
+                .ticker(ticker)
+                .build();
+        this.scans = Caffeine.newBuilder()
+                .maximumSize(MAX_OPEN_SCANS)
+                .expireAfterAccess(SCAN_IDLE)
                 .ticker(ticker)
                 .build();
     }
 
     public long incrementAndGet(String bucketKey, long ttlMillis) {
-        AtomicLong counter = cache.get(bucketKey, k -> new AtomicLong(0));
-        cache.policy().expireVariably().ifPresent(p -> p.setExpiresAfter(bucketKey, Duration.ofMillis(ttlMillis)));
-        return counter.incrementAndGet();
+        return cache.get(bucketKey, k -> new Counter(deadline(ttlMillis))).incrementAndGet();
+    }
+
+    @Override
+    public long addAndGet(String bucketKey, long delta, long ttlMillis) {
+        return cache.get(bucketKey, k -> new Counter(deadline(ttlMillis))).addAndGet(delta);
+    }
+
+    /** Lowers a live bucket's count with a CAS, never below zero; a missing bucket is not created. */
+    @Override
+    public boolean subtract(String bucketKey, long hits) {
+        Counter c = cache.getIfPresent(bucketKey);
+        if (c != null) c.accumulateAndGet(hits, (v, h) -> v - Math.min(v, h));
+        return true;
     }
 
     public long get(String bucketKey) {
-        AtomicLong v = cache.getIfPresent(bucketKey);
+        Counter v = cache.getIfPresent(bucketKey);
         return v == null ? 0L : v.get();
     }
 
     public void expire(String bucketKey, long ttlMillis) {
-        cache.policy().expireVariably().ifPresent(p -> p.setExpiresAfter(bucketKey, Duration.ofMillis(ttlMillis)));
+        // a compute counts as an update, so BucketExpiry reschedules the entry from the new deadline
+        cache.asMap().computeIfPresent(bucketKey, (k, c) -> {
+            c.expiresAtNanos = deadline(ttlMillis);
+            return c;
+        });
+    }
+
+    @Override
+    public void delete(String bucketKey) {
+        cache.invalidate(bucketKey);
+    }
+
+    /**
+     * Lists live bucket keys. The first page snapshots the cache's key set, walking its
+     * weakly consistent view without locking, so concurrent updates are never blocked;
+     * later pages read the next {@code count} keys of that snapshot and drop those that
+     * have expired since. The cursor is {@code <scan id>:<offset>} into the snapshot, so
+     * a full listing costs O(N) however the cache changes between pages. Up to
+     * {@value #MAX_OPEN_SCANS} snapshots are kept, each until it has not been read for
+     * {@link #SCAN_IDLE}.
+     *
+     * @throws IllegalArgumentException if the cursor is malformed or its snapshot has expired
+     */
+    @Override
+    public KeyPage scan(String cursor, int count) {
+        long id;
+        int offset;
+        String[] snapshot;
+        if (cursor == null || cursor.isEmpty()) {
+            snapshot = cache.asMap().keySet().toArray(String[]::new);
+            offset = 0;
+            id = snapshot.length > count ? scanIds.incrementAndGet() : 0;
+            if (id != 0) scans.put(id, snapshot);
+        } else {
+            int colon = cursor.indexOf(':');
+            try {
+                id = Long.parseLong(cursor.substring(0, Math.max(colon, 0)));
+                offset = Integer.parseInt(cursor.substring(colon + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed scan cursor: " + cursor);
+            }
+            snapshot = scans.getIfPresent(id);
+            if (snapshot == null || offset < 0 || offset > snapshot.length) {
+                throw new IllegalArgumentException("Unknown or expired scan cursor: " + cursor);
+            }
+        }
+        int end = (int) Math.min(snapshot.length, (long) offset + count);
+        List<String> page = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            if (cache.asMap().containsKey(snapshot[i])) page.add(snapshot[i]);
+        }
+        if (end < snapshot.length) return new KeyPage(page, id + ":" + end);
+        if (id != 0) scans.invalidate(id);
+        return new KeyPage(page, null);
+    }
+
+    /**
+     * Returns cache statistics, including the count of live buckets lost to eviction.
+     *
+     * @return a snapshot of the statistics
+     */
+    public Stats stats() {
+        CacheStats cs = cache.stats();
+        long size = cache.estimatedSize();
+        return new Stats(size, cs.hitCount(), cs.missCount(), cs.evictionCount(), liveEvictions.sum(),
+                size * (ENTRY_OVERHEAD_BYTES + averageKeyBytes()));
+    }
+
+    // Latin-1 keys take one byte per char; sampled, since walking a large cache is not free
+    private long averageKeyBytes() {
+        long chars = 0;
+        int n = 0;
+        for (Iterator<String> keys = cache.asMap().keySet().iterator(); n < KEY_LENGTH_SAMPLE && keys.hasNext(); n++) {
+            chars += keys.next().length();
+        }
+        return n == 0 ? 0 : chars / n;
+    }
+
+    private long deadline(long ttlMillis) {
+        return ticker.read() + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    private void onEviction(String key, Counter value, RemovalCause cause) {
+        if (cause == RemovalCause.SIZE && value != null && value.expiresAtNanos - ticker.read() > 0) {
+            liveEvictions.increment();
+        }
+    }
+
+    /**
+     * Expires each bucket at its own deadline. The TTL is fixed when the bucket is created,
+     * inside the same map operation, and plain increments do not touch it, so a window is
+     * never extended by traffic. Caffeine keeps variable expiry in a hierarchical timer
+     * wheel and drops expired buckets during its routine maintenance, about a second after
+     * their deadline at the latest (reads see them as gone straight away), so memory tracks
+     * the windows that are still open rather than every key ever seen.
+     */
+    private static final class BucketExpiry implements Expiry<String, Counter> {
+        @Override
+        public long expireAfterCreate(String key, Counter value, long currentTime) {
+            return Math.max(0, value.expiresAtNanos - currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Counter value, long currentTime, long currentDuration) {
+            return Math.max(0, value.expiresAtNanos - currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Counter value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
     }
 
     // package-private, for tests only
-    Cache<String, AtomicLong> cache() {
+    Cache<String, Counter> cache() {
         return cache;
     }
 }
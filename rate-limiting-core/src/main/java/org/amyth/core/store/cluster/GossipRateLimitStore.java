@@ -0,0 +1,340 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.store.cluster;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.amyth.core.api.RateLimitStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Peer-to-peer RateLimitStore for clusters without Redis.
+ * <p>
+ * Every bucket is a {@link PNCounter}: each node grows only its own pair of counts, hits
+ * added and hits taken back ({@link #subtract}), and merges peers' pairs by maximum. A
+ * request only touches local memory; a background thread ships the local pairs that
+ * changed since the previous round to every peer over UDP, and a receiver thread merges
+ * what peers send. Because merges are idempotent and order-insensitive, lost, duplicated
+ * or reordered datagrams never corrupt a count, and hits taken back on one node are taken
+ * back on all; every {@code fullSyncEvery} rounds all live local pairs are resent so a
+ * lost datagram is repaired on the next full round.
+ * </p>
+ * <p>
+ * The limit is enforced approximately: a node sees peers' hits with up to one sync
+ * interval (plus network delay) of lag, so a cluster of {@code n} nodes can overshoot
+ * by at most the traffic the other {@code n - 1} nodes accept during that lag.
+ * </p>
+ * <h2>Wire format</h2>
+ * One datagram of at most {@value #MAX_DATAGRAM} bytes:
+ * <pre>
+ * int magic 'RLGC' | byte version | short idLen | id bytes | short count |
+ *   count × ( short keyLen | key bytes (UTF-8) | long ttlMillis | long added | long takenBack )
+ * </pre>
+ * Only datagrams whose source matches a configured (resolved) peer address are merged;
+ * bind the port to a private interface, as the protocol carries no authentication.
+ */
+public final class GossipRateLimitStore implements RateLimitStore, AutoCloseable {
+
+    static final int MAGIC = 0x524C4743; // "RLGC"
+    static final byte VERSION = 2;
+    static final int MAX_DATAGRAM = 1400;
+
+    private final String nodeId;
+    private final byte[] nodeIdBytes;
+    private final Cache<String, PNCounter> counters;
+    private final DatagramChannel channel;
+    private final Set<InetSocketAddress> peers = new CopyOnWriteArraySet<>();
+    private final int fullSyncEvery;
+    private final ScheduledExecutorService sender;
+    private final Thread receiver;
+    private final ByteBuffer out = ByteBuffer.allocate(MAX_DATAGRAM);
+
+    private long round;
+    private volatile boolean closed;
+
+    /**
+     * Creates a store and starts gossiping immediately.
+     *
+     * @param nodeId        unique, stable id of this node
+     * @param bindAddress   local UDP address to listen on (port 0 picks a free port)
+     * @param peers         UDP addresses of the other nodes
+     * @param syncInterval  how often changed counters are shipped to peers
+     * @param fullSyncEvery every how many rounds all live counters are resent (repairs lost datagrams)
+     * @param maxKeys       maximum number of live buckets kept in memory
+     */
+    public GossipRateLimitStore(String nodeId,
+                                InetSocketAddress bindAddress,
+                                Collection<InetSocketAddress> peers,
+                                Duration syncInterval,
+                                int fullSyncEvery,
+                                long maxKeys) {
+        this.nodeId = Objects.requireNonNull(nodeId, "nodeId");
+        // A restarted node starts its slot from zero again; peers would keep the old, larger
+        // value under the same id and ignore the new hits. Tagging the slot with a start
+        // timestamp gives every incarnation its own slot, the old one expiring with its buckets.
+        this.nodeIdBytes = (nodeId + "@" + System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8);
+        if (nodeIdBytes.length > 255) throw new IllegalArgumentException("nodeId too long");
+        if (syncInterval.toMillis() <= 0) throw new IllegalArgumentException("syncInterval must be > 0");
+        if (fullSyncEvery <= 0) throw new IllegalArgumentException("fullSyncEvery must be > 0");
+        this.fullSyncEvery = fullSyncEvery;
+        this.peers.addAll(peers);
+        this.counters = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfter(new Expiry<String, PNCounter>() {
+                    @Override
+                    public long expireAfterCreate(String key, PNCounter value, long currentTime) {
+                        return value.ttlNanos;
+                    }
+                    @Override
+                    public long expireAfterUpdate(String key, PNCounter value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                    @Override
+                    public long expireAfterRead(String key, PNCounter value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        try {
+            this.channel = DatagramChannel.open();
+            channel.bind(bindAddress);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot bind gossip channel to " + bindAddress, e);
+        }
+
+        this.receiver = new Thread(this::receiveLoop, "ratelimit-gossip-rx-" + nodeId);
+        receiver.setDaemon(true);
+        receiver.start();
+
+        this.sender = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ratelimit-gossip-tx-" + nodeId);
+            t.setDaemon(true);
+            return t;
+        });
+        long periodMs = syncInterval.toMillis();
+        sender.scheduleWithFixedDelay(this::syncRoundSafely, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long incrementAndGet(String bucketKey, long ttlMillis) {
+        return counter(bucketKey, ttlMillis).increment();
+    }
+
+    @Override
+    public long addAndGet(String bucketKey, long delta, long ttlMillis) {
+        return counter(bucketKey, ttlMillis).add(delta);
+    }
+
+    /** Takes back this node's own hits only, so a bucket never drops below zero on any node. */
+    @Override
+    public boolean subtract(String bucketKey, long hits) {
+        PNCounter c = counters.getIfPresent(bucketKey);
+        if (c != null) c.subtract(hits);
+        return true;
+    }
+
+    @Override
+    public long get(String bucketKey) {
+        PNCounter c = counters.getIfPresent(bucketKey);
+        return c == null ? 0L : c.value();
+    }
+
+    @Override
+    public void expire(String bucketKey, long ttlMillis) {
+        counters.policy().expireVariably().ifPresent(p -> p.setExpiresAfter(bucketKey, Duration.ofMillis(ttlMillis)));
+    }
+
+    /**
+     * Adds a peer at runtime; it receives a full sync within {@code fullSyncEvery} rounds.
+     *
+     * @param peer UDP address of the peer
+     */
+    public void addPeer(InetSocketAddress peer) {
+        peers.add(peer);
+    }
+
+    /**
+     * Removes a peer. Counts it already contributed stay until their buckets expire.
+     *
+     * @param peer UDP address of the peer
+     */
+    public void removePeer(InetSocketAddress peer) {
+        peers.remove(peer);
+    }
+
+    /**
+     * Returns the bound UDP address, useful when binding to port 0.
+     *
+     * @return the local address
+     */
+    public InetSocketAddress localAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns this node's id.
+     *
+     * @return the node id
+     */
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        sender.shutdownNow();
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // nothing useful to do on shutdown
+        }
+    }
+
+    private PNCounter counter(String bucketKey, long ttlMillis) {
+        return counters.get(bucketKey, k -> new PNCounter(TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+    }
+
+    /* ------------------ sender ------------------ */
+
+    private void syncRoundSafely() {
+        try {
+            syncRound();
+        } catch (RuntimeException | IOException e) {
+            // a failed round is repaired by the next full sync; keep the scheduler alive
+        }
+    }
+
+    /** Ships changed (or, on full rounds, all) local pairs to every peer. Runs on the sender thread only. */
+    void syncRound() throws IOException {
+        if (peers.isEmpty()) return;
+        boolean full = (++round % fullSyncEvery) == 0;
+        var expiry = counters.policy().expireVariably().orElseThrow();
+
+        int count = 0;
+        int countPos = startDatagram();
+        for (Map.Entry<String, PNCounter> e : counters.asMap().entrySet()) {
+            PNCounter c = e.getValue();
+            long takenBack = c.localTakenBack(); // read first, so that it never exceeds the hits added
+            long added = c.localAdded();
+            if (added == 0 || (!full && added + takenBack == c.lastSent)) continue;
+            long ttlMillis = expiry.getExpiresAfter(e.getKey()).map(Duration::toMillis).orElse(0L);
+            if (ttlMillis <= 0) continue;
+
+            byte[] key = e.getKey().getBytes(StandardCharsets.UTF_8);
+            if (key.length > Short.MAX_VALUE) continue;
+            int need = 2 + key.length + 24;
+            if (out.remaining() < need) {
+                if (count == 0) continue; // key alone does not fit a datagram
+                flush(countPos, count);
+                count = 0;
+                countPos = startDatagram();
+            }
+            out.putShort((short) key.length).put(key).putLong(ttlMillis).putLong(added).putLong(takenBack);
+            c.lastSent = added + takenBack;
+            count++;
+        }
+        if (count > 0) flush(countPos, count);
+    }
+
+    private int startDatagram() {
+        out.clear();
+        out.putInt(MAGIC).put(VERSION).putShort((short) nodeIdBytes.length).put(nodeIdBytes);
+        int countPos = out.position();
+        out.putShort((short) 0);
+        return countPos;
+    }
+
+    private void flush(int countPos, int count) throws IOException {
+        out.putShort(countPos, (short) count);
+        out.flip();
+        for (InetSocketAddress peer : peers) {
+            channel.send(out.duplicate(), peer);
+        }
+    }
+
+    /* ------------------ receiver ------------------ */
+
+    private void receiveLoop() {
+        ByteBuffer in = ByteBuffer.allocate(64 * 1024);
+        while (!closed) {
+            try {
+                in.clear();
+                SocketAddress from = channel.receive(in);
+                if (from == null || !peers.contains(from)) continue;
+                in.flip();
+                apply(in);
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException | RuntimeException e) {
+                // malformed or truncated datagram: drop it, the next full sync repairs any gap
+            }
+        }
+    }
+
+    /** Merges one datagram. Runs on the receiver thread only. */
+    void apply(ByteBuffer in) {
+        if (in.getInt() != MAGIC || in.get() != VERSION) return;
+        byte[] id = bytes(in);
+        if (id == null || Arrays.equals(id, nodeIdBytes)) return;
+        String from = new String(id, StandardCharsets.UTF_8);
+
+        int count = Short.toUnsignedInt(in.getShort());
+        for (int i = 0; i < count; i++) {
+            byte[] key = bytes(in);
+            if (key == null) return;
+            long ttlMillis = in.getLong();
+            long added = in.getLong();
+            long takenBack = in.getLong();
+            if (ttlMillis <= 0 || takenBack > added) continue;
+            counter(new String(key, StandardCharsets.UTF_8), ttlMillis).merge(from, added, takenBack);
+        }
+    }
+
+    // a length-prefixed field, or null if its length runs past the datagram
+    private static byte[] bytes(ByteBuffer in) {
+        int length = Short.toUnsignedInt(in.getShort());
+        if (length > in.remaining()) return null;
+        byte[] b = new byte[length];
+        in.get(b);
+        return b;
+    }
+}
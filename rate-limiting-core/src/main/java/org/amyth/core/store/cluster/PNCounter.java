@@ -0,0 +1,106 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.store.cluster;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Positive-negative counter (PN-Counter CRDT) for one window bucket: per node, a grow-only
+ * count of hits added and one of hits taken back.
+ * <p>
+ * Each node only ever grows its own pair; remote pairs are merged by taking the maximum of
+ * each half, which makes merges commutative, idempotent and safe to repeat or reorder. The
+ * value is the sum over all nodes of hits added minus hits taken back. A node takes back no
+ * more than it added, so neither its share nor the value drops below zero.
+ * </p>
+ * <p>
+ * The local pair is updated by request threads; remote pairs are only written by the single
+ * gossip receiver thread, which republishes their sum through a volatile field so readers
+ * never touch the map.
+ * </p>
+ */
+final class PNCounter {
+
+    private final AtomicLong added = new AtomicLong();
+    private final AtomicLong takenBack = new AtomicLong();
+    private final Map<String, long[]> remote = new HashMap<>(4);
+    private volatile long remoteSum;
+
+    /** Local changes last shipped to peers, hits added plus taken back; owned by the sender thread. */
+    long lastSent;
+
+    /** Time-to-live this bucket was created with, in nanoseconds. */
+    final long ttlNanos;
+
+    PNCounter(long ttlNanos) {
+        this.ttlNanos = ttlNanos;
+    }
+
+    long increment() {
+        return add(1);
+    }
+
+    long add(long delta) {
+        long t = takenBack.get(); // read first: it never exceeds what was added before
+        return added.addAndGet(delta) - t + remoteSum;
+    }
+
+    /** Takes back up to {@code hits} of this node's hits, never more than it added. */
+    void subtract(long hits) {
+        while (true) {
+            long a = added.get();
+            long t = takenBack.get();
+            long take = Math.min(hits, a - t);
+            if (take <= 0 || takenBack.compareAndSet(t, t + take)) return;
+        }
+    }
+
+    long value() {
+        long t = takenBack.get();
+        return added.get() - t + remoteSum;
+    }
+
+    long localTakenBack() {
+        return takenBack.get();
+    }
+
+    long localAdded() {
+        return added.get();
+    }
+
+    /**
+     * Merges a peer's pair. Must only be called from the receiver thread.
+     *
+     * @return true if the pair grew
+     */
+    boolean merge(String nodeId, long peerAdded, long peerTakenBack) {
+        long[] prev = remote.get(nodeId);
+        if (prev == null) {
+            prev = new long[2];
+            remote.put(nodeId, prev);
+        }
+        long a = Math.max(prev[0], peerAdded);
+        long t = Math.max(prev[1], peerTakenBack);
+        if (a == prev[0] && t == prev[1]) return false;
+        remoteSum += (a - t) - (prev[0] - prev[1]);
+        prev[0] = a;
+        prev[1] = t;
+        return true;
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.store.hybrid;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.amyth.core.api.RateLimitStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier RateLimitStore: counts in local memory and writes aggregated deltas
+ * behind to a shared remote store (typically Redis) on a fixed interval.
+ * <p>
+ * A request costs one local increment. Every {@code flushInterval} a background
+ * thread adds the buckets' unflushed hits to the remote store, up to {@value #BATCH}
+ * buckets per {@link RateLimitStore#addAndSumAll} call (one script on Redis), and folds
+ * the returned cluster-wide totals back into the local view; buckets without local hits
+ * are refreshed with {@link RateLimitStore#getAll} so other nodes' traffic becomes
+ * visible too.
+ * </p>
+ * <p>
+ * Accuracy is traded for round trips: a node sees other nodes' hits up to one flush
+ * interval late, so the cluster can overshoot a limit by roughly what the other
+ * nodes accept during one interval. Meant for low-precision limits over long
+ * windows (e.g. anti-scraping per IP per hour), not for small exact quotas.
+ * If the remote store fails, unflushed hits are kept and retried on the next flush,
+ * and the store keeps deciding on its local counts alone; a {@link RemoteStateListener}
+ * hears when that starts and ends.
+ * </p>
+ */
+public final class WriteBehindRateLimitStore implements RateLimitStore, AutoCloseable {
+
+    /**
+     * Counters of one bucket. {@code pending} is written by request threads; {@code inflight}
+     * and {@code synced} only by the flusher. Readers sum {@code pending}, {@code inflight}
+     * and {@code synced} in that order, and the flusher publishes in the reverse order, so a
+     * concurrent flush can only make a reader over-count briefly, never under-count.
+     */
+    static final class Bucket {
+        final AtomicLong pending = new AtomicLong();
+        volatile long inflight;
+        volatile long synced;
+        final long ttlMillis;
+        final boolean readOnly;
+
+        Bucket(long ttlMillis, boolean readOnly) {
+            this.ttlMillis = ttlMillis;
+            this.readOnly = readOnly;
+        }
+
+        long value() {
+            long p = pending.get();
+            long i = inflight;
+            return p + i + synced;
+        }
+    }
+
+    /**
+     * Flush statistics, for measuring how far behind the remote store the local view runs.
+     *
+     * @param flushes        completed flush rounds
+     * @param remoteCalls    remote store operations issued by flushes
+     * @param flushedHits    hits written to the remote store
+     * @param failedFlushes  bucket flushes that failed and were retried later
+     * @param lastFlushNanos duration of the most recent flush round
+     * @param unflushedHits  hits counted locally but not yet written to the remote store
+     */
+    public record Stats(long flushes, long remoteCalls, long flushedHits, long failedFlushes,
+                        long lastFlushNanos, long unflushedHits) {}
+
+    /**
+     * Notified by the flusher when the remote store becomes unreachable (a flush round in
+     * which every call failed) and when it is reachable again.
+     */
+    @FunctionalInterface
+    public interface RemoteStateListener {
+        /**
+         * Called once per transition, on the flusher thread.
+         *
+         * @param available whether the remote store is reachable now
+         * @param cause     the last failure when it became unavailable, null otherwise
+         */
+        void remoteStateChanged(boolean available, RuntimeException cause);
+    }
+
+    /** Most buckets written or read in one remote call. */
+    static final int BATCH = 256;
+
+    private final RateLimitStore remote;
+    private final Cache<String, Bucket> buckets;
+    private final long readTtlNanos;
+    private final ScheduledExecutorService flusher;
+
+    private volatile long flushes;
+    private volatile long remoteCalls;
+    private volatile long flushedHits;
+    private volatile long failedFlushes;
+    private volatile long lastFlushNanos;
+
+    private volatile RemoteStateListener remoteStateListener;
+    private boolean remoteAvailable = true; // flusher only
+
+    /**
+     * Creates a write-behind store and starts its flusher.
+     *
+     * @param remote        shared store holding the cluster-wide counts
+     * @param flushInterval how often local deltas are written and totals refreshed;
+     *                      shorter is more accurate, longer issues fewer remote calls
+     * @param maxKeys       maximum number of buckets tracked locally
+     */
+    public WriteBehindRateLimitStore(RateLimitStore remote, Duration flushInterval, long maxKeys) {
+        this.remote = Objects.requireNonNull(remote, "remote");
+        long periodMs = flushInterval.toMillis();
+        if (periodMs <= 0) throw new IllegalArgumentException("flushInterval must be > 0");
+        // buckets that are only read (older buckets of a window) stay tracked while they are read
+        this.readTtlNanos = TimeUnit.MILLISECONDS.toNanos(periodMs * 4);
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfter(new Expiry<String, Bucket>() {
+                    @Override
+                    public long expireAfterCreate(String key, Bucket value, long currentTime) {
+                        return value.readOnly ? readTtlNanos : TimeUnit.MILLISECONDS.toNanos(value.ttlMillis);
+                    }
+                    @Override
+                    public long expireAfterUpdate(String key, Bucket value, long currentTime, long currentDuration) {
+                        // only happens when a read-only bucket is promoted on its first write
+                        return value.readOnly ? currentDuration : TimeUnit.MILLISECONDS.toNanos(value.ttlMillis);
+                    }
+                    @Override
+                    public long expireAfterRead(String key, Bucket value, long currentTime, long currentDuration) {
+                        return value.readOnly ? readTtlNanos : currentDuration;
+                    }
+                })
+                .build();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ratelimit-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, periodMs, periodMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long incrementAndGet(String bucketKey, long ttlMillis) {
+        return addAndGet(bucketKey, 1, ttlMillis);
+    }
+
+    @Override
+    public long addAndGet(String bucketKey, long delta, long ttlMillis) {
+        Bucket b = buckets.get(bucketKey, k -> new Bucket(ttlMillis, false));
+        if (b.readOnly) {
+            // first write to a bucket we had only been reading: promote it, keeping what we know
+            Bucket w = new Bucket(ttlMillis, false);
+            w.synced = b.synced;
+            b = buckets.asMap().merge(bucketKey, w, (old, cur) -> old.readOnly ? cur : old);
+        }
+        b.pending.addAndGet(delta);
+        return b.value();
+    }
+
+    /**
+     * Takes hits back from the bucket's local count, never below zero. Hits not flushed yet
+     * are simply not written; those already flushed are taken back from the remote store by
+     * the next flush.
+     */
+    @Override
+    public boolean subtract(String bucketKey, long hits) {
+        Bucket b = buckets.getIfPresent(bucketKey);
+        if (b == null) return true;
+        while (true) {
+            long p = b.pending.get();
+            long take = Math.min(hits, p + b.inflight + b.synced);
+            if (take <= 0 || b.pending.compareAndSet(p, p - take)) return true;
+        }
+    }
+
+    /**
+     * Returns the local view of a bucket. A bucket never seen on this node reads as 0 and
+     * is picked up from the remote store by the next flush.
+     */
+    @Override
+    public long get(String bucketKey) {
+        Bucket b = buckets.getIfPresent(bucketKey);
+        if (b == null) {
+            buckets.asMap().putIfAbsent(bucketKey, new Bucket(0, true));
+            return 0L;
+        }
+        return b.value();
+    }
+
+    @Override
+    public void expire(String bucketKey, long ttlMillis) {
+        buckets.policy().expireVariably().ifPresent(p -> p.setExpiresAfter(bucketKey, Duration.ofMillis(ttlMillis)));
+        remote.expire(bucketKey, ttlMillis);
+    }
+
+    @Override
+    public void delete(String bucketKey) {
+        buckets.invalidate(bucketKey);
+        remote.delete(bucketKey);
+    }
+
+    /**
+     * Writes every bucket's unflushed hits to the remote store and refreshes the local
+     * view with the cluster-wide totals. Called by the flusher; exposed for tests and
+     * for a final flush on shutdown.
+     */
+    public synchronized void flush() {
+        long start = System.nanoTime();
+        Round round = new Round();
+        List<Map.Entry<String, Bucket>> writes = new ArrayList<>();
+        List<Map.Entry<String, Bucket>> reads = new ArrayList<>();
+        for (Map.Entry<String, Bucket> e : buckets.asMap().entrySet()) {
+            Bucket b = e.getValue();
+            long d = b.pending.get();
+            if (d < 0) takeBack(e.getKey(), b, -d, round);
+            if (d <= 0) {
+                reads.add(e);
+            } else if (bucketIndexStart(e.getKey()) < 0) {
+                writeOne(e.getKey(), b, d, round);
+            } else {
+                b.inflight = d;
+                b.pending.addAndGet(-d);
+                writes.add(e);
+            }
+        }
+        for (int from = 0; from < writes.size(); from += BATCH) {
+            write(writes.subList(from, Math.min(writes.size(), from + BATCH)), round);
+        }
+        for (int from = 0; from < reads.size(); from += BATCH) {
+            read(reads.subList(from, Math.min(reads.size(), from + BATCH)), round);
+        }
+        remoteCalls += round.calls;
+        flushedHits += round.hits;
+        failedFlushes += round.failed;
+        lastFlushNanos = System.nanoTime() - start;
+        flushes++;
+        if (remoteAvailable ? round.calls == 0 && round.failed > 0 : round.calls > 0) {
+            remoteAvailable = !remoteAvailable;
+            RemoteStateListener l = remoteStateListener;
+            if (l != null) l.remoteStateChanged(remoteAvailable, remoteAvailable ? null : round.lastError);
+        }
+    }
+
+    /** What one flush round did, for the statistics and the remote state. */
+    private static final class Round {
+        long calls, hits, failed;
+        RuntimeException lastError;
+
+        void failed(int buckets, RuntimeException e) {
+            failed += buckets;
+            lastError = e;
+        }
+    }
+
+    // buckets whose delta was moved to inflight, in one addAndSumAll call
+    private void write(List<Map.Entry<String, Bucket>> chunk, Round round) {
+        int n = chunk.size();
+        String[] keyBases = new String[n];
+        long[] indexes = new long[n];
+        long[] deltas = new long[n];
+        long[] ttls = new long[n];
+        for (int i = 0; i < n; i++) {
+            String key = chunk.get(i).getKey();
+            Bucket b = chunk.get(i).getValue();
+            int split = bucketIndexStart(key);
+            keyBases[i] = key.substring(0, split);
+            indexes[i] = Long.parseLong(key, split, key.length(), 10);
+            deltas[i] = b.inflight;
+            ttls[i] = b.ttlMillis;
+        }
+        try {
+            long[] totals = remote.addAndSumAll(keyBases, indexes, 0, deltas, ttls);
+            for (int i = 0; i < n; i++) {
+                Bucket b = chunk.get(i).getValue();
+                b.synced = totals[i];
+                b.inflight = 0;
+            }
+            round.calls++;
+            for (long d : deltas) round.hits += d;
+        } catch (RuntimeException ex) {
+            for (Map.Entry<String, Bucket> e : chunk) {
+                Bucket b = e.getValue();
+                b.pending.addAndGet(b.inflight);
+                b.inflight = 0;
+            }
+            round.failed(n, ex);
+        }
+    }
+
+    // a bucket whose key has no numeric index to batch it by
+    private void writeOne(String key, Bucket b, long d, Round round) {
+        b.inflight = d;
+        b.pending.addAndGet(-d);
+        try {
+            b.synced = remote.addAndGet(key, d, b.ttlMillis);
+            b.inflight = 0;
+            round.calls++;
+            round.hits += d;
+        } catch (RuntimeException ex) {
+            b.pending.addAndGet(d);
+            b.inflight = 0;
+            round.failed(1, ex);
+        }
+    }
+
+    // hits taken back after they were flushed; the read that follows refreshes the bucket
+    private void takeBack(String key, Bucket b, long hits, Round round) {
+        try {
+            remote.subtract(key, hits);
+            b.pending.addAndGet(hits);
+            round.calls++;
+        } catch (RuntimeException ex) {
+            round.failed(1, ex);
+        }
+    }
+
+    private void read(List<Map.Entry<String, Bucket>> chunk, Round round) {
+        String[] keys = new String[chunk.size()];
+        for (int i = 0; i < keys.length; i++) keys[i] = chunk.get(i).getKey();
+        try {
+            long[] counts = remote.getAll(keys);
+            for (int i = 0; i < keys.length; i++) chunk.get(i).getValue().synced = counts[i];
+            round.calls++;
+        } catch (RuntimeException ex) {
+            round.failed(keys.length, ex);
+        }
+    }
+
+    /**
+     * Where the numeric bucket index at the end of a key starts, as in {@code rl:client:42},
+     * or -1 if the key does not end in one that {@link RateLimitStore#addAndSumAll} would
+     * give back unchanged (no digits, a leading zero, or too long for a long).
+     */
+    static int bucketIndexStart(String key) {
+        int i = key.length();
+        while (i > 0 && key.charAt(i - 1) >= '0' && key.charAt(i - 1) <= '9') i--;
+        int digits = key.length() - i;
+        if (digits == 0 || digits > 18 || (digits > 1 && key.charAt(i) == '0')) return -1;
+        return i;
+    }
+
+    /**
+     * Sets the listener told when the remote store goes away and comes back.
+     *
+     * @param listener the listener, or null to remove it
+     */
+    public void setRemoteStateListener(RemoteStateListener listener) {
+        this.remoteStateListener = listener;
+    }
+
+    /**
+     * Returns flush statistics.
+     *
+     * @return a snapshot of the counters
+     */
+    public Stats stats() {
+        long unflushed = 0;
+        for (Bucket b : buckets.asMap().values()) {
+            unflushed += b.pending.get() + b.inflight;
+        }
+        return new Stats(flushes, remoteCalls, flushedHits, failedFlushes, lastFlushNanos, unflushed);
+    }
+
+    /**
+     * Stops the flusher and writes the remaining deltas.
+     */
+    @Override
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
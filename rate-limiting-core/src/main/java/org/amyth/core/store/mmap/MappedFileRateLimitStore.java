@@ -0,0 +1,425 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.store.mmap;
+
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.util.Hashing;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RateLimitStore backed by a memory-mapped file, so counters survive restarts.
+ * <p>
+ * The file holds a fixed-size open-addressing hash table. Reads and updates go straight
+ * to the mapped pages with atomic {@link VarHandle} operations: there is no serialization
+ * at shutdown or startup, and a restarted process continues from the counters its
+ * predecessor left behind (the OS writes dirty pages back on its own; {@link #close()}
+ * forces them out).
+ * </p>
+ * <h2>Layout</h2>
+ * A 64-byte header ({@code magic, version, slot count}) followed by 16-byte slots:
+ * <pre>
+ * long ctl   = fingerprint (28 bits) | generation (4 bits) | expiry, epoch seconds (32 bits)
+ * long count = generation (4 bits)   | count (60 bits)
+ * </pre>
+ * A slot is live while its expiry lies in the future; an expired or never-used slot may
+ * be reclaimed by any thread with one CAS on {@code ctl} that installs the new key's
+ * fingerprint, the next generation and the new expiry. The count word is not cleared by
+ * the reclaiming thread: the first increment that finds the count word still tagged with
+ * an older generation replaces it instead of adding to it. Every state is therefore
+ * reachable by a single CAS and there is never a half-initialised slot to wait for.
+ * <h2>Sharing between processes</h2>
+ * Several processes may map the same file at once (see {@link SharedMemoryRateLimitStore});
+ * CAS on a shared mapping is atomic across processes as it is across threads. Opening
+ * takes an exclusive file lock only while the header is created or checked. Because no
+ * operation holds a slot in an intermediate state, a process killed at any point leaves
+ * a table the others keep using: a slot it claimed but never counted in reads as zero
+ * and is reset by the next increment, and increments it completed stay counted.
+ * <h2>Limits</h2>
+ * <ul>
+ *   <li>Keys are identified by the slot position plus a 28-bit fingerprint of a 64-bit hash;
+ *   two keys sharing both are counted together (about one in 2<sup>28</sup> per probe).</li>
+ *   <li>Expiry has one-second resolution, rounded up. Bucket keys carry their window index,
+ *   so a bucket living slightly longer is never read by mistake.</li>
+ *   <li>When every slot in a probe sequence is live, the one expiring first is evicted
+ *   (see {@link #evictions()}); size the table for the expected number of live buckets.</li>
+ *   <li>Values are stored in native byte order; the magic number rejects files written on
+ *   a machine with a different one.</li>
+ * </ul>
+ */
+public class MappedFileRateLimitStore implements RateLimitStore, AutoCloseable {
+
+    static final long MAGIC = 0x524C4D4D41503031L; // "RLMMAP01"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    static final int SLOT_BYTES = 16;
+    static final int MAX_PROBES = 32;
+
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 8;
+    private static final int OFF_SLOTS = 12;
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final long EXPIRY_MASK = 0xFFFF_FFFFL;
+    private static final int GEN_SHIFT = 32;
+    private static final long GEN_MASK = 0xFL;
+    private static final int FP_SHIFT = 36;
+    private static final int COUNT_GEN_SHIFT = 60;
+    private static final long COUNT_MASK = (1L << COUNT_GEN_SHIFT) - 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buf;
+    private final int mask;
+    private final Clock clock;
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Opens (or creates) a mapped store.
+     *
+     * @param path  file holding the table; created if missing
+     * @param slots table capacity, rounded up to a power of two; an existing file must have been
+     *              created with the same capacity
+     * @param clock wall-clock time source (expiry stamps must stay meaningful across restarts)
+     */
+    public MappedFileRateLimitStore(Path path, int slots, Clock clock) {
+        this.path = Objects.requireNonNull(path, "path");
+        this.clock = (clock == null) ? Clock.systemUTC() : clock;
+        int capacity = capacityFor(slots);
+        this.mask = capacity - 1;
+        long size = HEADER_BYTES + (long) capacity * SLOT_BYTES;
+        FileChannel ch = null;
+        try {
+            ch = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buf = mapExclusively(ch, capacity, size);
+            this.channel = ch;
+        } catch (IOException e) {
+            closeQuietly(ch);
+            throw new UncheckedIOException("Cannot map " + path, e);
+        } catch (RuntimeException e) {
+            closeQuietly(ch);
+            throw e;
+        }
+    }
+
+    /**
+     * Maps the table while holding an exclusive lock on the file, so several processes
+     * opening it at once agree on who initialises it. File locks are held per process,
+     * hence the class-level monitor for stores opened concurrently inside one JVM.
+     */
+    private MappedByteBuffer mapExclusively(FileChannel ch, int capacity, long size) throws IOException {
+        synchronized (MappedFileRateLimitStore.class) {
+            try (FileLock ignored = ch.lock()) {
+                long existing = ch.size();
+                if (existing != 0 && existing != size) {
+                    throw new IllegalStateException("Existing file " + path + " has size " + existing
+                            + " but " + capacity + " slots need " + size + " bytes");
+                }
+                MappedByteBuffer mapped = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                // a zero magic means a new file, or a creator that died before finishing the header
+                if ((long) LONGS.getVolatile(mapped, OFF_MAGIC) == 0L) {
+                    mapped.putInt(OFF_VERSION, VERSION);
+                    mapped.putInt(OFF_SLOTS, capacity);
+                    LONGS.setVolatile(mapped, OFF_MAGIC, MAGIC);
+                } else {
+                    verifyHeader(mapped, capacity);
+                }
+                return mapped;
+            }
+        }
+    }
+
+    private void verifyHeader(MappedByteBuffer mapped, int capacity) {
+        if ((long) LONGS.getVolatile(mapped, OFF_MAGIC) != MAGIC) {
+            throw new IllegalStateException(path + " is not a rate limit table (or was written with another byte order)");
+        }
+        int version = mapped.getInt(OFF_VERSION);
+        int slots = mapped.getInt(OFF_SLOTS);
+        if (version != VERSION || slots != capacity) {
+            throw new IllegalStateException(path + " has version " + version + " and " + slots
+                    + " slots, expected version " + VERSION + " and " + capacity);
+        }
+    }
+
+    private static void closeQuietly(FileChannel ch) {
+        if (ch == null) return;
+        try {
+            ch.close();
+        } catch (IOException ignored) {
+            // already failing
+        }
+    }
+
+    static int capacityFor(int slots) {
+        if (slots <= 0) throw new IllegalArgumentException("slots must be > 0");
+        int max = 1 << 26; // 1 GiB of slots keeps the mapping below Integer.MAX_VALUE bytes
+        if (slots > max) throw new IllegalArgumentException("slots must be <= " + max);
+        return Math.max(MAX_PROBES, Integer.highestOneBit(slots - 1) << 1);
+    }
+
+    @Override
+    public long incrementAndGet(String bucketKey, long ttlMillis) {
+        return addAndGet(bucketKey, 1, ttlMillis);
+    }
+
+    @Override
+    public long addAndGet(String bucketKey, long delta, long ttlMillis) {
+        long h = Hashing.hash64(bucketKey);
+        long fp = fingerprint(h);
+        int home = (int) h & mask;
+        while (true) {
+            long nowMs = clock.millis();
+            int reclaim = -1;
+            long reclaimCtl = 0;
+            for (int p = 0; p < MAX_PROBES; p++) {
+                int slot = (home + p) & mask;
+                long ctl = ctl(slot);
+                if (isLive(ctl, nowMs)) {
+                    if ((ctl >>> FP_SHIFT) == fp) {
+                        long v = add(slot, generation(ctl), delta);
+                        if (v >= 0) return v;
+                        reclaim = -2; // slot changed under us
+                        break;
+                    }
+                    continue;
+                }
+                if (reclaim == -1) {
+                    reclaim = slot;
+                    reclaimCtl = ctl;
+                }
+                if (ctl == 0) break; // never-used slot: the key cannot be further along
+            }
+            if (reclaim == -2) continue;
+            if (reclaim == -1) {
+                reclaim = soonestExpiring(home);
+                reclaimCtl = ctl(reclaim);
+                evictions.increment();
+            }
+            long gen = (generation(reclaimCtl) + 1) & GEN_MASK;
+            long next = ctlWord(fp, gen, expirySeconds(nowMs, ttlMillis));
+            if (LONGS.compareAndSet(buf, ctlOffset(reclaim), reclaimCtl, next)) {
+                long v = add(reclaim, gen, delta);
+                if (v >= 0) return v;
+            }
+            // lost the race for the slot (or it was reclaimed again); probe afresh
+        }
+    }
+
+    /** Takes hits back from a live bucket, never below zero; a bucket that is gone has none to give. */
+    @Override
+    public boolean subtract(String bucketKey, long hits) {
+        long h = Hashing.hash64(bucketKey);
+        long fp = fingerprint(h);
+        int home = (int) h & mask;
+        long nowMs = clock.millis();
+        for (int p = 0; p < MAX_PROBES; p++) {
+            int slot = (home + p) & mask;
+            long ctl = ctl(slot);
+            if (ctl == 0) return true;
+            if (isLive(ctl, nowMs) && (ctl >>> FP_SHIFT) == fp) {
+                int off = countOffset(slot);
+                while (true) {
+                    long cw = (long) LONGS.getVolatile(buf, off);
+                    if ((cw >>> COUNT_GEN_SHIFT) != generation(ctl)) return true;
+                    long next = cw - Math.min(hits, cw & COUNT_MASK);
+                    if (LONGS.compareAndSet(buf, off, cw, next)) return true;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long get(String bucketKey) {
+        long h = Hashing.hash64(bucketKey);
+        long fp = fingerprint(h);
+        int home = (int) h & mask;
+        long nowMs = clock.millis();
+        for (int p = 0; p < MAX_PROBES; p++) {
+            int slot = (home + p) & mask;
+            long ctl = ctl(slot);
+            if (ctl == 0) return 0L;
+            if (isLive(ctl, nowMs) && (ctl >>> FP_SHIFT) == fp) {
+                long cw = (long) LONGS.getVolatile(buf, countOffset(slot));
+                return (cw >>> COUNT_GEN_SHIFT) == generation(ctl) ? cw & COUNT_MASK : 0L;
+            }
+        }
+        return 0L;
+    }
+
+    @Override
+    public void expire(String bucketKey, long ttlMillis) {
+        setExpiry(bucketKey, ttlMillis, false);
+    }
+
+    @Override
+    public void delete(String bucketKey) {
+        setExpiry(bucketKey, 0, true);
+    }
+
+    /** Moves the expiry of a live slot; {@code now} makes it dead but keeps the probe chain intact. */
+    private void setExpiry(String bucketKey, long ttlMillis, boolean now) {
+        long h = Hashing.hash64(bucketKey);
+        long fp = fingerprint(h);
+        int home = (int) h & mask;
+        long nowMs = clock.millis();
+        long expiry = now ? Math.floorDiv(nowMs, 1000) : expirySeconds(nowMs, ttlMillis);
+        for (int p = 0; p < MAX_PROBES; p++) {
+            int slot = (home + p) & mask;
+            long ctl = ctl(slot);
+            if (ctl == 0) return;
+            if (isLive(ctl, nowMs) && (ctl >>> FP_SHIFT) == fp) {
+                long next = (ctl & ~EXPIRY_MASK) | expiry;
+                LONGS.compareAndSet(buf, ctlOffset(slot), ctl, next);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Adds to the count word of a slot owned by generation {@code gen}.
+     *
+     * @return the new count, or -1 if the slot no longer belongs to {@code gen}
+     */
+    private long add(int slot, long gen, long delta) {
+        int off = countOffset(slot);
+        while (true) {
+            long cw = (long) LONGS.getVolatile(buf, off);
+            long next;
+            if ((cw >>> COUNT_GEN_SHIFT) == gen) {
+                next = cw + delta;
+            } else if (generation(ctl(slot)) == gen) {
+                next = (gen << COUNT_GEN_SHIFT) | delta; // first write of this generation
+            } else {
+                return -1;
+            }
+            if (LONGS.compareAndSet(buf, off, cw, next)) {
+                return next & COUNT_MASK;
+            }
+        }
+    }
+
+    private int soonestExpiring(int home) {
+        int best = home & mask;
+        long bestExpiry = Long.MAX_VALUE;
+        for (int p = 0; p < MAX_PROBES; p++) {
+            int slot = (home + p) & mask;
+            long expiry = ctl(slot) & EXPIRY_MASK;
+            if (expiry < bestExpiry) {
+                bestExpiry = expiry;
+                best = slot;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns how many live counters were evicted because their probe sequence was full.
+     * A growing value means the table is too small for the number of live buckets.
+     *
+     * @return number of evictions since this instance was opened
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the number of slots in the table.
+     *
+     * @return table capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the backing file.
+     *
+     * @return file path
+     */
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Flushes dirty pages to the file and closes the channel. The mapping itself is
+     * released when the store is garbage collected.
+     */
+    @Override
+    public void close() {
+        buf.force();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /* ------------------ slot encoding ------------------ */
+
+    final MappedByteBuffer buffer() {
+        return buf;
+    }
+
+    final long ctl(int slot) {
+        return (long) LONGS.getVolatile(buf, ctlOffset(slot));
+    }
+
+    static int ctlOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    static int countOffset(int slot) {
+        return HEADER_BYTES + slot * SLOT_BYTES + 8;
+    }
+
+    static long ctlWord(long fingerprint, long generation, long expirySeconds) {
+        return (fingerprint << FP_SHIFT) | ((generation & GEN_MASK) << GEN_SHIFT) | (expirySeconds & EXPIRY_MASK);
+    }
+
+    static long fingerprint(long hash) {
+        return hash >>> FP_SHIFT; // top 28 bits; the low bits pick the home slot
+    }
+
+    static long generation(long ctl) {
+        return (ctl >>> GEN_SHIFT) & GEN_MASK;
+    }
+
+    static boolean isLive(long ctl, long nowMs) {
+        return (ctl & EXPIRY_MASK) * 1000L > nowMs;
+    }
+
+    static long expirySeconds(long nowMs, long ttlMillis) {
+        long sec = Math.floorDiv(nowMs + ttlMillis + 999, 1000);
+        return Math.min(sec, EXPIRY_MASK);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.store.mmap;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+
+/**
+ * Host-wide RateLimitStore shared by several JVMs on the same machine.
+ * <p>
+ * Every process opening the same region maps the same pages, so workers behind a local
+ * proxy enforce one limit per host instead of one per worker, without a network hop.
+ * Updates are lock-free CASes on the shared mapping and a worker crashing at any point
+ * leaves the table usable by the others (see {@link MappedFileRateLimitStore}).
+ * </p>
+ * <p>
+ * By default the region lives in {@code /dev/shm}, i.e. in memory and not written to disk;
+ * it outlives the processes using it until the host reboots or the file is deleted, which
+ * also lets a restarted worker keep the counts. All workers must use the same name and
+ * slot count. Expiry is stamped with the system wall clock, which every process on the
+ * host shares.
+ * </p>
+ */
+public class SharedMemoryRateLimitStore extends MappedFileRateLimitStore {
+
+    private static final Path SHM = Path.of("/dev/shm");
+
+    /**
+     * Opens (or creates) a named region in {@code /dev/shm}, or in {@code java.io.tmpdir}
+     * where no shared-memory filesystem exists.
+     *
+     * @param name  region name, identical in every worker; a name containing a path
+     *              separator is used as a file path as is
+     * @param slots table capacity, identical in every worker
+     */
+    public SharedMemoryRateLimitStore(String name, int slots) {
+        this(regionPath(name), slots);
+    }
+
+    /**
+     * Opens (or creates) a region at an explicit path, e.g. a file on a tmpfs mount.
+     *
+     * @param path  region file
+     * @param slots table capacity, identical in every worker
+     */
+    public SharedMemoryRateLimitStore(Path path, int slots) {
+        super(path, slots, Clock.systemUTC());
+    }
+
+    static Path regionPath(String name) {
+        if (name == null || name.isBlank()) throw new IllegalArgumentException("name must not be blank");
+        if (name.indexOf('/') >= 0 || name.indexOf('\\') >= 0) return Path.of(name);
+        Path dir = Files.isDirectory(SHM) && Files.isWritable(SHM)
+                ? SHM
+                : Path.of(System.getProperty("java.io.tmpdir"));
+        return dir.resolve(name);
+    }
+}
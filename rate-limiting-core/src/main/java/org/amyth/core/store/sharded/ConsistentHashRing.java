@@ -0,0 +1,167 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.store.sharded;
+
+import org.amyth.core.util.Hashing;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable consistent-hash ring with virtual nodes.
+ * <p>
+ * Each shard is placed on the ring {@code virtualNodes} times at positions derived
+ * from {@code "<shardId>#<i>"}, so shard placement depends only on shard ids and is
+ * identical on every application node. A key is owned by the first virtual node at
+ * or after the key's hash, wrapping around at the end of the ring.
+ * </p>
+ * <p>
+ * Points are kept in a sorted {@code long[]} and looked up by binary search, so
+ * routing a key allocates nothing. Membership changes return a new ring.
+ * </p>
+ *
+ * @param <T> the shard type
+ */
+public final class ConsistentHashRing<T> {
+
+    private final Map<String, T> shards;
+    private final int virtualNodes;
+    private final long[] points;
+    private final Object[] owners;
+
+    /**
+     * Creates a ring over the given shards.
+     *
+     * @param shards       shards by stable id (e.g. "redis-a" or "host:port")
+     * @param virtualNodes ring positions per shard; 100-200 keeps the load spread within a few percent
+     */
+    public ConsistentHashRing(Map<String, T> shards, int virtualNodes) {
+        Objects.requireNonNull(shards, "shards");
+        if (shards.isEmpty()) throw new IllegalArgumentException("at least one shard is required");
+        if (virtualNodes <= 0) throw new IllegalArgumentException("virtualNodes must be > 0");
+        this.shards = Collections.unmodifiableMap(new LinkedHashMap<>(shards));
+        this.virtualNodes = virtualNodes;
+
+        int n = shards.size() * virtualNodes;
+        long[] pts = new long[n];
+        String[] ids = new String[n];
+        int i = 0;
+        for (String id : shards.keySet()) {
+            for (int v = 0; v < virtualNodes; v++) {
+                pts[i] = Hashing.hash64(id + "#" + v);
+                ids[i] = id;
+                i++;
+            }
+        }
+        // sort points and owners together; ties (practically impossible) resolve by shard id
+        Integer[] order = new Integer[n];
+        for (int k = 0; k < n; k++) order[k] = k;
+        Arrays.sort(order, (a, b) -> {
+            int c = Long.compare(pts[a], pts[b]);
+            return c != 0 ? c : ids[a].compareTo(ids[b]);
+        });
+        this.points = new long[n];
+        this.owners = new Object[n];
+        for (int k = 0; k < n; k++) {
+            points[k] = pts[order[k]];
+            owners[k] = this.shards.get(ids[order[k]]);
+        }
+    }
+
+    /**
+     * Returns the shard owning the given routing key.
+     *
+     * @param routingKey the key to route
+     * @return the owning shard
+     */
+    public T shardFor(CharSequence routingKey) {
+        return shardForHash(Hashing.hash64(routingKey));
+    }
+
+    /**
+     * Returns the shard owning the range {@code [from, to)} of a key, without
+     * materialising the substring.
+     *
+     * @param key  the key containing the routing part
+     * @param from start index, inclusive
+     * @param to   end index, exclusive
+     * @return the owning shard
+     */
+    public T shardFor(CharSequence key, int from, int to) {
+        return shardForHash(Hashing.hash64(key, from, to));
+    }
+
+    @SuppressWarnings("unchecked")
+    private T shardForHash(long hash) {
+        int idx = Arrays.binarySearch(points, hash);
+        if (idx < 0) idx = -idx - 1;
+        if (idx == points.length) idx = 0;
+        return (T) owners[idx];
+    }
+
+    /**
+     * Returns a new ring with an additional shard. Only keys that now hash onto
+     * the new shard's virtual nodes move (about {@code 1/(n+1)} of them).
+     *
+     * @param id    stable shard id
+     * @param shard the shard
+     * @return the new ring
+     */
+    public ConsistentHashRing<T> withShard(String id, T shard) {
+        Map<String, T> next = new LinkedHashMap<>(shards);
+        if (next.putIfAbsent(id, shard) != null) {
+            throw new IllegalArgumentException("shard already present: " + id);
+        }
+        return new ConsistentHashRing<>(next, virtualNodes);
+    }
+
+    /**
+     * Returns a new ring without the given shard. Only the removed shard's keys
+     * move, each to the next shard clockwise.
+     *
+     * @param id shard id to remove
+     * @return the new ring
+     */
+    public ConsistentHashRing<T> withoutShard(String id) {
+        Map<String, T> next = new LinkedHashMap<>(shards);
+        if (next.remove(id) == null) {
+            throw new IllegalArgumentException("unknown shard: " + id);
+        }
+        return new ConsistentHashRing<>(next, virtualNodes);
+    }
+
+    /**
+     * Returns the shards by id, in registration order.
+     *
+     * @return unmodifiable view of the shards
+     */
+    public Map<String, T> shards() {
+        return shards;
+    }
+
+    /**
+     * Returns the number of ring positions per shard.
+     *
+     * @return virtual nodes per shard
+     */
+    public int virtualNodes() {
+        return virtualNodes;
+    }
+}
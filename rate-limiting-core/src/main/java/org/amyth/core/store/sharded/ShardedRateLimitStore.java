@@ -0,0 +1,254 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.store.sharded;
+
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.api.ScannableRateLimitStore;
+import org.amyth.core.model.KeyPage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * RateLimitStore that spreads keys over several independent stores using a
+ * {@link ConsistentHashRing}.
+ * <p>
+ * Routing uses the bucket key without its trailing {@code :<bucket>} segment, so
+ * every bucket of one client ({@code rl:<key>:<n>}) lands on the same shard and a
+ * sliding-window decision never spans shards.
+ * </p>
+ * <h2>Rebalancing</h2>
+ * <ul>
+ *   <li><b>Adding a shard</b> moves roughly {@code 1/(n+1)} of the clients onto it. Their
+ *   counters start from zero on the new shard, so those clients may get up to one extra
+ *   window of quota once; all other clients keep their shard and their counters.</li>
+ *   <li><b>Removing a shard</b> moves only that shard's clients, each to the next shard on
+ *   the ring, with the same one-window reset. Counters left on the old shard simply expire.</li>
+ * </ul>
+ * Every application node must be configured with the same shard ids and virtual node
+ * count, otherwise nodes route the same client to different shards.
+ * <p>
+ * Scanning walks the shards one after another; it requires every shard to be a
+ * {@link ScannableRateLimitStore}.
+ * </p>
+ */
+public final class ShardedRateLimitStore implements ScannableRateLimitStore, AutoCloseable {
+
+    private volatile ConsistentHashRing<RateLimitStore> ring;
+
+    /**
+     * Creates a sharded store.
+     *
+     * @param shards       shards by stable id; the id, not the order, decides placement
+     * @param virtualNodes ring positions per shard
+     */
+    public ShardedRateLimitStore(Map<String, ? extends RateLimitStore> shards, int virtualNodes) {
+        this.ring = new ConsistentHashRing<>(new LinkedHashMap<String, RateLimitStore>(shards), virtualNodes);
+    }
+
+    @Override
+    public long incrementAndGet(String bucketKey, long ttlMillis) {
+        return shardFor(bucketKey).incrementAndGet(bucketKey, ttlMillis);
+    }
+
+    @Override
+    public long addAndGet(String bucketKey, long delta, long ttlMillis) {
+        return shardFor(bucketKey).addAndGet(bucketKey, delta, ttlMillis);
+    }
+
+    @Override
+    public boolean subtract(String bucketKey, long hits) {
+        return shardFor(bucketKey).subtract(bucketKey, hits);
+    }
+
+    @Override
+    public long incrementAndSum(String keyBase, long currentBucket, int olderBuckets, long ttlMillis) {
+        // all buckets of a window live on the shard of the current one
+        return shardFor(keyBase + currentBucket).incrementAndSum(keyBase, currentBucket, olderBuckets, ttlMillis);
+    }
+
+    @Override
+    public long addAndSum(String keyBase, long currentBucket, int olderBuckets, long delta, long ttlMillis) {
+        return shardFor(keyBase + currentBucket).addAndSum(keyBase, currentBucket, olderBuckets, delta, ttlMillis);
+    }
+
+    /** Groups the windows by shard and sends each shard its group in one call, in order within a shard. */
+    @Override
+    public long[] addAndSumAll(String[] keyBases, long[] currentBuckets, int olderBuckets, long[] deltas,
+                               long[] ttlMillis) {
+        Map<RateLimitStore, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < keyBases.length; i++) {
+            groups.computeIfAbsent(shardFor(keyBases[i] + currentBuckets[i]), s -> new ArrayList<>()).add(i);
+        }
+        long[] totals = new long[keyBases.length];
+        for (Map.Entry<RateLimitStore, List<Integer>> group : groups.entrySet()) {
+            List<Integer> idx = group.getValue();
+            int n = idx.size();
+            String[] bases = new String[n];
+            long[] buckets = new long[n];
+            long[] ds = new long[n];
+            long[] ttls = new long[n];
+            for (int j = 0; j < n; j++) {
+                int i = idx.get(j);
+                bases[j] = keyBases[i];
+                buckets[j] = currentBuckets[i];
+                ds[j] = deltas[i];
+                ttls[j] = ttlMillis[i];
+            }
+            long[] shardTotals = group.getKey().addAndSumAll(bases, buckets, olderBuckets, ds, ttls);
+            for (int j = 0; j < n; j++) totals[idx.get(j)] = shardTotals[j];
+        }
+        return totals;
+    }
+
+    @Override
+    public long get(String bucketKey) {
+        return shardFor(bucketKey).get(bucketKey);
+    }
+
+    /** Groups the buckets by shard and reads each shard's group in one call. */
+    @Override
+    public long[] getAll(String[] bucketKeys) {
+        Map<RateLimitStore, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < bucketKeys.length; i++) {
+            groups.computeIfAbsent(shardFor(bucketKeys[i]), s -> new ArrayList<>()).add(i);
+        }
+        long[] counts = new long[bucketKeys.length];
+        for (Map.Entry<RateLimitStore, List<Integer>> group : groups.entrySet()) {
+            List<Integer> idx = group.getValue();
+            String[] keys = new String[idx.size()];
+            for (int j = 0; j < keys.length; j++) keys[j] = bucketKeys[idx.get(j)];
+            long[] shardCounts = group.getKey().getAll(keys);
+            for (int j = 0; j < keys.length; j++) counts[idx.get(j)] = shardCounts[j];
+        }
+        return counts;
+    }
+
+    @Override
+    public void expire(String bucketKey, long ttlMillis) {
+        shardFor(bucketKey).expire(bucketKey, ttlMillis);
+    }
+
+    @Override
+    public void delete(String bucketKey) {
+        shardFor(bucketKey).delete(bucketKey);
+    }
+
+    /**
+     * Lists live bucket keys shard by shard. The cursor is {@code <shard index>:<shard cursor>}
+     * over the shards in id order; adding or removing shards during a scan may skip or repeat keys.
+     */
+    @Override
+    public KeyPage scan(String cursor, int count) {
+        List<String> ids = new ArrayList<>(ring.shards().keySet());
+        ids.sort(null);
+        int shard = 0;
+        String inner = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            int colon = cursor.indexOf(':');
+            try {
+                shard = Integer.parseInt(colon < 0 ? cursor : cursor.substring(0, colon));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed scan cursor: " + cursor);
+            }
+            if (shard < 0 || shard >= ids.size()) {
+                throw new IllegalArgumentException("Scan cursor names no shard: " + cursor);
+            }
+            inner = colon < 0 ? null : cursor.substring(colon + 1);
+        }
+        List<String> keys = new ArrayList<>();
+        while (shard < ids.size() && keys.size() < count) {
+            RateLimitStore s = ring.shards().get(ids.get(shard));
+            if (!(s instanceof ScannableRateLimitStore scannable)) {
+                throw new UnsupportedOperationException("Shard " + ids.get(shard) + " cannot list its keys");
+            }
+            KeyPage page = scannable.scan(inner, count - keys.size());
+            keys.addAll(page.bucketKeys());
+            if (page.cursor() != null) {
+                return new KeyPage(keys, shard + ":" + page.cursor());
+            }
+            shard++;
+            inner = null;
+        }
+        return new KeyPage(keys, shard < ids.size() ? String.valueOf(shard) : null);
+    }
+
+    /**
+     * Adds a shard at runtime. See the class docs for the effect on existing clients.
+     *
+     * @param id    stable shard id
+     * @param shard the shard store
+     */
+    public synchronized void addShard(String id, RateLimitStore shard) {
+        ring = ring.withShard(id, shard);
+    }
+
+    /**
+     * Removes a shard at runtime and returns it so the caller can close it once
+     * in-flight calls have drained.
+     *
+     * @param id shard id
+     * @return the removed shard
+     */
+    public synchronized RateLimitStore removeShard(String id) {
+        ConsistentHashRing<RateLimitStore> current = ring;
+        RateLimitStore removed = current.shards().get(id);
+        ring = current.withoutShard(id);
+        return removed;
+    }
+
+    /**
+     * Returns the shard a bucket key routes to.
+     *
+     * @param bucketKey the bucket key
+     * @return the owning shard
+     */
+    public RateLimitStore shardFor(String bucketKey) {
+        return ring.shardFor(bucketKey, 0, routingEnd(bucketKey));
+    }
+
+    /**
+     * Returns the current shards by id.
+     *
+     * @return unmodifiable view of the shards
+     */
+    public Map<String, RateLimitStore> shards() {
+        return ring.shards();
+    }
+
+    /**
+     * Closes every shard that holds resources (e.g. its own Redis connection).
+     *
+     * @throws Exception if a shard fails to close
+     */
+    @Override
+    public void close() throws Exception {
+        for (RateLimitStore shard : ring.shards().values()) {
+            if (shard instanceof AutoCloseable c) c.close();
+        }
+    }
+
+    /** End of the routing part: strips a trailing ":<digits>" bucket index, if any. */
+    static int routingEnd(String bucketKey) {
+        int i = bucketKey.length() - 1;
+        while (i >= 0 && bucketKey.charAt(i) >= '0' && bucketKey.charAt(i) <= '9') i--;
+        boolean hasIndex = i >= 0 && i < bucketKey.length() - 1 && bucketKey.charAt(i) == ':';
+        return hasIndex ? i : bucketKey.length();
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2025 amythlabs
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.amyth.core.util;
+
+/**
+ * Stable 64-bit hashing for keys that must map to the same slot or shard
+ * on every node and across restarts.
+ * <p>
+ * {@link String#hashCode()} is stable but only 32 bits wide and poorly mixed,
+ * which skews consistent-hash rings and fixed-size tables. These functions hash
+ * the UTF-16 code units directly, so no byte array is allocated per call.
+ * </p>
+ */
+public final class Hashing {
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private Hashing() {
+    }
+
+    /**
+     * Hashes a whole char sequence.
+     *
+     * @param s the value to hash
+     * @return a well-mixed 64-bit hash
+     */
+    public static long hash64(CharSequence s) {
+        return hash64(s, 0, s.length());
+    }
+
+    /**
+     * Hashes the range {@code [from, to)} of a char sequence.
+     *
+     * @param s    the value to hash
+     * @param from start index, inclusive
+     * @param to   end index, exclusive
+     * @return a well-mixed 64-bit hash
+     */
+    public static long hash64(CharSequence s, int from, int to) {
+        long h = SEED ^ (to - from);
+        int i = from;
+        // four chars per round keeps the loop short for typical keys
+        for (; i + 3 < to; i += 4) {
+            long block = s.charAt(i)
+                    | (long) s.charAt(i + 1) << 16
+                    | (long) s.charAt(i + 2) << 32
+                    | (long) s.charAt(i + 3) << 48;
+            h = Long.rotateLeft(h ^ mix(block), 27) * 0xC2B2AE3D27D4EB4FL + 0x52DCE729L;
+        }
+        for (; i < to; i++) {
+            h = Long.rotateLeft(h ^ (s.charAt(i) * 0x165667B19E3779F9L), 23) * 0x9E3779B97F4A7C15L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Finalisation step of MurmurHash3 ({@code fmix64}); spreads every input bit
+     * over the whole output.
+     *
+     * @param z the value to mix
+     * @return the mixed value
+     */
+    public static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
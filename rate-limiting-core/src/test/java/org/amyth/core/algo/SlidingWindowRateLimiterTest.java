@@ -1,14 +1,23 @@
 package org.amyth.core.algo;
 
 import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.model.HitRequest;
+import org.amyth.core.model.HitResult;
 import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.amyth.core.model.WindowState;
 import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
 import org.junit.jupiter.api.Test;
 
 import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class SlidingWindowRateLimiterTest {
 
@@ -23,4 +32,199 @@ class SlidingWindowRateLimiterTest {
         assertThat(limiter.hit("k", rule).allowed()).isTrue();
         assertThat(limiter.hit("k", rule).allowed()).isFalse();
     }
+
+    @Test
+    void peek_reads_without_consuming_and_reset_restores_quota() {
+        RateLimitStore store = new CaffeineRateLimitStore(10_000);
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 6);
+        LimitRule rule = new LimitRule(3, Duration.ofMinutes(1));
+        for (int i = 0; i < 4; i++) limiter.hit("k", rule);
+
+        WindowState state = limiter.peek("k", rule);
+        assertThat(state.count()).isEqualTo(4);
+        assertThat(state.remaining()).isZero();
+        assertThat(limiter.peek("k", rule).count()).isEqualTo(4);
+        assertThat(limiter.peek("other", rule).count()).isZero();
+
+        limiter.reset("k", rule);
+        assertThat(limiter.peek("k", rule).count()).isZero();
+        assertThat(limiter.hit("k", rule).allowed()).isTrue();
+    }
+
+    @Test
+    void hits_count_until_their_bucket_slides_out() {
+        MovableClock clock = new MovableClock(1_700_000_012_345L);
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(new CaffeineRateLimitStore(10_000), clock, 6);
+        LimitRule rule = new LimitRule(1, Duration.ofMillis(1_000)); // buckets of 166ms cover 996ms
+        limiter.decide("k", rule);
+
+        Instant until = limiter.countedUntil("k", rule);
+
+        assertThat(until).isEqualTo(Instant.ofEpochMilli((1_700_000_012_345L / 166 + 6) * 166));
+        clock.millis = until.toEpochMilli() - 1;
+        assertThat(limiter.peek("k", rule).count()).isEqualTo(1);
+        clock.millis = until.toEpochMilli();
+        assertThat(limiter.peek("k", rule).count()).isZero();
+    }
+
+    @Test
+    void tryAcquire_leaves_a_refused_window_as_it_was() {
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(1_700_000_012_345L), ZoneOffset.UTC);
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(10_000);
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, clock, 6);
+        LimitRule rule = new LimitRule(5, Duration.ofMinutes(1));
+
+        long first = limiter.tryAcquire("k", rule, 3);
+        long refused = limiter.tryAcquire("k", rule, 3);
+
+        assertThat(PackedDecision.allowed(first)).isTrue();
+        assertThat(refused).isEqualTo(PackedDecision.pack(false, 2, 1_700_000_020L));
+        assertThat(store.get(SlidingWindowRateLimiter.keyBase("k") + 170_000_001L)).isEqualTo(3);
+        assertThat(PackedDecision.allowed(limiter.tryAcquire("k", rule, 2))).isTrue();
+        assertThatThrownBy(() -> limiter.tryAcquire("k", rule, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void tryAcquire_takes_hits_back_from_the_bucket_they_were_counted_in() {
+        MovableClock clock = new MovableClock(1_700_000_019_999L);
+        // the store call lands in the next bucket's time, as a slow store call would
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(10_000) {
+            @Override
+            public long addAndSum(String keyBase, long currentBucket, int olderBuckets, long delta, long ttlMillis) {
+                long total = super.addAndSum(keyBase, currentBucket, olderBuckets, delta, ttlMillis);
+                clock.millis += 1;
+                return total;
+            }
+        };
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, clock, 6);
+        LimitRule rule = new LimitRule(1, Duration.ofMinutes(1));
+        limiter.decide("k", rule);
+        clock.millis = 1_700_000_019_999L;
+
+        assertThat(PackedDecision.allowed(limiter.tryAcquire("k", rule, 1))).isFalse();
+
+        String base = SlidingWindowRateLimiter.keyBase("k");
+        assertThat(store.get(base + 170_000_001L)).isEqualTo(1);
+        assertThat(store.get(base + 170_000_002L)).isZero();
+    }
+
+    @Test
+    void tryAcquire_reads_first_when_the_store_cannot_take_hits_back() {
+        CaffeineRateLimitStore caffeine = new CaffeineRateLimitStore(10_000);
+        RateLimitStore store = new RateLimitStore() {
+            @Override
+            public long incrementAndGet(String bucketKey, long ttlMillis) {
+                return caffeine.incrementAndGet(bucketKey, ttlMillis);
+            }
+
+            @Override
+            public long get(String bucketKey) {
+                return caffeine.get(bucketKey);
+            }
+
+            @Override
+            public void expire(String bucketKey, long ttlMillis) {
+                caffeine.expire(bucketKey, ttlMillis);
+            }
+        };
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 6);
+        LimitRule rule = new LimitRule(1, Duration.ofMinutes(1));
+        limiter.decide("k", rule);
+
+        assertThat(PackedDecision.allowed(limiter.tryAcquire("k", rule, 1))).isFalse();
+        assertThat(limiter.peek("k", rule).count()).isEqualTo(2);
+        for (int i = 0; i < 3; i++) assertThat(PackedDecision.allowed(limiter.tryAcquire("k", rule, 1))).isFalse();
+        assertThat(limiter.peek("k", rule).count()).isEqualTo(2);
+    }
+
+    @Test
+    void decide_packs_the_same_result_as_hit() {
+        Clock clock = Clock.fixed(Instant.ofEpochMilli(1_700_000_012_345L), ZoneOffset.UTC);
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(new CaffeineRateLimitStore(10_000), clock, 6);
+        LimitRule rule = new LimitRule(2, Duration.ofMinutes(1));
+
+        long first = limiter.decide("k", rule);
+        HitResult second = limiter.hit("k", rule);
+        long third = limiter.decide("k", rule);
+
+        assertThat(PackedDecision.allowed(first)).isTrue();
+        assertThat(PackedDecision.remaining(first)).isEqualTo(1);
+        assertThat(PackedDecision.resetEpochSecond(first)).isEqualTo(second.resetAt().getEpochSecond());
+        assertThat(PackedDecision.of(second)).isEqualTo(PackedDecision.pack(true, 0, 1_700_000_020L));
+        assertThat(PackedDecision.allowed(third)).isFalse();
+        assertThat(PackedDecision.remaining(third)).isZero();
+    }
+
+    @Test
+    void packed_remaining_saturates() {
+        long d = PackedDecision.pack(true, Long.MAX_VALUE, 4_000_000_000L);
+        assertThat(PackedDecision.allowed(d)).isTrue();
+        assertThat(PackedDecision.remaining(d)).isEqualTo(Integer.MAX_VALUE);
+        assertThat(PackedDecision.resetEpochSecond(d)).isEqualTo(4_000_000_000L);
+        assertThat(PackedDecision.remaining(PackedDecision.pack(false, -5, 0))).isZero();
+    }
+
+    @Test
+    void decide_takes_a_batch_of_permits_at_once() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(new CaffeineRateLimitStore(10_000), Clock.systemUTC(), 6);
+        LimitRule rule = new LimitRule(10, Duration.ofMinutes(1));
+
+        long batch = limiter.decide("k", rule, 4);
+        assertThat(PackedDecision.allowed(batch)).isTrue();
+        assertThat(PackedDecision.remaining(batch)).isEqualTo(6);
+        assertThat(PackedDecision.allowed(limiter.decide("k", rule, 6))).isTrue();
+
+        long over = limiter.decide("k", rule, 2);
+        assertThat(PackedDecision.allowed(over)).isFalse();
+        assertThat(limiter.peek("k", rule).count()).isEqualTo(12);
+    }
+
+    @Test
+    void hitAll_decides_many_keys_in_order() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(new CaffeineRateLimitStore(10_000), Clock.systemUTC(), 6);
+        LimitRule rule = new LimitRule(5, Duration.ofMinutes(1));
+        limiter.decide("b", rule, 4);
+
+        List<HitResult> results = limiter.hitAll(List.of(
+                new HitRequest("a", rule, 3),
+                new HitRequest("b", rule),
+                new HitRequest("a", rule, 3),
+                new HitRequest("b", rule)));
+
+        assertThat(results).extracting(HitResult::allowed).containsExactly(true, true, false, false);
+        assertThat(results).extracting(HitResult::remaining).containsExactly(2L, 0L, 0L, 0L);
+        assertThat(limiter.peek("a", rule).count()).isEqualTo(6);
+
+        long[] decisions = limiter.decideAll(List.of(new HitRequest("c", rule, 2)));
+        assertThat(PackedDecision.allowed(decisions[0])).isTrue();
+        assertThat(PackedDecision.remaining(decisions[0])).isEqualTo(3);
+    }
+
+    private static final class MovableClock extends Clock {
+        long millis;
+
+        MovableClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
 }
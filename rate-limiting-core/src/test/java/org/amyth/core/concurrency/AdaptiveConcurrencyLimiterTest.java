@@ -0,0 +1,107 @@
+package org.amyth.core.concurrency;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MS = 1_000_000L;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private AdaptiveConcurrencyLimiter limiter(int initial) {
+        return new AdaptiveConcurrencyLimiter(new AdaptiveConcurrencyLimiter.Options(
+                initial, 2, 100, Duration.ofMillis(100), Duration.ofNanos(1), 10, 1.0), now::get);
+    }
+
+    /** Runs a window of {@code n} requests that each take {@code latencyMs}, all in flight together. */
+    private void window(AdaptiveConcurrencyLimiter limiter, int n, long latencyMs) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            AdaptiveConcurrencyLimiter.Permit p = limiter.tryAcquire();
+            if (p != null) permits.add(p);
+        }
+        now.addAndGet(latencyMs * MS);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+    }
+
+    @Test
+    @DisplayName("Rejects once the current limit is in flight")
+    void gatesAtLimit() {
+        AdaptiveConcurrencyLimiter limiter = limiter(3);
+        AdaptiveConcurrencyLimiter.Permit a = limiter.tryAcquire();
+        assertNotNull(limiter.tryAcquire());
+        assertNotNull(limiter.tryAcquire());
+        assertNull(limiter.tryAcquire());
+        assertEquals(3, limiter.getInFlight());
+        assertEquals(1, limiter.getRejected());
+
+        a.release();
+        a.release(); // idempotent
+        assertEquals(2, limiter.getInFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    @DisplayName("Latency above target shrinks the limit, at most by half per window")
+    void shrinksWhenSlow() {
+        AdaptiveConcurrencyLimiter limiter = limiter(40);
+        window(limiter, 40, 400);
+        assertEquals(20, limiter.getLimit());
+        assertEquals(Duration.ofMillis(400), limiter.getLatency());
+        window(limiter, 40, 400);
+        assertEquals(10, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Latency on target grows a saturated limit and recovers after a slowdown")
+    void growsWhenFast() {
+        AdaptiveConcurrencyLimiter limiter = limiter(16);
+        window(limiter, 16, 10);
+        assertTrue(limiter.getLimit() > 16, "limit " + limiter.getLimit());
+
+        int before = limiter.getLimit();
+        for (int i = 0; i < 5; i++) window(limiter, 100, 1000);
+        assertEquals(2, limiter.getLimit(), "never below minLimit");
+        for (int i = 0; i < 30; i++) window(limiter, 100, 10);
+        assertTrue(limiter.getLimit() >= before, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("An idle limit does not grow and ignored permits record nothing")
+    void idleAndIgnored() {
+        AdaptiveConcurrencyLimiter limiter = limiter(40);
+        for (int i = 0; i < 10; i++) {
+            AdaptiveConcurrencyLimiter.Permit p = limiter.tryAcquire();
+            now.addAndGet(30 * MS);
+            p.release();
+        }
+        assertEquals(40, limiter.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            AdaptiveConcurrencyLimiter.Permit p = limiter.tryAcquire();
+            now.addAndGet(1000 * MS);
+            p.ignore();
+        }
+        assertEquals(40, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Options are validated and the initial limit clamped")
+    void options() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter.Options(
+                10, 0, 10, Duration.ofMillis(1), Duration.ofMillis(1), 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter.Options(
+                10, 1, 10, Duration.ZERO, Duration.ofMillis(1), 1, 1));
+        assertEquals(10, new AdaptiveConcurrencyLimiter.Options(
+                50, 1, 10, Duration.ofMillis(1), Duration.ofMillis(1), 1, 1).initialLimit());
+    }
+}
@@ -0,0 +1,81 @@
+package org.amyth.core.concurrency;
+
+import org.amyth.core.api.ConcurrencyLimiter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalConcurrencyLimiterTest {
+
+    private static final Duration LEASE = Duration.ofSeconds(30);
+
+    @Test
+    @DisplayName("Admits up to the limit per key and frees a slot on release")
+    void admitsUpToLimit() {
+        LocalConcurrencyLimiter limiter = new LocalConcurrencyLimiter();
+        ConcurrencyLimiter.Permit a = limiter.tryAcquire("k", 2, LEASE);
+        ConcurrencyLimiter.Permit b = limiter.tryAcquire("k", 2, LEASE);
+        assertNotNull(a);
+        assertNotNull(b);
+        assertNull(limiter.tryAcquire("k", 2, LEASE));
+        assertNotNull(limiter.tryAcquire("other", 2, LEASE));
+        assertEquals(2, limiter.inFlight("k"));
+
+        a.release();
+        a.release(); // idempotent
+        assertEquals(1, limiter.inFlight("k"));
+        assertNotNull(limiter.tryAcquire("k", 2, LEASE));
+    }
+
+    @Test
+    @DisplayName("A key's entry is removed with its last permit")
+    void removesIdleKeys() {
+        LocalConcurrencyLimiter limiter = new LocalConcurrencyLimiter();
+        limiter.tryAcquire("k", 1, LEASE).release();
+        assertNull(limiter.tryAcquire("z", 0, LEASE));
+        assertEquals(0, limiter.size());
+        assertEquals(0, limiter.inFlight("k"));
+    }
+
+    @Test
+    @DisplayName("Never admits more than the limit under contention")
+    void concurrentAcquire() throws Exception {
+        LocalConcurrencyLimiter limiter = new LocalConcurrencyLimiter();
+        int threads = 8;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<java.util.concurrent.Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 2_000; i++) {
+                    ConcurrencyLimiter.Permit p = limiter.tryAcquire("hot", 3, LEASE);
+                    if (p == null) continue;
+                    peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    running.decrementAndGet();
+                    p.release();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (var f : futures) f.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertTrue(peak.get() <= 3);
+        assertEquals(0, limiter.inFlight("hot"));
+        assertEquals(0, limiter.size());
+    }
+}
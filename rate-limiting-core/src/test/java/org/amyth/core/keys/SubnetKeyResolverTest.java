@@ -0,0 +1,70 @@
+package org.amyth.core.keys;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SubnetKeyResolverTest {
+
+    private final SubnetKeyResolver r = new SubnetKeyResolver();
+
+    @Test
+    @DisplayName("IPv4 clients of one /24 share a key")
+    void ipv4Subnet() {
+        assertEquals("203.0.113.0/24", r.resolve(new FakeHttpRequestContext().clientIp("203.0.113.10")));
+        assertEquals("203.0.113.0/24", r.key("203.0.113.254"));
+        assertEquals("10.0.0.0/8", new SubnetKeyResolver(8, 64).key("10.200.3.4"));
+        assertEquals("0.0.0.0/0", new SubnetKeyResolver(0, 64).key("10.200.3.4"));
+        assertEquals("10.200.3.4/32", new SubnetKeyResolver(32, 64).key("10.200.3.4"));
+    }
+
+    @Test
+    @DisplayName("IPv6 clients of one /64 share a key, whatever the notation")
+    void ipv6Subnet() {
+        assertEquals("2001:db8:1:2::/64", r.key("2001:db8:1:2:aaaa:bbbb:cccc:dddd"));
+        assertEquals("2001:db8:1:2::/64", r.key("2001:0DB8:0001:0002::1"));
+        assertEquals("2001:db8:1:2::/64", r.key("[2001:db8:1:2::1234]"));
+        assertEquals("2001:db8:1:2::/64", r.key("2001:db8:1:2::1%eth0"));
+        assertEquals("2001:db8:0:0::/64", r.key("2001:db8::1"));
+        assertEquals("0:0:0:0::/64", r.key("::1"));
+        assertEquals("0:0:0:0::/64", r.key("::"));
+        assertEquals("2001:db8:1::/48", new SubnetKeyResolver(24, 48).key("2001:db8:1:ffff::"));
+        assertEquals("2001:db8:1:2:3:4:5:6/128", new SubnetKeyResolver(24, 128).key("2001:db8:1:2:3:4:5:6"));
+        assertEquals("2001:db8:1:2:3:4:5:0/116", new SubnetKeyResolver(24, 116).key("2001:db8:1:2:3:4:5:fff"));
+        assertEquals("::/0", new SubnetKeyResolver(24, 0).key("2001:db8::1"));
+        assertEquals("64:ff9b:0:0::/64", r.key("64:ff9b::203.0.113.10"));
+    }
+
+    @Test
+    @DisplayName("An IPv4-mapped IPv6 address counts as IPv4")
+    void mappedIpv4() {
+        assertEquals("203.0.113.0/24", r.key("::ffff:203.0.113.10"));
+        assertEquals("203.0.113.0/24", r.key("::ffff:cb00:710a"));
+    }
+
+    @Test
+    @DisplayName("Text that is not an address is the key as it is")
+    void notAnAddress() {
+        for (String s : new String[] {"unknown", "", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", "1.2.3.4:80",
+                "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1::2::3", ":1:2:3:4:5:6:7", "1:2:3:4:5:6:7:",
+                "12345::", "g::1", "1:2:3:4:5:6:7::1.2.3.4", "host.example"}) {
+            assertSame(s, r.key(s), s);
+        }
+        assertEquals("unknown", r.key(null));
+    }
+
+    @Test
+    @DisplayName("Prefix lengths can be given as '<ipv4>/<ipv6>', a part left empty keeping the default")
+    void withPrefixes() {
+        assertSame(r, r.withPrefixes(""));
+        assertEquals("10.1.0.0/16", r.withPrefixes("16").key("10.1.2.3"));
+        assertEquals("2001:db8:1::/48", r.withPrefixes("/48").key("2001:db8:1:2::1"));
+        assertEquals("10.1.2.0/24", r.withPrefixes("/48").key("10.1.2.3"));
+        assertEquals("2001:db8:0:0::/56", r.withPrefixes(" 16 / 56 ").key("2001:db8:0:ff::1"));
+        assertThrows(IllegalArgumentException.class, () -> r.withPrefixes("a/b"));
+        assertThrows(IllegalArgumentException.class, () -> r.withPrefixes("33"));
+    }
+}
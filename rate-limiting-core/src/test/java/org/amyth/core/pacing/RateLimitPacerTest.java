@@ -0,0 +1,206 @@
+package org.amyth.core.pacing;
+
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitPacerTest {
+
+    // 2 calls per 400ms, in 4 buckets of 100ms
+    private static final LimitRule RULE = new LimitRule(2, Duration.ofMillis(400));
+
+    private final RateLimitPacer pacer = new RateLimitPacer(
+            new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), Clock.systemUTC(), 4));
+
+    @Test
+    @DisplayName("Reserves at once within the limit, then reports the wait for the next bucket")
+    void reserve() {
+        assertEquals(Duration.ZERO, pacer.reserve("p", RULE));
+        assertEquals(Duration.ZERO, pacer.reserve("p", RULE));
+        Duration wait = pacer.reserve("p", RULE);
+        assertTrue(wait.toMillis() > 0 && wait.toMillis() <= 100, "wait " + wait);
+        assertTrue(pacer.timeUntilTurn("p", RULE).toMillis() > 0);
+        assertEquals(Duration.ZERO, pacer.reserve("other", RULE));
+    }
+
+    @Test
+    @DisplayName("A call that waits is not counted, even on a store that cannot take hits back")
+    void waitingCallIsNotCounted() {
+        CaffeineRateLimitStore caffeine = new CaffeineRateLimitStore(1_000);
+        RateLimitStore store = new RateLimitStore() {
+            @Override
+            public long incrementAndGet(String bucketKey, long ttlMillis) {
+                return caffeine.incrementAndGet(bucketKey, ttlMillis);
+            }
+
+            @Override
+            public long get(String bucketKey) {
+                return caffeine.get(bucketKey);
+            }
+
+            @Override
+            public void expire(String bucketKey, long ttlMillis) {
+                caffeine.expire(bucketKey, ttlMillis);
+            }
+        };
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 4);
+        RateLimitPacer pacer = new RateLimitPacer(limiter);
+        pacer.reserve("p", RULE);
+        pacer.reserve("p", RULE);
+
+        for (int i = 0; i < 5; i++) assertTrue(pacer.reserve("p", RULE).toMillis() > 0);
+        assertEquals(2, limiter.peek("p", RULE).count());
+    }
+
+    @Test
+    @DisplayName("Waits for the window to slide rather than failing")
+    void waitsForPermit() throws Exception {
+        pacer.reserve("p", RULE);
+        pacer.reserve("p", RULE);
+        long start = System.nanoTime();
+        assertTrue(pacer.tryAcquire("p", RULE, Duration.ofSeconds(2)));
+        long waited = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(waited >= 50 && waited < 1_000, "waited " + waited + "ms");
+    }
+
+    @Test
+    @DisplayName("Gives up when no permit frees up within the timeout")
+    void givesUp() throws Exception {
+        pacer.reserve("p", RULE);
+        pacer.reserve("p", RULE);
+        assertFalse(pacer.tryAcquire("p", RULE, Duration.ZERO));
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class,
+                () -> pacer.acquire("p", RULE, Duration.ZERO));
+        assertEquals("p", e.getKey());
+        assertTrue(e.getRetryAfter().toMillis() > 0);
+    }
+
+    @Test
+    @DisplayName("Paced callers get through at no more than the limit")
+    void pacesCallers() throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < 6; i++) pacer.acquire("p", RULE);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        // 6 calls at 2 per 400ms: the last two cannot start before two windows have passed
+        assertTrue(elapsed >= 600, "elapsed " + elapsed + "ms");
+    }
+
+    @Test
+    @DisplayName("A burst of callers starts at most the limit per window, each counted when it starts")
+    void burstStartsWithinTheLimit() {
+        long bucket = 6_000;
+        LimitRule rule = new LimitRule(10, Duration.ofMillis(10 * bucket));
+        FakeClock clock = new FakeClock();
+        RateLimitPacer pacer = new RateLimitPacer(
+                new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), clock, 10), clock);
+
+        // 20 callers at once, then one more per bucket: twice the limit, then exactly the limit
+        List<Long> nextTry = new ArrayList<>();
+        int[] starts = new int[30];
+        for (long now = 0; now < 30 * bucket; now += 100) {
+            clock.millis = now;
+            int arrivals = now == 0 ? 20 : now % bucket == 0 ? 1 : 0;
+            for (int i = 0; i < arrivals; i++) nextTry.add(now);
+            for (int i = 0; i < nextTry.size(); i++) {
+                if (nextTry.get(i) > now) continue;
+                Duration wait = pacer.reserve("p", rule);
+                if (wait.isZero()) {
+                    starts[(int) (now / bucket)]++;
+                    nextTry.remove(i--);
+                } else {
+                    nextTry.set(i, now + wait.toMillis());
+                }
+            }
+        }
+
+        for (int first = 0; first + 10 <= starts.length; first++) {
+            int inWindow = 0;
+            for (int b = first; b < first + 10; b++) inWindow += starts[b];
+            assertTrue(inWindow <= 10, "window starting at bucket " + first + " started " + inWindow);
+        }
+        int total = 0;
+        for (int n : starts) total += n;
+        assertEquals(30, total, "every caller got through, waiting ones included");
+    }
+
+    @Test
+    @DisplayName("Concurrent callers never start more than the limit within one window")
+    void concurrentCallersStayWithinTheLimit() throws Exception {
+        int threads = 6;
+        int callsEach = 2;
+        List<Long> started = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                done.add(pool.submit(() -> {
+                    go.await();
+                    for (int i = 0; i < callsEach; i++) {
+                        pacer.acquire("c", RULE);
+                        started.add(System.nanoTime());
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for (Future<?> f : done) f.get(10, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // a 200ms span touches at most 4 of the 100ms buckets the limiter counts, slack included
+        List<Long> sorted = new ArrayList<>(started);
+        sorted.sort(null);
+        for (int i = 0; i < sorted.size(); i++) {
+            int inSpan = 0;
+            for (int j = i; j < sorted.size() && sorted.get(j) - sorted.get(i) < 200_000_000L; j++) inSpan++;
+            assertTrue(inSpan <= RULE.permits(), inSpan + " calls started within 200ms");
+        }
+        assertEquals(threads * callsEach, sorted.size());
+    }
+
+    /** A clock moved by hand. */
+    private static final class FakeClock extends Clock {
+        long millis;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package org.amyth.core.stats;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HeavyHittersTest {
+
+    @Test
+    @DisplayName("Heavy keys are found among a long tail of light ones")
+    void findsHeavyKeys() {
+        HeavyHitters hh = new HeavyHitters(3);
+        for (int round = 0; round < 200; round++) {
+            hh.offer("attacker-a");
+            hh.offer("attacker-a");
+            hh.offer("attacker-b");
+            if (round % 2 == 0) hh.offer("attacker-c");
+            for (int i = 0; i < 50; i++) hh.offer("client-" + round + "-" + i);
+        }
+
+        List<HeavyHitters.Estimate> top = hh.top(3);
+        assertThat(top).extracting(HeavyHitters.Estimate::key).containsExactly("attacker-a", "attacker-b", "attacker-c");
+        assertThat(top.get(0).count()).isGreaterThanOrEqualTo(400);
+        assertThat(hh.estimate("attacker-b")).isGreaterThanOrEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Reports at most k keys, weights included")
+    void boundedByK() {
+        HeavyHitters hh = new HeavyHitters(2);
+        hh.offer("a", 10);
+        hh.offer("b", 5);
+        hh.offer("c", 1);
+        assertThat(hh.top(10)).containsExactly(new HeavyHitters.Estimate("a", 10), new HeavyHitters.Estimate("b", 5));
+        assertEquals(0, hh.estimate("never"));
+    }
+
+    @Test
+    @DisplayName("Keys with the same String.hashCode are counted apart")
+    void collidingHashCodes() {
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        HeavyHitters hh = new HeavyHitters(2);
+        hh.offer("Aa", 1_000);
+        hh.offer("BB", 1);
+
+        assertThat(hh.estimate("BB")).isLessThan(1_000);
+        assertThat(hh.top(2)).containsExactly(new HeavyHitters.Estimate("Aa", 1_000), new HeavyHitters.Estimate("BB", 1));
+    }
+
+    @Test
+    @DisplayName("Decay halves counts and lets recent traffic take over the top")
+    void decays() {
+        HeavyHitters hh = new HeavyHitters(1);
+        hh.offer("old", 64);
+        hh.decay(3);
+        assertEquals(8, hh.estimate("old"));
+
+        hh.offer("new", 20);
+        assertThat(hh.top(1)).extracting(HeavyHitters.Estimate::key).containsExactly("new");
+
+        hh.decay(10);
+        assertThat(hh.top(5)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Concurrent offers never lose sketch counts")
+    void concurrentOffers() throws Exception {
+        HeavyHitters hh = new HeavyHitters(5);
+        int threads = 4, perThread = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    hh.offer("hot");
+                    hh.offer("t" + id + "-" + (i % 1000));
+                }
+            });
+            w.start();
+            workers.add(w);
+        }
+        start.countDown();
+        for (Thread w : workers) w.join();
+
+        assertThat(hh.estimate("hot")).isGreaterThanOrEqualTo((long) threads * perThread);
+        assertEquals("hot", hh.top(1).get(0).key());
+        assertThat(hh.top(5)).extracting(HeavyHitters.Estimate::key).doesNotHaveDuplicates();
+    }
+}
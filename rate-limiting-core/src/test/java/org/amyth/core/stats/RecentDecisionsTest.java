@@ -0,0 +1,99 @@
+package org.amyth.core.stats;
+
+import org.amyth.core.util.Hashing;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecentDecisionsTest {
+
+    @Test
+    @DisplayName("Keeps the latest decisions and hashes keys by default")
+    void keepsLatest() {
+        RecentDecisions ring = new RecentDecisions(5, 1, true, false);
+        assertEquals(8, ring.capacity());
+        for (int i = 0; i < 20; i++) ring.record("GET /a", "k" + i, i % 2 == 0, i, 1_000);
+
+        List<RecentDecisions.Decision> all = ring.since(-1, 100);
+        assertEquals(8, all.size());
+        assertThat(all).extracting(RecentDecisions.Decision::seq).containsExactly(12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L);
+        RecentDecisions.Decision last = all.get(7);
+        assertNull(last.key());
+        assertEquals(Hashing.hash64("k19"), last.keyHash());
+        assertEquals(19, ring.lastSeq());
+        assertThat(ring.latest(2)).extracting(RecentDecisions.Decision::seq).containsExactly(18L, 19L);
+    }
+
+    @Test
+    @DisplayName("A cursor follows the stream without repeats")
+    void tailsWithCursor() {
+        RecentDecisions ring = new RecentDecisions(16, 1, true, true);
+        ring.record("GET /a", "a", true, 1, 10);
+        List<RecentDecisions.Decision> first = ring.since(-1, 10);
+        assertEquals("a", first.get(0).key());
+
+        ring.record("GET /a", "b", false, 0, 10);
+        ring.record("GET /a", "c", true, 0, 10);
+        List<RecentDecisions.Decision> next = ring.since(first.get(0).seq(), 1);
+        assertThat(next).extracting(RecentDecisions.Decision::key).containsExactly("b");
+        assertThat(ring.since(next.get(0).seq(), 10)).extracting(RecentDecisions.Decision::key).containsExactly("c");
+        assertThat(ring.since(ring.lastSeq(), 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Sampling keeps about one in N allowed decisions and every blocked one")
+    void samples() {
+        RecentDecisions off = new RecentDecisions(8, 0, false, false);
+        assertFalse(off.sample(true));
+        assertFalse(off.sample(false));
+
+        RecentDecisions ring = new RecentDecisions(8, 100, true, false);
+        assertTrue(ring.sample(false));
+        int sampled = 0;
+        for (int i = 0; i < 100_000; i++) if (ring.sample(true)) sampled++;
+        assertThat(sampled).isBetween(700, 1_300);
+    }
+
+    @Test
+    @DisplayName("Concurrent writers never corrupt what a reader sees")
+    void concurrentWriters() throws Exception {
+        RecentDecisions ring = new RecentDecisions(64, 1, true, true);
+        int threads = 4;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String key = "t" + t;
+            Thread w = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 10_000; i++) ring.record("GET /a", key, true, i, 1);
+            });
+            workers.add(w);
+            w.start();
+        }
+        start.countDown();
+        long cursor = -1;
+        while (workers.stream().anyMatch(Thread::isAlive)) {
+            for (RecentDecisions.Decision d : ring.since(cursor, 32)) {
+                assertThat(d.seq()).isGreaterThan(cursor);
+                assertEquals(Hashing.hash64(d.key()), d.keyHash());
+                cursor = d.seq();
+            }
+        }
+        for (Thread w : workers) w.join();
+        assertEquals(threads * 10_000 - 1, ring.lastSeq());
+        assertEquals(64, ring.since(-1, 100).size());
+    }
+}
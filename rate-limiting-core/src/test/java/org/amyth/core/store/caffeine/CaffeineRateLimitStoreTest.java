@@ -1,13 +1,18 @@
 package org.amyth.core.store.caffeine;
 
+import org.amyth.core.model.KeyPage;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class CaffeineRateLimitStoreTest {
@@ -47,6 +52,21 @@ class CaffeineRateLimitStoreTest {
         assertEquals(1L, store.get("B"));
     }
 
+    @Test
+    @DisplayName("subtract() takes hits back, never below zero, and does not create a bucket")
+    void subtractClampsAtZero() {
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(1_000);
+        store.addAndGet("rl:a:1", 3, 60_000);
+
+        assertTrue(store.subtract("rl:a:1", 1));
+        assertEquals(2, store.get("rl:a:1"));
+        assertTrue(store.subtract("rl:a:1", 5));
+        assertEquals(0, store.get("rl:a:1"));
+        assertTrue(store.subtract("rl:b:1", 1));
+        assertEquals(0, store.get("rl:b:1"));
+        assertEquals(1, store.stats().size());
+    }
+
     @Test
     @DisplayName("Entries expire after TTL")
     void respectsTtlExpiry() throws InterruptedException {
@@ -97,4 +117,143 @@ class CaffeineRateLimitStoreTest {
 
         assertEquals(expected, actual, "All increments should be counted atomically");
     }
+
+    @Test
+    @DisplayName("scan() pages through every live key and delete() removes one")
+    void scansAndDeletes() {
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(1_000);
+        for (int i = 0; i < 25; i++) store.incrementAndGet("rl:k" + i + ":1", 60_000);
+        store.delete("rl:k0:1");
+        assertEquals(0, store.get("rl:k0:1"));
+
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            KeyPage page = store.scan(cursor, 10);
+            assertTrue(page.bucketKeys().size() <= 10);
+            seen.addAll(page.bucketKeys());
+            cursor = page.cursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(24, seen.size());
+        assertEquals(3, pages);
+    }
+
+    @Test
+    @DisplayName("Keys expiring between pages do not shift the scan; each live key is listed once")
+    void scanSurvivesExpiryBetweenPages() {
+        TestTicker ticker = new TestTicker();
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(1_000, ticker);
+        for (int i = 0; i < 20; i++) store.incrementAndGet("rl:short" + i + ":1", 1_000);
+        for (int i = 0; i < 20; i++) store.incrementAndGet("rl:long" + i + ":1", 60_000);
+
+        KeyPage first = store.scan(null, 10);
+        List<String> seen = new ArrayList<>(first.bucketKeys());
+        ticker.advance(2_000, TimeUnit.MILLISECONDS);
+        store.cache().cleanUp();
+        for (String cursor = first.cursor(); cursor != null; ) {
+            KeyPage page = store.scan(cursor, 10);
+            seen.addAll(page.bucketKeys());
+            cursor = page.cursor();
+        }
+
+        assertEquals(seen.size(), new HashSet<>(seen).size());
+        for (int i = 0; i < 20; i++) assertTrue(seen.contains("rl:long" + i + ":1"), "rl:long" + i);
+        assertTrue(seen.stream().filter(k -> k.startsWith("rl:short")).count() <= 10);
+    }
+
+    @Test
+    @DisplayName("A malformed or expired scan cursor is rejected with IllegalArgumentException")
+    void rejectsBadCursors() {
+        TestTicker ticker = new TestTicker();
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(1_000, ticker);
+        for (int i = 0; i < 5; i++) store.incrementAndGet("rl:k" + i + ":1", 600_000);
+        assertThrows(IllegalArgumentException.class, () -> store.scan("abc", 2));
+        assertThrows(IllegalArgumentException.class, () -> store.scan("1:x", 2));
+        assertThrows(IllegalArgumentException.class, () -> store.scan("42:0", 2));
+
+        String cursor = store.scan(null, 2).cursor();
+        assertThrows(IllegalArgumentException.class, () -> store.scan(cursor.substring(0, cursor.indexOf(':')) + ":99", 2));
+        ticker.advance(CaffeineRateLimitStore.SCAN_IDLE.plusSeconds(1).toMillis(), TimeUnit.MILLISECONDS);
+        assertThrows(IllegalArgumentException.class, () -> store.scan(cursor, 2));
+    }
+
+    @Test
+    @DisplayName("stats() counts hits, misses and flags live buckets lost to size eviction")
+    void flagsLiveEvictions() {
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(10);
+        store.incrementAndGet("rl:a:1", 60_000);
+        store.incrementAndGet("rl:a:1", 60_000);
+        assertEquals(1, store.stats().hits());
+        assertEquals(1, store.stats().misses());
+        assertFalse(store.stats().underCounting());
+
+        for (int i = 0; i < 100; i++) store.incrementAndGet("rl:flood" + i + ":1", 60_000);
+        store.cache().cleanUp();
+
+        CaffeineRateLimitStore.Stats stats = store.stats();
+        assertTrue(stats.size() <= 10);
+        assertTrue(stats.evictions() >= 90);
+        assertEquals(stats.evictions(), stats.liveEvictions());
+        assertTrue(stats.underCounting());
+        assertTrue(stats.estimatedBytes() >= stats.size() * CaffeineRateLimitStore.ENTRY_OVERHEAD_BYTES);
+    }
+
+    @Test
+    @DisplayName("Evicting buckets whose window has ended is not flagged")
+    void expiredBucketsAreNotLiveEvictions() {
+        TestTicker ticker = new TestTicker();
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(10, ticker);
+        for (int i = 0; i < 10; i++) store.incrementAndGet("rl:old" + i + ":1", 1_000);
+        ticker.advance(2_000, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10; i++) store.incrementAndGet("rl:new" + i + ":1", 1_000);
+        store.cache().cleanUp();
+
+        assertEquals(0, store.stats().liveEvictions());
+        assertEquals(1, store.get("rl:new9:1"));
+    }
+
+    @Test
+    @DisplayName("TTL is set when a bucket is created and increments do not extend it")
+    void ttlIsFixedAtCreation() {
+        TestTicker ticker = new TestTicker();
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(100, ticker);
+        store.incrementAndGet("rl:a:1", 1_000);
+        store.cache().cleanUp();
+        assertEquals(1, store.get("rl:a:1"));
+
+        ticker.advance(600, TimeUnit.MILLISECONDS);
+        assertEquals(2, store.addAndGet("rl:a:1", 1, 1_000));
+        ticker.advance(600, TimeUnit.MILLISECONDS);
+        store.cache().cleanUp();
+
+        assertEquals(0, store.get("rl:a:1"));
+        assertEquals(0, store.stats().size());
+    }
+
+    @Test
+    @DisplayName("expire() moves a bucket's deadline")
+    void expireReschedulesBucket() {
+        TestTicker ticker = new TestTicker();
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(100, ticker);
+        store.incrementAndGet("rl:a:1", 1_000);
+        store.expire("rl:a:1", 5_000);
+        ticker.advance(2_000, TimeUnit.MILLISECONDS);
+        assertEquals(1, store.get("rl:a:1"));
+
+        store.expire("rl:a:1", 0);
+        store.cache().cleanUp();
+        assertEquals(0, store.get("rl:a:1"));
+    }
+
+    @Test
+    @DisplayName("The default constructor expires buckets too")
+    void defaultConstructorExpires() throws InterruptedException {
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(100);
+        store.incrementAndGet("rl:a:1", 20);
+        Thread.sleep(50);
+        assertEquals(0, store.get("rl:a:1"));
+    }
 }
@@ -0,0 +1,148 @@
+package org.amyth.core.store.cluster;
+
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.model.LimitRule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GossipRateLimitStoreTest {
+
+    private final List<GossipRateLimitStore> nodes = new ArrayList<>();
+
+    @AfterEach
+    void closeNodes() {
+        nodes.forEach(GossipRateLimitStore::close);
+    }
+
+    /** Starts n nodes on loopback ephemeral ports, fully meshed. */
+    private List<GossipRateLimitStore> cluster(int n) {
+        InetSocketAddress any = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+        for (int i = 0; i < n; i++) {
+            nodes.add(new GossipRateLimitStore("node-" + i, any, List.of(), Duration.ofMillis(10), 5, 10_000));
+        }
+        for (GossipRateLimitStore a : nodes) {
+            for (GossipRateLimitStore b : nodes) {
+                if (a != b) a.addPeer(b.localAddress());
+            }
+        }
+        return nodes;
+    }
+
+    private static void awaitValue(long expected, LongSupplier actual) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (actual.getAsLong() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, actual.getAsLong());
+    }
+
+    @Test
+    @DisplayName("Increments are local and converge on every node")
+    void incrementsConverge() throws Exception {
+        List<GossipRateLimitStore> c = cluster(3);
+
+        for (int i = 0; i < 5; i++) c.get(0).incrementAndGet("rl:k:1", 60_000);
+        for (int i = 0; i < 3; i++) c.get(1).incrementAndGet("rl:k:1", 60_000);
+        c.get(2).incrementAndGet("rl:k:1", 60_000);
+
+        for (GossipRateLimitStore node : c) {
+            awaitValue(9, () -> node.get("rl:k:1"));
+        }
+    }
+
+    @Test
+    @DisplayName("Hits taken back on one node are taken back on every node, never below zero")
+    void takenBackHitsConverge() throws Exception {
+        List<GossipRateLimitStore> c = cluster(2);
+        c.get(0).addAndGet("rl:k:1", 3, 60_000);
+        c.get(1).addAndGet("rl:k:1", 2, 60_000);
+        awaitValue(5, () -> c.get(0).get("rl:k:1"));
+
+        c.get(0).subtract("rl:k:1", 1);
+        for (GossipRateLimitStore node : c) {
+            awaitValue(4, () -> node.get("rl:k:1"));
+        }
+
+        // a node takes back only its own hits
+        c.get(0).subtract("rl:k:1", 10);
+        for (GossipRateLimitStore node : c) {
+            awaitValue(2, () -> node.get("rl:k:1"));
+        }
+    }
+
+    @Test
+    @DisplayName("Re-delivered and stale datagrams do not change the merged count")
+    void mergeIsIdempotent() throws Exception {
+        List<GossipRateLimitStore> c = cluster(2);
+        for (int i = 0; i < 4; i++) c.get(0).incrementAndGet("rl:x:1", 60_000);
+        awaitValue(4, () -> c.get(1).get("rl:x:1"));
+
+        // full-sync rounds keep resending the same slot value; nothing may be double counted
+        Thread.sleep(200);
+        assertEquals(4, c.get(1).get("rl:x:1"));
+        assertEquals(4, c.get(0).get("rl:x:1"));
+    }
+
+    @Test
+    @DisplayName("Malformed datagrams are ignored")
+    void ignoresGarbage() {
+        List<GossipRateLimitStore> c = cluster(1);
+        c.get(0).apply(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7}));
+        assertEquals(0, c.get(0).get("rl:k:1"));
+    }
+
+    @Test
+    @DisplayName("A datagram with lengths past its end is dropped and the receiver keeps running")
+    void survivesCorruptLengths() throws Exception {
+        List<GossipRateLimitStore> c = cluster(2);
+        ByteBuffer corrupt = ByteBuffer.allocate(64);
+        corrupt.putInt(GossipRateLimitStore.MAGIC).put(GossipRateLimitStore.VERSION).putShort((short) 0x8000);
+        corrupt.flip();
+        c.get(0).apply(corrupt.duplicate());
+
+        try (DatagramChannel spoofer = DatagramChannel.open()) {
+            spoofer.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            c.get(0).addPeer((InetSocketAddress) spoofer.getLocalAddress());
+            spoofer.send(corrupt, c.get(0).localAddress());
+            ByteBuffer badKey = ByteBuffer.allocate(64);
+            badKey.putInt(GossipRateLimitStore.MAGIC).put(GossipRateLimitStore.VERSION)
+                    .putShort((short) 1).put((byte) 'x').putShort((short) 1).putShort((short) 0xFFFF);
+            spoofer.send(badKey.flip(), c.get(0).localAddress());
+        }
+
+        c.get(1).incrementAndGet("rl:k:1", 60_000);
+        awaitValue(1, () -> c.get(0).get("rl:k:1"));
+    }
+
+    @Test
+    @DisplayName("Limit is enforced approximately across nodes")
+    void approximateGlobalLimit() throws Exception {
+        List<GossipRateLimitStore> c = cluster(3);
+        List<SlidingWindowRateLimiter> limiters = c.stream()
+                .map(s -> new SlidingWindowRateLimiter(s, Clock.systemUTC(), 6))
+                .toList();
+        LimitRule rule = new LimitRule(30, Duration.ofMinutes(1));
+
+        int allowed = 0;
+        for (int i = 0; i < 90; i++) {
+            if (limiters.get(i % 3).hit("client", rule).allowed()) allowed++;
+            Thread.sleep(3);
+        }
+        // each node may accept what it has not yet heard about from its peers
+        assertThat(allowed).isBetween(30, 60);
+    }
+}
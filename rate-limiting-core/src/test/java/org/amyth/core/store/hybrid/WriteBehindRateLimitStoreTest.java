@@ -0,0 +1,270 @@
+package org.amyth.core.store.hybrid;
+
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WriteBehindRateLimitStoreTest {
+
+    // long interval: the scheduled flusher never fires, tests flush explicitly
+    private static final Duration MANUAL = Duration.ofHours(1);
+
+    @Test
+    @DisplayName("Hits are counted locally and written behind as one delta")
+    void writesBehindAggregatedDelta() {
+        CaffeineRateLimitStore remote = new CaffeineRateLimitStore(1_000);
+        try (WriteBehindRateLimitStore store = new WriteBehindRateLimitStore(remote, MANUAL, 1_000)) {
+            for (int i = 0; i < 5; i++) store.incrementAndGet("rl:k:1", 60_000);
+
+            assertEquals(5, store.get("rl:k:1"));
+            assertEquals(0, remote.get("rl:k:1"));
+
+            store.flush();
+            assertEquals(5, remote.get("rl:k:1"));
+            assertEquals(5, store.get("rl:k:1"));
+            assertThat(store.stats().remoteCalls()).isEqualTo(1);
+            assertThat(store.stats().unflushedHits()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("Hits taken back are not written, and flushed ones are taken back from the remote store")
+    void takesHitsBack() {
+        CaffeineRateLimitStore remote = new CaffeineRateLimitStore(1_000);
+        try (WriteBehindRateLimitStore store = new WriteBehindRateLimitStore(remote, MANUAL, 1_000)) {
+            store.addAndGet("rl:k:1", 3, 60_000);
+            store.subtract("rl:k:1", 1);
+            assertEquals(2, store.get("rl:k:1"));
+
+            store.flush();
+            assertEquals(2, remote.get("rl:k:1"));
+
+            store.subtract("rl:k:1", 5);
+            assertEquals(0, store.get("rl:k:1"));
+            store.flush();
+            assertEquals(0, remote.get("rl:k:1"));
+            assertEquals(0, store.get("rl:k:1"));
+
+            store.subtract("rl:other:1", 1);
+            assertEquals(0, store.get("rl:other:1"));
+            assertThat(store.stats().unflushedHits()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("A flush writes and reads many buckets in a few batched remote calls")
+    void flushesInBatches() {
+        CountingStore remote = new CountingStore(new CaffeineRateLimitStore(10_000));
+        try (WriteBehindRateLimitStore store = new WriteBehindRateLimitStore(remote, MANUAL, 10_000)) {
+            int written = WriteBehindRateLimitStore.BATCH * 2 + 1;
+            for (int i = 0; i < written; i++) store.addAndGet("rl:c" + i + ":7", i + 1, 60_000);
+            for (int i = 0; i < 10; i++) store.get("rl:c" + i + ":6");
+            remote.delegate.addAndGet("rl:c3:6", 5, 60_000);
+            store.addAndGet("odd-key", 2, 60_000);
+
+            store.flush();
+
+            assertEquals(3 + 1 + 1, remote.calls);
+            assertThat(store.stats().remoteCalls()).isEqualTo(5);
+            for (int i = 0; i < written; i++) assertEquals(i + 1, remote.delegate.get("rl:c" + i + ":7"));
+            assertEquals(2, remote.delegate.get("odd-key"));
+            assertEquals(5, store.get("rl:c3:6"));
+            assertThat(store.stats().unflushedHits()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("Only keys ending in a plain bucket index are batched")
+    void bucketIndexStart() {
+        assertEquals("rl:k:".length(), WriteBehindRateLimitStore.bucketIndexStart("rl:k:42"));
+        assertEquals("rl:k:".length(), WriteBehindRateLimitStore.bucketIndexStart("rl:k:0"));
+        assertEquals(-1, WriteBehindRateLimitStore.bucketIndexStart("rl:k:042"));
+        assertEquals(-1, WriteBehindRateLimitStore.bucketIndexStart("rl:k:"));
+        assertEquals(-1, WriteBehindRateLimitStore.bucketIndexStart("rl:k:1234567890123456789"));
+    }
+
+    @Test
+    @DisplayName("Flush folds other nodes' hits into the local view")
+    void foldsBackClusterTotal() {
+        CaffeineRateLimitStore remote = new CaffeineRateLimitStore(1_000);
+        try (WriteBehindRateLimitStore a = new WriteBehindRateLimitStore(remote, MANUAL, 1_000);
+             WriteBehindRateLimitStore b = new WriteBehindRateLimitStore(remote, MANUAL, 1_000)) {
+            a.addAndGet("rl:k:1", 3, 60_000);
+            b.addAndGet("rl:k:1", 4, 60_000);
+            assertEquals(0, b.get("rl:k:2")); // only read on b so far
+
+            a.flush();
+            b.flush();
+            a.flush();
+            remote.incrementAndGet("rl:k:2", 60_000);
+            b.flush();
+
+            assertEquals(7, a.get("rl:k:1"));
+            assertEquals(7, b.get("rl:k:1"));
+            assertEquals(1, b.get("rl:k:2"));
+        }
+    }
+
+    @Test
+    @DisplayName("Unflushed hits survive a failing remote store")
+    void keepsDeltaWhenRemoteFails() {
+        FlakyStore remote = new FlakyStore(new CaffeineRateLimitStore(1_000));
+        try (WriteBehindRateLimitStore store = new WriteBehindRateLimitStore(remote, MANUAL, 1_000)) {
+            store.addAndGet("rl:k:1", 2, 60_000);
+
+            remote.failing = true;
+            store.flush();
+            assertEquals(2, store.get("rl:k:1"));
+            assertThat(store.stats().failedFlushes()).isEqualTo(1);
+
+            remote.failing = false;
+            store.flush();
+            assertEquals(2, remote.get("rl:k:1"));
+        }
+    }
+
+    @Test
+    @DisplayName("The listener hears once when the remote store goes away and once when it is back")
+    void reportsRemoteStateTransitions() {
+        FlakyStore remote = new FlakyStore(new CaffeineRateLimitStore(1_000));
+        List<Boolean> transitions = new ArrayList<>();
+        try (WriteBehindRateLimitStore store = new WriteBehindRateLimitStore(remote, MANUAL, 1_000)) {
+            store.setRemoteStateListener((available, cause) -> {
+                transitions.add(available);
+                assertEquals(available, cause == null);
+            });
+            store.incrementAndGet("rl:k:1", 60_000);
+            store.flush();
+            assertThat(transitions).isEmpty();
+
+            remote.failing = true;
+            store.flush();
+            store.flush();
+            remote.failing = false;
+            store.flush();
+            store.flush();
+            assertThat(transitions).containsExactly(false, true);
+        }
+    }
+
+    @Test
+    @DisplayName("Overshoot grows with the flush interval and stays within one interval of traffic")
+    void accuracyVersusFlushInterval() {
+        long strict = overshoot(1);
+        long medium = overshoot(10);
+        long loose = overshoot(50);
+
+        assertThat(strict).isLessThanOrEqualTo(medium);
+        assertThat(medium).isLessThanOrEqualTo(loose);
+        assertThat(loose).isGreaterThan(0).isLessThanOrEqualTo(50);
+    }
+
+    /** Two nodes alternate hits on one client and flush every {@code flushEvery} hits each. */
+    private static long overshoot(int flushEvery) {
+        CaffeineRateLimitStore remote = new CaffeineRateLimitStore(1_000);
+        long permits = 100;
+        LimitRule rule = new LimitRule(permits, Duration.ofHours(1));
+        try (WriteBehindRateLimitStore a = new WriteBehindRateLimitStore(remote, MANUAL, 1_000);
+             WriteBehindRateLimitStore b = new WriteBehindRateLimitStore(remote, MANUAL, 1_000)) {
+            SlidingWindowRateLimiter la = new SlidingWindowRateLimiter(a, Clock.systemUTC(), 1);
+            SlidingWindowRateLimiter lb = new SlidingWindowRateLimiter(b, Clock.systemUTC(), 1);
+            long allowed = 0;
+            for (int i = 1; i <= 400; i++) {
+                if (la.hit("client", rule).allowed()) allowed++;
+                if (lb.hit("client", rule).allowed()) allowed++;
+                if (i % flushEvery == 0) {
+                    a.flush();
+                    b.flush();
+                }
+            }
+            return allowed - permits;
+        }
+    }
+
+    /** Counts the calls a flush makes, single or batched. */
+    private static final class CountingStore implements RateLimitStore {
+        private final RateLimitStore delegate;
+        int calls;
+
+        CountingStore(RateLimitStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long incrementAndGet(String bucketKey, long ttlMillis) {
+            return addAndGet(bucketKey, 1, ttlMillis);
+        }
+
+        @Override
+        public long addAndGet(String bucketKey, long delta, long ttlMillis) {
+            calls++;
+            return delegate.addAndGet(bucketKey, delta, ttlMillis);
+        }
+
+        @Override
+        public long[] addAndSumAll(String[] keyBases, long[] currentBuckets, int olderBuckets, long[] deltas,
+                                   long[] ttlMillis) {
+            calls++;
+            return delegate.addAndSumAll(keyBases, currentBuckets, olderBuckets, deltas, ttlMillis);
+        }
+
+        @Override
+        public long get(String bucketKey) {
+            calls++;
+            return delegate.get(bucketKey);
+        }
+
+        @Override
+        public long[] getAll(String[] bucketKeys) {
+            calls++;
+            return delegate.getAll(bucketKeys);
+        }
+
+        @Override
+        public void expire(String bucketKey, long ttlMillis) {
+            delegate.expire(bucketKey, ttlMillis);
+        }
+    }
+
+    private static final class FlakyStore implements RateLimitStore {
+        private final RateLimitStore delegate;
+        volatile boolean failing;
+
+        FlakyStore(RateLimitStore delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long incrementAndGet(String bucketKey, long ttlMillis) {
+            return addAndGet(bucketKey, 1, ttlMillis);
+        }
+
+        @Override
+        public long addAndGet(String bucketKey, long delta, long ttlMillis) {
+            if (failing) throw new IllegalStateException("remote down");
+            return delegate.addAndGet(bucketKey, delta, ttlMillis);
+        }
+
+        @Override
+        public long get(String bucketKey) {
+            if (failing) throw new IllegalStateException("remote down");
+            return delegate.get(bucketKey);
+        }
+
+        @Override
+        public void expire(String bucketKey, long ttlMillis) {
+            delegate.expire(bucketKey, ttlMillis);
+        }
+    }
+}
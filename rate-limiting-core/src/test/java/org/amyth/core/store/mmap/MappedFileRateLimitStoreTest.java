@@ -0,0 +1,206 @@
+package org.amyth.core.store.mmap;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedFileRateLimitStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Counters survive closing and reopening the file")
+    void survivesRestart() {
+        Path file = dir.resolve("rl.mmap");
+        MutableClock clock = new MutableClock();
+        try (MappedFileRateLimitStore store = new MappedFileRateLimitStore(file, 1024, clock)) {
+            for (int i = 0; i < 7; i++) store.incrementAndGet("rl:k:1", 60_000);
+            store.addAndGet("rl:other:1", 5, 60_000);
+        }
+        try (MappedFileRateLimitStore store = new MappedFileRateLimitStore(file, 1024, clock)) {
+            assertEquals(7, store.get("rl:k:1"));
+            assertEquals(5, store.get("rl:other:1"));
+            assertEquals(8, store.incrementAndGet("rl:k:1", 60_000));
+        }
+    }
+
+    @Test
+    @DisplayName("Expired counters read as zero and restart from one")
+    void expiresBuckets() {
+        MutableClock clock = new MutableClock();
+        try (MappedFileRateLimitStore store = new MappedFileRateLimitStore(dir.resolve("rl.mmap"), 1024, clock)) {
+            store.addAndGet("rl:k:1", 3, 2_000);
+            clock.advance(1_500);
+            assertEquals(3, store.get("rl:k:1"));
+
+            clock.advance(1_000);
+            assertEquals(0, store.get("rl:k:1"));
+            assertEquals(1, store.incrementAndGet("rl:k:1", 2_000));
+        }
+    }
+
+    @Test
+    @DisplayName("subtract() takes hits back, never below zero, and does not create a bucket")
+    void takesHitsBack() {
+        MutableClock clock = new MutableClock();
+        try (MappedFileRateLimitStore store = new MappedFileRateLimitStore(dir.resolve("rl.mmap"), 1024, clock)) {
+            store.addAndGet("rl:k:1", 3, 60_000);
+            assertTrue(store.subtract("rl:k:1", 1));
+            assertEquals(2, store.get("rl:k:1"));
+            assertTrue(store.subtract("rl:k:1", 5));
+            assertEquals(0, store.get("rl:k:1"));
+            assertTrue(store.subtract("rl:missing:1", 1));
+            assertEquals(0, store.get("rl:missing:1"));
+            assertEquals(1, store.incrementAndGet("rl:k:1", 60_000));
+        }
+    }
+
+    @Test
+    @DisplayName("expire() moves the expiry of a live counter")
+    void extendsExpiry() {
+        MutableClock clock = new MutableClock();
+        try (MappedFileRateLimitStore store = new MappedFileRateLimitStore(dir.resolve("rl.mmap"), 1024, clock)) {
+            store.incrementAndGet("rl:k:1", 1_000);
+            store.expire("rl:k:1", 10_000);
+            clock.advance(5_000);
+            assertEquals(1, store.get("rl:k:1"));
+        }
+    }
+
+    @Test
+    @DisplayName("A full probe window evicts the counter expiring first")
+    void evictsWhenFull() {
+        MutableClock clock = new MutableClock();
+        try (MappedFileRateLimitStore store = new MappedFileRateLimitStore(dir.resolve("rl.mmap"), 1, clock)) {
+            int capacity = store.capacity();
+            for (int i = 0; i < capacity; i++) {
+                store.incrementAndGet("rl:k" + i + ":1", 60_000 + i * 1_000L);
+            }
+            assertThat(store.evictions()).isZero();
+
+            store.incrementAndGet("rl:late:1", 600_000);
+            assertThat(store.evictions()).isEqualTo(1);
+            assertEquals(1, store.get("rl:late:1"));
+            assertEquals(0, store.get("rl:k0:1"));
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent increments are not lost")
+    void concurrentIncrements() throws Exception {
+        try (MappedFileRateLimitStore store =
+                     new MappedFileRateLimitStore(dir.resolve("rl.mmap"), 1024, Clock.systemUTC())) {
+            int threads = 8, perThread = 20_000;
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> workers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Thread w = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        store.incrementAndGet("rl:hot:1", 60_000);
+                        store.incrementAndGet("rl:k" + (i % 50) + ":1", 60_000);
+                    }
+                });
+                w.start();
+                workers.add(w);
+            }
+            start.countDown();
+            for (Thread w : workers) w.join();
+
+            assertEquals((long) threads * perThread, store.get("rl:hot:1"));
+            long spread = 0;
+            for (int i = 0; i < 50; i++) spread += store.get("rl:k" + i + ":1");
+            assertEquals((long) threads * perThread, spread);
+        }
+    }
+
+    @Test
+    @DisplayName("Files of another size or format are rejected")
+    void rejectsForeignFiles() throws Exception {
+        Path file = dir.resolve("rl.mmap");
+        new MappedFileRateLimitStore(file, 1024, Clock.systemUTC()).close();
+        assertThatThrownBy(() -> new MappedFileRateLimitStore(file, 2048, Clock.systemUTC()))
+                .isInstanceOf(IllegalStateException.class);
+
+        Path junk = dir.resolve("junk.mmap");
+        byte[] bytes = new byte[MappedFileRateLimitStore.HEADER_BYTES + 1024 * MappedFileRateLimitStore.SLOT_BYTES];
+        Arrays.fill(bytes, (byte) 0x5A);
+        Files.write(junk, bytes);
+        assertThatThrownBy(() -> new MappedFileRateLimitStore(junk, 1024, Clock.systemUTC()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    @DisplayName("A file whose creator died before writing the header is initialised again")
+    void reinitialisesUnfinishedFile() throws Exception {
+        Path file = dir.resolve("rl.mmap");
+        Files.write(file, new byte[MappedFileRateLimitStore.HEADER_BYTES + 1024 * MappedFileRateLimitStore.SLOT_BYTES]);
+        try (MappedFileRateLimitStore store = new MappedFileRateLimitStore(file, 1024, Clock.systemUTC())) {
+            assertEquals(1, store.incrementAndGet("rl:k:1", 60_000));
+        }
+    }
+
+    /** Wall clock the test can move forward. */
+    static final class MutableClock extends Clock {
+        private volatile long millis = 1_700_000_000_000L;
+
+        void advance(long ms) {
+            millis += ms;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+
+    @Test
+    @DisplayName("delete() drops a counter without breaking lookups of its neighbours")
+    void deletes() {
+        MutableClock clock = new MutableClock();
+        try (MappedFileRateLimitStore store = new MappedFileRateLimitStore(dir.resolve("rl.mmap"), 1, clock)) {
+            int capacity = store.capacity();
+            for (int i = 0; i < capacity; i++) store.incrementAndGet("rl:k" + i + ":1", 60_000);
+            store.delete("rl:k0:1");
+            assertEquals(0, store.get("rl:k0:1"));
+            for (int i = 1; i < capacity; i++) assertEquals(1, store.get("rl:k" + i + ":1"));
+            assertEquals(1, store.incrementAndGet("rl:k0:1", 60_000));
+        }
+    }
+}
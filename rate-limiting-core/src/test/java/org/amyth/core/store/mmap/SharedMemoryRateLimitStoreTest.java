@@ -0,0 +1,108 @@
+package org.amyth.core.store.mmap;
+
+import org.amyth.core.util.Hashing;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SharedMemoryRateLimitStoreTest {
+
+    private static final int SLOTS = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Several processes count into one host-wide table")
+    void countsAcrossProcesses() throws Exception {
+        Path region = dir.resolve("shared");
+        int perProcess = 20_000;
+        try (SharedMemoryRateLimitStore store = new SharedMemoryRateLimitStore(region, SLOTS)) {
+            List<Process> workers = new ArrayList<>();
+            for (int i = 0; i < 2; i++) workers.add(worker(region, perProcess));
+            for (int i = 0; i < perProcess; i++) store.incrementAndGet("rl:host:1", 60_000);
+            for (Process w : workers) {
+                assertThat(w.waitFor(60, TimeUnit.SECONDS)).isTrue();
+                assertEquals(0, w.exitValue());
+            }
+            assertEquals(3L * perProcess, store.get("rl:host:1"));
+        }
+    }
+
+    @Test
+    @DisplayName("A worker killed mid-run leaves the table usable and its completed hits counted")
+    void survivesKilledWorker() throws Exception {
+        Path region = dir.resolve("shared");
+        try (SharedMemoryRateLimitStore store = new SharedMemoryRateLimitStore(region, SLOTS)) {
+            Process w = worker(region, Integer.MAX_VALUE);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (store.get("rl:host:1") < 1_000 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            w.destroyForcibly().waitFor();
+
+            long seen = store.get("rl:host:1");
+            assertThat(seen).isGreaterThanOrEqualTo(1_000);
+            assertEquals(seen + 1, store.incrementAndGet("rl:host:1", 60_000));
+            assertEquals(1, store.incrementAndGet("rl:other:1", 60_000));
+        }
+    }
+
+    @Test
+    @DisplayName("A slot claimed by a process that died before counting reads as zero and is reused")
+    void recoversAbandonedClaim() {
+        try (SharedMemoryRateLimitStore store = new SharedMemoryRateLimitStore(dir.resolve("shared"), SLOTS)) {
+            store.addAndGet("rl:k:1", 41, 60_000);
+
+            // what a crashed process leaves behind: ctl re-claimed for the next generation,
+            // count word still holding the previous generation's value
+            long h = Hashing.hash64("rl:k:1");
+            int slot = (int) h & (store.capacity() - 1);
+            long ctl = store.ctl(slot);
+            long expiry = MappedFileRateLimitStore.expirySeconds(System.currentTimeMillis(), 60_000);
+            long claimed = MappedFileRateLimitStore.ctlWord(MappedFileRateLimitStore.fingerprint(h),
+                    MappedFileRateLimitStore.generation(ctl) + 1, expiry);
+            store.buffer().duplicate().order(ByteOrder.nativeOrder())
+                    .putLong(MappedFileRateLimitStore.ctlOffset(slot), claimed);
+
+            assertEquals(0, store.get("rl:k:1"));
+            assertEquals(1, store.incrementAndGet("rl:k:1", 60_000));
+            assertEquals(1, store.get("rl:k:1"));
+        }
+    }
+
+    @Test
+    @DisplayName("Plain names resolve to the shared-memory directory")
+    void resolvesRegionNames() {
+        assertThat(SharedMemoryRateLimitStore.regionPath("ratelimit").getFileName().toString()).isEqualTo("ratelimit");
+        assertThat(SharedMemoryRateLimitStore.regionPath("/tmp/x/rl")).isEqualTo(Path.of("/tmp/x/rl"));
+    }
+
+    private static Process worker(Path region, int hits) throws Exception {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                Worker.class.getName(), region.toString(), Integer.toString(hits))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectErrorStream(true)
+                .start();
+    }
+
+    /** Entry point of the worker processes. */
+    public static final class Worker {
+        public static void main(String[] args) {
+            try (SharedMemoryRateLimitStore store = new SharedMemoryRateLimitStore(Path.of(args[0]), SLOTS)) {
+                int hits = Integer.parseInt(args[1]);
+                for (int i = 0; i < hits; i++) store.incrementAndGet("rl:host:1", 60_000);
+            }
+        }
+    }
+}
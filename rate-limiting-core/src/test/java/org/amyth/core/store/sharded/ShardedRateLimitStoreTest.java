@@ -0,0 +1,183 @@
+package org.amyth.core.store.sharded;
+
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.model.KeyPage;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ShardedRateLimitStoreTest {
+
+    private static Map<String, RateLimitStore> shards(int n) {
+        Map<String, RateLimitStore> m = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) m.put("shard-" + i, new CaffeineRateLimitStore(100_000));
+        return m;
+    }
+
+    @Test
+    @DisplayName("All buckets of one client route to the same shard")
+    void bucketsOfOneClientShareAShard() {
+        ShardedRateLimitStore store = new ShardedRateLimitStore(shards(4), 128);
+
+        RateLimitStore first = store.shardFor("rl:203.0.113.10:100");
+        for (int b = 101; b < 200; b++) {
+            assertSame(first, store.shardFor("rl:203.0.113.10:" + b));
+        }
+    }
+
+    @Test
+    @DisplayName("Routing part strips only a trailing numeric bucket index")
+    void routingEnd() {
+        assertEquals("rl:k".length(), ShardedRateLimitStore.routingEnd("rl:k:123"));
+        assertEquals("rl:k::".length(), ShardedRateLimitStore.routingEnd("rl:k::"));
+        assertEquals("plain".length(), ShardedRateLimitStore.routingEnd("plain"));
+        assertEquals("rl:10.0.0.1".length(), ShardedRateLimitStore.routingEnd("rl:10.0.0.1:7"));
+    }
+
+    @Test
+    @DisplayName("Clients are spread roughly evenly across shards")
+    void spreadsLoad() {
+        ShardedRateLimitStore store = new ShardedRateLimitStore(shards(4), 160);
+        Map<RateLimitStore, Integer> counts = new HashMap<>();
+        int clients = 40_000;
+        for (int i = 0; i < clients; i++) {
+            counts.merge(store.shardFor("rl:client-" + i + ":1"), 1, Integer::sum);
+        }
+        assertThat(counts).hasSize(4);
+        counts.values().forEach(c -> assertThat(c).isBetween(clients / 4 * 80 / 100, clients / 4 * 120 / 100));
+    }
+
+    @Test
+    @DisplayName("Adding a shard only moves clients onto the new shard")
+    void addingShardMovesOnlyToNewShard() {
+        ShardedRateLimitStore store = new ShardedRateLimitStore(shards(3), 160);
+        int clients = 20_000;
+        RateLimitStore[] before = new RateLimitStore[clients];
+        for (int i = 0; i < clients; i++) before[i] = store.shardFor("rl:c" + i + ":1");
+
+        RateLimitStore added = new CaffeineRateLimitStore(100_000);
+        store.addShard("shard-new", added);
+
+        int moved = 0;
+        for (int i = 0; i < clients; i++) {
+            RateLimitStore now = store.shardFor("rl:c" + i + ":1");
+            if (now != before[i]) {
+                assertSame(added, now);
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(clients / 4 * 70 / 100, clients / 4 * 130 / 100);
+    }
+
+    @Test
+    @DisplayName("Removing a shard only moves that shard's clients")
+    void removingShardMovesOnlyItsClients() {
+        ShardedRateLimitStore store = new ShardedRateLimitStore(shards(4), 160);
+        int clients = 20_000;
+        RateLimitStore[] before = new RateLimitStore[clients];
+        for (int i = 0; i < clients; i++) before[i] = store.shardFor("rl:c" + i + ":1");
+
+        RateLimitStore removed = store.removeShard("shard-2");
+
+        for (int i = 0; i < clients; i++) {
+            RateLimitStore now = store.shardFor("rl:c" + i + ":1");
+            if (before[i] != removed) assertSame(before[i], now);
+            else assertThat(now).isNotSameAs(removed);
+        }
+    }
+
+    @Test
+    @DisplayName("Sliding window limiter enforces limits on top of shards")
+    void limiterOverShards() {
+        ShardedRateLimitStore store = new ShardedRateLimitStore(shards(3), 64);
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 6);
+        LimitRule rule = new LimitRule(2, Duration.ofMinutes(1));
+
+        assertThat(limiter.hit("a", rule).allowed()).isTrue();
+        assertThat(limiter.hit("a", rule).allowed()).isTrue();
+        assertThat(limiter.hit("a", rule).allowed()).isFalse();
+        assertThat(limiter.hit("b", rule).allowed()).isTrue();
+    }
+
+    @Test
+    @DisplayName("subtract() reaches the shard that holds the bucket")
+    void subtractReachesOwningShard() {
+        ShardedRateLimitStore store = new ShardedRateLimitStore(shards(3), 160);
+        store.addAndGet("rl:a:7", 3, 60_000);
+
+        assertThat(store.subtract("rl:a:7", 2)).isTrue();
+
+        assertEquals(1, store.shardFor("rl:a:7").get("rl:a:7"));
+    }
+
+    @Test
+    @DisplayName("scan() walks every shard and delete() reaches the owning shard")
+    void scansAllShards() {
+        ShardedRateLimitStore store = new ShardedRateLimitStore(shards(3), 160);
+        for (int i = 0; i < 50; i++) store.incrementAndGet("rl:client-" + i + ":7", 60_000);
+        store.delete("rl:client-0:7");
+
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            KeyPage page = store.scan(cursor, 7);
+            assertThat(page.bucketKeys()).hasSizeLessThanOrEqualTo(7);
+            seen.addAll(page.bucketKeys());
+            cursor = page.cursor();
+        } while (cursor != null);
+
+        assertThat(seen).hasSize(49).doesNotContain("rl:client-0:7").contains("rl:client-49:7");
+    }
+
+    @Test
+    @DisplayName("scan() rejects a cursor it did not issue")
+    void scanRejectsBadCursor() {
+        ShardedRateLimitStore store = new ShardedRateLimitStore(shards(3), 160);
+        assertThatThrownBy(() -> store.scan("x:1", 7)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> store.scan("9", 7)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("A bulk add reaches each window's shard and returns totals in request order")
+    void bulkAddKeepsOrderAcrossShards() {
+        ShardedRateLimitStore store = new ShardedRateLimitStore(shards(4), 128);
+        int n = 50;
+        String[] bases = new String[n];
+        long[] buckets = new long[n];
+        long[] deltas = new long[n];
+        long[] ttls = new long[n];
+        for (int i = 0; i < n; i++) {
+            bases[i] = "rl:c" + i + ":";
+            buckets[i] = 10;
+            deltas[i] = i + 1;
+            ttls[i] = 60_000;
+            store.addAndGet(bases[i] + 9, 100, 60_000);
+        }
+
+        long[] totals = store.addAndSumAll(bases, buckets, 1, deltas, ttls);
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(100 + i + 1, totals[i]);
+            assertEquals(i + 1, store.shardFor(bases[i] + 10).get(bases[i] + 10));
+        }
+        String[] keys = new String[n];
+        for (int i = 0; i < n; i++) keys[i] = bases[i] + 9;
+        long[] counts = store.getAll(keys);
+        for (int i = 0; i < n; i++) assertEquals(100, counts[i]);
+    }
+}
@@ -1,9 +1,12 @@
 package org.amyth.autoconfigure;
 
 import org.amyth.core.api.KeyStrategy;
+import org.amyth.core.keys.SubnetKeyResolver;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Configuration properties for rate limiting functionality.
@@ -24,7 +27,32 @@ public class RateLimitProperties {
         /**
          * Distributed cache implementation using Redis
          */
-        REDIS
+        REDIS,
+
+        /**
+         * Several independent Redis instances, clients spread by consistent hashing
+         */
+        REDIS_SHARDED,
+
+        /**
+         * Peer-to-peer counters (CRDTs) gossiped between application nodes, no Redis needed
+         */
+        CLUSTER,
+
+        /**
+         * Local counting with aggregated deltas written behind to Redis on an interval
+         */
+        REDIS_WRITE_BEHIND,
+
+        /**
+         * Local counters in a memory-mapped file that survive application restarts
+         */
+        MAPPED_FILE,
+
+        /**
+         * Host-wide counters in shared memory, common to every JVM on the machine
+         */
+        SHARED_MEMORY
     }
 
     /**
@@ -40,6 +68,10 @@ public class RateLimitProperties {
     private Duration defaultWindow = Duration.ofMinutes(1);
     private boolean sendHeaders = true;
     private boolean includeForwardedFor = true;
+    private int maxWaiting = 1000;
+    private Duration maxBlockWait = Duration.ofMinutes(1);
+    private boolean methodLimits = true;
+    private int streamPermitBatch = 10;
 
     // caffeine
     private long caffeineMaxSize = 200_000;
@@ -47,8 +79,57 @@ public class RateLimitProperties {
     // redis
     private String redisKeyPrefix = "rl:";
 
+    private String redisConcurrencyKeyPrefix = "rlc:";
+
+    private Duration redisWriteBehindFlushInterval = Duration.ofSeconds(1);
+
+    // redis sharding
+    private List<String> redisShards = new ArrayList<>();
+    private int redisVirtualNodes = 160;
+
+    // cluster (peer-to-peer gossip)
+    private String clusterNodeId;
+    private String clusterBind = "0.0.0.0:7450";
+    private List<String> clusterPeers = new ArrayList<>();
+    private Duration clusterSyncInterval = Duration.ofMillis(100);
+    private int clusterFullSyncEvery = 50;
+
+    // memory-mapped file
+    private String mappedFilePath = "ratelimit.mmap";
+    private int mappedFileSlots = 1 << 20;
+    private String sharedMemoryName = "ratelimit";
+
     // key fallback
     private KeyStrategy defaultStrategy = KeyStrategy.IP;
+    private int subnetIpv4Prefix = SubnetKeyResolver.DEFAULT_IPV4_PREFIX;
+    private int subnetIpv6Prefix = SubnetKeyResolver.DEFAULT_IPV6_PREFIX;
+
+    // latency timers
+    private boolean metricsDecisionTimer = true;
+    private boolean metricsKeyResolutionTimer = true;
+    private boolean metricsStoreTimer = true;
+    private boolean metricsPercentileHistogram = true;
+    private double metricsNearLimitRatio = 0.1;
+    private int metricsTopKeys = 10;
+    private int metricsTopKeyGauges = 3;
+    private Duration metricsTopKeysHalfLife = Duration.ofMinutes(1);
+
+    // recent decisions
+    private int recentDecisions = 256;
+    private int recentDecisionsSampleEvery = 100;
+    private boolean recentDecisionsAllBlocked = true;
+    private boolean recentDecisionsRawKeys = false;
+    private String recentDecisionsStreamPath;
+
+    // adaptive concurrency
+    private boolean adaptiveConcurrency = false;
+    private Duration adaptiveConcurrencyTargetLatency = Duration.ofMillis(100);
+    private Duration adaptiveConcurrencyWindow = Duration.ofMillis(250);
+    private int adaptiveConcurrencyInitialLimit = 20;
+    private int adaptiveConcurrencyMinLimit = 1;
+    private int adaptiveConcurrencyMaxLimit = 1000;
+    private boolean adaptiveConcurrencyPerRoute = false;
+    private int adaptiveConcurrencyHttpStatus = 503;
 
     /**
      * Gets the configured backend storage type.
@@ -146,6 +227,75 @@ public class RateLimitProperties {
         this.includeForwardedFor = includeForwardedFor;
     }
 
+    /**
+     * Gets the most requests waiting for a permit at once, over all keys.
+     * @return Maximum number of waiting requests
+     */
+    public int getMaxWaiting() {
+        return maxWaiting;
+    }
+
+    /**
+     * Sets the most requests waiting for a permit at once, over all keys, for routes with
+     * {@code @RateLimit(maxWait = ...)}; further over-limit requests are rejected immediately.
+     * @param maxWaiting Maximum number of waiting requests
+     */
+    public void setMaxWaiting(int maxWaiting) {
+        this.maxWaiting = maxWaiting;
+    }
+
+    /**
+     * Gets the longest a {@code BLOCK} call waits for a permit when its annotation sets no {@code maxWait}.
+     * @return Maximum wait of blocking calls
+     */
+    public Duration getMaxBlockWait() {
+        return maxBlockWait;
+    }
+
+    /**
+     * Sets the longest a bean method call with {@code onLimit = BLOCK} waits for a permit when
+     * its annotation sets no {@code maxWait}; after that it fails with {@code RateLimitExceededException}.
+     * @param maxBlockWait Maximum wait of blocking calls
+     */
+    public void setMaxBlockWait(Duration maxBlockWait) {
+        this.maxBlockWait = maxBlockWait;
+    }
+
+    /**
+     * Whether {@code @RateLimit} is enforced on the methods of beans that are not controllers.
+     * @return True when bean methods are limited
+     */
+    public boolean isMethodLimits() {
+        return methodLimits;
+    }
+
+    /**
+     * Sets whether {@code @RateLimit} is enforced on the methods of beans that are not controllers,
+     * such as services, scheduled jobs and message listeners, by proxying those beans.
+     * @param methodLimits True to limit bean methods
+     */
+    public void setMethodLimits(boolean methodLimits) {
+        this.methodLimits = methodLimits;
+    }
+
+    /**
+     * Gets the most permits a stream limited by {@code RateLimitOperators} takes per store call.
+     * @return Permits per batch
+     */
+    public int getStreamPermitBatch() {
+        return streamPermitBatch;
+    }
+
+    /**
+     * Sets the most permits a stream limited by {@code RateLimitOperators} takes per store call.
+     * Larger batches save round trips on fast streams; permits a stream does not use in time
+     * still count against its key.
+     * @param streamPermitBatch Permits per batch
+     */
+    public void setStreamPermitBatch(int streamPermitBatch) {
+        this.streamPermitBatch = streamPermitBatch;
+    }
+
     /**
      * Gets the maximum size of the Caffeine cache.
      * @return Maximum number of entries in Caffeine cache
@@ -178,6 +328,208 @@ public class RateLimitProperties {
         this.redisKeyPrefix = redisKeyPrefix;
     }
 
+    /**
+     * Gets the Redis key prefix for the lease sets of {@code @ConcurrencyLimit}.
+     * @return Prefix used for concurrency lease keys
+     */
+    public String getRedisConcurrencyKeyPrefix() {
+        return redisConcurrencyKeyPrefix;
+    }
+
+    /**
+     * Sets the Redis key prefix for the lease sets of {@code @ConcurrencyLimit}. Keep it apart
+     * from the rate limit prefix, so that key listings only see counters.
+     * @param redisConcurrencyKeyPrefix Prefix to use for concurrency lease keys
+     */
+    public void setRedisConcurrencyKeyPrefix(String redisConcurrencyKeyPrefix) {
+        this.redisConcurrencyKeyPrefix = redisConcurrencyKeyPrefix;
+    }
+
+    /**
+     * Gets how often locally counted hits are flushed to Redis when the backend is REDIS_WRITE_BEHIND.
+     * @return Flush interval
+     */
+    public Duration getRedisWriteBehindFlushInterval() {
+        return redisWriteBehindFlushInterval;
+    }
+
+    /**
+     * Sets how often locally counted hits are flushed to Redis when the backend is REDIS_WRITE_BEHIND.
+     * Nodes see each other's hits up to one interval late, so the cluster may overshoot a limit by
+     * what the other nodes accept during one interval; shorter intervals cost more Redis calls.
+     * @param redisWriteBehindFlushInterval Flush interval
+     */
+    public void setRedisWriteBehindFlushInterval(Duration redisWriteBehindFlushInterval) {
+        this.redisWriteBehindFlushInterval = redisWriteBehindFlushInterval;
+    }
+
+    /**
+     * Gets the Redis endpoints used when the backend is REDIS_SHARDED.
+     * @return Redis URIs, e.g. redis://10.0.0.5:6379
+     */
+    public List<String> getRedisShards() {
+        return redisShards;
+    }
+
+    /**
+     * Sets the Redis endpoints used when the backend is REDIS_SHARDED.
+     * Every application node must use the same list (order does not matter).
+     * @param redisShards Redis URIs, one per shard
+     */
+    public void setRedisShards(List<String> redisShards) {
+        this.redisShards = redisShards;
+    }
+
+    /**
+     * Gets the number of consistent-hash ring positions per Redis shard.
+     * @return Virtual nodes per shard
+     */
+    public int getRedisVirtualNodes() {
+        return redisVirtualNodes;
+    }
+
+    /**
+     * Sets the number of consistent-hash ring positions per Redis shard.
+     * Higher values spread clients more evenly at the cost of a larger ring.
+     * @param redisVirtualNodes Virtual nodes per shard
+     */
+    public void setRedisVirtualNodes(int redisVirtualNodes) {
+        this.redisVirtualNodes = redisVirtualNodes;
+    }
+
+    /**
+     * Gets the id of this node in CLUSTER mode.
+     * @return Node id, or null to derive it from the host name and bind port
+     */
+    public String getClusterNodeId() {
+        return clusterNodeId;
+    }
+
+    /**
+     * Sets the id of this node in CLUSTER mode. Must be unique within the cluster.
+     * @param clusterNodeId Node id
+     */
+    public void setClusterNodeId(String clusterNodeId) {
+        this.clusterNodeId = clusterNodeId;
+    }
+
+    /**
+     * Gets the UDP address this node listens on for counter gossip.
+     * @return Bind address as host:port
+     */
+    public String getClusterBind() {
+        return clusterBind;
+    }
+
+    /**
+     * Sets the UDP address this node listens on for counter gossip.
+     * @param clusterBind Bind address as host:port
+     */
+    public void setClusterBind(String clusterBind) {
+        this.clusterBind = clusterBind;
+    }
+
+    /**
+     * Gets the UDP addresses of the other cluster nodes.
+     * @return Peer addresses as host:port
+     */
+    public List<String> getClusterPeers() {
+        return clusterPeers;
+    }
+
+    /**
+     * Sets the UDP addresses of the other cluster nodes.
+     * @param clusterPeers Peer addresses as host:port
+     */
+    public void setClusterPeers(List<String> clusterPeers) {
+        this.clusterPeers = clusterPeers;
+    }
+
+    /**
+     * Gets how often changed counters are sent to peers.
+     * @return Sync interval
+     */
+    public Duration getClusterSyncInterval() {
+        return clusterSyncInterval;
+    }
+
+    /**
+     * Sets how often changed counters are sent to peers. Shorter intervals reduce
+     * the overshoot allowed while peers catch up, at the cost of more datagrams.
+     * @param clusterSyncInterval Sync interval
+     */
+    public void setClusterSyncInterval(Duration clusterSyncInterval) {
+        this.clusterSyncInterval = clusterSyncInterval;
+    }
+
+    /**
+     * Gets every how many sync rounds all live counters are resent.
+     * @return Rounds between full syncs
+     */
+    public int getClusterFullSyncEvery() {
+        return clusterFullSyncEvery;
+    }
+
+    /**
+     * Sets every how many sync rounds all live counters are resent, repairing lost datagrams.
+     * @param clusterFullSyncEvery Rounds between full syncs
+     */
+    public void setClusterFullSyncEvery(int clusterFullSyncEvery) {
+        this.clusterFullSyncEvery = clusterFullSyncEvery;
+    }
+
+    /**
+     * Gets the file backing the MAPPED_FILE store.
+     * @return File path
+     */
+    public String getMappedFilePath() {
+        return mappedFilePath;
+    }
+
+    /**
+     * Sets the file backing the MAPPED_FILE store. It is created on first start and reused
+     * afterwards; put it on local disk (or tmpfs when persistence across reboots is not needed).
+     * @param mappedFilePath File path
+     */
+    public void setMappedFilePath(String mappedFilePath) {
+        this.mappedFilePath = mappedFilePath;
+    }
+
+    /**
+     * Gets the number of counter slots in the mapped file.
+     * @return Slot count
+     */
+    public int getMappedFileSlots() {
+        return mappedFileSlots;
+    }
+
+    /**
+     * Sets the number of counter slots in the mapped file or shared-memory region (16 bytes
+     * each, rounded up to a power of two). Size it for the number of live window buckets;
+     * changing it requires deleting the existing file.
+     * @param mappedFileSlots Slot count
+     */
+    public void setMappedFileSlots(int mappedFileSlots) {
+        this.mappedFileSlots = mappedFileSlots;
+    }
+
+    /**
+     * Gets the name of the SHARED_MEMORY region.
+     * @return Region name
+     */
+    public String getSharedMemoryName() {
+        return sharedMemoryName;
+    }
+
+    /**
+     * Sets the name of the SHARED_MEMORY region, created in /dev/shm. Workers using the same
+     * name share their counters; a value containing '/' is taken as a file path.
+     * @param sharedMemoryName Region name
+     */
+    public void setSharedMemoryName(String sharedMemoryName) {
+        this.sharedMemoryName = sharedMemoryName;
+    }
+
     /**
      * Gets the default key strategy for rate limiting.
      * @return Default strategy for generating rate limit keys
@@ -193,4 +545,386 @@ public class RateLimitProperties {
     public void setDefaultStrategy(KeyStrategy defaultStrategy) {
         this.defaultStrategy = defaultStrategy;
     }
+
+    /**
+     * Gets the prefix length IPv4 addresses are cut to by the SUBNET key strategy.
+     * @return IPv4 prefix length
+     */
+    public int getSubnetIpv4Prefix() {
+        return subnetIpv4Prefix;
+    }
+
+    /**
+     * Sets the prefix length IPv4 addresses are cut to by the SUBNET key strategy, unless a
+     * limit's {@code strategyArg} gives its own.
+     * @param subnetIpv4Prefix IPv4 prefix length, 0 to 32
+     */
+    public void setSubnetIpv4Prefix(int subnetIpv4Prefix) {
+        this.subnetIpv4Prefix = subnetIpv4Prefix;
+    }
+
+    /**
+     * Gets the prefix length IPv6 addresses are cut to by the SUBNET key strategy.
+     * @return IPv6 prefix length
+     */
+    public int getSubnetIpv6Prefix() {
+        return subnetIpv6Prefix;
+    }
+
+    /**
+     * Sets the prefix length IPv6 addresses are cut to by the SUBNET key strategy, unless a
+     * limit's {@code strategyArg} gives its own.
+     * @param subnetIpv6Prefix IPv6 prefix length, 0 to 128
+     */
+    public void setSubnetIpv6Prefix(int subnetIpv6Prefix) {
+        this.subnetIpv6Prefix = subnetIpv6Prefix;
+    }
+
+    /**
+     * Whether the whole decision (key resolution, limiter call, headers) is timed.
+     * @return True when {@code ratelimit.decision} is recorded
+     */
+    public boolean isMetricsDecisionTimer() {
+        return metricsDecisionTimer;
+    }
+
+    /**
+     * Enables or disables the {@code ratelimit.decision} timer.
+     * @param metricsDecisionTimer Whether to time decisions
+     */
+    public void setMetricsDecisionTimer(boolean metricsDecisionTimer) {
+        this.metricsDecisionTimer = metricsDecisionTimer;
+    }
+
+    /**
+     * Whether key resolution is timed.
+     * @return True when {@code ratelimit.key.resolution} is recorded
+     */
+    public boolean isMetricsKeyResolutionTimer() {
+        return metricsKeyResolutionTimer;
+    }
+
+    /**
+     * Enables or disables the {@code ratelimit.key.resolution} timer.
+     * @param metricsKeyResolutionTimer Whether to time key resolution
+     */
+    public void setMetricsKeyResolutionTimer(boolean metricsKeyResolutionTimer) {
+        this.metricsKeyResolutionTimer = metricsKeyResolutionTimer;
+    }
+
+    /**
+     * Whether store operations are timed.
+     * @return True when {@code ratelimit.store} is recorded
+     */
+    public boolean isMetricsStoreTimer() {
+        return metricsStoreTimer;
+    }
+
+    /**
+     * Enables or disables the {@code ratelimit.store} timer. When disabled the limiter
+     * talks to the store directly, without the timing wrapper.
+     * @param metricsStoreTimer Whether to time store operations
+     */
+    public void setMetricsStoreTimer(boolean metricsStoreTimer) {
+        this.metricsStoreTimer = metricsStoreTimer;
+    }
+
+    /**
+     * Whether the timers publish percentile histogram buckets.
+     * @return True when histogram buckets are published
+     */
+    public boolean isMetricsPercentileHistogram() {
+        return metricsPercentileHistogram;
+    }
+
+    /**
+     * Sets whether the timers publish percentile histogram buckets, so that p99 and
+     * similar can be aggregated across instances by the monitoring system.
+     * @param metricsPercentileHistogram Whether to publish histogram buckets
+     */
+    public void setMetricsPercentileHistogram(boolean metricsPercentileHistogram) {
+        this.metricsPercentileHistogram = metricsPercentileHistogram;
+    }
+
+    /**
+     * Gets the near-limit threshold of the per-route metrics.
+     * @return Share of the permits
+     */
+    public double getMetricsNearLimitRatio() {
+        return metricsNearLimitRatio;
+    }
+
+    /**
+     * Sets the share of a rule's permits at or below which the remaining permits of an
+     * allowed request count it in {@code ratelimit.route.near.limit} (0.1 = last 10%).
+     * @param metricsNearLimitRatio Share of the permits, between 0 and 1
+     */
+    public void setMetricsNearLimitRatio(double metricsNearLimitRatio) {
+        this.metricsNearLimitRatio = metricsNearLimitRatio;
+    }
+
+    /**
+     * Gets the number of top blocked and top consuming keys tracked per route.
+     * @return Number of keys
+     */
+    public int getMetricsTopKeys() {
+        return metricsTopKeys;
+    }
+
+    /**
+     * Sets the number of top blocked and top consuming keys tracked per route and listed by
+     * the actuator endpoint. Tracking uses a fixed 16 KiB sketch per list; 0 turns it off.
+     * @param metricsTopKeys Number of keys
+     */
+    public void setMetricsTopKeys(int metricsTopKeys) {
+        this.metricsTopKeys = metricsTopKeys;
+    }
+
+    /**
+     * Gets the number of top-key ranks published as gauges per route.
+     * @return Number of ranks
+     */
+    public int getMetricsTopKeyGauges() {
+        return metricsTopKeyGauges;
+    }
+
+    /**
+     * Sets the number of ranks published as {@code ratelimit.route.top.blocked} and
+     * {@code ratelimit.route.top.consumed} gauges per route (tagged by rank, not by key).
+     * @param metricsTopKeyGauges Number of ranks
+     */
+    public void setMetricsTopKeyGauges(int metricsTopKeyGauges) {
+        this.metricsTopKeyGauges = metricsTopKeyGauges;
+    }
+
+    /**
+     * Gets the half-life of the top-key counts.
+     * @return Half-life
+     */
+    public Duration getMetricsTopKeysHalfLife() {
+        return metricsTopKeysHalfLife;
+    }
+
+    /**
+     * Sets how quickly past traffic fades from the top keys: counts are halved after each half-life.
+     * @param metricsTopKeysHalfLife Half-life
+     */
+    public void setMetricsTopKeysHalfLife(Duration metricsTopKeysHalfLife) {
+        this.metricsTopKeysHalfLife = metricsTopKeysHalfLife;
+    }
+
+    /**
+     * Gets the number of recent decisions kept for the ratelimitdecisions endpoint.
+     * @return Ring capacity; 0 when off
+     */
+    public int getRecentDecisions() {
+        return recentDecisions;
+    }
+
+    /**
+     * Sets how many sampled decisions are kept for the ratelimitdecisions endpoint and the
+     * decision stream, rounded up to a power of two. 0 turns sampling off.
+     * @param recentDecisions Ring capacity
+     */
+    public void setRecentDecisions(int recentDecisions) {
+        this.recentDecisions = recentDecisions;
+    }
+
+    /**
+     * Gets the sampling rate of allowed decisions.
+     * @return One in this many allowed decisions is kept
+     */
+    public int getRecentDecisionsSampleEvery() {
+        return recentDecisionsSampleEvery;
+    }
+
+    /**
+     * Sets the sampling rate of allowed decisions: one in this many, on average, is kept.
+     * 1 keeps all of them, 0 none.
+     * @param recentDecisionsSampleEvery Sampling rate
+     */
+    public void setRecentDecisionsSampleEvery(int recentDecisionsSampleEvery) {
+        this.recentDecisionsSampleEvery = recentDecisionsSampleEvery;
+    }
+
+    /**
+     * Whether every blocked decision is kept regardless of sampling.
+     * @return True when blocked decisions are always kept
+     */
+    public boolean isRecentDecisionsAllBlocked() {
+        return recentDecisionsAllBlocked;
+    }
+
+    /**
+     * Sets whether every blocked decision is kept regardless of sampling.
+     * @param recentDecisionsAllBlocked Whether to keep all blocked decisions
+     */
+    public void setRecentDecisionsAllBlocked(boolean recentDecisionsAllBlocked) {
+        this.recentDecisionsAllBlocked = recentDecisionsAllBlocked;
+    }
+
+    /**
+     * Whether recent decisions keep the keys themselves rather than their hashes.
+     * @return True when raw keys are kept
+     */
+    public boolean isRecentDecisionsRawKeys() {
+        return recentDecisionsRawKeys;
+    }
+
+    /**
+     * Sets whether recent decisions keep the keys themselves. Off by default so client
+     * identifiers such as IPs or API keys do not show up in the debugging views.
+     * @param recentDecisionsRawKeys Whether to keep raw keys
+     */
+    public void setRecentDecisionsRawKeys(boolean recentDecisionsRawKeys) {
+        this.recentDecisionsRawKeys = recentDecisionsRawKeys;
+    }
+
+    /**
+     * Gets the path of the server-sent event stream of recent decisions.
+     * @return The path, or null when the stream is off
+     */
+    public String getRecentDecisionsStreamPath() {
+        return recentDecisionsStreamPath;
+    }
+
+    /**
+     * Sets the path, e.g. {@code /internal/ratelimit/decisions}, on which recent decisions are
+     * streamed as server-sent events. Unset by default: the stream is served by the application,
+     * not by actuator, so put it behind the same security as other internal paths.
+     * @param recentDecisionsStreamPath The path
+     */
+    public void setRecentDecisionsStreamPath(String recentDecisionsStreamPath) {
+        this.recentDecisionsStreamPath = recentDecisionsStreamPath;
+    }
+
+    /**
+     * Whether requests in flight are kept within a limit adapted to their latency.
+     * @return True when the adaptive limit is applied
+     */
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    /**
+     * Sets whether requests in flight are kept within a limit adapted to their latency. The limit
+     * shrinks while latency is above the target and grows back while it is on target.
+     * @param adaptiveConcurrency True to apply the adaptive limit
+     */
+    public void setAdaptiveConcurrency(boolean adaptiveConcurrency) {
+        this.adaptiveConcurrency = adaptiveConcurrency;
+    }
+
+    /**
+     * Gets the latency the adaptive limit steers towards.
+     * @return Target latency
+     */
+    public Duration getAdaptiveConcurrencyTargetLatency() {
+        return adaptiveConcurrencyTargetLatency;
+    }
+
+    /**
+     * Sets the latency the adaptive limit steers towards; somewhat above the usual latency of a healthy request.
+     * @param adaptiveConcurrencyTargetLatency Target latency
+     */
+    public void setAdaptiveConcurrencyTargetLatency(Duration adaptiveConcurrencyTargetLatency) {
+        this.adaptiveConcurrencyTargetLatency = adaptiveConcurrencyTargetLatency;
+    }
+
+    /**
+     * Gets how often the adaptive limit is recomputed from the latencies observed.
+     * @return Recompute interval
+     */
+    public Duration getAdaptiveConcurrencyWindow() {
+        return adaptiveConcurrencyWindow;
+    }
+
+    /**
+     * Sets how often the adaptive limit is recomputed from the latencies observed.
+     * @param adaptiveConcurrencyWindow Recompute interval
+     */
+    public void setAdaptiveConcurrencyWindow(Duration adaptiveConcurrencyWindow) {
+        this.adaptiveConcurrencyWindow = adaptiveConcurrencyWindow;
+    }
+
+    /**
+     * Gets the adaptive limit before any latency has been observed.
+     * @return Initial number of requests allowed in flight
+     */
+    public int getAdaptiveConcurrencyInitialLimit() {
+        return adaptiveConcurrencyInitialLimit;
+    }
+
+    /**
+     * Sets the adaptive limit before any latency has been observed.
+     * @param adaptiveConcurrencyInitialLimit Initial number of requests allowed in flight
+     */
+    public void setAdaptiveConcurrencyInitialLimit(int adaptiveConcurrencyInitialLimit) {
+        this.adaptiveConcurrencyInitialLimit = adaptiveConcurrencyInitialLimit;
+    }
+
+    /**
+     * Gets the lowest adaptive limit.
+     * @return Fewest requests allowed in flight
+     */
+    public int getAdaptiveConcurrencyMinLimit() {
+        return adaptiveConcurrencyMinLimit;
+    }
+
+    /**
+     * Sets the lowest adaptive limit, so that some requests always get through to measure latency.
+     * @param adaptiveConcurrencyMinLimit Fewest requests allowed in flight
+     */
+    public void setAdaptiveConcurrencyMinLimit(int adaptiveConcurrencyMinLimit) {
+        this.adaptiveConcurrencyMinLimit = adaptiveConcurrencyMinLimit;
+    }
+
+    /**
+     * Gets the highest adaptive limit.
+     * @return Most requests allowed in flight
+     */
+    public int getAdaptiveConcurrencyMaxLimit() {
+        return adaptiveConcurrencyMaxLimit;
+    }
+
+    /**
+     * Sets the highest adaptive limit.
+     * @param adaptiveConcurrencyMaxLimit Most requests allowed in flight
+     */
+    public void setAdaptiveConcurrencyMaxLimit(int adaptiveConcurrencyMaxLimit) {
+        this.adaptiveConcurrencyMaxLimit = adaptiveConcurrencyMaxLimit;
+    }
+
+    /**
+     * Whether each route gets an adaptive limit of its own rather than sharing one.
+     * @return True for a limit per route
+     */
+    public boolean isAdaptiveConcurrencyPerRoute() {
+        return adaptiveConcurrencyPerRoute;
+    }
+
+    /**
+     * Sets whether each route gets an adaptive limit of its own, so that one slow downstream only
+     * throttles the routes calling it. Otherwise every route shares one limit.
+     * @param adaptiveConcurrencyPerRoute True for a limit per route
+     */
+    public void setAdaptiveConcurrencyPerRoute(boolean adaptiveConcurrencyPerRoute) {
+        this.adaptiveConcurrencyPerRoute = adaptiveConcurrencyPerRoute;
+    }
+
+    /**
+     * Gets the status of a request rejected by the adaptive limit.
+     * @return HTTP status code
+     */
+    public int getAdaptiveConcurrencyHttpStatus() {
+        return adaptiveConcurrencyHttpStatus;
+    }
+
+    /**
+     * Sets the status of a request rejected by the adaptive limit.
+     * @param adaptiveConcurrencyHttpStatus HTTP status code
+     */
+    public void setAdaptiveConcurrencyHttpStatus(int adaptiveConcurrencyHttpStatus) {
+        this.adaptiveConcurrencyHttpStatus = adaptiveConcurrencyHttpStatus;
+    }
 }
@@ -1,15 +1,38 @@
 package org.amyth.autoconfigure;
 
+import org.amyth.autoconfigure.actuator.RateLimitDecisionsEndpoint;
 import org.amyth.autoconfigure.actuator.RateLimitEndpoint;
+import org.amyth.autoconfigure.actuator.RateLimitKeysEndpoint;
+import org.amyth.autoconfigure.aop.RateLimitMethodInterceptor;
+import org.amyth.autoconfigure.aop.RateLimitMethodPostProcessor;
+import org.amyth.autoconfigure.jfr.RateLimitEvents;
 import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.autoconfigure.metrics.RateLimitStoreMetrics;
+import org.amyth.autoconfigure.mvc.DecisionStreamRoute;
 import org.amyth.autoconfigure.mvc.RateLimitWebMvcConfig;
+import org.amyth.autoconfigure.store.redis.RedisConcurrencyLimiter;
 import org.amyth.autoconfigure.store.redis.RedisRateLimitStore;
+import org.amyth.autoconfigure.store.redis.RedisShard;
+import org.amyth.autoconfigure.web.AdaptiveConcurrency;
+import org.amyth.autoconfigure.webflux.RateLimitOperators;
 import org.amyth.autoconfigure.webflux.RateLimitWebFilter;
+import org.amyth.autoconfigure.webflux.ReactiveDecisionStreamRoute;
 import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.annotation.ConcurrencyLimit;
 import org.amyth.core.annotation.RateLimit;
+import org.amyth.core.api.ConcurrencyLimiter;
 import org.amyth.core.api.RateLimitStore;
 import org.amyth.core.api.RateLimiter;
+import org.amyth.core.concurrency.AdaptiveConcurrencyLimiter;
+import org.amyth.core.concurrency.LocalConcurrencyLimiter;
+import org.amyth.core.pacing.RateLimitPacer;
+import org.amyth.core.stats.RecentDecisions;
 import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.amyth.core.store.cluster.GossipRateLimitStore;
+import org.amyth.core.store.hybrid.WriteBehindRateLimitStore;
+import org.amyth.core.store.mmap.MappedFileRateLimitStore;
+import org.amyth.core.store.mmap.SharedMemoryRateLimitStore;
+import org.amyth.core.store.sharded.ShardedRateLimitStore;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
@@ -21,12 +44,21 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplicat
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.web.reactive.result.method.annotation.RequestMappingHandlerMapping;
 
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Path;
 import java.time.Clock;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Auto-configuration for rate limiting functionality.
@@ -71,6 +103,132 @@ public class RateLimitingAutoConfiguration {
         return null;
     }
 
+    /**
+     * Creates a two-tier store counting locally and writing deltas behind to Redis.
+     *
+     * @param props Properties containing the flush interval and key prefix
+     * @param redisTemplateProvider Provider for Redis template
+     * @return A write-behind rate limit store
+     */
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStore.class)
+    @ConditionalOnClass(StringRedisTemplate.class)
+    @ConditionalOnProperty(prefix = "ratelimit", name = "backend", havingValue = "REDIS_WRITE_BEHIND")
+    public WriteBehindRateLimitStore writeBehindRateLimitStore(
+            RateLimitProperties props,
+            ObjectProvider<StringRedisTemplate> redisTemplateProvider
+    ) {
+        StringRedisTemplate tpl = redisTemplateProvider.getIfAvailable();
+        if (tpl == null) {
+            throw new IllegalStateException("ratelimit.backend=REDIS_WRITE_BEHIND but StringRedisTemplate is missing. " +
+                    "Add spring-boot-starter-data-redis and configure Redis connection.");
+        }
+        WriteBehindRateLimitStore store = new WriteBehindRateLimitStore(
+                new RedisRateLimitStore(tpl, props.getRedisKeyPrefix()),
+                props.getRedisWriteBehindFlushInterval(), props.getCaffeineMaxSize());
+        store.setRemoteStateListener((available, cause) -> RateLimitEvents.fallback("write-behind",
+                available ? "remote-available" : "remote-unavailable", cause == null ? null : cause.toString()));
+        return store;
+    }
+
+    /**
+     * Creates a store that spreads clients over several Redis instances with consistent hashing.
+     *
+     * @param props Properties containing the shard URIs and virtual node count
+     * @return A sharded rate limit store owning one connection per shard
+     */
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStore.class)
+    @ConditionalOnClass(name = {
+            "org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory",
+            "io.lettuce.core.RedisClient"
+    })
+    @ConditionalOnProperty(prefix = "ratelimit", name = "backend", havingValue = "REDIS_SHARDED")
+    public ShardedRateLimitStore shardedRedisRateLimitStore(RateLimitProperties props) {
+        if (props.getRedisShards() == null || props.getRedisShards().isEmpty()) {
+            throw new IllegalStateException("ratelimit.backend=REDIS_SHARDED but ratelimit.redis-shards is empty.");
+        }
+        Map<String, RedisShard> shards = new LinkedHashMap<>();
+        try {
+            for (String uri : props.getRedisShards()) {
+                RedisShard shard = RedisShard.connect(uri, props.getRedisKeyPrefix());
+                if (shards.putIfAbsent(shard.id(), shard) != null) {
+                    shard.close();
+                    throw new IllegalStateException("Duplicate Redis shard in ratelimit.redis-shards: " + shard.id());
+                }
+            }
+        } catch (RuntimeException e) {
+            shards.values().forEach(RedisShard::close);
+            throw e;
+        }
+        return new ShardedRateLimitStore(shards, props.getRedisVirtualNodes());
+    }
+
+    /**
+     * Creates a peer-to-peer store that gossips CRDT counters between application nodes.
+     *
+     * @param props Properties containing the bind address, peers and sync interval
+     * @return A gossip-based rate limit store
+     */
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStore.class)
+    @ConditionalOnProperty(prefix = "ratelimit", name = "backend", havingValue = "CLUSTER")
+    public GossipRateLimitStore clusterRateLimitStore(RateLimitProperties props) {
+        InetSocketAddress bind = socketAddress(props.getClusterBind());
+        List<InetSocketAddress> peers = props.getClusterPeers().stream()
+                .map(RateLimitingAutoConfiguration::socketAddress)
+                .toList();
+        String nodeId = props.getClusterNodeId();
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = localHostName() + ":" + bind.getPort();
+        }
+        return new GossipRateLimitStore(nodeId, bind, peers,
+                props.getClusterSyncInterval(), props.getClusterFullSyncEvery(), props.getCaffeineMaxSize());
+    }
+
+    /**
+     * Creates a local store whose counters live in a memory-mapped file and survive restarts.
+     *
+     * @param props Properties containing the file path and slot count
+     * @return A memory-mapped rate limit store
+     */
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStore.class)
+    @ConditionalOnProperty(prefix = "ratelimit", name = "backend", havingValue = "MAPPED_FILE")
+    public MappedFileRateLimitStore mappedFileRateLimitStore(RateLimitProperties props) {
+        return new MappedFileRateLimitStore(Path.of(props.getMappedFilePath()), props.getMappedFileSlots(),
+                Clock.systemUTC());
+    }
+
+    /**
+     * Creates a host-wide store in shared memory, so every JVM on the machine enforces one limit.
+     *
+     * @param props Properties containing the region name and slot count
+     * @return A shared-memory rate limit store
+     */
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStore.class)
+    @ConditionalOnProperty(prefix = "ratelimit", name = "backend", havingValue = "SHARED_MEMORY")
+    public SharedMemoryRateLimitStore sharedMemoryRateLimitStore(RateLimitProperties props) {
+        return new SharedMemoryRateLimitStore(props.getSharedMemoryName(), props.getMappedFileSlots());
+    }
+
+    private static InetSocketAddress socketAddress(String hostPort) {
+        int colon = hostPort.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IllegalStateException("Expected host:port but got '" + hostPort + "'");
+        }
+        return new InetSocketAddress(hostPort.substring(0, colon), Integer.parseInt(hostPort.substring(colon + 1)));
+    }
+
+    private static String localHostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+
     /**
      * Creates a Caffeine-based rate limit store as the default implementation.
      *
@@ -90,12 +248,124 @@ public class RateLimitingAutoConfiguration {
      *
      * @param store The rate limit store to use
      * @param props Configuration properties
+     * @param metrics Metrics binder timing the store operations
      * @return A sliding window rate limiter instance
      */
     @Bean
     @ConditionalOnMissingBean(RateLimiter.class)
-    public RateLimiter rateLimiter(RateLimitStore store, RateLimitProperties props) {
-        return new SlidingWindowRateLimiter(store, Clock.systemUTC(), props.getSlidingBuckets());
+    public RateLimiter rateLimiter(RateLimitStore store, RateLimitProperties props, RateLimitMetricsBinder metrics) {
+        return new SlidingWindowRateLimiter(metrics.timed(store), Clock.systemUTC(), props.getSlidingBuckets());
+    }
+
+    /**
+     * Creates the pacer of outgoing calls, counting them in the configured store.
+     *
+     * @param limiter The rate limiter counting the calls
+     * @return A pacer for {@code RateLimitClientInterceptor} and {@code RateLimitExchangeFilter}
+     */
+    @Bean
+    @ConditionalOnMissingBean(RateLimitPacer.class)
+    public RateLimitPacer rateLimitPacer(RateLimiter limiter) {
+        return new RateLimitPacer(limiter, Clock.systemUTC());
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "reactor.core.publisher.Flux")
+    static class ReactorOperatorsConfiguration {
+        /**
+         * Creates the Reactor operators limiting the elements of streams.
+         *
+         * @param limiter The rate limiter counting the elements
+         * @param props Properties containing the permit batch size
+         * @return Operators for {@code Flux.transform}
+         */
+        @Bean
+        @ConditionalOnMissingBean(RateLimitOperators.class)
+        public RateLimitOperators rateLimitOperators(RateLimiter limiter, RateLimitProperties props) {
+            return new RateLimitOperators(limiter, props.getStreamPermitBatch(), Clock.systemUTC());
+        }
+    }
+
+    /* ---------- @RateLimit on bean methods ---------- */
+
+    /**
+     * Limits the {@code @RateLimit} methods of beans that are not controllers, such as services,
+     * scheduled jobs and message listeners. Static, as bean post-processors are; the limiter is
+     * looked up on the first limited call.
+     *
+     * @param limiter Provider for the rate limiter
+     * @param props Provider for the rate limiting properties
+     * @param metrics Provider for the metrics binder
+     * @param environment Decides between class and interface proxies, as Spring Boot does
+     * @return The post-processor proxying limited beans
+     */
+    @Bean
+    @ConditionalOnMissingBean(RateLimitMethodPostProcessor.class)
+    @ConditionalOnProperty(prefix = "ratelimit", name = "method-limits", havingValue = "true", matchIfMissing = true)
+    public static RateLimitMethodPostProcessor rateLimitMethodPostProcessor(
+            ObjectProvider<RateLimiter> limiter,
+            ObjectProvider<RateLimitProperties> props,
+            ObjectProvider<RateLimitMetricsBinder> metrics,
+            Environment environment) {
+        RateLimitMethodPostProcessor processor = new RateLimitMethodPostProcessor(() ->
+                new RateLimitMethodInterceptor(limiter.getObject(), props.getObject(), metrics.getObject()));
+        processor.setProxyTargetClass(environment.getProperty("spring.aop.proxy-target-class", Boolean.class, true));
+        return processor;
+    }
+
+    /* ---------- Concurrency limiter (Local | Redis leases) ---------- */
+
+    /**
+     * Creates a concurrency limiter sharing permits across nodes through Redis leases.
+     *
+     * @param props Properties containing the lease key prefix
+     * @param redisTemplateProvider Provider for Redis template
+     * @return A Redis-based concurrency limiter
+     */
+    @Bean
+    @ConditionalOnMissingBean(ConcurrencyLimiter.class)
+    @ConditionalOnClass(StringRedisTemplate.class)
+    @ConditionalOnProperty(prefix = "ratelimit", name = "backend", havingValue = "REDIS")
+    public ConcurrencyLimiter redisConcurrencyLimiter(
+            RateLimitProperties props,
+            ObjectProvider<StringRedisTemplate> redisTemplateProvider
+    ) {
+        StringRedisTemplate tpl = redisTemplateProvider.getIfAvailable();
+        if (tpl == null) {
+            throw new IllegalStateException("ratelimit.backend=REDIS but StringRedisTemplate is missing. " +
+                    "Add spring-boot-starter-data-redis and configure Redis connection.");
+        }
+        return new RedisConcurrencyLimiter(tpl, props.getRedisConcurrencyKeyPrefix());
+    }
+
+    /**
+     * Creates an in-process concurrency limiter for every other backend; permits are per node.
+     *
+     * @return A local concurrency limiter
+     */
+    @Bean
+    @ConditionalOnMissingBean(ConcurrencyLimiter.class)
+    public ConcurrencyLimiter concurrencyLimiter() {
+        return new LocalConcurrencyLimiter();
+    }
+
+    /**
+     * Creates the in-flight limits adapted to latency, when enabled.
+     *
+     * @param props Properties containing the target latency and bounds of the limit
+     * @return The adaptive limits of the web layer, also bound as meters
+     */
+    @Bean
+    @ConditionalOnMissingBean(AdaptiveConcurrency.class)
+    @ConditionalOnProperty(prefix = "ratelimit", name = "adaptive-concurrency", havingValue = "true")
+    public AdaptiveConcurrency adaptiveConcurrency(RateLimitProperties props) {
+        AdaptiveConcurrencyLimiter.Options options = new AdaptiveConcurrencyLimiter.Options(
+                props.getAdaptiveConcurrencyInitialLimit(), props.getAdaptiveConcurrencyMinLimit(),
+                props.getAdaptiveConcurrencyMaxLimit(), props.getAdaptiveConcurrencyTargetLatency(),
+                props.getAdaptiveConcurrencyWindow(), AdaptiveConcurrencyLimiter.Options.DEFAULTS.minSamples(),
+                AdaptiveConcurrencyLimiter.Options.DEFAULTS.smoothing());
+        return new AdaptiveConcurrency(options, props.isAdaptiveConcurrencyPerRoute(),
+                props.getAdaptiveConcurrencyHttpStatus());
     }
 
     /* ---------- Metrics binder (uses tags, not RateLimiter) ---------- */
@@ -111,7 +381,33 @@ public class RateLimitingAutoConfiguration {
     public RateLimitMetricsBinder rateLimitMetricsBinder(RateLimitProperties props) {
         String backendTag = props.getBackend().name().toLowerCase();     // "caffeine" | "redis"
         String algoTag = "sliding_window";                                // constant for now
-        return new RateLimitMetricsBinder(backendTag, algoTag);
+        Set<RateLimitMetricsBinder.Timing> timings = EnumSet.noneOf(RateLimitMetricsBinder.Timing.class);
+        if (props.isMetricsDecisionTimer()) timings.add(RateLimitMetricsBinder.Timing.DECISION);
+        if (props.isMetricsKeyResolutionTimer()) timings.add(RateLimitMetricsBinder.Timing.KEY_RESOLUTION);
+        if (props.isMetricsStoreTimer()) timings.add(RateLimitMetricsBinder.Timing.STORE);
+        RateLimitMetricsBinder.RouteOptions routeOptions = new RateLimitMetricsBinder.RouteOptions(
+                props.getMetricsNearLimitRatio(), props.getMetricsTopKeys(), props.getMetricsTopKeyGauges(),
+                props.getMetricsTopKeysHalfLife());
+        RateLimitMetricsBinder metrics = new RateLimitMetricsBinder(backendTag, algoTag, timings,
+                props.isMetricsPercentileHistogram(), routeOptions);
+        if (props.getRecentDecisions() > 0) {
+            metrics.setRecentDecisions(new RecentDecisions(props.getRecentDecisions(),
+                    props.getRecentDecisionsSampleEvery(), props.isRecentDecisionsAllBlocked(),
+                    props.isRecentDecisionsRawKeys()));
+        }
+        return metrics;
+    }
+
+    /**
+     * Creates the binder of store statistics (size, hit ratio, evictions) for stores that keep them.
+     *
+     * @param store The rate limit store
+     * @return A store metrics binder instance
+     */
+    @Bean
+    @ConditionalOnMissingBean(RateLimitStoreMetrics.class)
+    public RateLimitStoreMetrics rateLimitStoreMetrics(RateLimitStore store) {
+        return new RateLimitStoreMetrics(store);
     }
 
     /* ---------- MVC wiring ---------- */
@@ -123,10 +419,19 @@ public class RateLimitingAutoConfiguration {
         @Bean
         public RateLimitWebMvcConfig rateLimitWebMvcConfig(
                 RateLimiter limiter,
+                ConcurrencyLimiter concurrency,
+                ObjectProvider<AdaptiveConcurrency> adaptive,
                 RateLimitProperties props,
-                RateLimitMetricsBinder metrics
+                RateLimitMetricsBinder metrics,
+                ObjectProvider<org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping> mappings
         ) {
-            return new RateLimitWebMvcConfig(limiter, props, metrics);
+            return new RateLimitWebMvcConfig(limiter, concurrency, adaptive.getIfAvailable(), props, metrics, mappings);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "ratelimit", name = "recent-decisions-stream-path")
+        public DecisionStreamRoute rateLimitDecisionStreamRoute(RateLimitProperties props, RateLimitMetricsBinder metrics) {
+            return new DecisionStreamRoute(recentDecisions(metrics), props.getRecentDecisionsStreamPath());
         }
     }
 
@@ -141,31 +446,57 @@ public class RateLimitingAutoConfiguration {
         @Bean
         public RateLimitWebFilter rateLimitWebFilter(
                 RateLimiter limiter,
+                ConcurrencyLimiter concurrency,
+                ObjectProvider<AdaptiveConcurrency> adaptiveProvider,
                 RateLimitProperties props,
                 RateLimitMetricsBinder metrics,
                 @Qualifier("requestMappingHandlerMapping")
                 RequestMappingHandlerMapping mapping
         ) {
-            // Build registry of (METHOD path -> RateLimit) once at startup
+            // Build registries of (METHOD path -> annotation) once at startup
             Map<String, RateLimit> registry = new HashMap<>();
+            Map<String, ConcurrencyLimit> concurrencyRegistry = new HashMap<>();
+            AdaptiveConcurrency adaptive = adaptiveProvider.getIfAvailable();
             mapping.getHandlerMethods().forEach((info, handler) -> {
                 RateLimit ann = handler.getMethodAnnotation(RateLimit.class);
                 if (ann == null) {
                     ann = handler.getBeanType().getAnnotation(RateLimit.class);
                 }
-                if (ann != null) {
-                    RateLimit finalAnn = ann;
-                    info.getPatternsCondition().getPatterns().forEach(p -> {
-                        info.getMethodsCondition().getMethods().forEach(m -> {
-                            registry.put(m.name() + " " + p.getPatternString(), finalAnn);
-                        });
-                    });
+                ConcurrencyLimit cl = handler.getMethodAnnotation(ConcurrencyLimit.class);
+                if (cl == null) {
+                    cl = handler.getBeanType().getAnnotation(ConcurrencyLimit.class);
                 }
+                RateLimit finalAnn = ann;
+                ConcurrencyLimit finalCl = cl;
+                boolean streaming = AdaptiveConcurrency.isStreaming(info.getProducesCondition().getProducibleMediaTypes());
+                info.getPatternsCondition().getPatterns().forEach(p -> {
+                    info.getMethodsCondition().getMethods().forEach(m -> {
+                        String route = m.name() + " " + p.getPatternString();
+                        if (finalAnn != null) registry.put(route, finalAnn);
+                        if (finalCl != null) concurrencyRegistry.put(route, finalCl);
+                        if (adaptive != null) adaptive.register(route, streaming);
+                    });
+                });
             });
-            return new RateLimitWebFilter(limiter, props, metrics, registry);
+            return new RateLimitWebFilter(limiter, concurrency, adaptive, props, metrics, registry, concurrencyRegistry);
+        }
+
+        @Bean
+        @ConditionalOnProperty(prefix = "ratelimit", name = "recent-decisions-stream-path")
+        public ReactiveDecisionStreamRoute rateLimitDecisionStreamRoute(RateLimitProperties props,
+                                                                        RateLimitMetricsBinder metrics) {
+            return new ReactiveDecisionStreamRoute(recentDecisions(metrics), props.getRecentDecisionsStreamPath());
         }
     }
 
+    private static RecentDecisions recentDecisions(RateLimitMetricsBinder metrics) {
+        RecentDecisions recent = metrics.getRecentDecisions();
+        if (recent == null) {
+            throw new IllegalStateException("ratelimit.recent-decisions-stream-path is set but ratelimit.recent-decisions is 0.");
+        }
+        return recent;
+    }
+
     /* ---------- Actuator endpoint ---------- */
 
     /**
@@ -173,14 +504,48 @@ public class RateLimitingAutoConfiguration {
      *
      * @param limiter The rate limiter instance
      * @param metrics The metrics binder
+     * @param store The rate limit store, for its statistics
+     * @param adaptive The adaptive in-flight limits, when enabled
      * @return A rate limit endpoint instance
      */
     @Bean
     @ConditionalOnAvailableEndpoint(endpoint = RateLimitEndpoint.class)
     public RateLimitEndpoint rateLimitEndpoint(
             RateLimiter limiter,
-            RateLimitMetricsBinder metrics
+            RateLimitMetricsBinder metrics,
+            RateLimitStore store,
+            ObjectProvider<AdaptiveConcurrency> adaptive
+    ) {
+        return new RateLimitEndpoint(limiter, metrics, store, adaptive.getIfAvailable());
+    }
+
+    /**
+     * Creates the key inspection and administration endpoint when actuator is available.
+     *
+     * @param limiter The rate limiter instance
+     * @param store The rate limit store, used to list keys
+     * @param props Configuration properties providing the default rule
+     * @return A rate limit keys endpoint instance
+     */
+    @Bean
+    @ConditionalOnAvailableEndpoint(endpoint = RateLimitKeysEndpoint.class)
+    public RateLimitKeysEndpoint rateLimitKeysEndpoint(
+            RateLimiter limiter,
+            RateLimitStore store,
+            RateLimitProperties props
     ) {
-        return new RateLimitEndpoint(limiter, metrics);
+        return new RateLimitKeysEndpoint(limiter, store, props);
+    }
+
+    /**
+     * Creates the recent decisions endpoint when actuator is available.
+     *
+     * @param metrics The metrics binder carrying the ring of recent decisions
+     * @return A recent decisions endpoint instance
+     */
+    @Bean
+    @ConditionalOnAvailableEndpoint(endpoint = RateLimitDecisionsEndpoint.class)
+    public RateLimitDecisionsEndpoint rateLimitDecisionsEndpoint(RateLimitMetricsBinder metrics) {
+        return new RateLimitDecisionsEndpoint(metrics);
     }
 }
@@ -0,0 +1,83 @@
+package org.amyth.autoconfigure.actuator;
+
+import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.core.stats.RecentDecisions;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoint exposing a sample of recent rate limit decisions, for debugging keys and rules.
+ *
+ * GET /actuator/ratelimitdecisions                 the latest decisions
+ * GET /actuator/ratelimitdecisions?after=&amp;limit=   decisions after a cursor, to tail the stream
+ *
+ * Each response carries the cursor to pass as {@code after} next time. Decisions are
+ * sampled by ratelimit.recent-decisions-sample-every; keys are shown as hashes unless
+ * ratelimit.recent-decisions-raw-keys is set.
+ */
+@Endpoint(id = "ratelimitdecisions")
+public final class RateLimitDecisionsEndpoint {
+
+    static final int DEFAULT_LIMIT = 100;
+
+    private final RateLimitMetricsBinder metrics;
+
+    /**
+     * Creates a new RateLimitDecisionsEndpoint instance.
+     *
+     * @param metrics The metrics binder carrying the ring of recent decisions
+     */
+    public RateLimitDecisionsEndpoint(RateLimitMetricsBinder metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns recent decisions, oldest first.
+     *
+     * @param after Cursor returned by the previous call; absent for the latest decisions
+     * @param limit Maximum number of decisions (default 100)
+     * @return The decisions and the cursor to continue from
+     */
+    @ReadOperation
+    public Map<String, Object> decisions(@Nullable Long after, @Nullable Integer limit) {
+        RecentDecisions recent = metrics.getRecentDecisions();
+        if (recent == null) {
+            return Map.of("error", "recent decisions are off (ratelimit.recent-decisions=0)");
+        }
+        int n = limit == null ? DEFAULT_LIMIT : Math.max(1, Math.min(limit, recent.capacity()));
+        List<RecentDecisions.Decision> page = after == null ? recent.latest(n) : recent.since(after, n);
+        List<Map<String, Object>> decisions = new ArrayList<>(page.size());
+        for (RecentDecisions.Decision d : page) decisions.add(view(d));
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("decisions", decisions);
+        out.put("cursor", page.isEmpty() ? (after == null ? recent.lastSeq() : after) : page.get(page.size() - 1).seq());
+        return out;
+    }
+
+    /**
+     * JSON view of a decision, shared with the server-sent event streams. The key hash is
+     * rendered in hex, since JSON numbers lose precision beyond 53 bits.
+     *
+     * @param d The decision
+     * @return The fields of the decision
+     */
+    public static Map<String, Object> view(RecentDecisions.Decision d) {
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("seq", d.seq());
+        out.put("time", Instant.ofEpochMilli(d.timeMillis()).toString());
+        out.put("route", d.route());
+        if (d.key() != null) out.put("key", d.key());
+        out.put("keyHash", Long.toHexString(d.keyHash()));
+        out.put("allowed", d.allowed());
+        out.put("remaining", d.remaining());
+        out.put("micros", d.durationNanos() / 1_000);
+        return out;
+    }
+}
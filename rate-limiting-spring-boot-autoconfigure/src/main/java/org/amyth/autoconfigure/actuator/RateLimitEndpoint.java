@@ -1,12 +1,20 @@
 package org.amyth.autoconfigure.actuator;
 
 import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.autoconfigure.metrics.RouteMeters;
+import org.amyth.autoconfigure.web.AdaptiveConcurrency;
+import org.amyth.core.api.RateLimitStore;
 import org.amyth.core.api.RateLimiter;
+import org.amyth.core.stats.HeavyHitters;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
 import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
 import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,6 +27,8 @@ public final class RateLimitEndpoint {
 
     private final RateLimiter limiter;
     private final RateLimitMetricsBinder metrics;
+    private final RateLimitStore store;
+    private final AdaptiveConcurrency adaptive;
 
     /**
      * Creates a new RateLimitEndpoint instance.
@@ -27,15 +37,42 @@ public final class RateLimitEndpoint {
      * @param metrics The metrics binder to collect rate limiting statistics
      */
     public RateLimitEndpoint(RateLimiter limiter, RateLimitMetricsBinder metrics) {
+        this(limiter, metrics, null);
+    }
+
+    /**
+     * Creates a new RateLimitEndpoint instance that also reports the store's statistics.
+     *
+     * @param limiter The rate limiter instance to expose metrics for
+     * @param metrics The metrics binder to collect rate limiting statistics
+     * @param store The store the limiter uses; may be null
+     */
+    public RateLimitEndpoint(RateLimiter limiter, RateLimitMetricsBinder metrics, RateLimitStore store) {
+        this(limiter, metrics, store, null);
+    }
+
+    /**
+     * Creates a new RateLimitEndpoint instance that also reports the adaptive in-flight limits.
+     *
+     * @param limiter The rate limiter instance to expose metrics for
+     * @param metrics The metrics binder to collect rate limiting statistics
+     * @param store The store the limiter uses; may be null
+     * @param adaptive The adaptive in-flight limits; may be null
+     */
+    public RateLimitEndpoint(RateLimiter limiter, RateLimitMetricsBinder metrics, RateLimitStore store,
+                             AdaptiveConcurrency adaptive) {
         this.limiter = limiter;
         this.metrics = metrics;
+        this.store = store;
+        this.adaptive = adaptive;
     }
 
     /**
      * Returns current rate limiting metrics and statistics.
      *
      * @return A map containing rate limit metrics including timestamp, backend type,
-     *         algorithm, and request counts
+     *         algorithm, request counts, per route the counts and heaviest keys, the
+     *         statistics of an in-memory store, and the current adaptive in-flight limits
      */
     @ReadOperation
     public Map<String, Object> info() {
@@ -45,6 +82,43 @@ public final class RateLimitEndpoint {
         out.put("algo", metrics.getAlgoTag());
         out.put("allowedTotal", metrics.getAllowedTotal());
         out.put("blockedTotal", metrics.getBlockedTotal());
+        List<Map<String, Object>> routes = new ArrayList<>();
+        for (RouteMeters r : metrics.getRoutes()) {
+            Map<String, Object> route = new LinkedHashMap<>();
+            route.put("route", r.getRoute());
+            route.put("rule", r.getRule());
+            route.put("allowed", r.getAllowed());
+            route.put("blocked", r.getBlocked());
+            route.put("nearLimit", r.getNearLimit());
+            RouteMeters.TopKeys top = r.topKeys();
+            route.put("topBlocked", keys(top.blocked()));
+            route.put("topConsumed", keys(top.consumed()));
+            routes.add(route);
+        }
+        out.put("routes", routes);
+        if (store instanceof CaffeineRateLimitStore caffeine) {
+            CaffeineRateLimitStore.Stats stats = caffeine.stats();
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("size", stats.size());
+            s.put("hits", stats.hits());
+            s.put("misses", stats.misses());
+            s.put("evictions", stats.evictions());
+            s.put("liveEvictions", stats.liveEvictions());
+            s.put("underCounting", stats.underCounting());
+            s.put("estimatedBytes", stats.estimatedBytes());
+            out.put("store", s);
+        }
+        if (adaptive != null) {
+            out.put("adaptive", adaptive.snapshot());
+        }
+        return out;
+    }
+
+    private static List<Map<String, Object>> keys(List<HeavyHitters.Estimate> top) {
+        List<Map<String, Object>> out = new ArrayList<>(top.size());
+        for (HeavyHitters.Estimate e : top) {
+            out.add(Map.of("key", e.key(), "count", e.count()));
+        }
         return out;
     }
 }
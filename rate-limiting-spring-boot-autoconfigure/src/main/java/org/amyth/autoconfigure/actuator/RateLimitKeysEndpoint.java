@@ -0,0 +1,139 @@
+package org.amyth.autoconfigure.actuator;
+
+import org.amyth.autoconfigure.RateLimitProperties;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.api.RateLimiter;
+import org.amyth.core.api.ScannableRateLimitStore;
+import org.amyth.core.model.KeyPage;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.WindowState;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.lang.Nullable;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Endpoint to inspect and administer individual rate limit keys.
+ *
+ * GET    /actuator/ratelimitkeys?cursor=&amp;count=               active keys, one page at a time
+ * GET    /actuator/ratelimitkeys/{key}?permits=&amp;window=       window state of a key under a rule
+ * DELETE /actuator/ratelimitkeys/{key}?permits=&amp;window=       reset (unblock) a key
+ *
+ * The rule defaults to ratelimit.default-permits / ratelimit.default-window. Listing asks
+ * the store for one bounded page per call (SCAN on Redis), so it is safe on a live system.
+ */
+@Endpoint(id = "ratelimitkeys")
+public final class RateLimitKeysEndpoint {
+
+    static final int DEFAULT_PAGE = 100;
+    static final int MAX_PAGE = 1_000;
+
+    private final RateLimiter limiter;
+    private final RateLimitStore store;
+    private final RateLimitProperties props;
+
+    /**
+     * Creates a new RateLimitKeysEndpoint instance.
+     *
+     * @param limiter The rate limiter whose keys are inspected and reset
+     * @param store The store holding the limiter's counters, used to list keys
+     * @param props Configuration properties providing the default rule
+     */
+    public RateLimitKeysEndpoint(RateLimiter limiter, RateLimitStore store, RateLimitProperties props) {
+        this.limiter = limiter;
+        this.store = store;
+        this.props = props;
+    }
+
+    /**
+     * Lists active keys. A key whose window spans several buckets appears once per page,
+     * but may appear again on a later page.
+     *
+     * @param cursor Cursor returned with the previous page; absent for the first page
+     * @param count Maximum number of buckets to read for this page (default 100, at most 1000)
+     * @return The keys of this page and the cursor of the next one (null when done)
+     * @throws InvalidEndpointRequestException (400) if the cursor is malformed or has expired
+     */
+    @ReadOperation
+    public Map<String, Object> keys(@Nullable String cursor, @Nullable Integer count) {
+        if (!(store instanceof ScannableRateLimitStore scannable)) {
+            return Map.of("error", store.getClass().getSimpleName() + " cannot list its keys");
+        }
+        int n = count == null ? DEFAULT_PAGE : Math.max(1, Math.min(count, MAX_PAGE));
+        KeyPage page;
+        try {
+            page = scannable.scan(cursor, n);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), "Invalid cursor; start over without one");
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (String bucketKey : page.bucketKeys()) {
+            String key = clientKey(bucketKey);
+            if (key != null) keys.add(key);
+        }
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("keys", List.copyOf(keys));
+        out.put("cursor", page.cursor());
+        return out;
+    }
+
+    /**
+     * Returns the live state of a key without consuming a permit.
+     *
+     * @param key The rate limit key, e.g. a client IP or API key
+     * @param permits Permits of the rule; defaults to ratelimit.default-permits
+     * @param window Window of the rule, e.g. {@code 1m}; defaults to ratelimit.default-window
+     * @return The current count, remaining permits and reset time
+     */
+    @ReadOperation
+    public Map<String, Object> key(@Selector String key, @Nullable Long permits, @Nullable String window) {
+        LimitRule rule = rule(permits, window);
+        WindowState state = limiter.peek(key, rule);
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("key", state.key());
+        out.put("permits", rule.permits());
+        out.put("window", rule.window().toString());
+        out.put("count", state.count());
+        out.put("remaining", state.remaining());
+        out.put("resetAt", state.resetAt().toString());
+        return out;
+    }
+
+    /**
+     * Clears the window of a key, so its next request starts with a full quota.
+     *
+     * @param key The rate limit key
+     * @param permits Permits of the rule; defaults to ratelimit.default-permits
+     * @param window Window of the rule, e.g. {@code 1m}; defaults to ratelimit.default-window
+     */
+    @DeleteOperation
+    public void reset(@Selector String key, @Nullable Long permits, @Nullable String window) {
+        limiter.reset(key, rule(permits, window));
+    }
+
+    private LimitRule rule(Long permits, String window) {
+        Duration w = window == null ? props.getDefaultWindow() : DurationStyle.detectAndParse(window);
+        return new LimitRule(permits == null ? props.getDefaultPermits() : permits, w);
+    }
+
+    /** {@code rl:{<key>}:<bucket>}, or the untagged {@code rl:<key>:<bucket>}, to {@code <key>}; null for anything else. */
+    static String clientKey(String bucketKey) {
+        if (!bucketKey.startsWith("rl:")) return null;
+        int colon = bucketKey.lastIndexOf(':');
+        if (colon <= 3) return null;
+        if (colon > 5 && bucketKey.charAt(3) == '{' && bucketKey.charAt(colon - 1) == '}') {
+            return bucketKey.substring(4, colon - 1);
+        }
+        return bucketKey.substring(3, colon);
+    }
+}
@@ -0,0 +1,316 @@
+package org.amyth.autoconfigure.aop;
+
+import org.amyth.autoconfigure.RateLimitProperties;
+import org.amyth.autoconfigure.jfr.RateLimitDecisionEvent;
+import org.amyth.autoconfigure.jfr.RateLimitEvents;
+import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.autoconfigure.metrics.RouteMeters;
+import org.amyth.autoconfigure.web.RateLimitWaiters;
+import org.amyth.core.annotation.RateLimit;
+import org.amyth.core.api.ConcurrencyLimiter;
+import org.amyth.core.api.LimitOutcome;
+import org.amyth.core.api.RateLimiter;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.amyth.core.pacing.RateLimitExceededException;
+import org.amyth.core.stats.RecentDecisions;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.reactivestreams.Publisher;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Enforces {@code @RateLimit} on the methods of Spring beans that are not web handlers:
+ * services, {@code @Scheduled} jobs, message listeners.
+ *
+ * Everything that does not depend on the arguments is resolved on the first call of a method
+ * and cached as its plan: the annotation (on the method or its class), the rule, the route
+ * meters, the parsed key expression with the parameter names it may refer to, and how the
+ * return type is handled. Key expressions are compiled to bytecode once they have run a few
+ * times ({@link SpelCompilerMode#MIXED}). A method without a key shares one limit among all
+ * its callers, counted under its plan name, e.g. {@code "OrderService.place"}, which is also
+ * its {@code route} tag.
+ *
+ * A call over the limit ends as the annotation's {@link LimitOutcome}. With {@code THROW} and
+ * {@code DROP} it may first wait up to {@code maxWait}; with {@code BLOCK} it waits up to
+ * {@code maxWait}, or {@code ratelimit.max-block-wait} when that is not set, and then fails as
+ * with {@code THROW}. Every wait takes a place in the same bounded wait queues as web
+ * requests, and a call that finds them full ends at once. Methods
+ * returning a Reactor, RxJava or {@code CompletableFuture} type are limited when their result
+ * is subscribed, and wait with {@code Mono.delay} instead of blocking the thread.
+ */
+public final class RateLimitMethodInterceptor implements MethodInterceptor {
+
+    /** How a method is limited; {@link #NONE} when it is not. */
+    private record Plan(String name, RateLimit rl, LimitRule rule, RouteMeters meters, Expression key,
+                        String[] parameterNames, Duration maxWait, ReactiveAdapter reactive, Object dropped) {
+        static final Plan NONE = new Plan(null, null, null, null, null, null, null, null, null);
+    }
+
+    private static final boolean REACTOR_PRESENT =
+            ClassUtils.isPresent("reactor.core.publisher.Flux", RateLimitMethodInterceptor.class.getClassLoader());
+
+    private final RateLimiter limiter;
+    private final RateLimitMetricsBinder metrics;
+    private final RateLimitWaiters waiters;
+    private final Duration maxBlockWait;
+    private final SpelExpressionParser spel = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, RateLimitMethodInterceptor.class.getClassLoader()));
+    private final DefaultParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final Map<MethodClassKey, Plan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new method interceptor.
+     *
+     * @param limiter The rate limiter implementation to use
+     * @param props Configuration properties for rate limiting
+     * @param metrics Metrics binder for collecting statistics
+     */
+    public RateLimitMethodInterceptor(RateLimiter limiter, RateLimitProperties props, RateLimitMetricsBinder metrics) {
+        this.limiter = limiter;
+        this.metrics = metrics;
+        this.waiters = new RateLimitWaiters(props.getMaxWaiting());
+        this.maxBlockWait = props.getMaxBlockWait();
+    }
+
+    @Override
+    @Nullable
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Plan plan = plan(invocation);
+        if (plan == Plan.NONE) return invocation.proceed();
+        if (plan.reactive() != null && REACTOR_PRESENT) return ReactiveLimits.limit(this, plan, invocation);
+
+        String key = resolveKey(plan, invocation);
+        if (key == null) return invocation.proceed();
+        long wait = admit(plan, key);
+        if (wait == 0) return invocation.proceed();
+        if (plan.rl().onLimit() == LimitOutcome.DROP) return plan.dropped();
+        throw new RateLimitExceededException(key, Duration.ofMillis(wait));
+    }
+
+    /**
+     * Records a call and, when it is over the limit, waits as far as its outcome allows.
+     *
+     * @return 0 when the call may proceed, otherwise how many milliseconds it would still have to wait
+     */
+    private long admit(Plan plan, String key) {
+        long decision = decide(plan, key);
+        if (PackedDecision.allowed(decision)) return 0;
+
+        ConcurrencyLimiter.Permit place = plan.maxWait() == null ? null : waiters.tryEnter(key, plan.rl().maxWaiting());
+        if (place == null) return retryAfterMillis(decision);
+
+        metrics.waitStarted();
+        try {
+            long next = awaitPermit(key, plan.rule(), System.currentTimeMillis() + plan.maxWait().toMillis());
+            if (next == RateLimitWaiters.ADMIT) metrics.incrementDelayed();
+            return -next;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return retryAfterMillis(decision);
+        } finally {
+            place.release();
+            metrics.waitEnded();
+        }
+    }
+
+    /**
+     * Parks the calling thread until it takes a permit or the deadline passes.
+     *
+     * @return {@link RateLimitWaiters#ADMIT}, or the negated milliseconds until the window may have room
+     */
+    private long awaitPermit(String key, LimitRule rule, long deadlineMillis) throws InterruptedException {
+        while (true) {
+            long next = RateLimitWaiters.poll(limiter, key, rule, System.currentTimeMillis(), deadlineMillis);
+            if (next <= 0) return next;
+            Thread.sleep(next);
+        }
+    }
+
+    private long decide(Plan plan, String key) {
+        RateLimitDecisionEvent event = RateLimitEvents.beginDecision();
+        long start = System.nanoTime();
+        // a call that may wait is only counted once it fits, so waiting does not fill the window
+        long decision = plan.maxWait() == null
+                ? limiter.decide(key, plan.rule()) : limiter.tryAcquire(key, plan.rule(), 1);
+        boolean allowed = PackedDecision.allowed(decision);
+        long remaining = PackedDecision.remaining(decision);
+
+        long nanos = System.nanoTime() - start;
+        metrics.recordDecision(nanos);
+        plan.meters().record(key, allowed, remaining);
+        RecentDecisions recent = metrics.getRecentDecisions();
+        if (recent != null && recent.sample(allowed)) {
+            recent.record(plan.name(), key, allowed, remaining, nanos);
+        }
+        if (event != null) {
+            RateLimitEvents.commitDecision(event, plan.name(), plan.meters().getRule(), metrics.getAlgoTag(),
+                    allowed, remaining);
+        }
+
+        if (allowed) {
+            metrics.incrementAllowed();
+        } else {
+            metrics.incrementBlocked();
+        }
+        return decision;
+    }
+
+    private static long retryAfterMillis(long decision) {
+        return Math.max(1, PackedDecision.resetEpochSecond(decision) * 1000 - System.currentTimeMillis());
+    }
+
+    /** The key of a call, or {@code null} (fail-open) when its expression yields nothing. */
+    @Nullable
+    private String resolveKey(Plan plan, MethodInvocation invocation) {
+        if (plan.key() == null) return plan.name();
+        long start = System.nanoTime();
+        String key = null;
+        try {
+            Object[] args = invocation.getArguments();
+            StandardEvaluationContext ctx = new StandardEvaluationContext(args);
+            ctx.setVariable("args", args);
+            String[] names = plan.parameterNames();
+            for (int i = 0; i < args.length; i++) {
+                if (names != null) ctx.setVariable(names[i], args[i]);
+                ctx.setVariable("p" + i, args[i]);
+                ctx.setVariable("a" + i, args[i]);
+            }
+            key = plan.key().getValue(ctx, String.class);
+        } catch (Exception ignored) {
+            // fail-open below, as web requests do
+        }
+        metrics.recordKeyResolution(System.nanoTime() - start);
+        if (StringUtils.hasText(key)) return key;
+        RateLimitEvents.fallback("key-resolution", "fail-open", plan.name());
+        return null;
+    }
+
+    /* ------------------ plans ------------------ */
+
+    private Plan plan(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Class<?> targetClass = invocation.getThis() == null ? method.getDeclaringClass()
+                : AopUtils.getTargetClass(invocation.getThis());
+        return plans.computeIfAbsent(new MethodClassKey(method, targetClass), k -> plan(method, targetClass));
+    }
+
+    private Plan plan(Method method, Class<?> targetClass) {
+        Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+        RateLimit rl = AnnotatedElementUtils.findMergedAnnotation(specific, RateLimit.class);
+        if (rl == null) rl = AnnotatedElementUtils.findMergedAnnotation(targetClass, RateLimit.class);
+        if (rl == null) return Plan.NONE;
+
+        String name = ClassUtils.getShortName(ClassUtils.getUserClass(targetClass)) + "." + method.getName();
+        LimitRule rule = new LimitRule(rl.permits(), Duration.of(rl.window(), rl.unit().toChronoUnit()));
+        Expression key = StringUtils.hasText(rl.key()) ? spel.parseExpression(rl.key()) : null;
+        Duration maxWait = rl.maxWait() > 0 ? Duration.of(rl.maxWait(), rl.maxWaitUnit().toChronoUnit())
+                : rl.onLimit() == LimitOutcome.BLOCK ? maxBlockWait : null;
+        ReactiveAdapter reactive = REACTOR_PRESENT
+                ? ReactiveAdapterRegistry.getSharedInstance().getAdapter(method.getReturnType()) : null;
+        return new Plan(name, rl, rule, metrics.route(name, rule), key, parameterNames.getParameterNames(specific),
+                maxWait, reactive, dropped(method.getReturnType()));
+    }
+
+    /** What a dropped call returns: an empty {@code Optional}, the primitive default or {@code null}. */
+    @Nullable
+    private static Object dropped(Class<?> type) {
+        if (type == Optional.class) return Optional.empty();
+        if (type.isPrimitive() && type != void.class) return Array.get(Array.newInstance(type, 1), 0);
+        return null;
+    }
+
+    /** The reactive path, kept apart so that Reactor is only loaded when it is on the classpath. */
+    private static final class ReactiveLimits {
+
+        static Object limit(RateLimitMethodInterceptor owner, Plan plan, MethodInvocation invocation) {
+            ReactiveAdapter adapter = plan.reactive();
+            Mono<Boolean> admission = Mono.defer(() -> {
+                String key = owner.resolveKey(plan, invocation);
+                return key == null ? Mono.just(Boolean.TRUE) : admit(owner, plan, key);
+            });
+            Publisher<?> limited = adapter.isMultiValue()
+                    ? admission.flatMapMany(admitted -> admitted ? Flux.from(proceed(adapter, invocation)) : Flux.empty())
+                    : admission.flatMap(admitted -> admitted ? Mono.from(proceed(adapter, invocation)) : Mono.empty());
+            return adapter.fromPublisher(limited);
+        }
+
+        /** Completes with whether the call proceeds, or fails with {@link RateLimitExceededException}. */
+        private static Mono<Boolean> admit(RateLimitMethodInterceptor owner, Plan plan, String key) {
+            long decision = owner.decide(plan, key);
+            if (PackedDecision.allowed(decision)) return Mono.just(Boolean.TRUE);
+
+            ConcurrencyLimiter.Permit place = plan.maxWait() == null
+                    ? null : owner.waiters.tryEnter(key, plan.rl().maxWaiting());
+            if (place == null) return giveUp(plan, key, retryAfterMillis(decision));
+
+            owner.metrics.waitStarted();
+            long deadline = System.currentTimeMillis() + plan.maxWait().toMillis();
+            AtomicBoolean waiting = new AtomicBoolean(true);
+            Runnable leave = () -> {
+                if (waiting.compareAndSet(true, false)) {
+                    place.release();
+                    owner.metrics.waitEnded();
+                }
+            };
+            // leave the queue before an admitted call proceeds, or when the wait fails or is cancelled
+            return awaitPermit(owner.limiter, key, plan.rule(), deadline)
+                    .doOnSuccess(next -> leave.run())
+                    .doFinally(signal -> leave.run())
+                    .flatMap(next -> {
+                        if (next != RateLimitWaiters.ADMIT) return giveUp(plan, key, -next);
+                        owner.metrics.incrementDelayed();
+                        return Mono.just(Boolean.TRUE);
+                    });
+        }
+
+        private static Mono<Boolean> giveUp(Plan plan, String key, long waitMillis) {
+            if (plan.rl().onLimit() == LimitOutcome.DROP) return Mono.just(Boolean.FALSE);
+            return Mono.error(new RateLimitExceededException(key, Duration.ofMillis(waitMillis)));
+        }
+
+        /** Polls the key's window each time a bucket slides out, until the call takes a permit or the deadline passes. */
+        private static Mono<Long> awaitPermit(RateLimiter limiter, String key, LimitRule rule, long deadlineMillis) {
+            return Mono.defer(() -> {
+                long next = RateLimitWaiters.poll(limiter, key, rule, System.currentTimeMillis(), deadlineMillis);
+                if (next <= 0) return Mono.just(next);
+                return Mono.delay(Duration.ofMillis(next)).then(awaitPermit(limiter, key, rule, deadlineMillis));
+            });
+        }
+
+        /** Invokes the method; a copy of the invocation, so that each subscription calls it afresh. */
+        private static Publisher<?> proceed(ReactiveAdapter adapter, MethodInvocation invocation) {
+            try {
+                MethodInvocation call = invocation instanceof ProxyMethodInvocation pmi ? pmi.invocableClone() : invocation;
+                Object result = call.proceed();
+                return result == null ? Mono.empty() : adapter.toPublisher(result);
+            } catch (Throwable e) {
+                return Mono.error(e);
+            }
+        }
+    }
+}
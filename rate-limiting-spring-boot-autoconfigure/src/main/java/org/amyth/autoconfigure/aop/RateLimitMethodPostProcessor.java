@@ -0,0 +1,58 @@
+package org.amyth.autoconfigure.aop;
+
+import org.amyth.core.annotation.RateLimit;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.function.SingletonSupplier;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.Supplier;
+
+/**
+ * Proxies the beans that have {@code @RateLimit} methods, or carry it on their class, so that
+ * {@link RateLimitMethodInterceptor} limits calls to them.
+ *
+ * Controllers are left alone: their handler methods are limited per request by the MVC
+ * interceptor or the WebFlux filter, which know the client and answer with an HTTP status.
+ * A class-level annotation applies to the public methods of the class, not to those
+ * inherited from {@code Object}.
+ *
+ * The interceptor is created on the first limited call, so that the limiter and its store
+ * are not initialized as early as bean post-processors are.
+ */
+public class RateLimitMethodPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+    /**
+     * Creates the post-processor.
+     *
+     * @param interceptor Creates the interceptor, called once on the first limited call
+     */
+    public RateLimitMethodPostProcessor(Supplier<RateLimitMethodInterceptor> interceptor) {
+        SingletonSupplier<RateLimitMethodInterceptor> lazy = SingletonSupplier.of(interceptor);
+        MethodInterceptor advice = invocation -> lazy.obtain().invoke(invocation);
+        this.advisor = new DefaultPointcutAdvisor(new RateLimitedMethods(), advice);
+    }
+
+    /** Matches the {@code @RateLimit} methods of beans that are not controllers. */
+    private static final class RateLimitedMethods extends StaticMethodMatcherPointcut {
+
+        RateLimitedMethods() {
+            setClassFilter(type -> !AnnotatedElementUtils.hasAnnotation(type, Controller.class));
+        }
+
+        @Override
+        public boolean matches(@NonNull Method method, @NonNull Class<?> targetClass) {
+            Method specific = AopUtils.getMostSpecificMethod(method, targetClass);
+            if (AnnotatedElementUtils.hasAnnotation(specific, RateLimit.class)) return true;
+            return method.getDeclaringClass() != Object.class && Modifier.isPublic(method.getModifiers())
+                    && AnnotatedElementUtils.hasAnnotation(targetClass, RateLimit.class);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.amyth.autoconfigure.client;
+
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.pacing.RateLimitExceededException;
+import org.amyth.core.pacing.RateLimitPacer;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.lang.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Paces the outgoing calls of a {@code RestClient} or {@code RestTemplate} under a partner's
+ * quota.
+ *
+ * Each call waits on the calling thread until the {@link RateLimitPacer} gives it a permit,
+ * and fails with {@link RateLimitExceededException} if that takes longer than the maximum
+ * wait. With a central store (Redis, sharded Redis) the quota is shared by every instance;
+ * see {@link RateLimitPacer} for stores that sync in the background.
+ *
+ * <pre>{@code
+ * RestClient partner = RestClient.builder()
+ *         .baseUrl("https://api.partner.example")
+ *         .requestInterceptor(new RateLimitClientInterceptor(pacer, "out:partner",
+ *                 new LimitRule(100, Duration.ofSeconds(1)), Duration.ofSeconds(2)))
+ *         .build();
+ * }</pre>
+ */
+public final class RateLimitClientInterceptor implements ClientHttpRequestInterceptor {
+
+    private final RateLimitPacer pacer;
+    private final Function<HttpRequest, String> keys;
+    private final LimitRule rule;
+    private final Duration maxWait;
+
+    /**
+     * Creates an interceptor counting every call under one key.
+     *
+     * @param pacer The pacer counting the calls
+     * @param key The rate limit key of the quota, kept apart from the keys of incoming requests
+     * @param rule The partner's limit
+     * @param maxWait The longest a call may wait for a permit
+     */
+    public RateLimitClientInterceptor(RateLimitPacer pacer, String key, LimitRule rule, Duration maxWait) {
+        this(pacer, request -> key, rule, maxWait);
+    }
+
+    /**
+     * Creates an interceptor counting calls under a key derived from each request, e.g. its host.
+     *
+     * @param pacer The pacer counting the calls
+     * @param keys Resolves the rate limit key of a request
+     * @param rule The partner's limit, per key
+     * @param maxWait The longest a call may wait for a permit
+     */
+    public RateLimitClientInterceptor(RateLimitPacer pacer, Function<HttpRequest, String> keys, LimitRule rule,
+                                      Duration maxWait) {
+        this.pacer = Objects.requireNonNull(pacer, "pacer");
+        this.keys = Objects.requireNonNull(keys, "keys");
+        this.rule = Objects.requireNonNull(rule, "rule");
+        this.maxWait = Objects.requireNonNull(maxWait, "maxWait");
+    }
+
+    @Override
+    public @NonNull ClientHttpResponse intercept(@NonNull HttpRequest request, @NonNull byte[] body,
+                                                 @NonNull ClientHttpRequestExecution execution) throws IOException {
+        try {
+            pacer.acquire(keys.apply(request), rule, maxWait);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a rate limit permit");
+        }
+        return execution.execute(request, body);
+    }
+}
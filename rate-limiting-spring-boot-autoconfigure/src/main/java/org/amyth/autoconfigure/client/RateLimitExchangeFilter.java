@@ -0,0 +1,87 @@
+package org.amyth.autoconfigure.client;
+
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.pacing.RateLimitExceededException;
+import org.amyth.core.pacing.RateLimitPacer;
+import org.springframework.lang.NonNull;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Paces the outgoing calls of a {@code WebClient} under a partner's quota.
+ *
+ * Each exchange is delayed with {@code Mono.delay}, holding no thread, until the
+ * {@link RateLimitPacer} gives it a permit, and fails with {@link RateLimitExceededException}
+ * if that takes longer than the maximum wait. The permit is taken on subscription, so a
+ * retried exchange is counted again. With a central store (Redis, sharded Redis) the quota is
+ * shared by every instance; see {@link RateLimitPacer} for stores that sync in the background.
+ *
+ * <pre>{@code
+ * WebClient partner = WebClient.builder()
+ *         .baseUrl("https://api.partner.example")
+ *         .filter(new RateLimitExchangeFilter(pacer, "out:partner",
+ *                 new LimitRule(100, Duration.ofSeconds(1)), Duration.ofSeconds(2)))
+ *         .build();
+ * }</pre>
+ */
+public final class RateLimitExchangeFilter implements ExchangeFilterFunction {
+
+    private final RateLimitPacer pacer;
+    private final Function<ClientRequest, String> keys;
+    private final LimitRule rule;
+    private final Duration maxWait;
+
+    /**
+     * Creates a filter counting every call under one key.
+     *
+     * @param pacer The pacer counting the calls
+     * @param key The rate limit key of the quota, kept apart from the keys of incoming requests
+     * @param rule The partner's limit
+     * @param maxWait The longest a call may wait for a permit
+     */
+    public RateLimitExchangeFilter(RateLimitPacer pacer, String key, LimitRule rule, Duration maxWait) {
+        this(pacer, request -> key, rule, maxWait);
+    }
+
+    /**
+     * Creates a filter counting calls under a key derived from each request, e.g. its host.
+     *
+     * @param pacer The pacer counting the calls
+     * @param keys Resolves the rate limit key of a request
+     * @param rule The partner's limit, per key
+     * @param maxWait The longest a call may wait for a permit
+     */
+    public RateLimitExchangeFilter(RateLimitPacer pacer, Function<ClientRequest, String> keys, LimitRule rule,
+                                   Duration maxWait) {
+        this.pacer = Objects.requireNonNull(pacer, "pacer");
+        this.keys = Objects.requireNonNull(keys, "keys");
+        this.rule = Objects.requireNonNull(rule, "rule");
+        this.maxWait = Objects.requireNonNull(maxWait, "maxWait");
+    }
+
+    @Override
+    public @NonNull Mono<ClientResponse> filter(@NonNull ClientRequest request, @NonNull ExchangeFunction next) {
+        return Mono.defer(() -> {
+            String key = keys.apply(request);
+            Duration wait = pacer.reserve(key, rule);
+            if (wait.isZero()) return next.exchange(request);
+            long deadline = pacer.getClock().millis() + maxWait.toMillis();
+            return awaitTurn(key, wait, deadline).then(Mono.defer(() -> next.exchange(request)));
+        });
+    }
+
+    private Mono<Void> awaitTurn(String key, Duration wait, long deadlineMillis) {
+        if (wait.isZero()) return Mono.empty();
+        if (pacer.getClock().millis() + wait.toMillis() > deadlineMillis) {
+            return Mono.error(new RateLimitExceededException(key, wait));
+        }
+        return Mono.delay(wait).then(Mono.defer(() -> awaitTurn(key, pacer.reserve(key, rule), deadlineMillis)));
+    }
+}
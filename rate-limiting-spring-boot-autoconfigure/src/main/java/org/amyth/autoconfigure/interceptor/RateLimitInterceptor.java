@@ -1,37 +1,98 @@
 package org.amyth.autoconfigure.interceptor;
 
 import org.amyth.autoconfigure.RateLimitProperties;
+import org.amyth.autoconfigure.jfr.RateLimitDecisionEvent;
+import org.amyth.autoconfigure.jfr.RateLimitEvents;
 import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.autoconfigure.metrics.RouteMeters;
+import org.amyth.autoconfigure.web.AdaptiveConcurrency;
+import org.amyth.autoconfigure.web.RateLimitHeaders;
+import org.amyth.autoconfigure.web.RateLimitWaiters;
+import org.amyth.core.annotation.ConcurrencyLimit;
 import org.amyth.core.annotation.RateLimit;
+import org.amyth.core.api.ConcurrencyLimiter;
 import org.amyth.core.api.KeyStrategy;
 import org.amyth.core.api.RateLimiter;
-import org.amyth.core.model.HitResult;
+import org.amyth.core.concurrency.AdaptiveConcurrencyLimiter;
+import org.amyth.core.concurrency.LocalConcurrencyLimiter;
+import org.amyth.core.keys.SubnetKeyResolver;
 import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.amyth.core.stats.RecentDecisions;
+import org.springframework.core.annotation.AnnotatedElementUtils;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.http.MediaType;
 import org.springframework.lang.NonNull;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
 import java.security.Principal;
 import java.time.Duration;
-import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Spring MVC interceptor that enforces @RateLimit on controller methods/classes.
+ *
+ * The annotation, rule, route meters and header values of each handler method are
+ * resolved once (at startup through {@link #bindRoute}, or on the first request) and
+ * cached. The limiter's answer is read as a packed long through {@link RateLimiter#decide},
+ * so deciding a request creates no result objects.
+ *
+ * A {@code @ConcurrencyLimit} permit is taken after the rate limit check and kept in a
+ * request attribute until {@link #afterCompletion}. For async handlers (SSE emitters,
+ * {@code DeferredResult}, {@code Callable}) that is the end of the async dispatch, so the
+ * permit is held for as long as the stream is open; the async dispatch itself is not
+ * limited or counted again.
+ *
+ * A request over a {@code @RateLimit(maxWait = ...)} limit takes a place in its key's
+ * bounded wait queue and parks its thread until the window has room for it or the wait
+ * would exceed {@code maxWait}; only then is it rejected. Parking is cheap on virtual
+ * threads ({@code spring.threads.virtual.enabled}).
+ *
+ * With an {@link AdaptiveConcurrency}, every handler method that does not stream its
+ * response takes a permit of its adaptive limiter once past the rate limit, so that time
+ * spent waiting for a rate limit permit is not mistaken for handler latency, and reports
+ * its latency when it completes. Requests turned away by {@code @ConcurrencyLimit} give
+ * the permit back without a sample, since their latency says nothing about the handler.
  */
 public final class RateLimitInterceptor implements HandlerInterceptor {
 
+    /** What a handler method is limited by; {@link #NONE} when it is not limited at all. */
+    private record Route(RateLimit rl, LimitRule rule, RouteMeters meters, RateLimitHeaders headers,
+                         SubnetKeyResolver rlSubnets, ConcurrencyLimit cl, Duration lease,
+                         SubnetKeyResolver clSubnets, String tag, AdaptiveConcurrencyLimiter adaptive,
+                         Duration maxWait) {
+        static final Route NONE = new Route(null, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    private static final String PERMIT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".PERMIT";
+    private static final String ADAPTIVE_PERMIT_ATTRIBUTE = RateLimitInterceptor.class.getName() + ".ADAPTIVE_PERMIT";
+
     private final RateLimiter limiter;
+    private final ConcurrencyLimiter concurrency;
     private final RateLimitProperties props;
     private final RateLimitMetricsBinder metrics;
+    private final AdaptiveConcurrency adaptive;
+    private final RateLimitWaiters waiters;
     private final ExpressionParser spel = new SpelExpressionParser();
+    private final Map<Method, Route> routes = new ConcurrentHashMap<>();
+    private final SubnetKeyResolver subnets;
 
     /**
      * Creates a new rate limit interceptor.
@@ -41,62 +102,271 @@ public final class RateLimitInterceptor implements HandlerInterceptor {
      * @param metrics Metrics binder for collecting statistics
      */
     public RateLimitInterceptor(RateLimiter limiter, RateLimitProperties props, RateLimitMetricsBinder metrics) {
+        this(limiter, new LocalConcurrencyLimiter(), props, metrics);
+    }
+
+    /**
+     * Creates a new rate limit interceptor that also enforces {@code @ConcurrencyLimit}.
+     *
+     * @param limiter The rate limiter implementation to use
+     * @param concurrency The limiter of requests in flight
+     * @param props Configuration properties for rate limiting
+     * @param metrics Metrics binder for collecting statistics
+     */
+    public RateLimitInterceptor(RateLimiter limiter, ConcurrencyLimiter concurrency, RateLimitProperties props,
+                                RateLimitMetricsBinder metrics) {
+        this(limiter, concurrency, null, props, metrics);
+    }
+
+    /**
+     * Creates a new rate limit interceptor that also keeps requests in flight within a
+     * limit adapted to their latency.
+     *
+     * @param limiter The rate limiter implementation to use
+     * @param concurrency The limiter of requests in flight
+     * @param adaptive The adaptive in-flight limits; may be null
+     * @param props Configuration properties for rate limiting
+     * @param metrics Metrics binder for collecting statistics
+     */
+    public RateLimitInterceptor(RateLimiter limiter, ConcurrencyLimiter concurrency, AdaptiveConcurrency adaptive,
+                                RateLimitProperties props, RateLimitMetricsBinder metrics) {
         this.limiter = limiter;
+        this.concurrency = concurrency;
+        this.adaptive = adaptive;
         this.props = props;
         this.metrics = metrics;
+        this.waiters = new RateLimitWaiters(props.getMaxWaiting());
+        this.subnets = new SubnetKeyResolver(props.getSubnetIpv4Prefix(), props.getSubnetIpv6Prefix());
     }
 
     @Override
     public boolean preHandle(@NonNull HttpServletRequest request,
                              @NonNull HttpServletResponse response,
                              @NonNull Object handler) throws Exception {
-        System.out.println("RateLimitInterceptor: preHandle called");
         if (!(handler instanceof HandlerMethod hm)) {
             return true; // not a controller method
         }
 
-        RateLimit rl = resolveAnnotation(hm);
-        if (rl == null) {
-            return true; // no annotation -> skip
+        Route route = routes.get(hm.getMethod());
+        if (route == null) {
+            route = routes.computeIfAbsent(hm.getMethod(), m -> route(hm, request.getMethod() + " "
+                    + request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE)));
         }
+        if (route == Route.NONE || request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true; // not limited, or the async dispatch of a request already admitted
+        }
+        if (route.rl() != null && !rateLimit(request, response, route)) {
+            return false; // short-circuit with 429
+        }
+        if (route.adaptive() != null && !admit(request, response, route.adaptive())) {
+            return false; // short-circuit, overloaded
+        }
+        if (route.cl() != null && !acquire(request, response, route)) {
+            ignoreAdaptivePermit(request);
+            return false;
+        }
+        return true;
+    }
 
-        String key = resolveKey(request, rl);
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request,
+                                @NonNull HttpServletResponse response,
+                                @NonNull Object handler, @Nullable Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) instanceof ConcurrencyLimiter.Permit permit) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permit.release();
+            metrics.concurrencyReleased();
+        }
+        if (request.getAttribute(ADAPTIVE_PERMIT_ATTRIBUTE) instanceof AdaptiveConcurrencyLimiter.Permit permit) {
+            request.removeAttribute(ADAPTIVE_PERMIT_ATTRIBUTE);
+            permit.release();
+        }
+    }
+
+    private boolean admit(HttpServletRequest request, HttpServletResponse response, AdaptiveConcurrencyLimiter limiter) {
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire();
+        if (permit == null) {
+            response.setStatus(adaptive.getHttpStatus());
+            return false;
+        }
+        request.setAttribute(ADAPTIVE_PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    private static void ignoreAdaptivePermit(HttpServletRequest request) {
+        if (request.getAttribute(ADAPTIVE_PERMIT_ATTRIBUTE) instanceof AdaptiveConcurrencyLimiter.Permit permit) {
+            request.removeAttribute(ADAPTIVE_PERMIT_ATTRIBUTE);
+            permit.ignore();
+        }
+    }
+
+    private boolean rateLimit(HttpServletRequest request, HttpServletResponse response, Route route) {
+        RateLimit rl = route.rl();
+        RateLimitDecisionEvent event = RateLimitEvents.beginDecision();
+        long start = System.nanoTime();
+        String key = resolveKey(request, rl.key(), rl.strategy(), rl.strategyArg(), route.rlSubnets());
+        metrics.recordKeyResolution(System.nanoTime() - start);
         if (!StringUtils.hasText(key)) {
             // fail-open if key can't be resolved (you could make this configurable)
+            RateLimitEvents.fallback("key-resolution", "fail-open", route.meters().getRoute());
             return true;
         }
 
-        LimitRule rule = new LimitRule(rl.permits(), Duration.of(rl.window(), rl.unit().toChronoUnit()));
-        HitResult hr = limiter.hit(key, rule);
+        long decision = decide(response, route, key, event, start);
+        if (PackedDecision.allowed(decision)) return true; // continue to controller
+
+        long resetEpochSecond = PackedDecision.resetEpochSecond(decision);
+        ConcurrencyLimiter.Permit place = route.maxWait() == null ? null : waiters.tryEnter(key, rl.maxWaiting());
+        if (place != null) {
+            metrics.waitStarted();
+            try {
+                long next = awaitPermit(key, route.rule(), System.currentTimeMillis() + route.maxWait().toMillis());
+                if (next == RateLimitWaiters.ADMIT) {
+                    metrics.incrementDelayed();
+                    return true;
+                }
+                resetEpochSecond = Math.floorDiv(System.currentTimeMillis() - next, 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                place.release();
+                metrics.waitEnded();
+            }
+        }
+        if (rl.sendHeaders()) {
+            long retryAfter = Math.max(0, resetEpochSecond - System.currentTimeMillis() / 1000);
+            response.setHeader(RateLimitHeaders.RETRY_AFTER, RateLimitHeaders.count(retryAfter));
+        }
+        response.setStatus(rl.httpStatus());
+        // body is optional; headers provide the details
+        return false;
+    }
 
-        writeHeaders(response, rl, hr, rule);
+    /**
+     * Parks the request thread until it takes a permit or the deadline passes, polling the
+     * window each time a bucket slides out. On a virtual thread parking frees the carrier;
+     * on a platform thread the wait queues bound how many are held.
+     *
+     * @return {@link RateLimitWaiters#ADMIT}, or the negated milliseconds until the window may have room
+     */
+    private long awaitPermit(String key, LimitRule rule, long deadlineMillis) throws InterruptedException {
+        while (true) {
+            long next = RateLimitWaiters.poll(limiter, key, rule, System.currentTimeMillis(), deadlineMillis);
+            if (next <= 0) return next;
+            Thread.sleep(next);
+        }
+    }
+
+    private long decide(HttpServletResponse response, Route route, String key, RateLimitDecisionEvent event,
+                        long start) {
+        RateLimit rl = route.rl();
+        LimitRule rule = route.rule();
+        // a request that may wait is only counted once it fits, so waiting does not fill the window
+        long decision = route.maxWait() == null ? limiter.decide(key, rule) : limiter.tryAcquire(key, rule, 1);
+        boolean allowed = PackedDecision.allowed(decision);
+        long remaining = PackedDecision.remaining(decision);
+
+        writeHeaders(response, rl, route.headers(), decision);
+        long nanos = System.nanoTime() - start;
+        metrics.recordDecision(nanos);
+        route.meters().record(key, allowed, remaining);
+        RecentDecisions recent = metrics.getRecentDecisions();
+        if (recent != null && recent.sample(allowed)) {
+            recent.record(route.meters().getRoute(), key, allowed, remaining, nanos);
+        }
+        if (event != null) {
+            RateLimitEvents.commitDecision(event, route.meters().getRoute(), route.meters().getRule(),
+                    metrics.getAlgoTag(), allowed, remaining);
+        }
 
-        if (hr.allowed()) {
+        if (allowed) {
             metrics.incrementAllowed();
-            return true; // continue to controller
         } else {
             metrics.incrementBlocked();
-            response.setStatus(rl.httpStatus());
-            // body is optional; headers provide the details
-            return false; // short-circuit with 429
         }
+        return decision;
+    }
+
+    private boolean acquire(HttpServletRequest request, HttpServletResponse response, Route route) {
+        ConcurrencyLimit cl = route.cl();
+        String key = resolveKey(request, cl.key(), cl.strategy(), cl.strategyArg(), route.clSubnets());
+        if (!StringUtils.hasText(key)) {
+            RateLimitEvents.fallback("key-resolution", "fail-open", route.tag());
+            return true;
+        }
+        ConcurrencyLimiter.Permit permit = concurrency.tryAcquire(key, cl.permits(), route.lease());
+        if (permit == null) {
+            metrics.incrementConcurrencyRejected();
+            response.setStatus(cl.httpStatus());
+            return false;
+        }
+        metrics.concurrencyAcquired();
+        request.setAttribute(PERMIT_ATTRIBUTE, permit);
+        return true;
+    }
+
+    /**
+     * Resolves the rule and registers the route meters of a handler method ahead of the
+     * first request. Does nothing for methods that are not limited.
+     *
+     * @param hm The handler method
+     * @param route The route tag, e.g. {@code "GET /api/orders"}
+     */
+    public void bindRoute(HandlerMethod hm, String route) {
+        routes.computeIfAbsent(hm.getMethod(), m -> route(hm, route));
     }
 
     /* ------------------ helpers ------------------ */
 
-    private RateLimit resolveAnnotation(HandlerMethod hm) {
-        RateLimit rl = hm.getMethodAnnotation(RateLimit.class);
-        if (rl != null) return rl;
-        return hm.getBeanType().getAnnotation(RateLimit.class);
+    private Route route(HandlerMethod hm, String route) {
+        RateLimit rl = resolveAnnotation(hm, RateLimit.class);
+        ConcurrencyLimit cl = resolveAnnotation(hm, ConcurrencyLimit.class);
+        AdaptiveConcurrencyLimiter al = null;
+        if (adaptive != null) {
+            adaptive.register(route, isStreaming(hm));
+            al = adaptive.limiter(route);
+        }
+        if (rl == null && cl == null && al == null) return Route.NONE;
+        Duration lease = cl == null ? null : Duration.of(cl.lease(), cl.leaseUnit().toChronoUnit());
+        SubnetKeyResolver clSubnets = cl == null ? null : subnets(route, cl.strategy(), cl.strategyArg());
+        if (rl == null) return new Route(null, null, null, null, null, cl, lease, clSubnets, route, al, null);
+        LimitRule rule = new LimitRule(rl.permits(), Duration.of(rl.window(), rl.unit().toChronoUnit()));
+        Duration maxWait = rl.maxWait() > 0 ? Duration.of(rl.maxWait(), rl.maxWaitUnit().toChronoUnit()) : null;
+        return new Route(rl, rule, metrics.route(route, rule), new RateLimitHeaders(rule.permits()),
+                subnets(route, rl.strategy(), rl.strategyArg()), cl, lease, clSubnets, route, al, maxWait);
     }
 
-    private String resolveKey(HttpServletRequest request, RateLimit rl) {
+    private static boolean isStreaming(HandlerMethod hm) {
+        if (ResponseBodyEmitter.class.isAssignableFrom(hm.getReturnType().getParameterType())) return true;
+        RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(hm.getMethod(), RequestMapping.class);
+        if (mapping == null || mapping.produces().length == 0) return false;
+        return AdaptiveConcurrency.isStreaming(MediaType.parseMediaTypes(List.of(mapping.produces())));
+    }
+
+    private static <A extends Annotation> A resolveAnnotation(HandlerMethod hm, Class<A> type) {
+        A a = hm.getMethodAnnotation(type);
+        if (a != null) return a;
+        return hm.getBeanType().getAnnotation(type);
+    }
+
+    /** The resolver of a {@code SUBNET} limit, with the prefixes of its {@code strategyArg}; null for other strategies. */
+    private SubnetKeyResolver subnets(String route, KeyStrategy strategy, String arg) {
+        if (strategy != KeyStrategy.SUBNET) return null;
+        try {
+            return subnets.withPrefixes(arg);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid strategyArg of " + route + ": " + e.getMessage(), e);
+        }
+    }
+
+    private String resolveKey(HttpServletRequest request, String keyExpression, KeyStrategy strategy, String arg,
+                              SubnetKeyResolver subnets) {
         // 1) SpEL (highest precedence)
-        if (StringUtils.hasText(rl.key())) {
+        if (StringUtils.hasText(keyExpression)) {
             try {
                 StandardEvaluationContext ctx = new StandardEvaluationContext();
                 ctx.setVariable("request", request);
-                Expression exp = spel.parseExpression(rl.key());
+                Expression exp = spel.parseExpression(keyExpression);
                 String v = exp.getValue(ctx, String.class);
                 if (StringUtils.hasText(v)) {
                     return v;
@@ -107,11 +377,9 @@ public final class RateLimitInterceptor implements HandlerInterceptor {
         }
 
         // 2) Strategy-based
-        KeyStrategy strategy = rl.strategy();
-        String arg = rl.strategyArg();
-
         return switch (strategy) {
             case IP -> clientIp(request);
+            case SUBNET -> subnets.key(clientIp(request));
             case COOKIE -> {
                 if (!StringUtils.hasText(arg)) yield "nocookie";
                 var cookies = request.getCookies();
@@ -156,14 +424,11 @@ public final class RateLimitInterceptor implements HandlerInterceptor {
         return v != null ? v : "";
     }
 
-    private void writeHeaders(HttpServletResponse response, RateLimit rl, HitResult hr, LimitRule rule) {
+    private void writeHeaders(HttpServletResponse response, RateLimit rl, RateLimitHeaders headers, long decision) {
         if (!rl.sendHeaders()) return;
-        response.setHeader("X-RateLimit-Limit", String.valueOf(rule.permits()));
-        response.setHeader("X-RateLimit-Remaining", String.valueOf(hr.remaining()));
-        response.setHeader("X-RateLimit-Reset", String.valueOf(hr.resetAt().getEpochSecond()));
-        if (!hr.allowed()) {
-            long retryAfter = Math.max(0, hr.resetAt().getEpochSecond() - Instant.now().getEpochSecond());
-            response.setHeader("Retry-After", String.valueOf(retryAfter));
-        }
+        long reset = PackedDecision.resetEpochSecond(decision);
+        response.setHeader(RateLimitHeaders.LIMIT, headers.limit());
+        response.setHeader(RateLimitHeaders.REMAINING, RateLimitHeaders.count(PackedDecision.remaining(decision)));
+        response.setHeader(RateLimitHeaders.RESET, headers.reset(reset));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+package org.amyth.autoconfigure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One rate limit decision: key resolution, limiter call and headers, as timed by
+ * {@code ratelimit.decision}. Created through {@link RateLimitEvents#beginDecision()}.
+ */
+@Name(RateLimitEvents.PREFIX + "Decision")
+@Label("Rate Limit Decision")
+@Category(RateLimitEvents.CATEGORY)
+@Description("Whether a request was allowed, and how long the decision took")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class RateLimitDecisionEvent extends Event {
+
+    @Label("Route")
+    String route;
+
+    @Label("Rule")
+    String rule;
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Allowed")
+    boolean allowed;
+
+    @Label("Remaining")
+    @Description("Permits left in the window after this request")
+    long remaining;
+
+    RateLimitDecisionEvent() {
+    }
+}
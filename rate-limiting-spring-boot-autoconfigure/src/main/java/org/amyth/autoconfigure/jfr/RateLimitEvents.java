@@ -0,0 +1,117 @@
+package org.amyth.autoconfigure.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+
+/**
+ * Java Flight Recorder events of the rate limiter, so that limiter latency can be lined
+ * up with GC pauses and lock contention in the same recording.
+ *
+ * Every {@code begin*} method returns null unless a recording has the event enabled,
+ * so the cost outside a recording is one branch and no allocation:
+ * <pre>
+ * RateLimitDecisionEvent event = RateLimitEvents.beginDecision();
+ * ...
+ * if (event != null) RateLimitEvents.commitDecision(event, route, rule, algo, allowed, remaining);
+ * </pre>
+ * Decision and store events carry a 1 ms threshold by default; lower it in the recording
+ * settings to see every call.
+ */
+public final class RateLimitEvents {
+
+    static final String PREFIX = "org.amyth.ratelimit.";
+    static final String CATEGORY = "Rate Limiting";
+
+    private static final EventType DECISION = type(RateLimitDecisionEvent.class);
+    private static final EventType STORE = type(RateLimitStoreEvent.class);
+    private static final EventType FALLBACK = type(RateLimitFallbackEvent.class);
+
+    private RateLimitEvents() {
+    }
+
+    /**
+     * Starts timing a decision.
+     *
+     * @return The started event, or null when no recording wants it
+     */
+    public static RateLimitDecisionEvent beginDecision() {
+        if (DECISION == null || !DECISION.isEnabled()) return null;
+        RateLimitDecisionEvent event = new RateLimitDecisionEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends a decision event and commits it if it passes the recording's threshold.
+     *
+     * @param event The event returned by {@link #beginDecision()}
+     * @param route The route, e.g. {@code "GET /api/orders"}
+     * @param rule The rule, e.g. {@code "100/1m"}
+     * @param algorithm The limiter algorithm
+     * @param allowed Whether the request was allowed
+     * @param remaining Permits left after the request
+     */
+    public static void commitDecision(RateLimitDecisionEvent event, String route, String rule, String algorithm,
+                                      boolean allowed, long remaining) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.route = route;
+        event.rule = rule;
+        event.algorithm = algorithm;
+        event.allowed = allowed;
+        event.remaining = remaining;
+        event.commit();
+    }
+
+    /**
+     * Starts timing a store call.
+     *
+     * @return The started event, or null when no recording wants it
+     */
+    public static RateLimitStoreEvent beginStore() {
+        if (STORE == null || !STORE.isEnabled()) return null;
+        RateLimitStoreEvent event = new RateLimitStoreEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends a store event and commits it if it passes the recording's threshold.
+     *
+     * @param event The event returned by {@link #beginStore()}
+     * @param operation The store operation
+     * @param backend The store backend
+     */
+    public static void commitStore(RateLimitStoreEvent event, String operation, String backend) {
+        event.end();
+        if (!event.shouldCommit()) return;
+        event.operation = operation;
+        event.backend = backend;
+        event.commit();
+    }
+
+    /**
+     * Records a fallback transition. These are rare, so the event is built on demand.
+     *
+     * @param component What degraded, e.g. {@code "key-resolution"} or {@code "write-behind"}
+     * @param state The state entered, e.g. {@code "fail-open"}
+     * @param reason Details, may be null
+     */
+    public static void fallback(String component, String state, String reason) {
+        if (FALLBACK == null || !FALLBACK.isEnabled()) return;
+        RateLimitFallbackEvent event = new RateLimitFallbackEvent();
+        event.component = component;
+        event.state = state;
+        event.reason = reason;
+        event.commit();
+    }
+
+    // null on JVMs built without Flight Recorder: the events are then simply never emitted
+    private static EventType type(Class<? extends Event> eventClass) {
+        try {
+            return EventType.getEventType(eventClass);
+        } catch (RuntimeException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.amyth.autoconfigure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The limiter leaving or returning to its normal path: a request let through because
+ * its key could not be resolved, or the write-behind store losing and regaining its
+ * remote store. Emitted through {@link RateLimitEvents#fallback}.
+ */
+@Name(RateLimitEvents.PREFIX + "Fallback")
+@Label("Rate Limit Fallback")
+@Category(RateLimitEvents.CATEGORY)
+@Description("The rate limiter degraded or recovered")
+@StackTrace(false)
+public final class RateLimitFallbackEvent extends Event {
+
+    @Label("Component")
+    String component;
+
+    @Label("State")
+    @Description("e.g. fail-open, remote-unavailable, remote-available")
+    String state;
+
+    @Label("Reason")
+    String reason;
+
+    RateLimitFallbackEvent() {
+    }
+}
@@ -0,0 +1,32 @@
+package org.amyth.autoconfigure.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One call from the limiter into its store, as timed by {@code ratelimit.store}.
+ * Created through {@link RateLimitEvents#beginStore()}.
+ */
+@Name(RateLimitEvents.PREFIX + "StoreCall")
+@Label("Rate Limit Store Call")
+@Category(RateLimitEvents.CATEGORY)
+@Description("A rate limit store operation and its latency")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class RateLimitStoreEvent extends Event {
+
+    @Label("Operation")
+    @Description("increment, get, batch or expire")
+    String operation;
+
+    @Label("Backend")
+    String backend;
+
+    RateLimitStoreEvent() {
+    }
+}
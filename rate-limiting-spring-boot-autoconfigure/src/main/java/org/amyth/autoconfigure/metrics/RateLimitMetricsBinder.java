@@ -1,32 +1,118 @@
 package org.amyth.autoconfigure.metrics;
 
-import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.binder.MeterBinder;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.stats.RecentDecisions;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Micrometer binder + simple counters you can call from Interceptor/WebFilter.
  *
  * Exposes:
  *  - ratelimit.allowed
- *  - ratelimit.blocked
+ *  - ratelimit.blocked         (every over-limit request, including those later admitted after waiting)
+ *  - ratelimit.delayed         (over-limit requests admitted after waiting for a permit)
+ *  - ratelimit.waiting         (gauge, requests waiting for a permit)
+ *  - ratelimit.decision        (timer: key resolution + limiter call, per request)
+ *  - ratelimit.key.resolution  (timer)
+ *  - ratelimit.store           (timer, tagged op=increment|get|batch|expire)
+ *  - ratelimit.route.allowed / .blocked / .near.limit (tagged route and rule, see {@link #route})
+ *  - ratelimit.route.top.blocked / .top.consumed (tagged route, rule and rank)
  *
- * Also keeps local AtomicLongs so an Actuator endpoint can expose quick totals
- * without having to query the registry.
+ * Timers are registered once in {@link #bindTo} and recorded with a single
+ * {@code Timer.record(nanos)} call; each one can be switched off through
+ * {@link Timing}, leaving only a null check on the hot path.
+ *
+ * Counts live in LongAdders, published through FunctionCounters, so a hit is a
+ * single striped increment; an Actuator endpoint reads the same adders for
+ * quick totals without having to query the registry.
+ *
+ * The binder also carries the optional {@link RecentDecisions} ring that the web
+ * integrations sample decisions into.
  */
 public final class RateLimitMetricsBinder implements MeterBinder {
 
+    /**
+     * The timed components of a rate limit decision.
+     */
+    public enum Timing {
+        /** The whole decision: key resolution, limiter call and headers. */
+        DECISION,
+        /** Resolving the rate limit key from the request. */
+        KEY_RESOLUTION,
+        /** Each store operation the limiter performs. */
+        STORE
+    }
+
+    /**
+     * Store operations, the {@code op} tag of {@code ratelimit.store}.
+     */
+    enum StoreOp {
+        INCREMENT("increment"),
+        GET("get"),
+        /** incrementAndSum: the whole window in one call, a single script on Redis */
+        BATCH("batch"),
+        /** expire and delete */
+        EXPIRE("expire");
+
+        final String tag;
+
+        StoreOp(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * Settings of the per-route meters.
+     *
+     * @param nearLimitRatio Share of the permits left at or below which an allowed hit counts as near the limit
+     * @param topKeys Number of top blocked and top consuming keys tracked per route; 0 disables tracking
+     * @param topKeyGauges Number of ranks, at most {@code topKeys}, published as gauges per route
+     * @param topKeysHalfLife Time after which past traffic weighs half in the top keys
+     */
+    public record RouteOptions(double nearLimitRatio, int topKeys, int topKeyGauges, Duration topKeysHalfLife) {
+
+        /** Near limit at 10% of the permits, top 10 keys, top 3 as gauges, one-minute half-life. */
+        public static final RouteOptions DEFAULTS = new RouteOptions(0.1, 10, 3, Duration.ofMinutes(1));
+    }
+
     private final String backendTag;
     private final String algoTag;
+    private final Set<Timing> timings;
+    private final boolean percentileHistogram;
+    private final RouteOptions routeOptions;
+
+    private volatile Timer decisionTimer;
+    private volatile Timer keyResolutionTimer;
+    private volatile Timer[] storeTimers;
 
-    private volatile Counter allowedCounter;
-    private volatile Counter blockedCounter;
+    private final LongAdder allowedTotal = new LongAdder();
+    private final LongAdder blockedTotal = new LongAdder();
+    private final LongAdder concurrencyRejected = new LongAdder();
+    private final LongAdder inFlight = new LongAdder();
+    private final LongAdder delayedTotal = new LongAdder();
+    private final LongAdder waiting = new LongAdder();
 
-    private final AtomicLong allowedTotal = new AtomicLong();
-    private final AtomicLong blockedTotal = new AtomicLong();
+    private RecentDecisions recentDecisions;
+
+    // route + " " + rule -> meters; written at startup only
+    private final Map<String, RouteMeters> routes = new LinkedHashMap<>();
+    private MeterRegistry registry;
 
     /**
      * Creates a new metrics binder for rate limiting statistics.
@@ -35,55 +121,289 @@ public final class RateLimitMetricsBinder implements MeterBinder {
      * @param algoTag The rate limiting algorithm tag
      */
     public RateLimitMetricsBinder(String backendTag, String algoTag) {
+        this(backendTag, algoTag, EnumSet.allOf(Timing.class), true);
+    }
+
+    /**
+     * Creates a new metrics binder recording only the given timers.
+     *
+     * @param backendTag The backend store type tag (redis, caffeine, etc)
+     * @param algoTag The rate limiting algorithm tag
+     * @param timings The components to time; empty for counters only
+     * @param percentileHistogram Whether timers publish histogram buckets for percentiles
+     */
+    public RateLimitMetricsBinder(String backendTag, String algoTag, Set<Timing> timings, boolean percentileHistogram) {
+        this(backendTag, algoTag, timings, percentileHistogram, RouteOptions.DEFAULTS);
+    }
+
+    /**
+     * Creates a new metrics binder recording only the given timers, with custom route meters.
+     *
+     * @param backendTag The backend store type tag (redis, caffeine, etc)
+     * @param algoTag The rate limiting algorithm tag
+     * @param timings The components to time; empty for counters only
+     * @param percentileHistogram Whether timers publish histogram buckets for percentiles
+     * @param routeOptions Settings of the per-route meters
+     */
+    public RateLimitMetricsBinder(String backendTag, String algoTag, Set<Timing> timings, boolean percentileHistogram,
+                                  RouteOptions routeOptions) {
+        this.routeOptions = Objects.requireNonNull(routeOptions, "routeOptions");
         this.backendTag = backendTag == null ? "unknown" : backendTag;
         this.algoTag = algoTag == null ? "sliding_window" : algoTag;
+        this.timings = timings.isEmpty() ? EnumSet.noneOf(Timing.class) : EnumSet.copyOf(timings);
+        this.percentileHistogram = percentileHistogram;
     }
 
     @Override
     public void bindTo(MeterRegistry registry) {
         Objects.requireNonNull(registry, "registry");
-        this.allowedCounter = Counter.builder("ratelimit.allowed")
+        FunctionCounter.builder("ratelimit.allowed", allowedTotal, LongAdder::sum)
                 .tag("backend", backendTag)
                 .tag("algo", algoTag)
                 .description("Count of allowed requests per rate limiting rules")
                 .register(registry);
 
-        this.blockedCounter = Counter.builder("ratelimit.blocked")
+        FunctionCounter.builder("ratelimit.blocked", blockedTotal, LongAdder::sum)
                 .tag("backend", backendTag)
                 .tag("algo", algoTag)
                 .description("Count of blocked (429) requests due to rate limiting")
                 .register(registry);
+
+        FunctionCounter.builder("ratelimit.concurrency.rejected", concurrencyRejected, LongAdder::sum)
+                .tag("backend", backendTag)
+                .description("Count of requests rejected because their key had too many requests in flight")
+                .register(registry);
+
+        Gauge.builder("ratelimit.concurrency.in.flight", inFlight, LongAdder::sum)
+                .tag("backend", backendTag)
+                .description("Requests holding a concurrency permit on this node")
+                .register(registry);
+
+        FunctionCounter.builder("ratelimit.delayed", delayedTotal, LongAdder::sum)
+                .tag("backend", backendTag)
+                .tag("algo", algoTag)
+                .description("Count of over-limit requests admitted after waiting for a permit")
+                .register(registry);
+
+        Gauge.builder("ratelimit.waiting", waiting, LongAdder::sum)
+                .tag("backend", backendTag)
+                .description("Requests waiting for a rate limit permit on this node")
+                .register(registry);
+
+        synchronized (routes) {
+            this.registry = registry;
+            routes.values().forEach(r -> r.register(registry, backendTag, algoTag));
+        }
+
+        if (timings.contains(Timing.DECISION)) {
+            this.decisionTimer = timer("ratelimit.decision",
+                    "Time to decide whether a request is rate limited").register(registry);
+        }
+        if (timings.contains(Timing.KEY_RESOLUTION)) {
+            this.keyResolutionTimer = timer("ratelimit.key.resolution",
+                    "Time to resolve the rate limit key of a request").register(registry);
+        }
+        if (timings.contains(Timing.STORE)) {
+            Timer[] timers = new Timer[StoreOp.values().length];
+            for (StoreOp op : StoreOp.values()) {
+                timers[op.ordinal()] = timer("ratelimit.store", "Latency of rate limit store operations")
+                        .tag("op", op.tag)
+                        .register(registry);
+            }
+            this.storeTimers = timers;
+        }
+    }
+
+    private Timer.Builder timer(String name, String description) {
+        return Timer.builder(name)
+                .tag("backend", backendTag)
+                .tag("algo", algoTag)
+                .description(description)
+                .publishPercentileHistogram(percentileHistogram);
+    }
+
+    /**
+     * Wraps a store so that its operations are recorded in {@code ratelimit.store}.
+     *
+     * @param store The store the limiter uses
+     * @return A timing view of the store, or the store itself when store timing is off
+     */
+    public RateLimitStore timed(RateLimitStore store) {
+        return timings.contains(Timing.STORE) ? new TimedRateLimitStore(store, this) : store;
+    }
+
+    /**
+     * Records the duration of a whole rate limit decision.
+     *
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public void recordDecision(long nanos) {
+        Timer t = decisionTimer;
+        if (t != null) t.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the duration of a key resolution.
+     *
+     * @param nanos Elapsed time in nanoseconds
+     */
+    public void recordKeyResolution(long nanos) {
+        Timer t = keyResolutionTimer;
+        if (t != null) t.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordStore(StoreOp op, long nanos) {
+        Timer[] timers = storeTimers;
+        if (timers != null) timers[op.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the counters of one route and rule, registering them on first use.
+     * Call this once per route while building the route table and keep the handle;
+     * recording through it involves no tag lookup.
+     *
+     * @param route The route pattern, e.g. {@code "GET /api/orders"}
+     * @param rule The rule enforced on the route
+     * @return The counters of the route
+     */
+    public RouteMeters route(String route, LimitRule rule) {
+        String ruleTag = RouteMeters.ruleTag(rule);
+        synchronized (routes) {
+            return routes.computeIfAbsent(route + " " + ruleTag, k -> {
+                RouteMeters meters = new RouteMeters(route, ruleTag, rule.permits(), routeOptions);
+                if (registry != null) meters.register(registry, backendTag, algoTag);
+                return meters;
+            });
+        }
+    }
+
+    /**
+     * Gets the meters of every route bound so far.
+     *
+     * @return The route meters, in binding order
+     */
+    public Collection<RouteMeters> getRoutes() {
+        synchronized (routes) {
+            return List.copyOf(routes.values());
+        }
+    }
+
+    /**
+     * Sets the ring that recent decisions are sampled into. Call before the binder is
+     * handed to the web integrations.
+     *
+     * @param recentDecisions The ring, or null to sample nothing
+     */
+    public void setRecentDecisions(RecentDecisions recentDecisions) {
+        this.recentDecisions = recentDecisions;
+    }
+
+    /**
+     * Gets the ring of recently sampled decisions.
+     *
+     * @return The ring, or null when sampling is off
+     */
+    public RecentDecisions getRecentDecisions() {
+        return recentDecisions;
     }
 
     /**
      * Increments the counter for allowed requests.
      */
     public void incrementAllowed() {
-        allowedTotal.incrementAndGet();
-        if (allowedCounter != null) allowedCounter.increment();
+        allowedTotal.increment();
     }
 
     /**
      * Increments the counter for blocked requests.
      */
     public void incrementBlocked() {
-        blockedTotal.incrementAndGet();
-        if (blockedCounter != null) blockedCounter.increment();
+        blockedTotal.increment();
+    }
+
+    /**
+     * Records that an over-limit request started waiting for a permit.
+     */
+    public void waitStarted() {
+        waiting.increment();
+    }
+
+    /**
+     * Records that a request stopped waiting for a permit, admitted or not.
+     */
+    public void waitEnded() {
+        waiting.decrement();
     }
 
+    /**
+     * Increments the counter for over-limit requests admitted after waiting.
+     */
+    public void incrementDelayed() {
+        delayedTotal.increment();
+    }
+
+    /**
+     * Gets the number of requests waiting for a permit on this node.
+     *
+     * @return The count of waiting requests
+     */
+    public long getWaiting() { return waiting.sum(); }
+
+    /**
+     * Gets the total number of over-limit requests admitted after waiting.
+     *
+     * @return The count of delayed requests
+     */
+    public long getDelayedTotal() { return delayedTotal.sum(); }
+
+    /**
+     * Records that a request took a concurrency permit.
+     */
+    public void concurrencyAcquired() {
+        inFlight.increment();
+    }
+
+    /**
+     * Records that a request gave its concurrency permit back.
+     */
+    public void concurrencyReleased() {
+        inFlight.decrement();
+    }
+
+    /**
+     * Increments the counter for requests rejected by a concurrency limit.
+     */
+    public void incrementConcurrencyRejected() {
+        concurrencyRejected.increment();
+    }
+
+    /**
+     * Gets the number of requests holding a concurrency permit on this node.
+     *
+     * @return The count of requests in flight
+     */
+    public long getInFlight() { return inFlight.sum(); }
+
+    /**
+     * Gets the total number of requests rejected by a concurrency limit.
+     *
+     * @return The count of rejected requests
+     */
+    public long getConcurrencyRejectedTotal() { return concurrencyRejected.sum(); }
+
     /**
      * Gets the total number of allowed requests.
      *
      * @return The count of allowed requests
      */
-    public long getAllowedTotal() { return allowedTotal.get(); }
+    public long getAllowedTotal() { return allowedTotal.sum(); }
 
     /**
      * Gets the total number of blocked requests.
      *
      * @return The count of blocked requests
      */
-    public long getBlockedTotal() { return blockedTotal.get(); }
+    public long getBlockedTotal() { return blockedTotal.sum(); }
 
     /**
      * Gets the backend store type tag.
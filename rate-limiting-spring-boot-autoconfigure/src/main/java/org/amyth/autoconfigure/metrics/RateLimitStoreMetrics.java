@@ -0,0 +1,70 @@
+package org.amyth.autoconfigure.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+
+import java.util.Objects;
+
+/**
+ * Micrometer binder for the statistics of the in-memory store, so it can be sized from
+ * data rather than guessed.
+ *
+ * Exposes, tagged {@code backend=caffeine}:
+ *  - ratelimit.store.size              (gauge, buckets held)
+ *  - ratelimit.store.gets              (counter, tagged result=hit|miss)
+ *  - ratelimit.store.evictions         (counter, buckets evicted because the store was full)
+ *  - ratelimit.store.evictions.live    (counter, evicted buckets whose window was still open)
+ *  - ratelimit.store.memory.estimated  (gauge, bytes)
+ *
+ * A rising {@code ratelimit.store.evictions.live} means counts are being reset early and
+ * clients let through: raise ratelimit.caffeine-max-size. Other stores bind nothing.
+ */
+public final class RateLimitStoreMetrics implements MeterBinder {
+
+    private final RateLimitStore store;
+
+    /**
+     * Creates a new binder for the given store.
+     *
+     * @param store The store the limiter uses
+     */
+    public RateLimitStoreMetrics(RateLimitStore store) {
+        this.store = Objects.requireNonNull(store, "store");
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!(store instanceof CaffeineRateLimitStore caffeine)) return;
+        Gauge.builder("ratelimit.store.size", caffeine, s -> s.stats().size())
+                .tag("backend", "caffeine")
+                .description("Buckets held by the rate limit store")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.store.gets", caffeine, s -> s.stats().hits())
+                .tag("backend", "caffeine")
+                .tag("result", "hit")
+                .description("Bucket lookups in the rate limit store")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.store.gets", caffeine, s -> s.stats().misses())
+                .tag("backend", "caffeine")
+                .tag("result", "miss")
+                .description("Bucket lookups in the rate limit store")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.store.evictions", caffeine, s -> s.stats().evictions())
+                .tag("backend", "caffeine")
+                .description("Buckets evicted because the rate limit store was full")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.store.evictions.live", caffeine, s -> s.stats().liveEvictions())
+                .tag("backend", "caffeine")
+                .description("Evicted buckets whose window was still open; their counts were lost")
+                .register(registry);
+        Gauge.builder("ratelimit.store.memory.estimated", caffeine, s -> s.stats().estimatedBytes())
+                .tag("backend", "caffeine")
+                .baseUnit("bytes")
+                .description("Estimated heap used by the rate limit store's buckets")
+                .register(registry);
+    }
+}
@@ -0,0 +1,214 @@
+package org.amyth.autoconfigure.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.amyth.core.model.HitResult;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.stats.HeavyHitters;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Allowed, blocked and near-limit counters of one route and rule, and its heaviest keys.
+ *
+ * Obtained once per route from {@link RateLimitMetricsBinder#route} and held by
+ * the route table, so recording a decision is a few striped increments plus a
+ * lock-free sketch update. Exposes:
+ *  - ratelimit.route.allowed
+ *  - ratelimit.route.blocked
+ *  - ratelimit.route.near.limit (allowed with at most the near-limit share of permits left)
+ *  - ratelimit.route.top.blocked / ratelimit.route.top.consumed (tagged rank=1..n)
+ *
+ * Client keys never become tags: the top-key gauges are tagged by rank and carry
+ * the estimated count, and the keys themselves are served by the actuator endpoint.
+ */
+public final class RouteMeters {
+
+    private static final long SNAPSHOT_NANOS = 1_000_000_000L;
+
+    /**
+     * The heaviest keys of a route at one point in time.
+     *
+     * @param blocked Keys with the most blocked requests, heaviest first
+     * @param consumed Keys with the most allowed requests, heaviest first
+     */
+    public record TopKeys(List<HeavyHitters.Estimate> blocked, List<HeavyHitters.Estimate> consumed) {
+        static final TopKeys NONE = new TopKeys(List.of(), List.of());
+    }
+
+    private final String route;
+    private final String rule;
+    private final long nearLimitRemaining;
+    private final int topKeyGauges;
+    private final long halfLifeNanos;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+    private final LongAdder nearLimit = new LongAdder();
+
+    private final HeavyHitters topBlocked;
+    private final HeavyHitters topConsumed;
+    private final Object decayLock = new Object();
+    private long decayedAt = System.nanoTime();
+    private volatile TopKeys snapshot = TopKeys.NONE;
+    private volatile long snapshotAt = System.nanoTime() - SNAPSHOT_NANOS;
+
+    RouteMeters(String route, String rule, long permits, RateLimitMetricsBinder.RouteOptions options) {
+        this.route = route;
+        this.rule = rule;
+        this.nearLimitRemaining = (long) Math.floor(permits * options.nearLimitRatio());
+        boolean tracked = options.topKeys() > 0;
+        this.topBlocked = tracked ? new HeavyHitters(options.topKeys()) : null;
+        this.topConsumed = tracked ? new HeavyHitters(options.topKeys()) : null;
+        this.topKeyGauges = tracked ? Math.min(options.topKeyGauges(), options.topKeys()) : 0;
+        this.halfLifeNanos = Math.max(1, options.topKeysHalfLife().toNanos());
+    }
+
+    /**
+     * Records the outcome of a decision on this route.
+     *
+     * @param key The rate limit key the decision was made for
+     * @param hr The limiter's result
+     */
+    public void record(String key, HitResult hr) {
+        record(key, hr.allowed(), hr.remaining());
+    }
+
+    /**
+     * Records the outcome of a decision on this route.
+     *
+     * @param key The rate limit key the decision was made for
+     * @param isAllowed Whether the request was allowed
+     * @param remaining The permits left in the window
+     */
+    public void record(String key, boolean isAllowed, long remaining) {
+        if (isAllowed) {
+            allowed.increment();
+            if (remaining <= nearLimitRemaining) nearLimit.increment();
+            if (topConsumed != null) topConsumed.offer(key);
+        } else {
+            blocked.increment();
+            if (topBlocked != null) topBlocked.offer(key);
+        }
+    }
+
+    /**
+     * Returns the heaviest blocked and consuming keys, refreshed at most once a second.
+     *
+     * @return The top keys, empty when tracking is disabled
+     */
+    public TopKeys topKeys() {
+        if (topBlocked == null) return TopKeys.NONE;
+        long now = System.nanoTime();
+        if (now - snapshotAt >= SNAPSHOT_NANOS) {
+            synchronized (decayLock) {
+                if (now - snapshotAt >= SNAPSHOT_NANOS) {
+                    long halvings = (now - decayedAt) / halfLifeNanos;
+                    if (halvings > 0) {
+                        topBlocked.decay((int) Math.min(halvings, 63));
+                        topConsumed.decay((int) Math.min(halvings, 63));
+                        decayedAt += halvings * halfLifeNanos;
+                    }
+                    snapshot = new TopKeys(topBlocked.top(topBlocked.k()), topConsumed.top(topConsumed.k()));
+                    snapshotAt = now;
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Gets the route tag.
+     *
+     * @return The route pattern
+     */
+    public String getRoute() { return route; }
+
+    /**
+     * Gets the rule tag, e.g. {@code 100/1m}.
+     *
+     * @return The rule as permits per window
+     */
+    public String getRule() { return rule; }
+
+    /**
+     * Gets the number of allowed requests.
+     *
+     * @return The count of allowed requests
+     */
+    public long getAllowed() { return allowed.sum(); }
+
+    /**
+     * Gets the number of blocked requests.
+     *
+     * @return The count of blocked requests
+     */
+    public long getBlocked() { return blocked.sum(); }
+
+    /**
+     * Gets the number of allowed requests that were close to the limit.
+     *
+     * @return The count of near-limit requests
+     */
+    public long getNearLimit() { return nearLimit.sum(); }
+
+    void register(MeterRegistry registry, String backendTag, String algoTag) {
+        counter("ratelimit.route.allowed", allowed, "Allowed requests per route and rule",
+                registry, backendTag, algoTag);
+        counter("ratelimit.route.blocked", blocked, "Blocked requests per route and rule",
+                registry, backendTag, algoTag);
+        counter("ratelimit.route.near.limit", nearLimit, "Allowed requests close to the limit per route and rule",
+                registry, backendTag, algoTag);
+        for (int rank = 1; rank <= topKeyGauges; rank++) {
+            int index = rank - 1;
+            rankGauge("ratelimit.route.top.blocked", rank, m -> count(m.topKeys().blocked(), index),
+                    "Estimated blocked requests of the n-th most blocked key", registry, backendTag, algoTag);
+            rankGauge("ratelimit.route.top.consumed", rank, m -> count(m.topKeys().consumed(), index),
+                    "Estimated allowed requests of the n-th most consuming key", registry, backendTag, algoTag);
+        }
+    }
+
+    private void counter(String name, LongAdder adder, String description,
+                         MeterRegistry registry, String backendTag, String algoTag) {
+        FunctionCounter.builder(name, adder, LongAdder::sum)
+                .tag("backend", backendTag)
+                .tag("algo", algoTag)
+                .tag("route", route)
+                .tag("rule", rule)
+                .description(description)
+                .register(registry);
+    }
+
+    private void rankGauge(String name, int rank, ToDoubleFunction<RouteMeters> value,
+                           String description, MeterRegistry registry, String backendTag, String algoTag) {
+        Gauge.builder(name, this, value)
+                .tag("backend", backendTag)
+                .tag("algo", algoTag)
+                .tag("route", route)
+                .tag("rule", rule)
+                .tag("rank", String.valueOf(rank))
+                .description(description)
+                .strongReference(true)
+                .register(registry);
+    }
+
+    private static double count(List<HeavyHitters.Estimate> top, int index) {
+        return index < top.size() ? top.get(index).count() : 0;
+    }
+
+    static String ruleTag(LimitRule rule) {
+        Duration w = rule.window();
+        long ms = w.toMillis();
+        String window;
+        if (ms % 86_400_000 == 0) window = (ms / 86_400_000) + "d";
+        else if (ms % 3_600_000 == 0) window = (ms / 3_600_000) + "h";
+        else if (ms % 60_000 == 0) window = (ms / 60_000) + "m";
+        else if (ms % 1_000 == 0) window = (ms / 1_000) + "s";
+        else window = ms + "ms";
+        return rule.permits() + "/" + window;
+    }
+}
@@ -0,0 +1,139 @@
+package org.amyth.autoconfigure.metrics;
+
+import org.amyth.autoconfigure.jfr.RateLimitEvents;
+import org.amyth.autoconfigure.jfr.RateLimitStoreEvent;
+import org.amyth.core.api.RateLimitStore;
+
+import java.util.Objects;
+
+/**
+ * Store decorator recording the latency of every operation in {@code ratelimit.store},
+ * and as a {@link RateLimitStoreEvent} while a Flight Recorder recording has it enabled.
+ * Created through {@link RateLimitMetricsBinder#timed(RateLimitStore)}.
+ */
+final class TimedRateLimitStore implements RateLimitStore {
+
+    private final RateLimitStore delegate;
+    private final RateLimitMetricsBinder metrics;
+
+    TimedRateLimitStore(RateLimitStore delegate, RateLimitMetricsBinder metrics) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.metrics = metrics;
+    }
+
+    @Override
+    public long incrementAndGet(String bucketKey, long ttlMillis) {
+        RateLimitStoreEvent event = RateLimitEvents.beginStore();
+        long start = System.nanoTime();
+        try {
+            return delegate.incrementAndGet(bucketKey, ttlMillis);
+        } finally {
+            done(RateLimitMetricsBinder.StoreOp.INCREMENT, start, event);
+        }
+    }
+
+    @Override
+    public long addAndGet(String bucketKey, long delta, long ttlMillis) {
+        RateLimitStoreEvent event = RateLimitEvents.beginStore();
+        long start = System.nanoTime();
+        try {
+            return delegate.addAndGet(bucketKey, delta, ttlMillis);
+        } finally {
+            done(RateLimitMetricsBinder.StoreOp.INCREMENT, start, event);
+        }
+    }
+
+    @Override
+    public boolean subtract(String bucketKey, long hits) {
+        RateLimitStoreEvent event = RateLimitEvents.beginStore();
+        long start = System.nanoTime();
+        try {
+            return delegate.subtract(bucketKey, hits);
+        } finally {
+            done(RateLimitMetricsBinder.StoreOp.INCREMENT, start, event);
+        }
+    }
+
+    @Override
+    public long incrementAndSum(String keyBase, long currentBucket, int olderBuckets, long ttlMillis) {
+        RateLimitStoreEvent event = RateLimitEvents.beginStore();
+        long start = System.nanoTime();
+        try {
+            return delegate.incrementAndSum(keyBase, currentBucket, olderBuckets, ttlMillis);
+        } finally {
+            done(RateLimitMetricsBinder.StoreOp.BATCH, start, event);
+        }
+    }
+
+    @Override
+    public long addAndSum(String keyBase, long currentBucket, int olderBuckets, long delta, long ttlMillis) {
+        RateLimitStoreEvent event = RateLimitEvents.beginStore();
+        long start = System.nanoTime();
+        try {
+            return delegate.addAndSum(keyBase, currentBucket, olderBuckets, delta, ttlMillis);
+        } finally {
+            done(RateLimitMetricsBinder.StoreOp.BATCH, start, event);
+        }
+    }
+
+    @Override
+    public long[] addAndSumAll(String[] keyBases, long[] currentBuckets, int olderBuckets, long[] deltas,
+                               long[] ttlMillis) {
+        RateLimitStoreEvent event = RateLimitEvents.beginStore();
+        long start = System.nanoTime();
+        try {
+            return delegate.addAndSumAll(keyBases, currentBuckets, olderBuckets, deltas, ttlMillis);
+        } finally {
+            done(RateLimitMetricsBinder.StoreOp.BATCH, start, event);
+        }
+    }
+
+    @Override
+    public long get(String bucketKey) {
+        RateLimitStoreEvent event = RateLimitEvents.beginStore();
+        long start = System.nanoTime();
+        try {
+            return delegate.get(bucketKey);
+        } finally {
+            done(RateLimitMetricsBinder.StoreOp.GET, start, event);
+        }
+    }
+
+    @Override
+    public long[] getAll(String[] bucketKeys) {
+        RateLimitStoreEvent event = RateLimitEvents.beginStore();
+        long start = System.nanoTime();
+        try {
+            return delegate.getAll(bucketKeys);
+        } finally {
+            done(RateLimitMetricsBinder.StoreOp.BATCH, start, event);
+        }
+    }
+
+    @Override
+    public void expire(String bucketKey, long ttlMillis) {
+        RateLimitStoreEvent event = RateLimitEvents.beginStore();
+        long start = System.nanoTime();
+        try {
+            delegate.expire(bucketKey, ttlMillis);
+        } finally {
+            done(RateLimitMetricsBinder.StoreOp.EXPIRE, start, event);
+        }
+    }
+
+    @Override
+    public void delete(String bucketKey) {
+        RateLimitStoreEvent event = RateLimitEvents.beginStore();
+        long start = System.nanoTime();
+        try {
+            delegate.delete(bucketKey);
+        } finally {
+            done(RateLimitMetricsBinder.StoreOp.EXPIRE, start, event);
+        }
+    }
+
+    private void done(RateLimitMetricsBinder.StoreOp op, long start, RateLimitStoreEvent event) {
+        metrics.recordStore(op, System.nanoTime() - start);
+        if (event != null) RateLimitEvents.commitStore(event, op.tag, metrics.getBackendTag());
+    }
+}
@@ -0,0 +1,91 @@
+package org.amyth.autoconfigure.mvc;
+
+import org.amyth.autoconfigure.actuator.RateLimitDecisionsEndpoint;
+import org.amyth.core.stats.RecentDecisions;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.NonNull;
+import org.springframework.web.servlet.function.HandlerFunction;
+import org.springframework.web.servlet.function.RouterFunction;
+import org.springframework.web.servlet.function.RouterFunctions;
+import org.springframework.web.servlet.function.ServerRequest;
+import org.springframework.web.servlet.function.ServerResponse;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Streams recently sampled decisions as server-sent events on a configured path.
+ *
+ * Each subscriber tails the {@link RecentDecisions} ring from a shared poller thread,
+ * so request threads never touch the stream: {@code GET <path>?after=<seq>} resumes
+ * after a given decision, without it only new decisions are sent. An {@code after} that
+ * is not a number is rejected with 400 Bad Request.
+ */
+public final class DecisionStreamRoute implements RouterFunction<ServerResponse>, DisposableBean {
+
+    static final Duration POLL_INTERVAL = Duration.ofMillis(250);
+    static final Duration TIMEOUT = Duration.ofMinutes(30);
+    static final int BATCH = 256;
+
+    private final RecentDecisions recent;
+    private final RouterFunction<ServerResponse> route;
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ratelimit-decision-stream");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Creates a new DecisionStreamRoute instance.
+     *
+     * @param recent The ring of recent decisions
+     * @param path The path to serve the stream on
+     */
+    public DecisionStreamRoute(RecentDecisions recent, String path) {
+        this.recent = recent;
+        this.route = RouterFunctions.route().GET(path, this::stream).build();
+    }
+
+    @Override
+    public @NonNull Optional<HandlerFunction<ServerResponse>> route(@NonNull ServerRequest request) {
+        return route.route(request);
+    }
+
+    private ServerResponse stream(ServerRequest request) {
+        long after;
+        try {
+            after = request.param("after").map(Long::parseLong).orElseGet(recent::lastSeq);
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().body("after must be a decision sequence number");
+        }
+        return ServerResponse.sse(sse -> {
+            long[] cursor = {after};
+            AtomicReference<ScheduledFuture<?>> task = new AtomicReference<>();
+            task.set(poller.scheduleWithFixedDelay(() -> {
+                try {
+                    for (RecentDecisions.Decision d : recent.since(cursor[0], BATCH)) {
+                        sse.id(String.valueOf(d.seq())).event("decision").send(RateLimitDecisionsEndpoint.view(d));
+                        cursor[0] = d.seq();
+                    }
+                } catch (Exception e) {
+                    // client gone: stop polling for it
+                    task.get().cancel(false);
+                }
+            }, POLL_INTERVAL.toMillis(), POLL_INTERVAL.toMillis(), TimeUnit.MILLISECONDS));
+            Runnable stop = () -> task.get().cancel(false);
+            sse.onComplete(stop);
+            sse.onTimeout(stop);
+            sse.onError(e -> stop.run());
+        }, TIMEOUT);
+    }
+
+    @Override
+    public void destroy() {
+        poller.shutdownNow();
+    }
+}
@@ -3,22 +3,34 @@ package org.amyth.autoconfigure.mvc;
 import org.amyth.autoconfigure.RateLimitProperties;
 import org.amyth.autoconfigure.interceptor.RateLimitInterceptor;
 import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.autoconfigure.web.AdaptiveConcurrency;
+import org.amyth.core.api.ConcurrencyLimiter;
 import org.amyth.core.api.RateLimiter;
+import org.amyth.core.concurrency.LocalConcurrencyLimiter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.context.annotation.Bean;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
 /**
  * Spring MVC configuration for rate limiting.
- * Configures the rate limit interceptor for MVC controllers.
+ * Configures the rate limit interceptor for MVC controllers and, once the
+ * handler mappings exist, binds the routes of annotated controller methods.
  */
 @ConditionalOnClass(WebMvcConfigurer.class)
-public class RateLimitWebMvcConfig implements WebMvcConfigurer {
+public class RateLimitWebMvcConfig implements WebMvcConfigurer, SmartInitializingSingleton {
 
     private final RateLimiter limiter;
+    private final ConcurrencyLimiter concurrency;
+    private final AdaptiveConcurrency adaptive;
     private final RateLimitProperties props;
     private final RateLimitMetricsBinder metrics;
+    private final ObjectProvider<RequestMappingHandlerMapping> mappings;
+    private volatile RateLimitInterceptor interceptor;
 
     /**
      * Creates a new RateLimitWebMvcConfig instance.
@@ -28,9 +40,55 @@ public class RateLimitWebMvcConfig implements WebMvcConfigurer {
      * @param metrics Metrics binder for collecting statistics
      */
     public RateLimitWebMvcConfig(RateLimiter limiter, RateLimitProperties props, RateLimitMetricsBinder metrics) {
+        this(limiter, props, metrics, null);
+    }
+
+    /**
+     * Creates a new RateLimitWebMvcConfig instance that pre-binds the routes of the given mappings.
+     *
+     * @param limiter The rate limiter implementation to use
+     * @param props Configuration properties for rate limiting
+     * @param metrics Metrics binder for collecting statistics
+     * @param mappings The request mappings whose rate limited routes are bound at startup
+     */
+    public RateLimitWebMvcConfig(RateLimiter limiter, RateLimitProperties props, RateLimitMetricsBinder metrics,
+                                 ObjectProvider<RequestMappingHandlerMapping> mappings) {
+        this(limiter, new LocalConcurrencyLimiter(), props, metrics, mappings);
+    }
+
+    /**
+     * Creates a new RateLimitWebMvcConfig instance that also enforces {@code @ConcurrencyLimit}.
+     *
+     * @param limiter The rate limiter implementation to use
+     * @param concurrency The limiter of requests in flight
+     * @param props Configuration properties for rate limiting
+     * @param metrics Metrics binder for collecting statistics
+     * @param mappings The request mappings whose rate limited routes are bound at startup
+     */
+    public RateLimitWebMvcConfig(RateLimiter limiter, ConcurrencyLimiter concurrency, RateLimitProperties props,
+                                 RateLimitMetricsBinder metrics, ObjectProvider<RequestMappingHandlerMapping> mappings) {
+        this(limiter, concurrency, null, props, metrics, mappings);
+    }
+
+    /**
+     * Creates a new RateLimitWebMvcConfig instance that also applies latency-adapted in-flight limits.
+     *
+     * @param limiter The rate limiter implementation to use
+     * @param concurrency The limiter of requests in flight
+     * @param adaptive The adaptive in-flight limits; may be null
+     * @param props Configuration properties for rate limiting
+     * @param metrics Metrics binder for collecting statistics
+     * @param mappings The request mappings whose rate limited routes are bound at startup
+     */
+    public RateLimitWebMvcConfig(RateLimiter limiter, ConcurrencyLimiter concurrency, AdaptiveConcurrency adaptive,
+                                 RateLimitProperties props, RateLimitMetricsBinder metrics,
+                                 ObjectProvider<RequestMappingHandlerMapping> mappings) {
         this.limiter = limiter;
+        this.concurrency = concurrency;
+        this.adaptive = adaptive;
         this.props = props;
         this.metrics = metrics;
+        this.mappings = mappings;
     }
 
     /**
@@ -40,7 +98,29 @@ public class RateLimitWebMvcConfig implements WebMvcConfigurer {
      */
     @Bean
     public RateLimitInterceptor rateLimitInterceptor() {
-        return new RateLimitInterceptor(limiter, props, metrics);
+        RateLimitInterceptor i = interceptor;
+        if (i == null) {
+            synchronized (this) {
+                i = interceptor;
+                if (i == null) interceptor = i = new RateLimitInterceptor(limiter, concurrency, adaptive, props, metrics);
+            }
+        }
+        return i;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (mappings == null) return;
+        RateLimitInterceptor i = rateLimitInterceptor();
+        mappings.orderedStream().forEach(mapping -> mapping.getHandlerMethods()
+                .forEach((info, hm) -> i.bindRoute(hm, route(info))));
+    }
+
+    private static String route(RequestMappingInfo info) {
+        String patterns = String.join(",", info.getPatternValues());
+        var methods = info.getMethodsCondition().getMethods();
+        if (methods.isEmpty()) return patterns;
+        return String.join(",", methods.stream().map(Enum::name).sorted().toList()) + " " + patterns;
     }
 
     @Override
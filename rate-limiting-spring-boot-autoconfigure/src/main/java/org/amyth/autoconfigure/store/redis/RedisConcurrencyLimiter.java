@@ -0,0 +1,161 @@
+package org.amyth.autoconfigure.store.redis;
+
+import org.amyth.core.api.ConcurrencyLimiter;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis-backed ConcurrencyLimiter, shared by every node.
+ *
+ * Each key is a sorted set of leases scored by their expiry time. Acquiring is one
+ * script that drops expired leases, counts the rest and adds a new one if the key is
+ * under its limit; releasing removes the lease. Expiry uses the Redis server's clock,
+ * so nodes with skewed clocks agree on it.
+ *
+ * While a request runs, its node renews the lease every half lease, so long streams keep
+ * their permit. A node that crashes stops renewing and its leases expire, giving the
+ * permits back without anyone having to release them.
+ */
+public final class RedisConcurrencyLimiter implements ConcurrencyLimiter, AutoCloseable {
+
+    // KEYS[1] = lease set; ARGV = limit, lease ms, lease id. Returns the new count, or 0 when full.
+    static final String ACQUIRE_LUA =
+            "local t = redis.call('TIME'); " +
+                    "local now = t[1] * 1000 + math.floor(t[2] / 1000); " +
+                    "redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now); " +
+                    "local n = redis.call('ZCARD', KEYS[1]); " +
+                    "if n >= tonumber(ARGV[1]) then return 0; end; " +
+                    "redis.call('ZADD', KEYS[1], now + tonumber(ARGV[2]), ARGV[3]); " +
+                    "if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[2]) then redis.call('PEXPIRE', KEYS[1], ARGV[2]); end; " +
+                    "return n + 1;";
+
+    // KEYS[1] = lease set; ARGV = lease ms, lease id. Returns 1 if the lease was still held.
+    static final String RENEW_LUA =
+            "if not redis.call('ZSCORE', KEYS[1], ARGV[2]) then return 0; end; " +
+                    "local t = redis.call('TIME'); " +
+                    "local now = t[1] * 1000 + math.floor(t[2] / 1000); " +
+                    "redis.call('ZADD', KEYS[1], now + tonumber(ARGV[1]), ARGV[2]); " +
+                    "if redis.call('PTTL', KEYS[1]) < tonumber(ARGV[1]) then redis.call('PEXPIRE', KEYS[1], ARGV[1]); end; " +
+                    "return 1;";
+
+    // KEYS[1] = lease set. Returns the number of unexpired leases.
+    static final String IN_FLIGHT_LUA =
+            "local t = redis.call('TIME'); " +
+                    "local now = t[1] * 1000 + math.floor(t[2] / 1000); " +
+                    "return redis.call('ZCOUNT', KEYS[1], '(' .. now, '+inf');";
+
+    private static final long TICK_MILLIS = 250;
+
+    private final class Lease implements Permit {
+        final byte[] key;
+        final byte[] id;
+        final byte[] leaseMillis;
+        final long renewEveryMillis;
+        volatile long renewAtMillis;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Lease(byte[] key, byte[] id, long leaseMillis) {
+            this.key = key;
+            this.id = id;
+            this.leaseMillis = bytes(Long.toString(leaseMillis));
+            this.renewEveryMillis = Math.max(1, leaseMillis / 2);
+            this.renewAtMillis = System.currentTimeMillis() + renewEveryMillis;
+        }
+
+        @Override
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                live.remove(this);
+                redis.execute((RedisCallback<Long>) c -> c.zSetCommands().zRem(key, id));
+            }
+        }
+    }
+
+    private final StringRedisTemplate redis;
+    private final String keyPrefix;
+    private final String node = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentHashMap.KeySetView<Lease, Boolean> live = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService renewer;
+
+    /**
+     * Creates a new RedisConcurrencyLimiter and starts renewing its leases.
+     *
+     * @param redis The Redis template to use
+     * @param keyPrefix Prefix of the lease set keys (defaults to "rlc:" if null or blank)
+     */
+    public RedisConcurrencyLimiter(@NonNull StringRedisTemplate redis, String keyPrefix) {
+        this.redis = Objects.requireNonNull(redis, "redis");
+        this.keyPrefix = (keyPrefix == null || keyPrefix.isBlank()) ? "rlc:" : keyPrefix;
+        this.renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ratelimit-lease-renewal");
+            t.setDaemon(true);
+            return t;
+        });
+        renewer.scheduleWithFixedDelay(this::renewDue, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Permit tryAcquire(String key, long limit, Duration lease) {
+        long leaseMillis = Math.max(1, lease.toMillis());
+        Lease l = new Lease(bytes(keyPrefix + key), bytes(node + ":" + sequence.incrementAndGet()), leaseMillis);
+        Long n = redis.execute((RedisCallback<Long>) c -> c.scriptingCommands().eval(
+                bytes(ACQUIRE_LUA), ReturnType.INTEGER, 1,
+                l.key, bytes(Long.toString(limit)), l.leaseMillis, l.id));
+        if (n == null || n == 0) return null;
+        live.add(l);
+        return l;
+    }
+
+    @Override
+    public long inFlight(String key) {
+        Long n = redis.execute((RedisCallback<Long>) c -> c.scriptingCommands().eval(
+                bytes(IN_FLIGHT_LUA), ReturnType.INTEGER, 1, bytes(keyPrefix + key)));
+        return n == null ? 0 : n;
+    }
+
+    /**
+     * Returns the number of leases this node holds and renews.
+     *
+     * @return the number of live leases
+     */
+    public int liveLeases() {
+        return live.size();
+    }
+
+    private void renewDue() {
+        long now = System.currentTimeMillis();
+        for (Lease l : live) {
+            if (l.renewAtMillis > now) continue;
+            try {
+                redis.execute((RedisCallback<Long>) c -> c.scriptingCommands().eval(
+                        bytes(RENEW_LUA), ReturnType.INTEGER, 1, l.key, l.leaseMillis, l.id));
+                l.renewAtMillis = now + l.renewEveryMillis;
+            } catch (RuntimeException e) {
+                // Redis unavailable: retried on the next tick, the lease expires if this persists
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        renewer.shutdownNow();
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
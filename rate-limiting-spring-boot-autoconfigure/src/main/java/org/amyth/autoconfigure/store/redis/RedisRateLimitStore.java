@@ -1,27 +1,127 @@
 package org.amyth.autoconfigure.store.redis;
 
-import org.amyth.core.api.RateLimitStore;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.async.RedisKeyAsyncCommands;
+import io.lettuce.core.api.async.RedisScriptingAsyncCommands;
+import org.amyth.core.api.ScannableRateLimitStore;
+import org.amyth.core.model.KeyPage;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.lang.NonNull;
+import org.springframework.util.ClassUtils;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
 
 /**
  * Redis-backed RateLimitStore.
  *
  * Uses a small Lua script to INCR and set PEXPIRE only on first creation,
- * so we don't keep resetting TTL on subsequent increments.
+ * so we don't keep resetting TTL on subsequent increments. A sliding window
+ * hit is one script call that increments the current bucket and sums the
+ * older ones, i.e. one round trip per decision; a batch of permits is the same
+ * script with INCRBY, and a bulk check of many keys one script per
+ * {@value #BULK_CHUNK} keys. Scripts run on the template's shared connection;
+ * a pipelined call would open a dedicated connection per call and return no result.
+ *
+ * On Redis Cluster a script may only touch keys of one slot. The limiter's bucket
+ * keys carry a hash tag, {@code rl:{<key>}:<bucket>}, so a window's buckets share
+ * a slot; a bulk call is split into one script per slot. With Lettuce those scripts are
+ * pipelined, each sent to its slot's node before any reply is awaited, so a bulk call
+ * waits about one round trip per node rather than one per slot.
+ *
+ * Keys are listed with SCAN, a page at a time, so listing never blocks the server
+ * the way KEYS would.
  */
-public final class RedisRateLimitStore implements RateLimitStore {
+public final class RedisRateLimitStore implements ScannableRateLimitStore {
 
-    private static final String INCR_WITH_TTL_LUA =
+    static final String INCR_WITH_TTL_LUA =
             "local v = redis.call('INCR', KEYS[1]); " +
                     "if v == 1 then redis.call('PEXPIRE', KEYS[1], ARGV[1]); end; " +
                     "return v;";
 
+    static final String INCRBY_WITH_TTL_LUA =
+            "local v = redis.call('INCRBY', KEYS[1], ARGV[1]); " +
+                    "if v == tonumber(ARGV[1]) then redis.call('PEXPIRE', KEYS[1], ARGV[2]); end; " +
+                    "return v;";
+
+    // takes back at most the bucket's count; a missing bucket is not created, DECRBY keeps the TTL
+    static final String SUBTRACT_LUA =
+            "local v = tonumber(redis.call('GET', KEYS[1])); " +
+                    "if not v then return 0; end; " +
+                    "local t = math.min(v, tonumber(ARGV[1])); " +
+                    "if t > 0 then return redis.call('DECRBY', KEYS[1], t); end; " +
+                    "return v;";
+
+    // KEYS[1] = current bucket, KEYS[2..n] = older buckets
+    static final String INCR_AND_SUM_LUA =
+            "local v = redis.call('INCR', KEYS[1]); " +
+                    "if v == 1 then redis.call('PEXPIRE', KEYS[1], ARGV[1]); end; " +
+                    "local total = v; " +
+                    "if #KEYS > 1 then " +
+                    "for _, c in ipairs(redis.call('MGET', unpack(KEYS, 2))) do " +
+                    "if c then total = total + tonumber(c); end; " +
+                    "end; " +
+                    "end; " +
+                    "return total;";
+
+    // KEYS[1] = current bucket, KEYS[2..n] = older buckets; ARGV[1] = delta, ARGV[2] = ttl
+    static final String ADD_AND_SUM_LUA =
+            "local d = tonumber(ARGV[1]); " +
+                    "local v = redis.call('INCRBY', KEYS[1], d); " +
+                    "if v == d then redis.call('PEXPIRE', KEYS[1], ARGV[2]); end; " +
+                    "local total = v; " +
+                    "if #KEYS > 1 then " +
+                    "for _, c in ipairs(redis.call('MGET', unpack(KEYS, 2))) do " +
+                    "if c then total = total + tonumber(c); end; " +
+                    "end; " +
+                    "end; " +
+                    "return total;";
+
+    // ARGV[1] = buckets per window; KEYS hold each window's buckets, current first;
+    // ARGV[2i], ARGV[2i+1] = delta and ttl of window i (1-based); returns each window's total
+    static final String ADD_AND_SUM_ALL_LUA =
+            "local k = tonumber(ARGV[1]); " +
+                    "local out = {}; " +
+                    "for i = 1, #KEYS / k do " +
+                    "local first = (i - 1) * k + 1; " +
+                    "local d = tonumber(ARGV[2 * i]); " +
+                    "local v = redis.call('INCRBY', KEYS[first], d); " +
+                    "if v == d then redis.call('PEXPIRE', KEYS[first], ARGV[2 * i + 1]); end; " +
+                    "local total = v; " +
+                    "if k > 1 then " +
+                    "for _, c in ipairs(redis.call('MGET', unpack(KEYS, first + 1, first + k - 1))) do " +
+                    "if c then total = total + tonumber(c); end; " +
+                    "end; " +
+                    "end; " +
+                    "out[i] = total; " +
+                    "end; " +
+                    "return out;";
+
+    /** Most windows per bulk script, so that one call cannot hold the server for long. */
+    static final int BULK_CHUNK = 256;
+
+    private static final boolean LETTUCE =
+            ClassUtils.isPresent("io.lettuce.core.RedisClient", RedisRateLimitStore.class.getClassLoader());
+
     private final StringRedisTemplate redis;
     private final String keyPrefix;
+    private volatile Boolean cluster; // whether the template talks to a Redis Cluster, once known
 
     /**
      * Creates a new RedisRateLimitStore instance.
@@ -36,31 +136,310 @@ public final class RedisRateLimitStore implements RateLimitStore {
 
     @Override
     public long incrementAndGet(String bucketKey, long ttlMillis) {
-        Long v = redis.execute((connection) ->
+        Long v = redis.execute((RedisCallback<Long>) connection ->
+                connection.scriptingCommands().eval(
+                        bytes(INCR_WITH_TTL_LUA),
+                        org.springframework.data.redis.connection.ReturnType.INTEGER,
+                        1,
+                        bytes(full(bucketKey)),
+                        bytes(String.valueOf(ttlMillis))
+                )
+        );
+        return v == null ? 0L : v;
+    }
+
+    @Override
+    public long addAndGet(String bucketKey, long delta, long ttlMillis) {
+        if (delta == 0) return get(bucketKey);
+        Long v = redis.execute((RedisCallback<Long>) connection ->
+                connection.scriptingCommands().eval(
+                        bytes(INCRBY_WITH_TTL_LUA),
+                        org.springframework.data.redis.connection.ReturnType.INTEGER,
+                        1,
+                        bytes(full(bucketKey)),
+                        bytes(String.valueOf(delta)),
+                        bytes(String.valueOf(ttlMillis))
+                )
+        );
+        return v == null ? 0L : v;
+    }
+
+    @Override
+    public boolean subtract(String bucketKey, long hits) {
+        redis.execute((RedisCallback<Long>) connection ->
                 connection.scriptingCommands().eval(
-                        INCR_WITH_TTL_LUA.getBytes(),
+                        bytes(SUBTRACT_LUA),
                         org.springframework.data.redis.connection.ReturnType.INTEGER,
                         1,
-                        full(bucketKey).getBytes(),
-                        String.valueOf(ttlMillis).getBytes()
-                ), true, true
+                        bytes(full(bucketKey)),
+                        bytes(String.valueOf(hits))
+                )
+        );
+        return true;
+    }
+
+    @Override
+    public long incrementAndSum(String keyBase, long currentBucket, int olderBuckets, long ttlMillis) {
+        byte[][] keysAndArgs = new byte[olderBuckets + 2][];
+        for (int i = 0; i <= olderBuckets; i++) {
+            keysAndArgs[i] = bytes(full(keyBase + (currentBucket - i)));
+        }
+        keysAndArgs[olderBuckets + 1] = bytes(String.valueOf(ttlMillis));
+        Long v = redis.execute((RedisCallback<Long>) connection ->
+                connection.scriptingCommands().eval(
+                        bytes(INCR_AND_SUM_LUA),
+                        org.springframework.data.redis.connection.ReturnType.INTEGER,
+                        olderBuckets + 1,
+                        keysAndArgs
+                )
+        );
+        return v == null ? 0L : v;
+    }
+
+    @Override
+    public long addAndSum(String keyBase, long currentBucket, int olderBuckets, long delta, long ttlMillis) {
+        byte[][] keysAndArgs = new byte[olderBuckets + 3][];
+        for (int i = 0; i <= olderBuckets; i++) {
+            keysAndArgs[i] = bytes(full(keyBase + (currentBucket - i)));
+        }
+        keysAndArgs[olderBuckets + 1] = bytes(String.valueOf(delta));
+        keysAndArgs[olderBuckets + 2] = bytes(String.valueOf(ttlMillis));
+        Long v = redis.execute((RedisCallback<Long>) connection ->
+                connection.scriptingCommands().eval(
+                        bytes(ADD_AND_SUM_LUA),
+                        org.springframework.data.redis.connection.ReturnType.INTEGER,
+                        olderBuckets + 1,
+                        keysAndArgs
+                )
         );
         return v == null ? 0L : v;
     }
 
+    @Override
+    public long[] addAndSumAll(String[] keyBases, long[] currentBuckets, int olderBuckets, long[] deltas,
+                               long[] ttlMillis) {
+        long[] totals = new long[keyBases.length];
+        int k = olderBuckets + 1;
+        String[] currentKeys = new String[totals.length];
+        for (int i = 0; i < currentKeys.length; i++) currentKeys[i] = full(keyBases[i] + currentBuckets[i]);
+        List<int[]> batches = batches(currentKeys, cluster(), BULK_CHUNK);
+        int[] numKeys = new int[batches.size()];
+        byte[][][] keysAndArgs = new byte[batches.size()][][];
+        for (int c = 0; c < keysAndArgs.length; c++) {
+            int[] batch = batches.get(c);
+            int n = batch.length;
+            numKeys[c] = n * k;
+            byte[][] call = new byte[n * k + 1 + 2 * n][];
+            int a = 0;
+            for (int i : batch) {
+                for (int b = 0; b < k; b++) {
+                    call[a++] = bytes(full(keyBases[i] + (currentBuckets[i] - b)));
+                }
+            }
+            call[a++] = bytes(String.valueOf(k));
+            for (int i : batch) {
+                call[a++] = bytes(String.valueOf(deltas[i]));
+                call[a++] = bytes(String.valueOf(ttlMillis[i]));
+            }
+            keysAndArgs[c] = call;
+        }
+        byte[] script = bytes(ADD_AND_SUM_ALL_LUA);
+        List<List<Object>> replies = redis.execute((RedisCallback<List<List<Object>>>) connection -> {
+            // several scripts, e.g. one per slot on a cluster: send them all before reading a reply
+            if (keysAndArgs.length > 1 && LETTUCE && LettuceAsync.supportsScripts(connection.getNativeConnection())) {
+                return LettuceAsync.evalAll(connection.getNativeConnection(), script, numKeys, keysAndArgs);
+            }
+            List<List<Object>> out = new ArrayList<>(keysAndArgs.length);
+            for (int c = 0; c < keysAndArgs.length; c++) {
+                out.add(connection.scriptingCommands().eval(
+                        script,
+                        org.springframework.data.redis.connection.ReturnType.MULTI,
+                        numKeys[c],
+                        keysAndArgs[c]
+                ));
+            }
+            return out;
+        });
+        for (int c = 0; c < keysAndArgs.length; c++) {
+            int[] batch = batches.get(c);
+            List<Object> reply = replies == null ? null : replies.get(c);
+            for (int j = 0; j < batch.length; j++) {
+                totals[batch[j]] = reply == null ? 0L : ((Number) reply.get(j)).longValue();
+            }
+        }
+        return totals;
+    }
+
+    /**
+     * Splits items into batches of at most {@code chunk}, keeping their order. On a cluster
+     * the items of a batch are all in one slot, that of their key, as a script requires.
+     */
+    static List<int[]> batches(String[] keys, boolean cluster, int chunk) {
+        List<List<Integer>> groups = new ArrayList<>();
+        if (cluster) {
+            Map<Integer, List<Integer>> bySlot = new LinkedHashMap<>();
+            for (int i = 0; i < keys.length; i++) {
+                bySlot.computeIfAbsent(ClusterSlotHashUtil.calculateSlot(keys[i]), s -> new ArrayList<>()).add(i);
+            }
+            groups.addAll(bySlot.values());
+        } else {
+            List<Integer> all = new ArrayList<>(keys.length);
+            for (int i = 0; i < keys.length; i++) all.add(i);
+            groups.add(all);
+        }
+        List<int[]> batches = new ArrayList<>();
+        for (List<Integer> group : groups) {
+            for (int from = 0; from < group.size(); from += chunk) {
+                batches.add(group.subList(from, Math.min(group.size(), from + chunk)).stream()
+                        .mapToInt(Integer::intValue).toArray());
+            }
+        }
+        return batches;
+    }
+
+    private boolean cluster() {
+        Boolean c = cluster;
+        if (c == null) {
+            c = Boolean.TRUE.equals(redis.execute((RedisCallback<Boolean>) connection ->
+                    connection instanceof RedisClusterConnection));
+            cluster = c;
+        }
+        return c;
+    }
+
     @Override
     public long get(String bucketKey) {
-        String v = redis.opsForValue().get(full(bucketKey));
+        return parse(redis.opsForValue().get(full(bucketKey)));
+    }
+
+    private static long parse(String v) {
         if (v == null) return 0L;
         try { return Long.parseLong(v); } catch (NumberFormatException e) { return 0L; }
     }
 
+    @Override
+    public long[] getAll(String[] bucketKeys) {
+        long[] counts = new long[bucketKeys.length];
+        for (int from = 0; from < counts.length; from += BULK_CHUNK) {
+            int n = Math.min(BULK_CHUNK, counts.length - from);
+            List<String> keys = new ArrayList<>(n);
+            for (int i = from; i < from + n; i++) keys.add(full(bucketKeys[i]));
+            List<String> values = redis.opsForValue().multiGet(keys);
+            for (int j = 0; values != null && j < n; j++) counts[from + j] = parse(values.get(j));
+        }
+        return counts;
+    }
+
     @Override
     public void expire(String bucketKey, long ttlMillis) {
         redis.expire(full(bucketKey), Duration.ofMillis(ttlMillis));
     }
 
+    @Override
+    public void delete(String bucketKey) {
+        redis.delete(full(bucketKey));
+    }
+
+    /**
+     * Lists live bucket keys with {@code SCAN <cursor> MATCH <prefix>* COUNT <count>}. The
+     * cursor is Redis's own; a page may hold fewer than {@code count} keys, or none, before
+     * the scan is complete.
+     *
+     * @throws IllegalArgumentException if the cursor is not a number
+     */
+    @Override
+    public KeyPage scan(String cursor, int count) {
+        String from = cursor == null || cursor.isEmpty() ? "0" : cursor;
+        if (!from.chars().allMatch(c -> c >= '0' && c <= '9') || from.length() > 20) {
+            throw new IllegalArgumentException("Malformed scan cursor: " + cursor);
+        }
+        String match = globEscape(keyPrefix) + "*";
+        return redis.execute((RedisCallback<KeyPage>) connection -> {
+            // Lettuce's generic execute reads a single bulk reply, so SCAN goes through its own API
+            if (LETTUCE && LettuceAsync.supportsScan(connection.getNativeConnection())) {
+                return LettuceAsync.scan(connection.getNativeConnection(), from, match, count, this::page);
+            }
+            Object reply = connection.execute("SCAN", bytes(from), bytes("MATCH"), bytes(match),
+                    bytes("COUNT"), bytes(String.valueOf(count)));
+            if (!(reply instanceof List<?> parts) || parts.size() != 2) {
+                throw new IllegalStateException("Unexpected SCAN reply: " + reply);
+            }
+            return page(string(parts.get(0)), (List<?>) parts.get(1));
+        });
+    }
+
+    private KeyPage page(String next, List<?> fullKeys) {
+        List<String> keys = new ArrayList<>(fullKeys.size());
+        for (Object k : fullKeys) {
+            keys.add(string(k).substring(keyPrefix.length()));
+        }
+        return new KeyPage(keys, "0".equals(next) ? null : next);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(Object o) {
+        return o instanceof byte[] b ? new String(b, StandardCharsets.UTF_8) : String.valueOf(o);
+    }
+
+    private static String globEscape(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) {
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') sb.append('\\');
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
     private String full(String bucketKey) {
         return keyPrefix + bucketKey;
     }
+
+    /** Kept apart so that the store loads without Lettuce on the classpath. */
+    private static final class LettuceAsync {
+
+        private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+        static boolean supportsScan(Object nativeConnection) {
+            return nativeConnection instanceof RedisKeyAsyncCommands<?, ?>;
+        }
+
+        static boolean supportsScripts(Object nativeConnection) {
+            return nativeConnection instanceof RedisScriptingAsyncCommands<?, ?>;
+        }
+
+        /**
+         * Sends every script before awaiting any reply. On a cluster connection Lettuce routes
+         * each to the node serving its slot, so the scripts for one node share its round trips.
+         */
+        @SuppressWarnings("unchecked")
+        static List<List<Object>> evalAll(Object nativeConnection, byte[] script, int[] numKeys,
+                                          byte[][][] keysAndArgs) {
+            RedisScriptingAsyncCommands<byte[], byte[]> lettuce =
+                    (RedisScriptingAsyncCommands<byte[], byte[]>) nativeConnection;
+            List<RedisFuture<List<Object>>> futures = new ArrayList<>(keysAndArgs.length);
+            for (int c = 0; c < keysAndArgs.length; c++) {
+                byte[][] call = keysAndArgs[c];
+                futures.add(lettuce.eval(script, ScriptOutputType.MULTI,
+                        Arrays.copyOfRange(call, 0, numKeys[c]), Arrays.copyOfRange(call, numKeys[c], call.length)));
+            }
+            List<List<Object>> replies = new ArrayList<>(futures.size());
+            for (RedisFuture<List<Object>> f : futures) {
+                replies.add(LettuceFutures.awaitOrCancel(f, TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+            }
+            return replies;
+        }
+
+        @SuppressWarnings("unchecked")
+        static KeyPage scan(Object nativeConnection, String cursor, String match, int count,
+                            BiFunction<String, List<?>, KeyPage> page) {
+            RedisKeyAsyncCommands<byte[], byte[]> lettuce = (RedisKeyAsyncCommands<byte[], byte[]>) nativeConnection;
+            KeyScanCursor<byte[]> result = LettuceFutures.awaitOrCancel(
+                    lettuce.scan(ScanCursor.of(cursor), ScanArgs.Builder.matches(match).limit(count)),
+                    TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            return page.apply(result.getCursor(), result.getKeys());
+        }
+    }
 }
@@ -0,0 +1,119 @@
+package org.amyth.autoconfigure.store.redis;
+
+import org.amyth.core.api.ScannableRateLimitStore;
+import org.amyth.core.model.KeyPage;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * One shard of a sharded Redis deployment: a {@link RedisRateLimitStore} that owns
+ * its own Lettuce connection factory and closes it with the store.
+ */
+public final class RedisShard implements ScannableRateLimitStore, AutoCloseable {
+
+    private final String id;
+    private final LettuceConnectionFactory connectionFactory;
+    private final RedisRateLimitStore delegate;
+
+    private RedisShard(String id, LettuceConnectionFactory connectionFactory, String keyPrefix) {
+        this.id = id;
+        this.connectionFactory = connectionFactory;
+        this.delegate = new RedisRateLimitStore(new StringRedisTemplate(connectionFactory), keyPrefix);
+    }
+
+    /**
+     * Connects to a Redis endpoint.
+     *
+     * @param uri Redis URI, e.g. {@code redis://:secret@10.0.0.5:6379/0}
+     * @param keyPrefix Prefix to apply to all Redis keys
+     * @return A started shard
+     */
+    public static RedisShard connect(String uri, String keyPrefix) {
+        RedisStandaloneConfiguration config =
+                (RedisStandaloneConfiguration) LettuceConnectionFactory.createRedisConfiguration(uri);
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(config);
+        factory.afterPropertiesSet();
+        factory.start();
+        return new RedisShard(shardId(config), factory, keyPrefix);
+    }
+
+    /**
+     * Stable shard id used for ring placement: {@code host:port[/db]}. Credentials are
+     * deliberately left out so rotating a password does not reshuffle clients.
+     */
+    static String shardId(RedisStandaloneConfiguration config) {
+        String id = config.getHostName() + ":" + config.getPort();
+        return config.getDatabase() == 0 ? id : id + "/" + config.getDatabase();
+    }
+
+    /**
+     * Gets the ring id of this shard.
+     *
+     * @return The shard id ({@code host:port[/db]})
+     */
+    public String id() {
+        return id;
+    }
+
+    @Override
+    public long incrementAndGet(String bucketKey, long ttlMillis) {
+        return delegate.incrementAndGet(bucketKey, ttlMillis);
+    }
+
+    @Override
+    public long addAndGet(String bucketKey, long delta, long ttlMillis) {
+        return delegate.addAndGet(bucketKey, delta, ttlMillis);
+    }
+
+    @Override
+    public boolean subtract(String bucketKey, long hits) {
+        return delegate.subtract(bucketKey, hits);
+    }
+
+    @Override
+    public long incrementAndSum(String keyBase, long currentBucket, int olderBuckets, long ttlMillis) {
+        return delegate.incrementAndSum(keyBase, currentBucket, olderBuckets, ttlMillis);
+    }
+
+    @Override
+    public long addAndSum(String keyBase, long currentBucket, int olderBuckets, long delta, long ttlMillis) {
+        return delegate.addAndSum(keyBase, currentBucket, olderBuckets, delta, ttlMillis);
+    }
+
+    @Override
+    public long[] addAndSumAll(String[] keyBases, long[] currentBuckets, int olderBuckets, long[] deltas,
+                               long[] ttlMillis) {
+        return delegate.addAndSumAll(keyBases, currentBuckets, olderBuckets, deltas, ttlMillis);
+    }
+
+    @Override
+    public long get(String bucketKey) {
+        return delegate.get(bucketKey);
+    }
+
+    @Override
+    public long[] getAll(String[] bucketKeys) {
+        return delegate.getAll(bucketKeys);
+    }
+
+    @Override
+    public void expire(String bucketKey, long ttlMillis) {
+        delegate.expire(bucketKey, ttlMillis);
+    }
+
+    @Override
+    public void delete(String bucketKey) {
+        delegate.delete(bucketKey);
+    }
+
+    @Override
+    public KeyPage scan(String cursor, int count) {
+        return delegate.scan(cursor, count);
+    }
+
+    @Override
+    public void close() {
+        connectionFactory.destroy();
+    }
+}
@@ -0,0 +1,171 @@
+package org.amyth.autoconfigure.web;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.amyth.core.concurrency.AdaptiveConcurrencyLimiter;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency-driven in-flight limits of the web layer: one shared by every route, or one
+ * per route.
+ *
+ * Routes are registered while the route table is built. Streaming routes (server-sent
+ * events, NDJSON) are never limited, as a stream's duration says nothing about load. In
+ * per-route mode a route gets its limiter on registration and unregistered paths are not
+ * limited; in global mode every non-streaming request shares one limiter.
+ *
+ * Exposes, tagged {@code route} ({@value #ALL_ROUTES} for the shared limiter):
+ *  - ratelimit.adaptive.limit      (gauge, requests allowed in flight)
+ *  - ratelimit.adaptive.in.flight  (gauge)
+ *  - ratelimit.adaptive.rejected   (counter)
+ *  - ratelimit.adaptive.latency    (gauge, average of the last window, in seconds)
+ */
+public final class AdaptiveConcurrency implements MeterBinder {
+
+    /** Route tag of the limiter shared by every route. */
+    public static final String ALL_ROUTES = "all";
+
+    private static final List<MediaType> STREAMING = List.of(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_NDJSON);
+
+    private final AdaptiveConcurrencyLimiter.Options options;
+    private final int httpStatus;
+    private final AdaptiveConcurrencyLimiter global;
+    private final Set<String> streaming = ConcurrentHashMap.newKeySet();
+    // route -> limiter; written at startup only
+    private final Map<String, AdaptiveConcurrencyLimiter> routes = new LinkedHashMap<>();
+    private volatile Map<String, AdaptiveConcurrencyLimiter> lookup = Map.of();
+    private MeterRegistry registry;
+
+    /**
+     * Creates the limits.
+     *
+     * @param options Tuning of every limiter
+     * @param perRoute Whether each route gets a limiter of its own
+     * @param httpStatus Status of a rejected request
+     */
+    public AdaptiveConcurrency(AdaptiveConcurrencyLimiter.Options options, boolean perRoute, int httpStatus) {
+        this.options = Objects.requireNonNull(options, "options");
+        this.httpStatus = httpStatus;
+        this.global = perRoute ? null : new AdaptiveConcurrencyLimiter(options);
+        if (global != null) routes.put(ALL_ROUTES, global);
+    }
+
+    /**
+     * Tells whether a route producing the given media types streams its response.
+     *
+     * @param produces The media types the route produces
+     * @return {@code true} for server-sent events and NDJSON
+     */
+    public static boolean isStreaming(Collection<MediaType> produces) {
+        for (MediaType type : produces) {
+            for (MediaType s : STREAMING) {
+                if (s.equalsTypeAndSubtype(type)) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Registers a route, giving it a limiter of its own in per-route mode.
+     *
+     * @param route The route, e.g. {@code "GET /api/orders"}
+     * @param streams Whether the route streams its response, which exempts it
+     */
+    public void register(String route, boolean streams) {
+        if (streams) {
+            streaming.add(route);
+            return;
+        }
+        if (global != null) return;
+        synchronized (routes) {
+            if (routes.containsKey(route)) return;
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(options);
+            routes.put(route, limiter);
+            if (registry != null) register(registry, route, limiter);
+            lookup = Map.copyOf(routes);
+        }
+    }
+
+    /**
+     * Gets the limiter a request to the route goes through.
+     *
+     * @param route The route, as registered
+     * @return The limiter, or {@code null} when the route is not limited
+     */
+    public AdaptiveConcurrencyLimiter limiter(String route) {
+        if (streaming.contains(route)) return null;
+        return global != null ? global : lookup.get(route);
+    }
+
+    /**
+     * Gets the status of a rejected request.
+     *
+     * @return The HTTP status code
+     */
+    public int getHttpStatus() {
+        return httpStatus;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Objects.requireNonNull(registry, "registry");
+        synchronized (routes) {
+            this.registry = registry;
+            routes.forEach((route, limiter) -> register(registry, route, limiter));
+        }
+    }
+
+    private static void register(MeterRegistry registry, String route, AdaptiveConcurrencyLimiter limiter) {
+        Gauge.builder("ratelimit.adaptive.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                .tag("route", route)
+                .description("Requests allowed in flight, adapted to latency")
+                .register(registry);
+        Gauge.builder("ratelimit.adaptive.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                .tag("route", route)
+                .description("Requests holding an adaptive concurrency permit")
+                .register(registry);
+        FunctionCounter.builder("ratelimit.adaptive.rejected", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                .tag("route", route)
+                .description("Requests rejected because the adaptive limit was in flight")
+                .register(registry);
+        Gauge.builder("ratelimit.adaptive.latency", limiter, l -> l.getLatency().toNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+                .tag("route", route)
+                .baseUnit("seconds")
+                .description("Average latency of the last window that moved the adaptive limit")
+                .register(registry);
+    }
+
+    /**
+     * Describes every limiter, for the actuator endpoint.
+     *
+     * @return Per route its limit, requests in flight, rejections and latency
+     */
+    public List<Map<String, Object>> snapshot() {
+        List<Map<String, Object>> out = new ArrayList<>();
+        synchronized (routes) {
+            routes.forEach((route, limiter) -> {
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("route", route);
+                m.put("limit", limiter.getLimit());
+                m.put("inFlight", limiter.getInFlight());
+                m.put("rejected", limiter.getRejected());
+                m.put("latencyMillis", limiter.getLatency().toNanos() / 1_000_000.0);
+                m.put("targetLatencyMillis", options.targetLatency().toMillis());
+                out.add(m);
+            });
+        }
+        return out;
+    }
+}
@@ -0,0 +1,70 @@
+package org.amyth.autoconfigure.web;
+
+/**
+ * Values of the rate limit response headers of one route, cached so that writing them
+ * allocates nothing in the steady state.
+ *
+ * The limit is rendered once, counts below {@value #CACHED_COUNTS} come from a shared
+ * table, and the reset second is re-rendered only when it changes, i.e. once per bucket.
+ */
+public final class RateLimitHeaders {
+
+    public static final String LIMIT = "X-RateLimit-Limit";
+    public static final String REMAINING = "X-RateLimit-Remaining";
+    public static final String RESET = "X-RateLimit-Reset";
+    public static final String RETRY_AFTER = "Retry-After";
+
+    static final int CACHED_COUNTS = 1024;
+    private static final String[] COUNTS = new String[CACHED_COUNTS];
+
+    static {
+        for (int i = 0; i < CACHED_COUNTS; i++) COUNTS[i] = Integer.toString(i);
+    }
+
+    /** The last reset second and its text, replaced together. */
+    private record Second(long epochSecond, String text) { }
+
+    private final String limit;
+    private volatile Second reset = new Second(-1, "-1");
+
+    /**
+     * Creates the header values of a route.
+     *
+     * @param permits The route's limit
+     */
+    public RateLimitHeaders(long permits) {
+        this.limit = count(permits);
+    }
+
+    /**
+     * Gets the {@code X-RateLimit-Limit} value.
+     *
+     * @return The limit as text
+     */
+    public String limit() { return limit; }
+
+    /**
+     * Renders an {@code X-RateLimit-Reset} value, reusing the previous text for the same second.
+     *
+     * @param epochSecond The epoch second at which the window resets
+     * @return The second as text
+     */
+    public String reset(long epochSecond) {
+        Second s = reset;
+        if (s.epochSecond() != epochSecond) {
+            s = new Second(epochSecond, Long.toString(epochSecond));
+            reset = s;
+        }
+        return s.text();
+    }
+
+    /**
+     * Renders a non-negative count, such as {@code X-RateLimit-Remaining} or {@code Retry-After}.
+     *
+     * @param n The count
+     * @return The count as text, shared for small values
+     */
+    public static String count(long n) {
+        return n >= 0 && n < CACHED_COUNTS ? COUNTS[(int) n] : Long.toString(n);
+    }
+}
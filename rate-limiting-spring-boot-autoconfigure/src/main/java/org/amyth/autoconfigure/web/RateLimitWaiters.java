@@ -0,0 +1,97 @@
+package org.amyth.autoconfigure.web;
+
+import org.amyth.core.api.ConcurrencyLimiter;
+import org.amyth.core.api.RateLimiter;
+import org.amyth.core.concurrency.LocalConcurrencyLimiter;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.amyth.core.model.WindowState;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The bounded wait queues of {@code @RateLimit(maxWait = ...)}.
+ *
+ * A request over the limit may wait for a permit only after taking a place here: at most
+ * {@code maxWaiting} per key and {@code maxTotal} overall, so delayed requests cannot
+ * exhaust memory or threads. Such a request is not counted while it is over the limit
+ * ({@link RateLimiter#tryAcquire}), so waiting requests do not fill the window they wait on.
+ * It {@link #poll polls} the window each time a bucket slides out and, once there is room,
+ * records a hit: a delayed request is counted in the window it runs in, like any other.
+ */
+public final class RateLimitWaiters {
+
+    /** Returned by {@link #poll} when the request holds a permit and may proceed. */
+    public static final long ADMIT = 0;
+
+    private static final Duration NO_LEASE = Duration.ZERO;
+
+    private final LocalConcurrencyLimiter perKey = new LocalConcurrencyLimiter();
+    private final AtomicInteger total = new AtomicInteger();
+    private final int maxTotal;
+
+    /**
+     * Creates the wait queues.
+     *
+     * @param maxTotal Most requests waiting at once, over all keys
+     */
+    public RateLimitWaiters(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    /**
+     * Takes a place in a key's wait queue.
+     *
+     * @param key The rate limit key
+     * @param maxWaiting Most requests of the key waiting at once
+     * @return The place, to be released when the wait ends; {@code null} when a queue is full
+     */
+    public ConcurrencyLimiter.Permit tryEnter(String key, int maxWaiting) {
+        if (total.incrementAndGet() > maxTotal) {
+            total.decrementAndGet();
+            return null;
+        }
+        ConcurrencyLimiter.Permit place = perKey.tryAcquire(key, maxWaiting, NO_LEASE);
+        if (place == null) {
+            total.decrementAndGet();
+            return null;
+        }
+        return () -> {
+            place.release();
+            total.decrementAndGet();
+        };
+    }
+
+    /**
+     * Gets the number of requests waiting for a permit.
+     *
+     * @return The requests waiting, over all keys
+     */
+    public int getWaiting() {
+        return total.get();
+    }
+
+    /**
+     * Tries to take a permit for a waiting request. The window is read without consuming a
+     * permit; when it holds fewer hits than the limit, a hit is recorded for the request
+     * unless other requests took the room first.
+     *
+     * @param limiter The limiter of the route
+     * @param key The rate limit key
+     * @param rule The rule of the route
+     * @param nowMillis The current time
+     * @param deadlineMillis When the request stops waiting
+     * @return {@link #ADMIT} when the request holds a permit; otherwise the milliseconds until
+     *         the next bucket slides out, positive to wait that long and poll again, or negated
+     *         when that is past the deadline and the request gives up
+     */
+    public static long poll(RateLimiter limiter, String key, LimitRule rule, long nowMillis, long deadlineMillis) {
+        WindowState state = limiter.peek(key, rule);
+        if (state.count() < rule.permits()) {
+            if (PackedDecision.allowed(limiter.tryAcquire(key, rule, 1))) return ADMIT;
+        }
+        long wait = Math.max(1, state.resetAt().toEpochMilli() - nowMillis);
+        return nowMillis + wait > deadlineMillis ? -wait : wait;
+    }
+}
@@ -0,0 +1,180 @@
+package org.amyth.autoconfigure.webflux;
+
+import org.amyth.core.api.LimitOutcome;
+import org.amyth.core.api.RateLimiter;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.amyth.core.model.WindowState;
+import org.amyth.core.pacing.RateLimitExceededException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Reactor operators limiting the elements of a stream per key, for streams that stay open
+ * long after {@code @RateLimit} admitted them at connect time (server-sent events, NDJSON).
+ *
+ * Each subscription takes permits from the {@link RateLimiter} in batches of up to
+ * {@code batch} per store call, one {@link RateLimiter#tryAcquire}, and hands them to its
+ * elements locally. Near the limit the batch shrinks to the permits the window has left. A
+ * permit is used only while the hits taken with it still count
+ * ({@link RateLimiter#countedUntil}), so the elements sent in any window stay within the
+ * limit; permits not used in time, or left when the stream ends, are forfeited but stay
+ * counted until they slide out. When the window has room for part of a batch only, the
+ * limiter records none of it and that part is asked for instead; if nothing fits, the stream
+ * reads the window once per bucket at most, asking for a fresh batch once it has room.
+ * Elements over the limit cost no store call in between.
+ *
+ * <pre>{@code
+ * return ticks.transform(operators.limit("sse:" + user, new LimitRule(10, Duration.ofSeconds(1))));
+ * }</pre>
+ */
+public final class RateLimitOperators {
+
+    private final RateLimiter limiter;
+    private final int batch;
+    private final Clock clock;
+
+    /**
+     * Creates the operators on the system clock.
+     *
+     * @param limiter The rate limiter counting the elements
+     * @param batch Most permits taken per store call, at least 1
+     */
+    public RateLimitOperators(RateLimiter limiter, int batch) {
+        this(limiter, batch, Clock.systemUTC());
+    }
+
+    /**
+     * Creates the operators.
+     *
+     * @param limiter The rate limiter counting the elements
+     * @param batch Most permits taken per store call, at least 1
+     * @param clock The clock the limiter uses
+     */
+    public RateLimitOperators(RateLimiter limiter, int batch, Clock clock) {
+        if (batch < 1) throw new IllegalArgumentException("batch must be >= 1");
+        this.limiter = Objects.requireNonNull(limiter, "limiter");
+        this.batch = batch;
+        this.clock = Objects.requireNonNull(clock, "clock");
+    }
+
+    /**
+     * Delays the elements of a stream over the limit until the window has room, without
+     * blocking a thread. Upstream is not requested further while an element waits.
+     *
+     * @param key The rate limit key, e.g. the user the stream is sent to
+     * @param rule The limit of elements per window
+     * @param <T> The element type
+     * @return An operator for {@link Flux#transform}
+     */
+    public <T> Function<Flux<T>, Flux<T>> limit(String key, LimitRule rule) {
+        return limit(key, rule, LimitOutcome.BLOCK);
+    }
+
+    /**
+     * Limits the elements of a stream, each subscription on its own.
+     *
+     * @param key The rate limit key, e.g. the user the stream is sent to
+     * @param rule The limit of elements per window
+     * @param onLimit What happens to an element over the limit: {@code BLOCK} delays it,
+     *                {@code DROP} skips it, {@code THROW} ends the stream with a
+     *                {@link RateLimitExceededException}
+     * @param <T> The element type
+     * @return An operator for {@link Flux#transform}
+     */
+    public <T> Function<Flux<T>, Flux<T>> limit(String key, LimitRule rule, LimitOutcome onLimit) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(rule, "rule");
+        Objects.requireNonNull(onLimit, "onLimit");
+        return flux -> Flux.defer(() -> {
+            Permits permits = new Permits(key, rule);
+            return switch (onLimit) {
+                case BLOCK -> flux.delayUntil(element -> permits.tryTake() ? Mono.empty() : permits.untilTaken());
+                case DROP -> flux.filter(element -> permits.tryTake());
+                case THROW -> flux.handle((element, sink) -> {
+                    if (permits.tryTake()) {
+                        sink.next(element);
+                    } else {
+                        sink.error(permits.exceeded());
+                    }
+                });
+            };
+        });
+    }
+
+    /**
+     * The permits of one subscription. Elements are signalled one at a time, so no
+     * synchronization is needed.
+     */
+    private final class Permits {
+        private final String key;
+        private final LimitRule rule;
+        private long remaining = Long.MAX_VALUE; // as of the last decision
+        private long held;
+        private long heldUntil;
+        private long closedUntil;
+
+        Permits(String key, LimitRule rule) {
+            this.key = key;
+            this.rule = rule;
+        }
+
+        /** Takes a permit for the next element, from those held or, if none are, from the limiter. */
+        boolean tryTake() {
+            long now = clock.millis();
+            if (held > 0 && now < heldUntil) {
+                held--;
+                return true;
+            }
+            if (now < closedUntil) return false;
+            if (closedUntil > 0) {
+                // closed by a refused batch: ask for a fresh one only once the window has room
+                WindowState state = limiter.peek(key, rule);
+                if (state.count() >= rule.permits()) return close(state, now);
+                remaining = rule.permits() - state.count();
+                closedUntil = 0;
+            }
+            long n = Math.min(Math.min(batch, rule.permits()), Math.max(1, remaining));
+            // read before the hits are recorded, so that it is never past their own bucket's
+            long countedUntil = n > 1 ? limiter.countedUntil(key, rule).toEpochMilli() : now;
+            long decision = limiter.tryAcquire(key, rule, n);
+            if (!PackedDecision.allowed(decision) && PackedDecision.remaining(decision) > 0) {
+                // the window had room for part of the batch only: ask for that part
+                n = Math.min(n - 1, PackedDecision.remaining(decision));
+                decision = limiter.tryAcquire(key, rule, n);
+            }
+            remaining = PackedDecision.remaining(decision);
+            if (PackedDecision.allowed(decision)) {
+                held = n - 1;
+                heldUntil = countedUntil;
+                return true;
+            }
+            held = 0;
+            return close(limiter.peek(key, rule), now);
+        }
+
+        /** Completes once a permit is taken, asking the limiter again each time a bucket ends. */
+        Mono<Void> untilTaken() {
+            return Mono.delay(retryAfter())
+                    .then(Mono.defer(() -> tryTake() ? Mono.<Void>empty() : untilTaken()));
+        }
+
+        RateLimitExceededException exceeded() {
+            return new RateLimitExceededException(key, retryAfter());
+        }
+
+        private Duration retryAfter() {
+            return Duration.ofMillis(Math.max(1, closedUntil - clock.millis()));
+        }
+
+        private boolean close(WindowState state, long now) {
+            closedUntil = Math.max(now + 1, state.resetAt().toEpochMilli());
+            return false;
+        }
+    }
+}
@@ -1,12 +1,24 @@
 package org.amyth.autoconfigure.webflux;
 
 import org.amyth.autoconfigure.RateLimitProperties;
+import org.amyth.autoconfigure.jfr.RateLimitDecisionEvent;
+import org.amyth.autoconfigure.jfr.RateLimitEvents;
 import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.autoconfigure.metrics.RouteMeters;
+import org.amyth.autoconfigure.web.AdaptiveConcurrency;
+import org.amyth.autoconfigure.web.RateLimitHeaders;
+import org.amyth.autoconfigure.web.RateLimitWaiters;
+import org.amyth.core.annotation.ConcurrencyLimit;
 import org.amyth.core.annotation.RateLimit;
+import org.amyth.core.api.ConcurrencyLimiter;
 import org.amyth.core.api.KeyStrategy;
 import org.amyth.core.api.RateLimiter;
-import org.amyth.core.model.HitResult;
+import org.amyth.core.concurrency.AdaptiveConcurrencyLimiter;
+import org.amyth.core.concurrency.LocalConcurrencyLimiter;
+import org.amyth.core.keys.SubnetKeyResolver;
 import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.amyth.core.stats.RecentDecisions;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
@@ -20,24 +32,51 @@ import org.springframework.web.server.ServerWebExchange;
 import org.springframework.web.server.WebFilter;
 import org.springframework.web.server.WebFilterChain;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
 
 import java.time.Duration;
-import java.time.Instant;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A WebFilter that enforces @RateLimit on WebFlux controllers.
  *
  * It looks up the matched HandlerMethod from exchange attributes, resolves the annotation,
  * computes the key, calls the RateLimiter, and either continues or short-circuits with 429.
+ * Rules, route meters and header values are resolved from the registry once, at
+ * construction, and the limiter's answer is read as a packed long through
+ * {@link RateLimiter#decide}, so deciding a request creates no result objects.
+ *
+ * {@code @ConcurrencyLimit} takes a permit when the exchange is subscribed and returns it
+ * when the chain's {@code Mono} terminates: the response, including a streamed
+ * {@code Flux} body, completed or failed, or the client went away and it was cancelled.
+ *
+ * A request over a {@code @RateLimit(maxWait = ...)} limit takes a place in its key's
+ * bounded wait queue and is delayed with {@code Mono.delay}, holding no thread, until the
+ * window has room for it or the wait would exceed {@code maxWait}; only then is it rejected.
+ *
+ * With an {@link AdaptiveConcurrency}, a request to a route that does not stream takes a
+ * permit of its adaptive limiter on subscription, once past the rate limit, and reports
+ * its latency when the response completes or fails. Exchanges rejected by
+ * {@code @ConcurrencyLimit} or cancelled give the permit back without a sample, their
+ * latency saying nothing about the handler.
  */
 @ConditionalOnClass(WebFilter.class)
 public final class RateLimitWebFilter implements WebFilter {
 
+    private record Route(RateLimit rl, LimitRule rule, RouteMeters meters, RateLimitHeaders headers,
+                         SubnetKeyResolver rlSubnets, ConcurrencyLimit cl, Duration lease,
+                         SubnetKeyResolver clSubnets, Duration maxWait) { }
+
     private final RateLimiter limiter;
+    private final ConcurrencyLimiter concurrency;
     private final RateLimitProperties props;
     private final RateLimitMetricsBinder metrics;
-    private final Map<String, RateLimit> registry;
+    private final AdaptiveConcurrency adaptive;
+    private final RateLimitWaiters waiters;
+    private final Map<String, Route> registry;
+    private final SubnetKeyResolver subnets;
     private final ExpressionParser spel = new SpelExpressionParser();
 
     /**
@@ -49,10 +88,61 @@ public final class RateLimitWebFilter implements WebFilter {
      * @param registry Registry mapping of paths to rate limit annotations
      */
     public RateLimitWebFilter(RateLimiter limiter, RateLimitProperties props, RateLimitMetricsBinder metrics, Map<String, RateLimit> registry) {
+        this(limiter, new LocalConcurrencyLimiter(), props, metrics, registry, Map.of());
+    }
+
+    /**
+     * Creates a new RateLimitWebFilter instance that also enforces {@code @ConcurrencyLimit}.
+     *
+     * @param limiter The rate limiter implementation to use
+     * @param concurrency The limiter of requests in flight
+     * @param props Configuration properties for rate limiting
+     * @param metrics Metrics binder for collecting statistics
+     * @param registry Registry mapping of paths to rate limit annotations
+     * @param concurrencyRegistry Registry mapping of paths to concurrency limit annotations
+     */
+    public RateLimitWebFilter(RateLimiter limiter, ConcurrencyLimiter concurrency, RateLimitProperties props,
+                              RateLimitMetricsBinder metrics, Map<String, RateLimit> registry,
+                              Map<String, ConcurrencyLimit> concurrencyRegistry) {
+        this(limiter, concurrency, null, props, metrics, registry, concurrencyRegistry);
+    }
+
+    /**
+     * Creates a new RateLimitWebFilter instance that also applies latency-adapted in-flight limits.
+     *
+     * @param limiter The rate limiter implementation to use
+     * @param concurrency The limiter of requests in flight
+     * @param adaptive The adaptive in-flight limits, with the application's routes registered; may be null
+     * @param props Configuration properties for rate limiting
+     * @param metrics Metrics binder for collecting statistics
+     * @param registry Registry mapping of paths to rate limit annotations
+     * @param concurrencyRegistry Registry mapping of paths to concurrency limit annotations
+     */
+    public RateLimitWebFilter(RateLimiter limiter, ConcurrencyLimiter concurrency, AdaptiveConcurrency adaptive,
+                              RateLimitProperties props, RateLimitMetricsBinder metrics,
+                              Map<String, RateLimit> registry, Map<String, ConcurrencyLimit> concurrencyRegistry) {
         this.limiter = limiter;
+        this.concurrency = concurrency;
+        this.adaptive = adaptive;
         this.props = props;
         this.metrics = metrics;
-        this.registry = registry;
+        this.waiters = new RateLimitWaiters(props.getMaxWaiting());
+        this.subnets = new SubnetKeyResolver(props.getSubnetIpv4Prefix(), props.getSubnetIpv6Prefix());
+        Map<String, Route> routes = new HashMap<>();
+        registry.forEach((route, rl) -> {
+            LimitRule rule = new LimitRule(rl.permits(), Duration.of(rl.window(), rl.unit().toChronoUnit()));
+            Duration maxWait = rl.maxWait() > 0 ? Duration.of(rl.maxWait(), rl.maxWaitUnit().toChronoUnit()) : null;
+            routes.put(route, new Route(rl, rule, metrics.route(route, rule), new RateLimitHeaders(rule.permits()),
+                    subnets(route, rl.strategy(), rl.strategyArg()), null, null, null, maxWait));
+        });
+        concurrencyRegistry.forEach((route, cl) -> {
+            Duration lease = Duration.of(cl.lease(), cl.leaseUnit().toChronoUnit());
+            SubnetKeyResolver clSubnets = subnets(route, cl.strategy(), cl.strategyArg());
+            routes.merge(route, new Route(null, null, null, null, null, cl, lease, clSubnets, null),
+                    (r, c) -> new Route(r.rl(), r.rule(), r.meters(), r.headers(), r.rlSubnets(), cl, lease,
+                            clSubnets, r.maxWait()));
+        });
+        this.registry = routes;
     }
 
     @Override
@@ -60,30 +150,153 @@ public final class RateLimitWebFilter implements WebFilter {
 
         String path = exchange.getRequest().getPath().value();
         String method = exchange.getRequest().getMethod().name();
-        RateLimit rl = registry.get(method + " " + path);
-        if (rl == null) {
+        String key = method + " " + path;
+        Route route = registry.get(key);
+        AdaptiveConcurrencyLimiter adaptiveLimiter = adaptive == null ? null : adaptive.limiter(key);
+        if (route == null && adaptiveLimiter == null) {
             return chain.filter(exchange); // no annotation
         }
+        return route == null || route.rl() == null
+                ? proceed(exchange, chain, route, adaptiveLimiter)
+                : limit(exchange, chain, route, adaptiveLimiter);
+    }
 
-        String key = resolveKey(exchange, rl);
+    private Mono<Void> limit(ServerWebExchange exchange, WebFilterChain chain, Route route,
+                             AdaptiveConcurrencyLimiter adaptiveLimiter) {
+        RateLimit rl = route.rl();
+        RateLimitDecisionEvent event = RateLimitEvents.beginDecision();
+        long start = System.nanoTime();
+        String key = resolveKey(exchange, rl.key(), rl.strategy(), rl.strategyArg(), route.rlSubnets());
+        metrics.recordKeyResolution(System.nanoTime() - start);
         if (!StringUtils.hasText(key)) {
-            return chain.filter(exchange);
+            RateLimitEvents.fallback("key-resolution", "fail-open", route.meters().getRoute());
+            return proceed(exchange, chain, route, adaptiveLimiter);
         }
+        long decision = rateLimit(exchange, route, key, event, start);
+        if (PackedDecision.allowed(decision)) return proceed(exchange, chain, route, adaptiveLimiter);
 
-        LimitRule rule = new LimitRule(rl.permits(),
-                Duration.of(rl.window(), rl.unit().toChronoUnit()));
-        HitResult hr = limiter.hit(key, rule);
+        ConcurrencyLimiter.Permit place = route.maxWait() == null ? null : waiters.tryEnter(key, rl.maxWaiting());
+        if (place == null) {
+            return reject(exchange, route, PackedDecision.resetEpochSecond(decision));
+        }
+        metrics.waitStarted();
+        long deadline = System.currentTimeMillis() + route.maxWait().toMillis();
+        AtomicBoolean waiting = new AtomicBoolean(true);
+        Runnable leave = () -> {
+            if (waiting.compareAndSet(true, false)) {
+                place.release();
+                metrics.waitEnded();
+            }
+        };
+        // leave the queue before an admitted request proceeds, or when the wait fails or is cancelled
+        return awaitPermit(key, route.rule(), deadline)
+                .doOnSuccess(next -> leave.run())
+                .doFinally(signal -> leave.run())
+                .flatMap(next -> {
+                    if (next != RateLimitWaiters.ADMIT) {
+                        return reject(exchange, route, Math.floorDiv(System.currentTimeMillis() - next, 1000));
+                    }
+                    metrics.incrementDelayed();
+                    return proceed(exchange, chain, route, adaptiveLimiter);
+                });
+    }
+
+    /**
+     * Polls the key's window each time a bucket slides out, until the request takes a permit or the
+     * deadline passes. Completes with {@link RateLimitWaiters#ADMIT}, or the negated milliseconds
+     * until the window may have room.
+     */
+    private Mono<Long> awaitPermit(String key, LimitRule rule, long deadlineMillis) {
+        return Mono.defer(() -> {
+            long next = RateLimitWaiters.poll(limiter, key, rule, System.currentTimeMillis(), deadlineMillis);
+            if (next <= 0) return Mono.just(next);
+            return Mono.delay(Duration.ofMillis(next)).then(awaitPermit(key, rule, deadlineMillis));
+        });
+    }
+
+    /** Continues past the rate limit: the adaptive limit, then {@code @ConcurrencyLimit}, both on subscription. */
+    private Mono<Void> proceed(ServerWebExchange exchange, WebFilterChain chain, Route route,
+                               AdaptiveConcurrencyLimiter adaptiveLimiter) {
+        if (adaptiveLimiter != null) return Mono.defer(() -> admit(exchange, chain, route, adaptiveLimiter));
+        if (route.cl() == null) return chain.filter(exchange);
+        return Mono.defer(() -> acquire(exchange, chain, route, null));
+    }
+
+    private Mono<Void> admit(ServerWebExchange exchange, WebFilterChain chain, Route route,
+                             AdaptiveConcurrencyLimiter adaptiveLimiter) {
+        AdaptiveConcurrencyLimiter.Permit permit = adaptiveLimiter.tryAcquire();
+        if (permit == null) {
+            exchange.getResponse().setStatusCode(HttpStatus.valueOf(adaptive.getHttpStatus()));
+            return exchange.getResponse().setComplete();
+        }
+        Mono<Void> next = route == null || route.cl() == null
+                ? chain.filter(exchange)
+                : acquire(exchange, chain, route, permit);
+        return next.doFinally(signal -> {
+            if (signal == SignalType.CANCEL) permit.ignore();
+            else permit.release();
+        });
+    }
+
+    private Mono<Void> reject(ServerWebExchange exchange, Route route, long resetEpochSecond) {
+        if (route.rl().sendHeaders()) {
+            long retryAfter = Math.max(0, resetEpochSecond - System.currentTimeMillis() / 1000);
+            exchange.getResponse().getHeaders().set(RateLimitHeaders.RETRY_AFTER, RateLimitHeaders.count(retryAfter));
+        }
+        exchange.getResponse().setStatusCode(HttpStatus.valueOf(route.rl().httpStatus()));
+        return exchange.getResponse().setComplete();
+    }
+
+    private long rateLimit(ServerWebExchange exchange, Route route, String key, RateLimitDecisionEvent event,
+                           long start) {
+        RateLimit rl = route.rl();
+        LimitRule rule = route.rule();
+        // a request that may wait is only counted once it fits, so waiting does not fill the window
+        long decision = route.maxWait() == null ? limiter.decide(key, rule) : limiter.tryAcquire(key, rule, 1);
+        boolean allowed = PackedDecision.allowed(decision);
+        long remaining = PackedDecision.remaining(decision);
 
-        writeHeaders(exchange, rl, hr, rule);
+        writeHeaders(exchange, rl, route.headers(), decision);
+        long nanos = System.nanoTime() - start;
+        metrics.recordDecision(nanos);
+        route.meters().record(key, allowed, remaining);
+        RecentDecisions recent = metrics.getRecentDecisions();
+        if (recent != null && recent.sample(allowed)) {
+            recent.record(route.meters().getRoute(), key, allowed, remaining, nanos);
+        }
+        if (event != null) {
+            RateLimitEvents.commitDecision(event, route.meters().getRoute(), route.meters().getRule(),
+                    metrics.getAlgoTag(), allowed, remaining);
+        }
 
-        if (hr.allowed()) {
+        if (allowed) {
             metrics.incrementAllowed();
-            return chain.filter(exchange);
         } else {
             metrics.incrementBlocked();
-            exchange.getResponse().setStatusCode(HttpStatus.valueOf(rl.httpStatus()));
+        }
+        return decision;
+    }
+
+    private Mono<Void> acquire(ServerWebExchange exchange, WebFilterChain chain, Route route,
+                               AdaptiveConcurrencyLimiter.Permit adaptivePermit) {
+        ConcurrencyLimit cl = route.cl();
+        String key = resolveKey(exchange, cl.key(), cl.strategy(), cl.strategyArg(), route.clSubnets());
+        if (!StringUtils.hasText(key)) {
+            RateLimitEvents.fallback("key-resolution", "fail-open", exchange.getRequest().getPath().value());
+            return chain.filter(exchange);
+        }
+        ConcurrencyLimiter.Permit permit = concurrency.tryAcquire(key, cl.permits(), route.lease());
+        if (permit == null) {
+            if (adaptivePermit != null) adaptivePermit.ignore();
+            metrics.incrementConcurrencyRejected();
+            exchange.getResponse().setStatusCode(HttpStatus.valueOf(cl.httpStatus()));
             return exchange.getResponse().setComplete();
         }
+        metrics.concurrencyAcquired();
+        return chain.filter(exchange).doFinally(signal -> {
+            permit.release();
+            metrics.concurrencyReleased();
+        });
     }
 
     private RateLimit findAnnotation(HandlerMethod hm) {
@@ -92,38 +305,46 @@ public final class RateLimitWebFilter implements WebFilter {
         return hm.getBeanType().getAnnotation(RateLimit.class);
     }
 
-    private void writeHeaders(ServerWebExchange exchange, RateLimit rl, HitResult hr, LimitRule rule) {
+    private void writeHeaders(ServerWebExchange exchange, RateLimit rl, RateLimitHeaders values, long decision) {
         if (!rl.sendHeaders()) return;
         var headers = exchange.getResponse().getHeaders();
-        headers.add("X-RateLimit-Limit", String.valueOf(rule.permits()));
-        headers.add("X-RateLimit-Remaining", String.valueOf(hr.remaining()));
-        headers.add("X-RateLimit-Reset", String.valueOf(hr.resetAt().getEpochSecond()));
-        if (!hr.allowed()) {
-            long retryAfter = Math.max(0, hr.resetAt().getEpochSecond() - Instant.now().getEpochSecond());
-            headers.add("Retry-After", String.valueOf(retryAfter));
+        long reset = PackedDecision.resetEpochSecond(decision);
+        headers.add(RateLimitHeaders.LIMIT, values.limit());
+        headers.add(RateLimitHeaders.REMAINING, RateLimitHeaders.count(PackedDecision.remaining(decision)));
+        headers.add(RateLimitHeaders.RESET, values.reset(reset));
+    }
+
+    /** The resolver of a {@code SUBNET} limit, with the prefixes of its {@code strategyArg}; null for other strategies. */
+    private SubnetKeyResolver subnets(String route, KeyStrategy strategy, String arg) {
+        if (strategy != KeyStrategy.SUBNET) return null;
+        try {
+            return subnets.withPrefixes(arg);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid strategyArg of " + route + ": " + e.getMessage(), e);
         }
     }
 
-    private String  resolveKey(ServerWebExchange exchange, RateLimit rl) {
+    private String resolveKey(ServerWebExchange exchange, String keyExpression, KeyStrategy strategy, String arg,
+                              SubnetKeyResolver subnets) {
         // SpEL takes precedence if present
-        if (StringUtils.hasText(rl.key())) {
+        if (StringUtils.hasText(keyExpression)) {
             StandardEvaluationContext ctx = new StandardEvaluationContext();
             ctx.setVariable("request", exchange.getRequest());
-            Expression exp = spel.parseExpression(rl.key());
+            Expression exp = spel.parseExpression(keyExpression);
             String v = exp.getValue(ctx, String.class);
             if (StringUtils.hasText(v)) return v;
         }
 
-        KeyStrategy strategy = rl.strategy();
         return switch (strategy) {
             case IP -> clientIp(exchange);
+            case SUBNET -> subnets.key(clientIp(exchange));
             case COOKIE -> exchange.getRequest()
                     .getCookies()
-                    .getFirst(rl.strategyArg()) != null
-                    ? exchange.getRequest().getCookies().getFirst(rl.strategyArg()).getValue()
+                    .getFirst(arg) != null
+                    ? exchange.getRequest().getCookies().getFirst(arg).getValue()
                     : "nocookie";
             case HEADER -> {
-                String hv = exchange.getRequest().getHeaders().getFirst(rl.strategyArg());
+                String hv = exchange.getRequest().getHeaders().getFirst(arg);
                 yield StringUtils.hasText(hv) ? hv : "noheader";
             }
             case USER -> {
@@ -0,0 +1,77 @@
+package org.amyth.autoconfigure.webflux;
+
+import org.amyth.autoconfigure.actuator.RateLimitDecisionsEndpoint;
+import org.amyth.core.stats.RecentDecisions;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.lang.NonNull;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams recently sampled decisions as server-sent events on a configured path.
+ *
+ * Each subscriber polls the {@link RecentDecisions} ring on a timer, off the event loop's
+ * request path: {@code GET <path>?after=<seq>} resumes after a given decision, without it
+ * only new decisions are sent. An {@code after} that is not a number is rejected with
+ * 400 Bad Request.
+ */
+public final class ReactiveDecisionStreamRoute implements RouterFunction<ServerResponse> {
+
+    static final Duration POLL_INTERVAL = Duration.ofMillis(250);
+    static final int BATCH = 256;
+
+    private final RecentDecisions recent;
+    private final RouterFunction<ServerResponse> route;
+
+    /**
+     * Creates a new ReactiveDecisionStreamRoute instance.
+     *
+     * @param recent The ring of recent decisions
+     * @param path The path to serve the stream on
+     */
+    public ReactiveDecisionStreamRoute(RecentDecisions recent, String path) {
+        this.recent = recent;
+        this.route = RouterFunctions.route().GET(path, this::stream).build();
+    }
+
+    @Override
+    public @NonNull Mono<HandlerFunction<ServerResponse>> route(@NonNull ServerRequest request) {
+        return route.route(request);
+    }
+
+    private Mono<ServerResponse> stream(ServerRequest request) {
+        long after;
+        try {
+            after = request.queryParam("after").map(Long::parseLong).orElseGet(recent::lastSeq);
+        } catch (NumberFormatException e) {
+            return ServerResponse.badRequest().bodyValue("after must be a decision sequence number");
+        }
+        Flux<ServerSentEvent<Map<String, Object>>> events = Flux.defer(() -> {
+            long[] cursor = {after};
+            return Flux.interval(POLL_INTERVAL)
+                    .concatMapIterable(tick -> {
+                        List<RecentDecisions.Decision> page = recent.since(cursor[0], BATCH);
+                        if (!page.isEmpty()) cursor[0] = page.get(page.size() - 1).seq();
+                        return page;
+                    })
+                    .map(d -> ServerSentEvent.builder(RateLimitDecisionsEndpoint.view(d))
+                            .id(String.valueOf(d.seq()))
+                            .event("decision")
+                            .build());
+        });
+        return ServerResponse.ok()
+                .contentType(MediaType.TEXT_EVENT_STREAM)
+                .body(events, new ParameterizedTypeReference<>() { });
+    }
+}
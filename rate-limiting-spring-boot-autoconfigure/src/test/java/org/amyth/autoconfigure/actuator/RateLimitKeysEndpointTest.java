@@ -0,0 +1,85 @@
+package org.amyth.autoconfigure.actuator;
+
+import org.amyth.autoconfigure.RateLimitProperties;
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitKeysEndpointTest {
+
+    private final RateLimitStore store = new CaffeineRateLimitStore(10_000);
+    private final SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 6);
+    private final RateLimitKeysEndpoint endpoint = new RateLimitKeysEndpoint(limiter, store, new RateLimitProperties());
+
+    @Test
+    @DisplayName("Lists every active key across pages")
+    @SuppressWarnings("unchecked")
+    void listsKeysPageByPage() {
+        LimitRule rule = new LimitRule(10, Duration.ofMinutes(1));
+        for (int i = 0; i < 25; i++) limiter.hit("client:" + i, rule);
+
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            Map<String, Object> page = endpoint.keys(cursor, 10);
+            seen.addAll((List<String>) page.get("keys"));
+            cursor = (String) page.get("cursor");
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(25, seen.size());
+        assertTrue(seen.contains("client:7"), "keys keep their own colons");
+        assertThat(pages).isGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("A bad cursor is a 400, not a server error")
+    void rejectsBadCursor() {
+        limiter.hit("client:1", new LimitRule(10, Duration.ofMinutes(1)));
+        assertThrows(InvalidEndpointRequestException.class, () -> endpoint.keys("not-a-cursor", 10));
+    }
+
+    @Test
+    @DisplayName("Looks a key up without consuming, and a reset unblocks it")
+    void looksUpAndResets() {
+        LimitRule rule = new LimitRule(2, Duration.ofSeconds(30));
+        limiter.hit("10.0.0.1", rule);
+        limiter.hit("10.0.0.1", rule);
+        assertFalse(limiter.hit("10.0.0.1", rule).allowed());
+
+        Map<String, Object> state = endpoint.key("10.0.0.1", 2L, "30s");
+        assertEquals(3L, state.get("count"));
+        assertEquals(0L, state.get("remaining"));
+        assertEquals(3L, endpoint.key("10.0.0.1", 2L, "30s").get("count"));
+
+        endpoint.reset("10.0.0.1", 2L, "30s");
+        assertEquals(0L, endpoint.key("10.0.0.1", 2L, "30s").get("count"));
+        assertTrue(limiter.hit("10.0.0.1", rule).allowed());
+    }
+
+    @Test
+    @DisplayName("Bucket keys map back to client keys")
+    void derivesClientKeys() {
+        assertEquals("user:42", RateLimitKeysEndpoint.clientKey("rl:{user:42}:1234"));
+        assertEquals("user:42", RateLimitKeysEndpoint.clientKey("rl:user:42:1234"));
+        assertEquals(null, RateLimitKeysEndpoint.clientKey("other:1"));
+    }
+}
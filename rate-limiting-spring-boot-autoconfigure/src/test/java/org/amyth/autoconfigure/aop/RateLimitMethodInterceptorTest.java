@@ -0,0 +1,201 @@
+package org.amyth.autoconfigure.aop;
+
+import org.amyth.autoconfigure.RateLimitProperties;
+import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.annotation.RateLimit;
+import org.amyth.core.api.LimitOutcome;
+import org.amyth.core.pacing.RateLimitExceededException;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * How {@link RateLimitMethodInterceptor} limits bean methods for each {@link LimitOutcome} and
+ * return type.
+ */
+class RateLimitMethodInterceptorTest {
+
+    static class Jobs {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @RateLimit(permits = 2, window = 1, unit = TimeUnit.MINUTES, key = "'greet:' + #tenant")
+        public String greet(String tenant) {
+            calls.incrementAndGet();
+            return "hi " + tenant;
+        }
+
+        @RateLimit(permits = 1, window = 1, unit = TimeUnit.MINUTES, onLimit = LimitOutcome.DROP)
+        public int refresh() {
+            calls.incrementAndGet();
+            return 1;
+        }
+
+        @RateLimit(permits = 1, window = 1, unit = TimeUnit.MINUTES, onLimit = LimitOutcome.DROP)
+        public Optional<String> lookup() {
+            return Optional.of("v");
+        }
+
+        @RateLimit(permits = 1, window = 400, unit = TimeUnit.MILLISECONDS, onLimit = LimitOutcome.BLOCK)
+        public void send() {
+            calls.incrementAndGet();
+        }
+
+        @RateLimit(permits = 1, window = 1, unit = TimeUnit.HOURS, onLimit = LimitOutcome.BLOCK)
+        public void archive() {
+            calls.incrementAndGet();
+        }
+
+        @RateLimit(permits = 1, window = 1, unit = TimeUnit.HOURS, onLimit = LimitOutcome.BLOCK)
+        public Mono<String> export() {
+            return Mono.just("done");
+        }
+
+        @RateLimit(permits = 1, window = 400, unit = TimeUnit.MILLISECONDS, maxWait = 2, maxWaitUnit = TimeUnit.SECONDS)
+        public void poll() {
+            calls.incrementAndGet();
+        }
+
+        @RateLimit(permits = 1, window = 1, unit = TimeUnit.MINUTES, key = "#p0")
+        public Mono<String> find(String id) {
+            calls.incrementAndGet();
+            return Mono.just(id);
+        }
+
+        @RateLimit(permits = 1, window = 1, unit = TimeUnit.MINUTES, onLimit = LimitOutcome.DROP)
+        public Flux<Integer> stream() {
+            return Flux.just(1, 2);
+        }
+
+        @RateLimit(permits = 1, window = 1, unit = TimeUnit.MINUTES, key = "#missing")
+        public String unkeyed() {
+            return "ok";
+        }
+
+        public String free() {
+            return "free";
+        }
+    }
+
+    private RateLimitMetricsBinder metrics;
+    private Jobs target;
+    private Jobs jobs;
+
+    @BeforeEach
+    void setUp() {
+        setUp(new RateLimitProperties());
+    }
+
+    private void setUp(RateLimitProperties props) {
+        metrics = new RateLimitMetricsBinder("caffeine", null);
+        RateLimitMethodInterceptor interceptor = new RateLimitMethodInterceptor(
+                new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), Clock.systemUTC(), 4),
+                props, metrics);
+        target = new Jobs();
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        jobs = (Jobs) factory.getProxy();
+    }
+
+    @Test
+    @DisplayName("THROW fails calls over the limit of their key, computed from the arguments")
+    void throwsPerKey() {
+        assertEquals("hi a", jobs.greet("a"));
+        assertEquals("hi a", jobs.greet("a"));
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class, () -> jobs.greet("a"));
+        assertEquals("greet:a", e.getKey());
+        assertTrue(e.getRetryAfter().toMillis() > 0);
+        assertEquals("hi b", jobs.greet("b"));
+        assertEquals(3, target.calls.get());
+        assertEquals(1, metrics.getBlockedTotal());
+    }
+
+    @Test
+    @DisplayName("DROP skips the call and returns an empty result")
+    void dropsOverLimit() {
+        assertEquals(1, jobs.refresh());
+        assertEquals(0, jobs.refresh());
+        assertEquals(1, target.calls.get());
+
+        assertEquals(Optional.of("v"), jobs.lookup());
+        assertEquals(Optional.empty(), jobs.lookup());
+    }
+
+    @Test
+    @DisplayName("BLOCK and maxWait delay the call until the window has room")
+    void waitsForPermit() {
+        jobs.send();
+        long start = System.nanoTime();
+        jobs.send();
+        jobs.poll();
+        jobs.poll();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(4, target.calls.get());
+        assertTrue(elapsed >= 50, "elapsed " + elapsed + "ms");
+        assertEquals(2, metrics.getDelayedTotal());
+        assertEquals(0, metrics.getWaiting());
+    }
+
+    @Test
+    @DisplayName("BLOCK gives up after ratelimit.max-block-wait, and at once when the wait queues are full")
+    void blockIsBounded() {
+        RateLimitProperties props = new RateLimitProperties();
+        props.setMaxBlockWait(Duration.ofMillis(150));
+        setUp(props);
+        jobs.archive();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertThrows(RateLimitExceededException.class, jobs::archive));
+        assertEquals("done", jobs.export().block());
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> assertThrows(RateLimitExceededException.class, () -> jobs.export().block()));
+        assertEquals(1, target.calls.get());
+        assertEquals(0, metrics.getWaiting());
+
+        // a wait that would succeed is refused when there is no place in the queues
+        props = new RateLimitProperties();
+        props.setMaxWaiting(0);
+        setUp(props);
+        jobs.send();
+        assertThrows(RateLimitExceededException.class, jobs::send);
+        assertEquals(1, target.calls.get());
+    }
+
+    @Test
+    @DisplayName("Reactive methods are limited on subscription")
+    void limitsOnSubscription() {
+        Mono<String> first = jobs.find("x");
+        Mono<String> second = jobs.find("x");
+        assertEquals(0, target.calls.get());
+
+        assertEquals("x", first.block());
+        assertThrows(RateLimitExceededException.class, second::block);
+        assertEquals(1, target.calls.get());
+
+        assertEquals(List.of(1, 2), jobs.stream().collectList().block());
+        assertEquals(List.of(), jobs.stream().collectList().block());
+    }
+
+    @Test
+    @DisplayName("Calls whose key resolves to nothing, and methods without the annotation, are not limited")
+    void passesThrough() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals("ok", jobs.unkeyed());
+            assertEquals("free", jobs.free());
+        }
+        assertEquals(0, metrics.getBlockedTotal());
+    }
+}
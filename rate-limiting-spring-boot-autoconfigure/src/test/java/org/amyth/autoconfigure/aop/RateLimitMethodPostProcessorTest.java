@@ -0,0 +1,84 @@
+package org.amyth.autoconfigure.aop;
+
+import org.amyth.autoconfigure.RateLimitingAutoConfiguration;
+import org.amyth.core.annotation.RateLimit;
+import org.amyth.core.pacing.RateLimitExceededException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Which beans {@link RateLimitMethodPostProcessor} proxies.
+ */
+class RateLimitMethodPostProcessorTest {
+
+    @RateLimit(permits = 1, window = 1, unit = TimeUnit.MINUTES)
+    static class Reports {
+        public String daily() {
+            return "daily";
+        }
+    }
+
+    static class Plain {
+        public String get() {
+            return "plain";
+        }
+    }
+
+    @RestController
+    static class Api {
+        @RateLimit(permits = 1, window = 1, unit = TimeUnit.MINUTES)
+        @GetMapping("/api")
+        public String get() {
+            return "api";
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class Beans {
+        @Bean Reports reports() { return new Reports(); }
+        @Bean Plain plain() { return new Plain(); }
+        @Bean Api api() { return new Api(); }
+    }
+
+    private final ApplicationContextRunner runner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(RateLimitingAutoConfiguration.class))
+            .withUserConfiguration(Beans.class);
+
+    @Test
+    @DisplayName("Limited beans are proxied; controllers and unannotated beans are not")
+    void proxiesLimitedBeans() {
+        runner.run(context -> {
+            Reports reports = context.getBean(Reports.class);
+            assertThat(AopUtils.isCglibProxy(reports)).isTrue();
+            assertThat(AopUtils.isAopProxy(context.getBean(Plain.class))).isFalse();
+            assertThat(AopUtils.isAopProxy(context.getBean(Api.class))).isFalse();
+
+            assertThat(reports.daily()).isEqualTo("daily");
+            assertThat(reports.toString()).isEqualTo(reports.toString());
+            assertThatThrownBy(reports::daily).isInstanceOf(RateLimitExceededException.class);
+            context.getBean(Api.class).get();
+            context.getBean(Api.class).get();
+        });
+    }
+
+    @Test
+    @DisplayName("ratelimit.method-limits=false leaves bean methods alone")
+    void canBeTurnedOff() {
+        runner.withPropertyValues("ratelimit.method-limits=false").run(context -> {
+            assertThat(context).doesNotHaveBean(RateLimitMethodPostProcessor.class);
+            assertThat(AopUtils.isAopProxy(context.getBean(Reports.class))).isFalse();
+        });
+    }
+}
@@ -0,0 +1,61 @@
+package org.amyth.autoconfigure.client;
+
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.pacing.RateLimitExceededException;
+import org.amyth.core.pacing.RateLimitPacer;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClient;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+class RateLimitClientInterceptorTest {
+
+    private static final LimitRule RULE = new LimitRule(2, Duration.ofMillis(400));
+
+    private final RateLimitPacer pacer = new RateLimitPacer(
+            new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), Clock.systemUTC(), 4));
+
+    @Test
+    @DisplayName("Calls over the quota wait for a permit")
+    void pacesCalls() {
+        RestClient.Builder builder = RestClient.builder()
+                .requestInterceptor(new RateLimitClientInterceptor(pacer, "out:partner", RULE, Duration.ofSeconds(2)));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+        server.expect(times(3), requestTo("http://partner/ping")).andRespond(withSuccess());
+        RestClient client = builder.build();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) client.get().uri("http://partner/ping").retrieve().toBodilessEntity();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        server.verify();
+        assertTrue(elapsed >= 50, "elapsed " + elapsed + "ms");
+    }
+
+    @Test
+    @DisplayName("A call that cannot get a permit in time fails without being sent")
+    void failsAfterMaxWait() {
+        RestClient.Builder builder = RestClient.builder()
+                .requestInterceptor(new RateLimitClientInterceptor(pacer, "out:partner", RULE, Duration.ZERO));
+        MockRestServiceServer server = MockRestServiceServer.bindTo(builder).build();
+        server.expect(times(2), requestTo("http://partner/ping")).andRespond(withSuccess());
+        RestClient client = builder.build();
+
+        client.get().uri("http://partner/ping").retrieve().toBodilessEntity();
+        client.get().uri("http://partner/ping").retrieve().toBodilessEntity();
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class,
+                () -> client.get().uri("http://partner/ping").retrieve().toBodilessEntity());
+        assertEquals("out:partner", e.getKey());
+        server.verify();
+    }
+}
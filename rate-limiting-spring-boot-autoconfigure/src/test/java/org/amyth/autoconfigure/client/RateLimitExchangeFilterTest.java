@@ -0,0 +1,128 @@
+package org.amyth.autoconfigure.client;
+
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.pacing.RateLimitExceededException;
+import org.amyth.core.pacing.RateLimitPacer;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitExchangeFilterTest {
+
+    private static final LimitRule RULE = new LimitRule(2, Duration.ofMillis(400));
+
+    private final RateLimitPacer pacer = new RateLimitPacer(
+            new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), Clock.systemUTC(), 4));
+    private final AtomicInteger sent = new AtomicInteger();
+
+    private WebClient client(Duration maxWait) {
+        return client(pacer, maxWait);
+    }
+
+    private WebClient client(RateLimitPacer pacer, Duration maxWait) {
+        return WebClient.builder()
+                .exchangeFunction(request -> {
+                    sent.incrementAndGet();
+                    return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+                })
+                .filter(new RateLimitExchangeFilter(pacer, request -> "out:" + request.url().getHost(), RULE, maxWait))
+                .build();
+    }
+
+    @Test
+    @DisplayName("Exchanges over the quota are delayed, and the permit is taken on subscription")
+    void pacesExchanges() {
+        WebClient client = client(Duration.ofSeconds(2));
+        Mono<?> call = client.get().uri("http://partner/ping").retrieve().toBodilessEntity();
+        assertEquals(0, sent.get());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 3; i++) call.block();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(3, sent.get());
+        assertTrue(elapsed >= 50, "elapsed " + elapsed + "ms");
+    }
+
+    @Test
+    @DisplayName("An exchange that cannot get a permit in time fails without being sent")
+    void failsAfterMaxWait() {
+        WebClient client = client(Duration.ZERO);
+        Mono<?> call = client.get().uri("http://partner/ping").retrieve().toBodilessEntity();
+        call.block();
+        call.block();
+
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class, call::block);
+        assertEquals("out:partner", e.getKey());
+        assertEquals(2, sent.get());
+        client.get().uri("http://other/ping").retrieve().toBodilessEntity().block();
+        assertEquals(3, sent.get());
+    }
+
+    @Test
+    @DisplayName("The maximum wait is measured on the pacer's clock")
+    void waitsOnThePacersClock() {
+        FakeClock clock = new FakeClock(1_700_000_000_000L); // a bucket starts: the first wait is 100ms
+        RateLimitPacer pacer = new RateLimitPacer(
+                new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), clock, 4), clock);
+        pacer.reserve("out:partner", RULE);
+        pacer.reserve("out:partner", RULE);
+
+        CompletableFuture<?> call = client(pacer, Duration.ofSeconds(10))
+                .get().uri("http://partner/ping").retrieve().toBodilessEntity().toFuture();
+        // while the call waits, the pacer's clock passes its deadline and the window fills again
+        clock.millis += 60_000;
+        pacer.reserve("out:partner", RULE);
+        pacer.reserve("out:partner", RULE);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> call.get(2, TimeUnit.SECONDS));
+        assertInstanceOf(RateLimitExceededException.class, e.getCause());
+        assertEquals(0, sent.get());
+    }
+
+    /** A clock moved by hand. */
+    private static final class FakeClock extends Clock {
+        volatile long millis;
+
+        FakeClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
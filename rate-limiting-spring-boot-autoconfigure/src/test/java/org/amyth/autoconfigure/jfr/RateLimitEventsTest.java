@@ -0,0 +1,78 @@
+package org.amyth.autoconfigure.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RateLimitEventsTest {
+
+    @Test
+    @DisplayName("Outside a recording no event is created")
+    void disabledWithoutRecording() {
+        assertNull(RateLimitEvents.beginDecision());
+        assertNull(RateLimitEvents.beginStore());
+    }
+
+    @Test
+    @DisplayName("Decisions, store calls and fallbacks are recorded with their fields")
+    void recordsEvents(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("ratelimit.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(RateLimitEvents.PREFIX + "Decision").withThreshold(Duration.ZERO);
+            recording.enable(RateLimitEvents.PREFIX + "StoreCall").withThreshold(Duration.ZERO);
+            recording.enable(RateLimitEvents.PREFIX + "Fallback");
+            recording.start();
+
+            RateLimitMetricsBinder metrics = new RateLimitMetricsBinder("caffeine", "sliding_window");
+            RateLimitStore store = metrics.timed(new CaffeineRateLimitStore(1_000));
+            SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 6);
+            LimitRule rule = new LimitRule(1, Duration.ofMinutes(1));
+            for (int i = 0; i < 2; i++) {
+                RateLimitDecisionEvent event = RateLimitEvents.beginDecision();
+                var hr = limiter.hit("k", rule);
+                RateLimitEvents.commitDecision(event, "GET /api", "1/1m", "sliding_window", hr.allowed(), hr.remaining());
+            }
+            RateLimitEvents.fallback("key-resolution", "fail-open", "GET /api");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> decisions = named(events, "Decision");
+        assertEquals(2, decisions.size());
+        assertThat(decisions).extracting(e -> e.getBoolean("allowed")).containsExactlyInAnyOrder(true, false);
+        assertEquals("GET /api", decisions.get(0).getString("route"));
+        assertEquals("1/1m", decisions.get(0).getString("rule"));
+
+        List<RecordedEvent> storeCalls = named(events, "StoreCall");
+        assertEquals(2, storeCalls.size());
+        assertEquals("batch", storeCalls.get(0).getString("operation"));
+        assertEquals("caffeine", storeCalls.get(0).getString("backend"));
+
+        List<RecordedEvent> fallbacks = named(events, "Fallback");
+        assertEquals(1, fallbacks.size());
+        assertEquals("fail-open", fallbacks.get(0).getString("state"));
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(RateLimitEvents.PREFIX + name)).toList();
+    }
+}
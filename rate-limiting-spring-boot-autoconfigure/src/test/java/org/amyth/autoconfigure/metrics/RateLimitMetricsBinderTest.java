@@ -0,0 +1,144 @@
+package org.amyth.autoconfigure.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.amyth.autoconfigure.actuator.RateLimitEndpoint;
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.model.HitResult;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RateLimitMetricsBinderTest {
+
+    @Test
+    @DisplayName("Decision, key resolution and store timers are tagged by backend, algorithm and operation")
+    void recordsTimers() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RateLimitMetricsBinder metrics = new RateLimitMetricsBinder("caffeine", "sliding_window");
+        metrics.bindTo(registry);
+
+        RateLimitStore store = metrics.timed(new CaffeineRateLimitStore(1_000));
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 6);
+        for (int i = 0; i < 3; i++) limiter.hit("k", new LimitRule(10, Duration.ofMinutes(1)));
+        store.get("rl:k:0");
+        metrics.recordKeyResolution(1_000);
+        metrics.recordDecision(5_000);
+
+        Timer batch = registry.get("ratelimit.store")
+                .tag("backend", "caffeine").tag("algo", "sliding_window").tag("op", "batch").timer();
+        assertEquals(3, batch.count());
+        assertEquals(1, registry.get("ratelimit.store").tag("op", "get").timer().count());
+        assertEquals(0, registry.get("ratelimit.store").tag("op", "increment").timer().count());
+        assertEquals(5_000, registry.get("ratelimit.decision").timer().totalTime(TimeUnit.NANOSECONDS));
+        assertEquals(1, registry.get("ratelimit.key.resolution").timer().count());
+
+        assertThat(store.subtract("rl:k:0", 1)).isTrue();
+        assertEquals(1, registry.get("ratelimit.store").tag("op", "increment").timer().count());
+    }
+
+    @Test
+    @DisplayName("Disabled components register no timer and leave the store unwrapped")
+    void disablesPerComponent() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RateLimitMetricsBinder metrics = new RateLimitMetricsBinder("caffeine", "sliding_window",
+                EnumSet.of(RateLimitMetricsBinder.Timing.DECISION), false);
+        metrics.bindTo(registry);
+
+        RateLimitStore store = new CaffeineRateLimitStore(1_000);
+        assertSame(store, metrics.timed(store));
+        metrics.recordKeyResolution(1_000);
+        metrics.recordDecision(1_000);
+
+        assertThat(registry.find("ratelimit.store").timers()).isEmpty();
+        assertThat(registry.find("ratelimit.key.resolution").timers()).isEmpty();
+        assertEquals(1, registry.get("ratelimit.decision").timer().count());
+    }
+
+    @Test
+    @DisplayName("Recording before the registry is bound is a no-op")
+    void unboundIsNoOp() {
+        RateLimitMetricsBinder metrics = new RateLimitMetricsBinder("caffeine", "sliding_window");
+        RateLimitStore store = metrics.timed(new CaffeineRateLimitStore(1_000));
+        assertEquals(1, store.incrementAndGet("rl:k:1", 60_000));
+        metrics.recordDecision(1_000);
+    }
+
+    @Test
+    @DisplayName("Route meters are shared per route and rule and registered whenever the registry is bound")
+    void routeMeters() {
+        RateLimitMetricsBinder metrics = new RateLimitMetricsBinder("caffeine", "sliding_window");
+        LimitRule rule = new LimitRule(100, Duration.ofMinutes(1));
+        RouteMeters early = metrics.route("GET /a", rule);
+        assertSame(early, metrics.route("GET /a", rule));
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics.bindTo(registry);
+        RouteMeters late = metrics.route("GET /b", new LimitRule(5, Duration.ofSeconds(10)));
+
+        early.record("k", new HitResult(true, 50, Instant.EPOCH));
+        early.record("k", new HitResult(true, 10, Instant.EPOCH));
+        early.record("k", new HitResult(false, 0, Instant.EPOCH));
+        late.record("k", new HitResult(true, 0, Instant.EPOCH));
+        metrics.incrementAllowed();
+
+        assertEquals(2, registry.get("ratelimit.route.allowed").tag("route", "GET /a").tag("rule", "100/1m")
+                .functionCounter().count());
+        assertEquals(1, registry.get("ratelimit.route.near.limit").tag("route", "GET /a").functionCounter().count());
+        assertEquals(1, registry.get("ratelimit.route.blocked").tag("route", "GET /a").functionCounter().count());
+        assertEquals(1, registry.get("ratelimit.route.near.limit").tag("route", "GET /b").tag("rule", "5/10s")
+                .functionCounter().count());
+        assertEquals(1, registry.get("ratelimit.allowed").functionCounter().count());
+        assertEquals(1, metrics.getAllowedTotal());
+    }
+
+    @Test
+    @DisplayName("Top blocked and consuming keys are served per route by the endpoint and as rank gauges")
+    void topKeys() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RateLimitMetricsBinder metrics = new RateLimitMetricsBinder("caffeine", "sliding_window",
+                EnumSet.noneOf(RateLimitMetricsBinder.Timing.class), false,
+                new RateLimitMetricsBinder.RouteOptions(0.1, 5, 2, Duration.ofMinutes(1)));
+        metrics.bindTo(registry);
+        RouteMeters meters = metrics.route("GET /a", new LimitRule(10, Duration.ofMinutes(1)));
+
+        HitResult blocked = new HitResult(false, 0, Instant.EPOCH);
+        HitResult allowed = new HitResult(true, 5, Instant.EPOCH);
+        for (int i = 0; i < 30; i++) meters.record("203.0.113.7", blocked);
+        for (int i = 0; i < 10; i++) meters.record("203.0.113.8", blocked);
+        for (int i = 0; i < 100; i++) meters.record("client-" + i, allowed);
+        // a clear lead: the sketch is seeded per tracker and may overcount a singleton by a collision
+        for (int i = 0; i < 4; i++) meters.record("client-7", allowed);
+
+        assertEquals(30, registry.get("ratelimit.route.top.blocked").tag("route", "GET /a").tag("rank", "1").gauge().value());
+        assertEquals(10, registry.get("ratelimit.route.top.blocked").tag("rank", "2").gauge().value());
+        assertThat(registry.get("ratelimit.route.top.consumed").tag("rank", "1").gauge().value()).isBetween(5.0, 6.0);
+        assertThat(registry.find("ratelimit.route.top.blocked").tag("rank", "3").gauges()).isEmpty();
+
+        Map<String, Object> info = new RateLimitEndpoint(null, metrics).info();
+        @SuppressWarnings("unchecked")
+        Map<String, Object> route = ((List<Map<String, Object>>) info.get("routes")).get(0);
+        assertEquals("GET /a", route.get("route"));
+        assertEquals(40L, route.get("blocked"));
+        assertEquals(List.of(Map.of("key", "203.0.113.7", "count", 30L), Map.of("key", "203.0.113.8", "count", 10L)),
+                route.get("topBlocked"));
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> topConsumed = (List<Map<String, Object>>) route.get("topConsumed");
+        assertThat(topConsumed).hasSize(5);
+        assertEquals("client-7", topConsumed.get(0).get("key"));
+    }
+}
@@ -0,0 +1,56 @@
+package org.amyth.autoconfigure.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.amyth.autoconfigure.actuator.RateLimitEndpoint;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.amyth.core.store.mmap.MappedFileRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateLimitStoreMetricsTest {
+
+    @Test
+    @DisplayName("Caffeine store size, lookups and live evictions are published")
+    @SuppressWarnings("unchecked")
+    void publishesCaffeineStats() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CaffeineRateLimitStore store = new CaffeineRateLimitStore(10);
+        new RateLimitStoreMetrics(store).bindTo(registry);
+
+        for (int i = 0; i < 50; i++) store.incrementAndGet("rl:k" + i + ":1", 60_000);
+        store.incrementAndGet("rl:k49:1", 60_000);
+        // eviction runs asynchronously on the common pool; a read nudges pending maintenance along
+        for (long deadline = System.nanoTime() + 5_000_000_000L;
+             store.stats().size() > 10 && System.nanoTime() < deadline; ) {
+            store.get("rl:k0:1");
+            Thread.onSpinWait();
+        }
+
+        assertThat(registry.get("ratelimit.store.size").gauge().value()).isBetween(1.0, 10.0);
+        assertThat(registry.get("ratelimit.store.gets").tag("result", "miss").functionCounter().count())
+                .isGreaterThanOrEqualTo(50);
+        assertThat(registry.get("ratelimit.store.evictions.live").functionCounter().count()).isGreaterThan(0);
+        assertThat(registry.get("ratelimit.store.memory.estimated").gauge().value()).isGreaterThan(0);
+
+        Map<String, Object> info = new RateLimitEndpoint(null, new RateLimitMetricsBinder("caffeine", null), store).info();
+        assertEquals(true, ((Map<String, Object>) info.get("store")).get("underCounting"));
+    }
+
+    @Test
+    @DisplayName("Stores without statistics bind nothing")
+    void ignoresOtherStores(@TempDir Path dir) throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        try (MappedFileRateLimitStore store = new MappedFileRateLimitStore(dir.resolve("rl.mmap"), 1024, Clock.systemUTC())) {
+            new RateLimitStoreMetrics(store).bindTo(registry);
+        }
+        assertThat(registry.getMeters()).isEmpty();
+    }
+}
@@ -0,0 +1,63 @@
+package org.amyth.autoconfigure.mvc;
+
+import org.amyth.autoconfigure.RateLimitingAutoConfiguration;
+import org.amyth.autoconfigure.web.AdaptiveConcurrency;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ImportAutoConfiguration({
+        RateLimitingAutoConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ratelimit.backend=CAFFEINE",
+        "ratelimit.adaptive-concurrency=true",
+        "ratelimit.adaptive-concurrency-initial-limit=1",
+        "ratelimit.adaptive-concurrency-max-limit=1"
+})
+class MvcAdaptiveConcurrencyTest {
+
+    @Autowired MockMvc mvc;
+    @Autowired AdaptiveConcurrency adaptive;
+
+    @Test
+    @DisplayName("Requests beyond the adaptive limit are rejected until one completes; streams are exempt")
+    void rejectsBeyondLimit() throws Exception {
+        MvcResult open = mvc.perform(get("/mvc/slow").header("X-Client", "a"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mvc.perform(get("/mvc/by-key").header("X-Api-Key", "k")).andExpect(status().isServiceUnavailable());
+        mvc.perform(get("/mvc/events")).andExpect(request().asyncStarted());
+
+        TestMvcController.PENDING.forEach(r -> r.setResult("done"));
+        TestMvcController.PENDING.clear();
+        mvc.perform(asyncDispatch(open)).andExpect(status().isOk());
+
+        mvc.perform(get("/mvc/by-key").header("X-Api-Key", "k")).andExpect(status().isOk());
+
+        List<Map<String, Object>> snapshot = adaptive.snapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(AdaptiveConcurrency.ALL_ROUTES, snapshot.get(0).get("route"));
+        assertEquals(1, snapshot.get(0).get("limit"));
+        assertEquals(0, snapshot.get(0).get("inFlight"));
+        assertEquals(1L, snapshot.get(0).get("rejected"));
+    }
+}
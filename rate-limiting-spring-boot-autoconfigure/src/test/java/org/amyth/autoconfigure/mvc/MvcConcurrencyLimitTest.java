@@ -0,0 +1,59 @@
+package org.amyth.autoconfigure.mvc;
+
+import org.amyth.autoconfigure.RateLimitingAutoConfiguration;
+import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ImportAutoConfiguration({
+        RateLimitingAutoConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ratelimit.backend=CAFFEINE"
+})
+class MvcConcurrencyLimitTest {
+
+    @Autowired MockMvc mvc;
+    @Autowired RateLimitMetricsBinder metrics;
+
+    @Test
+    @DisplayName("An async request holds its permit until the async dispatch completes")
+    void holdsPermitWhileAsyncRequestIsOpen() throws Exception {
+        MvcResult open = mvc.perform(get("/mvc/slow").header("X-Client", "a"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1, metrics.getInFlight());
+
+        mvc.perform(get("/mvc/slow").header("X-Client", "a")).andExpect(status().isTooManyRequests());
+        MvcResult other = mvc.perform(get("/mvc/slow").header("X-Client", "b"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        assertEquals(1, metrics.getConcurrencyRejectedTotal());
+
+        TestMvcController.PENDING.forEach(r -> r.setResult("done"));
+        TestMvcController.PENDING.clear();
+        mvc.perform(asyncDispatch(open)).andExpect(status().isOk()).andExpect(content().string("done"));
+        mvc.perform(asyncDispatch(other)).andExpect(status().isOk());
+        assertEquals(0, metrics.getInFlight());
+
+        mvc.perform(get("/mvc/slow").header("X-Client", "a")).andExpect(request().asyncStarted());
+        TestMvcController.PENDING.forEach(r -> r.setResult("done"));
+        TestMvcController.PENDING.clear();
+    }
+}
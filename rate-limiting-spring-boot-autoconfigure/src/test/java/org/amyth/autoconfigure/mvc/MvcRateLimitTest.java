@@ -1,6 +1,14 @@
 package org.amyth.autoconfigure.mvc;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.amyth.autoconfigure.RateLimitProperties;
 import org.amyth.autoconfigure.RateLimitingAutoConfiguration;
+import org.amyth.autoconfigure.interceptor.RateLimitInterceptor;
+import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.core.annotation.RateLimit;
+import org.amyth.core.api.KeyStrategy;
+import org.amyth.core.api.RateLimiter;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,7 +17,11 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.method.HandlerMethod;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -27,6 +39,9 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 class MvcRateLimitTest {
 
     @Autowired MockMvc mvc;
+    @Autowired MeterRegistry registry;
+    @Autowired RateLimitMetricsBinder metrics;
+    @Autowired RateLimiter limiter;
 
     @Test
     @DisplayName("Allows first 3 requests, then blocks the 4th by IP")
@@ -59,4 +74,64 @@ class MvcRateLimitTest {
         mvc.perform(get("/mvc/hello").header("X-Forwarded-For", "203.0.113.11"))
                 .andExpect(status().isOk());
     }
+
+    @Test
+    @DisplayName("Clients of one subnet share a limit")
+    void rateLimitBySubnet() throws Exception {
+        mvc.perform(get("/mvc/by-subnet").header("X-Forwarded-For", "198.51.100.1")).andExpect(status().isOk());
+        mvc.perform(get("/mvc/by-subnet").header("X-Forwarded-For", "198.51.100.2")).andExpect(status().isOk());
+        mvc.perform(get("/mvc/by-subnet").header("X-Forwarded-For", "198.51.100.3")).andExpect(status().isTooManyRequests());
+        mvc.perform(get("/mvc/by-subnet").header("X-Forwarded-For", "198.51.101.3")).andExpect(status().isOk());
+
+        mvc.perform(get("/mvc/by-subnet").header("X-Forwarded-For", "2001:db8:1:1::1")).andExpect(status().isOk());
+        mvc.perform(get("/mvc/by-subnet").header("X-Forwarded-For", "2001:db8:1:2::1")).andExpect(status().isOk());
+        mvc.perform(get("/mvc/by-subnet").header("X-Forwarded-For", "2001:db8:1:ffff::9"))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @DisplayName("Route counters are registered at startup and count per route and rule")
+    void countsPerRoute() throws Exception {
+        FunctionCounter allowed = routeCounter("ratelimit.route.allowed");
+        FunctionCounter blocked = routeCounter("ratelimit.route.blocked");
+        FunctionCounter nearLimit = routeCounter("ratelimit.route.near.limit");
+        double allowedBefore = allowed.count(), blockedBefore = blocked.count(), nearBefore = nearLimit.count();
+
+        for (int i = 0; i < 3; i++) mvc.perform(get("/mvc/by-key").header("X-Api-Key", "metrics"));
+
+        assertEquals(2, allowed.count() - allowedBefore);
+        assertEquals(1, blocked.count() - blockedBefore);
+        assertEquals(1, nearLimit.count() - nearBefore); // the 2nd request, 0 of 2 left
+    }
+
+    @Test
+    @DisplayName("An over-limit request with maxWait is delayed until the window has room, not rejected")
+    void delaysInsteadOfRejecting() throws Exception {
+        mvc.perform(get("/mvc/smooth").header("X-Client", "w")).andExpect(status().isOk());
+        long start = System.nanoTime();
+        mvc.perform(get("/mvc/smooth").header("X-Client", "w"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Retry-After"));
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(waitedMillis > 100 && waitedMillis < 2_000, "waited " + waitedMillis + "ms");
+        assertEquals(1, metrics.getDelayedTotal());
+        assertEquals(0, metrics.getWaiting());
+    }
+
+    @Test
+    @DisplayName("A SUBNET limit with malformed prefixes fails when its route is bound, not on each request")
+    void rejectsBadSubnetPrefixes() throws Exception {
+        RateLimitInterceptor interceptor = new RateLimitInterceptor(limiter, new RateLimitProperties(), metrics);
+        HandlerMethod hm = new HandlerMethod(this, MvcRateLimitTest.class.getDeclaredMethod("badSubnet"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> interceptor.bindRoute(hm, "GET /mvc/bad"));
+        assertTrue(e.getMessage().contains("GET /mvc/bad"), e.getMessage());
+    }
+
+    @RateLimit(permits = 1, strategy = KeyStrategy.SUBNET, strategyArg = "a/b")
+    void badSubnet() { }
+
+    private FunctionCounter routeCounter(String name) {
+        return registry.get(name).tag("route", "GET /mvc/by-key").tag("rule", "2/1m").functionCounter();
+    }
 }
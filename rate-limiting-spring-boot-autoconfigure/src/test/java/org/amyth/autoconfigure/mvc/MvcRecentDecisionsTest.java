@@ -0,0 +1,82 @@
+package org.amyth.autoconfigure.mvc;
+
+import org.amyth.autoconfigure.RateLimitingAutoConfiguration;
+import org.amyth.autoconfigure.actuator.RateLimitDecisionsEndpoint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ImportAutoConfiguration({
+        RateLimitingAutoConfiguration.class
+})
+@TestPropertySource(properties = {
+        "ratelimit.backend=CAFFEINE",
+        "ratelimit.recent-decisions=64",
+        "ratelimit.recent-decisions-sample-every=1",
+        "ratelimit.recent-decisions-raw-keys=true",
+        "ratelimit.recent-decisions-stream-path=/internal/ratelimit/decisions",
+        "management.endpoints.web.exposure.include=ratelimitdecisions"
+})
+class MvcRecentDecisionsTest {
+
+    @Autowired MockMvc mvc;
+    @Autowired RateLimitDecisionsEndpoint endpoint;
+
+    @Test
+    @DisplayName("Sampled decisions can be tailed through the endpoint cursor")
+    @SuppressWarnings("unchecked")
+    void tailsThroughEndpoint() throws Exception {
+        long cursor = (Long) endpoint.decisions(null, 1).get("cursor");
+        mvc.perform(get("/mvc/by-key").header("X-Api-Key", "recent-a"));
+        mvc.perform(get("/mvc/by-key").header("X-Api-Key", "recent-a"));
+        mvc.perform(get("/mvc/by-key").header("X-Api-Key", "recent-a"));
+
+        Map<String, Object> page = endpoint.decisions(cursor, 10);
+        List<Map<String, Object>> decisions = (List<Map<String, Object>>) page.get("decisions");
+        assertThat(decisions).extracting(d -> d.get("allowed")).containsExactly(true, true, false);
+        assertThat(decisions).extracting(d -> d.get("key")).containsOnly("recent-a");
+        assertEquals("GET /mvc/by-key", decisions.get(0).get("route"));
+        assertEquals(decisions.get(2).get("seq"), page.get("cursor"));
+    }
+
+    @Test
+    @DisplayName("New decisions are pushed to the server-sent event stream")
+    void streamsDecisions() throws Exception {
+        MvcResult stream = mvc.perform(get("/internal/ratelimit/decisions"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(get("/mvc/by-key").header("X-Api-Key", "recent-sse"));
+
+        String body = "";
+        for (int i = 0; i < 40 && !body.contains("recent-sse"); i++) {
+            Thread.sleep(50);
+            body = stream.getResponse().getContentAsString();
+        }
+        assertThat(body).contains("event:decision", "\"key\":\"recent-sse\"", "\"route\":\"GET /mvc/by-key\"");
+        assertEquals("text/event-stream", stream.getResponse().getContentType());
+    }
+
+    @Test
+    @DisplayName("A stream cursor that is not a number is rejected")
+    void rejectsBadCursor() throws Exception {
+        mvc.perform(get("/internal/ratelimit/decisions").param("after", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -1,12 +1,19 @@
 package org.amyth.autoconfigure.mvc;
 
+import org.amyth.core.annotation.ConcurrencyLimit;
 import org.amyth.core.annotation.RateLimit;
 import org.amyth.core.api.KeyStrategy;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 
 @RestController
@@ -28,4 +35,40 @@ class TestMvcController {
     ResponseEntity<String> byKey() {
         return ResponseEntity.ok("ok");
     }
+
+    // 2 req/min per IPv4 /24 or IPv6 /48
+    @RateLimit(permits = 2, window = 1, unit = TimeUnit.MINUTES,
+            strategy = KeyStrategy.SUBNET, strategyArg = "/48")
+    @GetMapping("/by-subnet")
+    ResponseEntity<String> bySubnet() {
+        return ResponseEntity.ok("ok");
+    }
+
+    // 1 per 500ms per header value; an over-limit request waits up to 2s for its turn
+    @RateLimit(permits = 1, window = 500, unit = TimeUnit.MILLISECONDS,
+            strategy = KeyStrategy.HEADER, strategyArg = "X-Client", maxWait = 2, maxWaitUnit = TimeUnit.SECONDS)
+    @GetMapping("/smooth")
+    ResponseEntity<String> smooth() {
+        return ResponseEntity.ok("smooth");
+    }
+
+    static final Queue<DeferredResult<String>> PENDING = new ConcurrentLinkedQueue<>();
+
+    // 1 open request per header value, held until the test completes it
+    @ConcurrencyLimit(permits = 1, strategy = KeyStrategy.HEADER, strategyArg = "X-Client")
+    @GetMapping("/slow")
+    DeferredResult<String> slow() {
+        DeferredResult<String> result = new DeferredResult<>();
+        PENDING.add(result);
+        return result;
+    }
+
+    // a stream, never held back by the adaptive limit
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter events() throws IOException {
+        SseEmitter emitter = new SseEmitter();
+        emitter.send("tick");
+        emitter.complete();
+        return emitter;
+    }
 }
@@ -0,0 +1,89 @@
+package org.amyth.autoconfigure.store.redis;
+
+import org.amyth.core.api.ConcurrencyLimiter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lease handling of {@link RedisConcurrencyLimiter}, against {@link RespStandIn}.
+ */
+class RedisConcurrencyLimiterTest {
+
+    private static final Duration LEASE = Duration.ofSeconds(30);
+
+    private RespStandIn redis;
+    private LettuceConnectionFactory factory;
+    private StringRedisTemplate template;
+
+    @BeforeEach
+    void connect() {
+        redis = RespStandIn.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", redis.port()));
+        factory.afterPropertiesSet();
+        factory.start();
+        template = new StringRedisTemplate(factory);
+    }
+
+    @AfterEach
+    void disconnect() {
+        factory.destroy();
+        redis.close();
+    }
+
+    @Test
+    @DisplayName("Nodes share the limit and a release frees the permit for any of them")
+    void sharesLimitAcrossNodes() {
+        try (RedisConcurrencyLimiter a = new RedisConcurrencyLimiter(template, "rlc:");
+             RedisConcurrencyLimiter b = new RedisConcurrencyLimiter(template, "rlc:")) {
+            ConcurrencyLimiter.Permit first = a.tryAcquire("k", 2, LEASE);
+            assertNotNull(first);
+            assertNotNull(b.tryAcquire("k", 2, LEASE));
+            assertNull(a.tryAcquire("k", 2, LEASE));
+            assertEquals(2, b.inFlight("k"));
+
+            first.release();
+            first.release();
+            assertEquals(1, a.inFlight("k"));
+            assertEquals(0, a.liveLeases());
+            assertNotNull(b.tryAcquire("k", 2, LEASE));
+        }
+    }
+
+    @Test
+    @DisplayName("Leases of a node that stopped renewing expire")
+    void crashedNodeLeasesExpire() {
+        RedisConcurrencyLimiter crashed = new RedisConcurrencyLimiter(template, "rlc:");
+        assertNotNull(crashed.tryAcquire("k", 1, LEASE));
+        crashed.close(); // stops renewing, never releases
+
+        try (RedisConcurrencyLimiter survivor = new RedisConcurrencyLimiter(template, "rlc:")) {
+            assertNull(survivor.tryAcquire("k", 1, LEASE));
+            redis.advanceClock(LEASE.plusSeconds(1));
+            assertEquals(0, survivor.inFlight("k"));
+            assertNotNull(survivor.tryAcquire("k", 1, LEASE));
+        }
+    }
+
+    @Test
+    @DisplayName("A running request keeps its permit past the lease by renewing it")
+    void renewsLiveLeases() throws InterruptedException {
+        try (RedisConcurrencyLimiter limiter = new RedisConcurrencyLimiter(template, "rlc:")) {
+            Duration lease = Duration.ofMillis(400);
+            assertNotNull(limiter.tryAcquire("k", 1, lease));
+            for (int i = 0; i < 5; i++) {
+                Thread.sleep(200);
+                assertEquals(1, limiter.inFlight("k"), "renewed lease still held after " + (i + 1) * 200 + "ms");
+            }
+            assertTrue(redis.commandCounts().containsKey("EVAL"));
+        }
+    }
+}
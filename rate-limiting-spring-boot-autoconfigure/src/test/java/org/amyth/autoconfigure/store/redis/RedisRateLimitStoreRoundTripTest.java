@@ -0,0 +1,217 @@
+package org.amyth.autoconfigure.store.redis;
+
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.model.HitRequest;
+import org.amyth.core.model.HitResult;
+import org.amyth.core.model.KeyPage;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * I/O efficiency of {@link RedisRateLimitStore}, measured offline against {@link RespStandIn}.
+ */
+class RedisRateLimitStoreRoundTripTest {
+
+    private RespStandIn redis;
+    private LettuceConnectionFactory factory;
+    private StringRedisTemplate template;
+    private RedisRateLimitStore store;
+
+    @BeforeEach
+    void connect() {
+        redis = RespStandIn.start();
+        factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", redis.port()));
+        factory.afterPropertiesSet();
+        factory.start();
+        template = new StringRedisTemplate(factory);
+        store = new RedisRateLimitStore(template, "rl:");
+    }
+
+    @AfterEach
+    void disconnect() {
+        factory.destroy();
+        redis.close();
+    }
+
+    @Test
+    @DisplayName("A sliding window hit costs exactly one round trip, whatever the bucket count")
+    void oneRoundTripPerHit() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 60);
+        LimitRule rule = new LimitRule(1_000, Duration.ofMinutes(1));
+        limiter.hit("warmup", rule); // connection handshake
+        redis.resetStats();
+
+        int hits = 100;
+        for (int i = 0; i < hits; i++) limiter.hit("client-" + (i % 10), rule);
+
+        RespStandIn.Stats stats = redis.stats();
+        assertEquals(hits, stats.roundTrips());
+        assertEquals(hits, stats.commands());
+        assertThat(redis.commandCounts()).containsOnlyKeys("EVAL");
+        // 60 bucket keys per call: keep the request size in check
+        assertThat(stats.bytesIn() / hits).isLessThan(2_500);
+        assertThat(stats.bytesOut() / hits).isLessThan(16);
+    }
+
+    @Test
+    @DisplayName("The batched script counts and sums like individual operations")
+    void enforcesLimitThroughScript() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 6);
+        LimitRule rule = new LimitRule(5, Duration.ofMinutes(1));
+        long allowed = 0;
+        for (int i = 0; i < 8; i++) {
+            if (limiter.hit("client", rule).allowed()) allowed++;
+        }
+        assertEquals(5, allowed);
+
+        store.addAndGet("older:7", 3, 60_000);
+        store.incrementAndGet("older:9", 60_000);
+        assertEquals(1 + 1 + 3, store.incrementAndSum("older:", 9, 2, 60_000));
+    }
+
+    @Test
+    @DisplayName("A batch of permits is counted in the same single round trip")
+    void batchInOneRoundTrip() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 60);
+        LimitRule rule = new LimitRule(100, Duration.ofMinutes(1));
+        limiter.hit("warmup", rule);
+        redis.resetStats();
+
+        limiter.decide("client", rule, 40);
+        limiter.decide("client", rule, 40);
+        assertThat(limiter.peek("client", rule).count()).isEqualTo(80);
+        redis.resetStats();
+        limiter.decide("client", rule, 40);
+
+        assertEquals(1, redis.stats().roundTrips());
+        assertThat(redis.commandCounts()).containsOnlyKeys("EVAL");
+
+        store.addAndGet("batch:7", 3, 60_000);
+        store.incrementAndGet("batch:9", 60_000);
+        assertEquals(1 + 40 + 3, store.addAndSum("batch:", 9, 2, 40, 60_000));
+    }
+
+    @Test
+    @DisplayName("A bulk check of many keys is one script call per chunk")
+    void bulkInOneRoundTripPerChunk() {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(store, Clock.systemUTC(), 6);
+        LimitRule rule = new LimitRule(2, Duration.ofMinutes(1));
+        limiter.hit("warmup", rule);
+        List<HitRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 200; i++) requests.add(new HitRequest("tenant-" + (i % 100), rule));
+        redis.resetStats();
+
+        List<HitResult> results = limiter.hitAll(requests);
+
+        assertEquals(1, redis.stats().roundTrips());
+        assertThat(results).hasSize(200);
+        assertThat(results.subList(0, 100)).allMatch(r -> r.allowed() && r.remaining() == 1);
+        assertThat(results.subList(100, 200)).allMatch(r -> r.allowed() && r.remaining() == 0);
+        assertThat(limiter.hit("tenant-7", rule).allowed()).isFalse();
+
+        List<HitRequest> many = new ArrayList<>();
+        for (int i = 0; i < RedisRateLimitStore.BULK_CHUNK + 1; i++) many.add(new HitRequest("many-" + i, rule));
+        redis.resetStats();
+        long[] decisions = limiter.decideAll(many);
+        // two scripts, pipelined: the second is sent before the first reply is read
+        assertEquals(2L, redis.commandCounts().get("EVAL"));
+        assertThat(redis.stats().roundTrips()).isBetween(1L, 2L);
+        assertThat(Arrays.stream(decisions).allMatch(PackedDecision::allowed)).isTrue();
+
+        store.addAndGet("read:1", 4, 60_000);
+        redis.resetStats();
+        assertThat(store.getAll(new String[] {"read:1", "read:2"})).containsExactly(4L, 0L);
+        assertEquals(1, redis.stats().roundTrips());
+    }
+
+    @Test
+    @DisplayName("A window's buckets share a cluster slot, and bulk calls are split per slot on a cluster")
+    void clusterSlots() {
+        Set<Integer> slots = new HashSet<>();
+        for (long bucket = 1_000; bucket < 1_060; bucket++) {
+            slots.add(ClusterSlotHashUtil.calculateSlot("rl:" + SlidingWindowRateLimiter.keyBase("client:7") + bucket));
+        }
+        assertEquals(1, slots.size());
+
+        String[] keys = {"rl:{a}:1", "rl:{b}:1", "rl:{a}:2", "rl:{c}:1", "rl:{a}:3"};
+        assertThat(RedisRateLimitStore.batches(keys, false, 2)).containsExactly(
+                new int[] {0, 1}, new int[] {2, 3}, new int[] {4});
+        List<int[]> perSlot = RedisRateLimitStore.batches(keys, true, 2);
+        assertThat(perSlot).hasSize(4);
+        for (int[] batch : perSlot) {
+            assertThat(Arrays.stream(batch).map(i -> ClusterSlotHashUtil.calculateSlot(keys[i])).distinct()).hasSize(1);
+        }
+        assertThat(perSlot.get(0)).containsExactly(0, 2);
+        assertThat(perSlot.get(1)).containsExactly(4);
+    }
+
+    @Test
+    @DisplayName("Buckets get their time-to-live when created and expire with it")
+    void setsTtlOnCreation() {
+        store.incrementAndSum("k:", 1, 5, 2_000);
+        Long ttl = template.getExpire("rl:k:1", TimeUnit.MILLISECONDS);
+        assertThat(ttl).isBetween(1L, 2_000L);
+
+        redis.advanceClock(Duration.ofMillis(2_001));
+        assertEquals(0, store.get("k:1"));
+    }
+
+    @Test
+    @DisplayName("subtract() takes hits back in one script, never below zero, keeping the TTL")
+    void subtractsInOneScript() {
+        store.addAndGet("k:1", 3, 2_000);
+        long evals = redis.commandCounts().getOrDefault("EVAL", 0L);
+
+        assertThat(store.subtract("k:1", 1)).isTrue();
+        assertEquals(2, store.get("k:1"));
+        assertEquals(evals + 1, redis.commandCounts().get("EVAL"));
+        store.subtract("k:1", 5);
+        assertEquals(0, store.get("k:1"));
+        assertThat(template.getExpire("rl:k:1", TimeUnit.MILLISECONDS)).isBetween(1L, 2_000L);
+
+        store.subtract("k:2", 1);
+        assertThat(template.hasKey("rl:k:2")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Keys are listed with SCAN under the prefix, and deleted one by one")
+    void scansAndDeletes() {
+        for (int i = 0; i < 30; i++) store.incrementAndGet("rl:c" + i + ":1", 60_000);
+        template.opsForValue().set("other:1", "1");
+
+        Set<String> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            KeyPage page = store.scan(cursor, 10);
+            seen.addAll(page.bucketKeys());
+            cursor = page.cursor();
+        } while (cursor != null);
+        assertEquals(30, seen.size());
+        assertThat(seen).contains("rl:c0:1", "rl:c29:1");
+        assertThat(redis.commandCounts()).containsKey("SCAN");
+
+        store.delete("rl:c0:1");
+        assertEquals(0, store.get("rl:c0:1"));
+        assertEquals(1, store.get("rl:c1:1"));
+    }
+}
@@ -0,0 +1,544 @@
+package org.amyth.autoconfigure.store.redis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * In-process Redis stand-in speaking RESP2, for testing and benchmarking the Redis stores
+ * without a server.
+ * <p>
+ * It implements the string commands the stores use and runs their Lua scripts through Java
+ * shims registered by script text (see {@link #registerScript}), so a script the store
+ * changes without updating its shim fails loudly instead of silently diverging. Commands
+ * execute one at a time, like on a real server, which makes scripts atomic.
+ * </p>
+ * <p>
+ * It counts commands, bytes and round trips. A round trip is one batch of commands read
+ * from a connection before the replies are flushed back: pipelined commands share one.
+ * </p>
+ */
+public final class RespStandIn implements AutoCloseable {
+
+    /**
+     * Traffic counters.
+     *
+     * @param connections accepted connections
+     * @param commands    commands executed
+     * @param roundTrips  request batches answered
+     * @param bytesIn     bytes received
+     * @param bytesOut    bytes sent
+     */
+    public record Stats(long connections, long commands, long roundTrips, long bytesIn, long bytesOut) {
+    }
+
+    /** Java implementation of one Lua script, run atomically against the data set. */
+    @FunctionalInterface
+    public interface Script {
+        Object run(RespStandIn db, List<String> keys, List<String> args);
+    }
+
+    /** A simple-string reply such as {@code +OK}. */
+    record Status(String text) {
+    }
+
+    /** An error reply. */
+    record Error(String text) {
+    }
+
+    private record Entry(String value, long expireAtMillis) {
+        boolean expired(long now) {
+            return expireAtMillis != 0 && now >= expireAtMillis;
+        }
+    }
+
+    private static final Status OK = new Status("OK");
+
+    private final ServerSocket server;
+    private final Thread acceptor;
+    private final Map<String, Entry> data = new HashMap<>();
+    /** Sorted sets, member to score; kept apart from the string keys and never listed by SCAN. */
+    private final Map<String, Map<String, Long>> zsets = new HashMap<>();
+    private final Map<String, Script> scripts = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> commandCounts = new ConcurrentHashMap<>();
+    private final List<Socket> clients = new ArrayList<>();
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder commands = new LongAdder();
+    private final LongAdder roundTrips = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private volatile long clockOffsetMillis;
+
+    private RespStandIn(ServerSocket server) {
+        this.server = server;
+        registerStoreScripts();
+        this.acceptor = new Thread(this::acceptLoop, "resp-stand-in-" + server.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Starts a stand-in on a random loopback port.
+     *
+     * @return the running stand-in
+     */
+    public static RespStandIn start() {
+        try {
+            ServerSocket s = new ServerSocket();
+            s.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            return new RespStandIn(s);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot start RESP stand-in", e);
+        }
+    }
+
+    public int port() {
+        return server.getLocalPort();
+    }
+
+    public String uri() {
+        return "redis://127.0.0.1:" + port();
+    }
+
+    /**
+     * Registers the shim for a Lua script, matched by its exact text.
+     *
+     * @param lua    script text as sent with EVAL
+     * @param script Java implementation
+     */
+    public void registerScript(String lua, Script script) {
+        scripts.put(lua, script);
+    }
+
+    public Stats stats() {
+        return new Stats(connections.sum(), commands.sum(), roundTrips.sum(), bytesIn.sum(), bytesOut.sum());
+    }
+
+    /** Returns how often each command ran, by upper-case name. */
+    public Map<String, Long> commandCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        commandCounts.forEach((k, v) -> counts.put(k, v.sum()));
+        return counts;
+    }
+
+    /** Zeroes the traffic counters, e.g. after connection setup. */
+    public void resetStats() {
+        commands.reset();
+        roundTrips.reset();
+        bytesIn.reset();
+        bytesOut.reset();
+        commandCounts.clear();
+    }
+
+    /** Moves the stand-in's clock forward, expiring keys without waiting. */
+    public void advanceClock(Duration d) {
+        clockOffsetMillis += d.toMillis();
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException ignored) {
+            // closing anyway
+        }
+        synchronized (clients) {
+            for (Socket c : clients) {
+                try {
+                    c.close();
+                } catch (IOException ignored) {
+                    // closing anyway
+                }
+            }
+        }
+    }
+
+    /* ------------------ data set, used by commands and script shims ------------------ */
+
+    long now() {
+        return System.currentTimeMillis() + clockOffsetMillis;
+    }
+
+    public synchronized String get(String key) {
+        Entry e = data.get(key);
+        if (e == null) return null;
+        if (e.expired(now())) {
+            data.remove(key);
+            return null;
+        }
+        return e.value();
+    }
+
+    public synchronized void set(String key, String value, long ttlMillis) {
+        data.put(key, new Entry(value, ttlMillis > 0 ? now() + ttlMillis : 0));
+    }
+
+    public synchronized long incrBy(String key, long delta) {
+        String current = get(key);
+        long v = (current == null ? 0 : Long.parseLong(current)) + delta;
+        Entry old = data.get(key);
+        data.put(key, new Entry(Long.toString(v), old == null ? 0 : old.expireAtMillis()));
+        return v;
+    }
+
+    public synchronized boolean pexpire(String key, long ttlMillis) {
+        if (get(key) == null) return false;
+        data.put(key, new Entry(data.get(key).value(), now() + ttlMillis));
+        return true;
+    }
+
+    public synchronized long pttl(String key) {
+        if (get(key) == null) return -2;
+        Entry e = data.get(key);
+        return e.expireAtMillis() == 0 ? -1 : e.expireAtMillis() - now();
+    }
+
+    public synchronized boolean del(String key) {
+        return get(key) != null && data.remove(key) != null;
+    }
+
+    public synchronized int size() {
+        data.values().removeIf(e -> e.expired(now()));
+        return data.size();
+    }
+
+    /** Leases of a sorted set whose score is after {@code minScore}. */
+    public synchronized long zcountAfter(String key, long minScore) {
+        Map<String, Long> z = zsets.get(key);
+        if (z == null) return 0;
+        return z.values().stream().filter(v -> v > minScore).count();
+    }
+
+    public synchronized void zadd(String key, String member, long score) {
+        zsets.computeIfAbsent(key, k -> new HashMap<>()).put(member, score);
+    }
+
+    public synchronized boolean zrem(String key, String member) {
+        Map<String, Long> z = zsets.get(key);
+        if (z == null || z.remove(member) == null) return false;
+        if (z.isEmpty()) zsets.remove(key);
+        return true;
+    }
+
+    public synchronized void zremUpTo(String key, long maxScore) {
+        Map<String, Long> z = zsets.get(key);
+        if (z != null) z.values().removeIf(v -> v <= maxScore);
+    }
+
+    public synchronized Long zscore(String key, String member) {
+        Map<String, Long> z = zsets.get(key);
+        return z == null ? null : z.get(member);
+    }
+
+    private void registerStoreScripts() {
+        registerScript(RedisRateLimitStore.INCR_WITH_TTL_LUA, (db, keys, args) -> {
+            long v = db.incrBy(keys.get(0), 1);
+            if (v == 1) db.pexpire(keys.get(0), Long.parseLong(args.get(0)));
+            return v;
+        });
+        registerScript(RedisRateLimitStore.INCRBY_WITH_TTL_LUA, (db, keys, args) -> {
+            long delta = Long.parseLong(args.get(0));
+            long v = db.incrBy(keys.get(0), delta);
+            if (v == delta) db.pexpire(keys.get(0), Long.parseLong(args.get(1)));
+            return v;
+        });
+        registerScript(RedisRateLimitStore.SUBTRACT_LUA, (db, keys, args) -> {
+            String v = db.get(keys.get(0));
+            if (v == null) return 0L;
+            long take = Math.min(Long.parseLong(v), Long.parseLong(args.get(0)));
+            return take > 0 ? db.incrBy(keys.get(0), -take) : Long.parseLong(v);
+        });
+        registerScript(RedisRateLimitStore.INCR_AND_SUM_LUA, (db, keys, args) -> {
+            long total = db.incrBy(keys.get(0), 1);
+            if (total == 1) db.pexpire(keys.get(0), Long.parseLong(args.get(0)));
+            for (int i = 1; i < keys.size(); i++) {
+                String c = db.get(keys.get(i));
+                if (c != null) total += Long.parseLong(c);
+            }
+            return total;
+        });
+        registerScript(RedisRateLimitStore.ADD_AND_SUM_LUA, (db, keys, args) -> {
+            long delta = Long.parseLong(args.get(0));
+            long total = db.incrBy(keys.get(0), delta);
+            if (total == delta) db.pexpire(keys.get(0), Long.parseLong(args.get(1)));
+            for (int i = 1; i < keys.size(); i++) {
+                String c = db.get(keys.get(i));
+                if (c != null) total += Long.parseLong(c);
+            }
+            return total;
+        });
+        registerScript(RedisRateLimitStore.ADD_AND_SUM_ALL_LUA, (db, keys, args) -> {
+            int k = Integer.parseInt(args.get(0));
+            List<Long> out = new ArrayList<>();
+            for (int i = 0; i < keys.size() / k; i++) {
+                String current = keys.get(i * k);
+                long delta = Long.parseLong(args.get(1 + 2 * i));
+                long total = db.incrBy(current, delta);
+                if (total == delta) db.pexpire(current, Long.parseLong(args.get(2 + 2 * i)));
+                for (int b = 1; b < k; b++) {
+                    String c = db.get(keys.get(i * k + b));
+                    if (c != null) total += Long.parseLong(c);
+                }
+                out.add(total);
+            }
+            return out;
+        });
+        registerScript(RedisConcurrencyLimiter.ACQUIRE_LUA, (db, keys, args) -> {
+            long now = db.now();
+            db.zremUpTo(keys.get(0), now);
+            long n = db.zcountAfter(keys.get(0), Long.MIN_VALUE);
+            if (n >= Long.parseLong(args.get(0))) return 0L;
+            db.zadd(keys.get(0), args.get(2), now + Long.parseLong(args.get(1)));
+            return n + 1;
+        });
+        registerScript(RedisConcurrencyLimiter.RENEW_LUA, (db, keys, args) -> {
+            if (db.zscore(keys.get(0), args.get(1)) == null) return 0L;
+            db.zadd(keys.get(0), args.get(1), db.now() + Long.parseLong(args.get(0)));
+            return 1L;
+        });
+        registerScript(RedisConcurrencyLimiter.IN_FLIGHT_LUA, (db, keys, args) -> db.zcountAfter(keys.get(0), db.now()));
+    }
+
+    /* ------------------ protocol ------------------ */
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket s = server.accept();
+                s.setTcpNoDelay(true);
+                connections.increment();
+                synchronized (clients) {
+                    clients.add(s);
+                }
+                Thread t = new Thread(() -> serve(s), "resp-stand-in-conn");
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                return; // closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            InputStream in = new BufferedInputStream(new FilterInputStream(socket.getInputStream()) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b >= 0) bytesIn.increment();
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) bytesIn.add(n);
+                    return n;
+                }
+            });
+            OutputStream out = new BufferedOutputStream(new FilterOutputStream(socket.getOutputStream()) {
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    bytesOut.add(len);
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    bytesOut.increment();
+                }
+            });
+            while (true) {
+                List<String> command = readCommand(in);
+                if (command == null) return;
+                commands.increment();
+                writeReply(out, execute(command));
+                if (in.available() == 0) {
+                    // count before replying, so a client that has its reply also sees the count
+                    roundTrips.increment();
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // client went away
+        }
+    }
+
+    private Object execute(List<String> cmd) {
+        if (cmd.isEmpty()) return new Error("ERR empty command");
+        String name = cmd.get(0).toUpperCase(Locale.ROOT);
+        commandCounts.computeIfAbsent(name, k -> new LongAdder()).increment();
+        try {
+            synchronized (this) {
+                return switch (name) {
+                    case "PING" -> cmd.size() > 1 ? cmd.get(1) : new Status("PONG");
+                    case "CLIENT", "SELECT", "AUTH" -> OK;
+                    case "GET" -> get(cmd.get(1));
+                    case "SET" -> {
+                        long ttl = 0;
+                        for (int i = 3; i + 1 < cmd.size(); i += 2) {
+                            String opt = cmd.get(i).toUpperCase(Locale.ROOT);
+                            if (opt.equals("PX")) ttl = Long.parseLong(cmd.get(i + 1));
+                            if (opt.equals("EX")) ttl = Long.parseLong(cmd.get(i + 1)) * 1000;
+                        }
+                        set(cmd.get(1), cmd.get(2), ttl);
+                        yield OK;
+                    }
+                    case "MGET" -> {
+                        List<Object> values = new ArrayList<>();
+                        for (int i = 1; i < cmd.size(); i++) values.add(get(cmd.get(i)));
+                        yield values;
+                    }
+                    case "INCR" -> incrBy(cmd.get(1), 1);
+                    case "INCRBY" -> incrBy(cmd.get(1), Long.parseLong(cmd.get(2)));
+                    case "DEL" -> {
+                        long n = 0;
+                        for (int i = 1; i < cmd.size(); i++) if (del(cmd.get(i))) n++;
+                        yield n;
+                    }
+                    case "EXISTS" -> get(cmd.get(1)) == null ? 0L : 1L;
+                    case "PEXPIRE" -> pexpire(cmd.get(1), Long.parseLong(cmd.get(2))) ? 1L : 0L;
+                    case "EXPIRE" -> pexpire(cmd.get(1), Long.parseLong(cmd.get(2)) * 1000) ? 1L : 0L;
+                    case "PTTL" -> pttl(cmd.get(1));
+                    case "TTL" -> {
+                        long pttl = pttl(cmd.get(1));
+                        yield pttl < 0 ? pttl : (pttl + 999) / 1000;
+                    }
+                    case "SCAN" -> scan(cmd);
+                    case "DBSIZE" -> (long) size();
+                    case "FLUSHALL", "FLUSHDB" -> {
+                        data.clear();
+                        zsets.clear();
+                        yield OK;
+                    }
+                    case "ZREM" -> {
+                        long removed = 0;
+                        for (int i = 2; i < cmd.size(); i++) if (zrem(cmd.get(1), cmd.get(i))) removed++;
+                        yield removed;
+                    }
+                    case "EVAL" -> eval(cmd);
+                    case "EVALSHA" -> new Error("NOSCRIPT stand-in only runs scripts sent with EVAL");
+                    default -> new Error("ERR unknown command '" + cmd.get(0) + "'");
+                };
+            }
+        } catch (RuntimeException e) {
+            return new Error("ERR " + e.getMessage());
+        }
+    }
+
+    /** SCAN over the live keys in sorted order; the cursor is a position in that order. */
+    private Object scan(List<String> cmd) {
+        int from = Integer.parseInt(cmd.get(1));
+        Pattern match = null;
+        int count = 10;
+        for (int i = 2; i + 1 < cmd.size(); i += 2) {
+            String opt = cmd.get(i).toUpperCase(Locale.ROOT);
+            if (opt.equals("MATCH")) match = glob(cmd.get(i + 1));
+            if (opt.equals("COUNT")) count = Integer.parseInt(cmd.get(i + 1));
+        }
+        List<String> live = new ArrayList<>();
+        for (String key : List.copyOf(data.keySet())) if (get(key) != null) live.add(key);
+        live.sort(null);
+        int to = Math.min(live.size(), from + count);
+        List<Object> keys = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            if (match == null || match.matcher(live.get(i)).matches()) keys.add(live.get(i));
+        }
+        return List.of(to >= live.size() ? "0" : String.valueOf(to), keys);
+    }
+
+    private static Pattern glob(String glob) {
+        StringBuilder re = new StringBuilder();
+        for (char c : glob.toCharArray()) {
+            if (c == '*') re.append(".*");
+            else if (c == '?') re.append('.');
+            else re.append(Pattern.quote(String.valueOf(c)));
+        }
+        return Pattern.compile(re.toString());
+    }
+
+    private Object eval(List<String> cmd) {
+        Script script = scripts.get(cmd.get(1));
+        if (script == null) return new Error("ERR stand-in has no shim for script: " + cmd.get(1));
+        int numKeys = Integer.parseInt(cmd.get(2));
+        List<String> keys = cmd.subList(3, 3 + numKeys);
+        List<String> args = cmd.subList(3 + numKeys, cmd.size());
+        return script.run(this, keys, args);
+    }
+
+    private static List<String> readCommand(InputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) return null;
+        if (first != '*') {
+            // inline command, e.g. from redis-cli or telnet
+            String line = (char) first + readLine(in);
+            return new ArrayList<>(List.of(line.trim().split("\\s+")));
+        }
+        int n = Integer.parseInt(readLine(in));
+        List<String> parts = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (in.read() != '$') throw new IOException("Expected bulk string");
+            int len = Integer.parseInt(readLine(in));
+            byte[] b = in.readNBytes(len);
+            if (b.length < len) throw new EOFException();
+            in.read();
+            in.read(); // CRLF
+            parts.add(new String(b, StandardCharsets.UTF_8));
+        }
+        return parts;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0) throw new EOFException();
+            sb.append((char) c);
+        }
+        in.read(); // \n
+        return sb.toString();
+    }
+
+    private static void writeReply(OutputStream out, Object reply) throws IOException {
+        if (reply == null) {
+            out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof Status s) {
+            out.write(("+" + s.text() + "\r\n").getBytes(StandardCharsets.UTF_8));
+        } else if (reply instanceof Error e) {
+            out.write(("-" + e.text() + "\r\n").getBytes(StandardCharsets.UTF_8));
+        } else if (reply instanceof Long l) {
+            out.write((":" + l + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof String s) {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            out.write(("$" + b.length + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(b);
+            out.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+        } else if (reply instanceof List<?> list) {
+            out.write(("*" + list.size() + "\r\n").getBytes(StandardCharsets.US_ASCII));
+            for (Object o : list) writeReply(out, o);
+        } else {
+            throw new IllegalArgumentException("Unsupported reply " + reply);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.amyth.autoconfigure.store.redis;
+
+import org.amyth.autoconfigure.RateLimitingAutoConfiguration;
+import org.amyth.core.api.RateLimitStore;
+import org.amyth.core.api.RateLimiter;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.store.sharded.ShardedRateLimitStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.GenericContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Local multi-instance setup: three throwaway Redis containers acting as shards.
+ * Skipped when no Docker daemon is available.
+ */
+class ShardedRedisRateLimitStoreTest {
+
+    private static final List<GenericContainer<?>> REDIS = new ArrayList<>();
+
+    @BeforeAll
+    static void startShards() {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker is required for the multi-instance Redis setup");
+        for (int i = 0; i < 3; i++) {
+            GenericContainer<?> c = new GenericContainer<>("redis:7-alpine").withExposedPorts(6379);
+            c.start();
+            REDIS.add(c);
+        }
+    }
+
+    @AfterAll
+    static void stopShards() {
+        REDIS.forEach(GenericContainer::stop);
+    }
+
+    private ApplicationContextRunner runner() {
+        List<String> uris = REDIS.stream()
+                .map(c -> "redis://" + c.getHost() + ":" + c.getMappedPort(6379))
+                .toList();
+        return new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(RateLimitingAutoConfiguration.class))
+                .withPropertyValues(
+                        "ratelimit.backend=REDIS_SHARDED",
+                        "ratelimit.sliding-buckets=6",
+                        "ratelimit.redis-shards=" + String.join(",", uris));
+    }
+
+    @Test
+    @DisplayName("Clients are spread over every Redis shard and limits still hold")
+    void spreadsClientsAndEnforcesLimits() {
+        runner().run(ctx -> {
+            ShardedRateLimitStore store = ctx.getBean(ShardedRateLimitStore.class);
+            RateLimiter limiter = ctx.getBean(RateLimiter.class);
+            assertThat(store.shards()).hasSize(3);
+
+            Set<RateLimitStore> used = new HashSet<>();
+            for (int i = 0; i < 300; i++) used.add(store.shardFor("rl:client-" + i + ":1"));
+            assertThat(used).hasSize(3);
+
+            LimitRule rule = new LimitRule(2, Duration.ofMinutes(1));
+            assertThat(limiter.hit("client-a", rule).allowed()).isTrue();
+            assertThat(limiter.hit("client-a", rule).allowed()).isTrue();
+            assertThat(limiter.hit("client-a", rule).allowed()).isFalse();
+            assertThat(limiter.hit("client-b", rule).allowed()).isTrue();
+        });
+    }
+}
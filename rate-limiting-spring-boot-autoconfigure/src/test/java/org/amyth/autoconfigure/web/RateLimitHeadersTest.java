@@ -0,0 +1,25 @@
+package org.amyth.autoconfigure.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class RateLimitHeadersTest {
+
+    @Test
+    @DisplayName("Small counts and an unchanged reset second reuse the same strings")
+    void reusesStrings() {
+        RateLimitHeaders headers = new RateLimitHeaders(100);
+        assertEquals("100", headers.limit());
+        assertSame(RateLimitHeaders.count(42), RateLimitHeaders.count(42));
+        assertEquals("5000", RateLimitHeaders.count(5000));
+
+        String reset = headers.reset(1_700_000_000L);
+        assertEquals("1700000000", reset);
+        assertSame(reset, headers.reset(1_700_000_000L));
+        assertThat(headers.reset(1_700_000_060L)).isEqualTo("1700000060");
+    }
+}
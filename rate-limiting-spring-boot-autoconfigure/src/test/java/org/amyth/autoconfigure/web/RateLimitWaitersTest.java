@@ -0,0 +1,141 @@
+package org.amyth.autoconfigure.web;
+
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.api.ConcurrencyLimiter;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.PackedDecision;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitWaitersTest {
+
+    @Test
+    @DisplayName("Bounds waiting requests per key and overall")
+    void boundsQueues() {
+        RateLimitWaiters waiters = new RateLimitWaiters(3);
+        ConcurrencyLimiter.Permit a1 = waiters.tryEnter("a", 2);
+        assertNotNull(a1);
+        assertNotNull(waiters.tryEnter("a", 2));
+        assertNull(waiters.tryEnter("a", 2));
+        assertNotNull(waiters.tryEnter("b", 2));
+        assertNull(waiters.tryEnter("c", 2), "total bound reached");
+        assertEquals(3, waiters.getWaiting());
+
+        a1.release();
+        assertEquals(2, waiters.getWaiting());
+        assertNotNull(waiters.tryEnter("c", 2));
+    }
+
+    @Test
+    @DisplayName("Admits by recording a fresh hit once the window has room, waits for the next bucket, gives up past the deadline")
+    void poll() {
+        FakeClock clock = new FakeClock(900);
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), clock, 10);
+        LimitRule rule = new LimitRule(2, Duration.ofSeconds(1));
+        limiter.hit("k", rule);
+
+        assertEquals(RateLimitWaiters.ADMIT, RateLimitWaiters.poll(limiter, "k", rule, 900, 2_000));
+        assertEquals(2, limiter.peek("k", rule).count(), "the admitted request is counted");
+        assertEquals(100, RateLimitWaiters.poll(limiter, "k", rule, 900, 2_000));
+        assertEquals(2, limiter.peek("k", rule).count(), "a poll without room records nothing");
+        assertEquals(-100, RateLimitWaiters.poll(limiter, "k", rule, 900, 950));
+    }
+
+    @Test
+    @DisplayName("Delayed requests count in the window they run in: a burst never runs more than the limit per window")
+    void burstStaysWithinTheLimit() {
+        long bucket = 6_000;
+        LimitRule rule = new LimitRule(10, Duration.ofMillis(10 * bucket));
+        FakeClock clock = new FakeClock(0);
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(new CaffeineRateLimitStore(10_000), clock, 10);
+        RateLimitWaiters waiters = new RateLimitWaiters(100);
+
+        record Waiter(ConcurrencyLimiter.Permit place, long deadline, long[] nextPoll) {}
+        Deque<Waiter> queue = new ArrayDeque<>();
+        List<Long> runs = new ArrayList<>();
+        int delayed = 0;
+        for (long now = 0; now < 30 * bucket; now += 100) {
+            clock.millis = now;
+            // a burst of 20, then one request per bucket: twice the limit, then exactly the limit
+            int arrivals = now == 0 ? 20 : now % bucket == 0 ? 1 : 0;
+            for (int i = 0; i < arrivals; i++) {
+                if (PackedDecision.allowed(limiter.tryAcquire("k", rule, 1))) {
+                    runs.add(now);
+                    continue;
+                }
+                ConcurrencyLimiter.Permit place = waiters.tryEnter("k", 50);
+                assertNotNull(place);
+                queue.add(new Waiter(place, now + 20 * bucket, new long[] {now}));
+            }
+            for (Iterator<Waiter> it = queue.iterator(); it.hasNext(); ) {
+                Waiter w = it.next();
+                if (w.nextPoll()[0] > now) continue;
+                long next = RateLimitWaiters.poll(limiter, "k", rule, now, w.deadline());
+                if (next > 0) {
+                    w.nextPoll()[0] = now + next;
+                    continue;
+                }
+                if (next == RateLimitWaiters.ADMIT) {
+                    runs.add(now);
+                    delayed++;
+                }
+                w.place().release();
+                it.remove();
+            }
+        }
+
+        int[] perBucket = new int[30];
+        for (long t : runs) perBucket[(int) (t / bucket)]++;
+        for (int first = 0; first + 10 <= perBucket.length; first++) {
+            int inWindow = 0;
+            for (int b = first; b < first + 10; b++) inWindow += perBucket[b];
+            assertTrue(inWindow <= 10, "window starting at bucket " + first + " ran " + inWindow);
+        }
+        assertTrue(delayed >= 10, "the burst's second half runs once the window has room, ran " + delayed);
+        assertEquals(10, runs.stream().filter(t -> t >= 20 * bucket).count(), "the limit is still used in full");
+        assertEquals(queue.size(), waiters.getWaiting());
+    }
+
+    /** A clock moved by hand. */
+    private static final class FakeClock extends Clock {
+        long millis;
+
+        FakeClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
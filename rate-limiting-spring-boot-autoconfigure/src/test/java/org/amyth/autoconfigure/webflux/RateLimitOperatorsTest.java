@@ -0,0 +1,161 @@
+package org.amyth.autoconfigure.webflux;
+
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.api.LimitOutcome;
+import org.amyth.core.api.RateLimiter;
+import org.amyth.core.model.HitResult;
+import org.amyth.core.model.LimitRule;
+import org.amyth.core.model.WindowState;
+import org.amyth.core.pacing.RateLimitExceededException;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * How {@link RateLimitOperators} limits the elements of a stream, and how many limiter calls it makes.
+ */
+class RateLimitOperatorsTest {
+
+    /** Counts the calls reaching the limiter, each one a store round trip on Redis. */
+    static final class CountingLimiter implements RateLimiter {
+        final RateLimiter delegate = new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), Clock.systemUTC(), 4);
+        final AtomicInteger decides = new AtomicInteger();
+        final AtomicInteger peeks = new AtomicInteger();
+        final List<Long> decidedAt = new CopyOnWriteArrayList<>();
+
+        @Override
+        public HitResult hit(String key, LimitRule rule) {
+            decides.incrementAndGet();
+            return delegate.hit(key, rule);
+        }
+
+        @Override
+        public long decide(String key, LimitRule rule, long permits) {
+            decides.incrementAndGet();
+            decidedAt.add(System.currentTimeMillis());
+            return delegate.decide(key, rule, permits);
+        }
+
+        @Override
+        public long tryAcquire(String key, LimitRule rule, long permits) {
+            decides.incrementAndGet();
+            decidedAt.add(System.currentTimeMillis());
+            return delegate.tryAcquire(key, rule, permits);
+        }
+
+        @Override
+        public WindowState peek(String key, LimitRule rule) {
+            peeks.incrementAndGet();
+            return delegate.peek(key, rule);
+        }
+
+        @Override
+        public Instant countedUntil(String key, LimitRule rule) {
+            return delegate.countedUntil(key, rule);
+        }
+    }
+
+    private final CountingLimiter limiter = new CountingLimiter();
+    private final RateLimitOperators operators = new RateLimitOperators(limiter, 4);
+
+    @Test
+    @DisplayName("Elements over the limit are delayed until the window slides, taking permits in batches")
+    void delaysElements() {
+        LimitRule rule = new LimitRule(8, Duration.ofMillis(400));
+        Flux<Integer> limited = Flux.range(0, 12).transform(operators.limit("s", rule));
+        assertEquals(0, limiter.decides.get());
+
+        long start = System.nanoTime();
+        List<Integer> out = limited.collectList().block(Duration.ofSeconds(3));
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(12, out.size());
+        assertEquals(List.of(0, 1, 2, 3), out.subList(0, 4));
+        assertTrue(elapsed >= 50, "elapsed " + elapsed + "ms");
+        assertTrue(limiter.decides.get() <= 4, "decides " + limiter.decides.get());
+    }
+
+    @Test
+    @DisplayName("Dropped elements cost no limiter call until the window may have room")
+    void dropsElements() {
+        LimitRule rule = new LimitRule(5, Duration.ofMinutes(1));
+        List<Integer> out = Flux.range(0, 100)
+                .transform(operators.<Integer>limit("d", rule, LimitOutcome.DROP))
+                .collectList().block();
+
+        assertEquals(List.of(0, 1, 2, 3, 4), out);
+        // batches of 4 and 1, one refused batch of 1 left uncounted, one read of the window
+        assertEquals(3, limiter.decides.get());
+        assertEquals(1, limiter.peeks.get());
+        assertEquals(5, limiter.delegate.peek("d", rule).count());
+    }
+
+    @Test
+    @DisplayName("A batch the window has room for in part only is cut down to that part")
+    void takesWhatFits() {
+        LimitRule rule = new LimitRule(5, Duration.ofMinutes(1));
+        limiter.delegate.decide("f", rule, 3);
+        List<Integer> out = Flux.range(0, 10)
+                .transform(operators.<Integer>limit("f", rule, LimitOutcome.DROP))
+                .collectList().block();
+
+        assertEquals(List.of(0, 1), out);
+        // the batch of 4 refused, the 2 that fit taken, then a refused batch of 1
+        assertEquals(3, limiter.decides.get());
+        assertEquals(5, limiter.delegate.peek("f", rule).count());
+    }
+
+    @Test
+    @DisplayName("Held permits are not used once the bucket they were counted in left the window")
+    void heldPermitsLeaveWithTheirBucket() {
+        LimitRule rule = new LimitRule(8, Duration.ofMillis(400));
+        long bucket = 100;
+        // start late in a bucket, so that the second element comes after the bucket left the window
+        // but less than a window after the permits were taken
+        while (System.currentTimeMillis() % bucket < 80) Thread.onSpinWait();
+        List<Long> sentAt = Flux.just(0)
+                .concatWith(Mono.delay(Duration.ofMillis(350)).thenReturn(1))
+                .transform(operators.limit("h", rule))
+                .map(i -> System.currentTimeMillis())
+                .collectList().block(Duration.ofSeconds(3));
+
+        long countedUntil = Math.floorDiv(limiter.decidedAt.get(0), bucket) * bucket + rule.window().toMillis();
+        assertEquals(sentAt.get(1) < countedUntil ? 1 : 2, limiter.decides.get());
+    }
+
+    @Test
+    @DisplayName("THROW ends the stream at the first element over the limit")
+    void failsStream() {
+        LimitRule rule = new LimitRule(3, Duration.ofMinutes(1));
+        AtomicInteger seen = new AtomicInteger();
+        RateLimitExceededException e = assertThrows(RateLimitExceededException.class, () -> Flux.range(0, 10)
+                .transform(operators.<Integer>limit("t", rule, LimitOutcome.THROW))
+                .doOnNext(i -> seen.incrementAndGet())
+                .blockLast());
+
+        assertEquals(3, seen.get());
+        assertEquals("t", e.getKey());
+        assertTrue(e.getRetryAfter().toMillis() > 0);
+    }
+
+    @Test
+    @DisplayName("Each subscription has its own permits but shares the key's limit")
+    void sharesKey() {
+        LimitRule rule = new LimitRule(6, Duration.ofMinutes(1));
+        Flux<Integer> limited = Flux.range(0, 4).transform(operators.limit("k", rule, LimitOutcome.DROP));
+
+        assertEquals(4, limited.count().block());
+        assertEquals(2, limited.count().block());
+    }
+}
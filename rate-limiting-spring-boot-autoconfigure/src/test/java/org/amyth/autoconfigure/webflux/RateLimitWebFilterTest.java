@@ -0,0 +1,170 @@
+package org.amyth.autoconfigure.webflux;
+
+import org.amyth.autoconfigure.RateLimitProperties;
+import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.amyth.autoconfigure.web.AdaptiveConcurrency;
+import org.amyth.core.algo.SlidingWindowRateLimiter;
+import org.amyth.core.annotation.ConcurrencyLimit;
+import org.amyth.core.annotation.RateLimit;
+import org.amyth.core.api.KeyStrategy;
+import org.amyth.core.concurrency.AdaptiveConcurrencyLimiter;
+import org.amyth.core.concurrency.LocalConcurrencyLimiter;
+import org.amyth.core.store.caffeine.CaffeineRateLimitStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * How {@link RateLimitWebFilter} returns {@code @ConcurrencyLimit} and adaptive permits for each way an
+ * exchange can end, and delays requests over a limit with a maximum wait.
+ */
+class RateLimitWebFilterTest {
+
+    private RateLimitMetricsBinder metrics;
+    private LocalConcurrencyLimiter concurrency;
+    private RateLimitWebFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ConcurrencyLimit cl = TestFluxController.class.getDeclaredMethod("stream").getAnnotation(ConcurrencyLimit.class);
+        metrics = new RateLimitMetricsBinder("caffeine", null);
+        concurrency = new LocalConcurrencyLimiter();
+        filter = new RateLimitWebFilter(
+                new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), Clock.systemUTC(), 6),
+                concurrency, new RateLimitProperties(), metrics, Map.of(), Map.of("GET /flux/stream", cl));
+    }
+
+    @Test
+    @DisplayName("A cancelled stream gives its permit back")
+    void releasesOnCancel() {
+        Disposable open = filter.filter(exchange("a"), ex -> Sinks.empty().asMono().then()).subscribe();
+        assertEquals(1, concurrency.inFlight("a"));
+
+        MockServerWebExchange rejected = exchange("a");
+        filter.filter(rejected, ex -> Mono.never()).block();
+        assertEquals(429, rejected.getResponse().getStatusCode().value());
+        assertEquals(1, metrics.getConcurrencyRejectedTotal());
+
+        open.dispose();
+        assertEquals(0, concurrency.inFlight("a"));
+        assertEquals(0, metrics.getInFlight());
+    }
+
+    @Test
+    @DisplayName("A failed or completed exchange gives its permit back")
+    void releasesOnErrorAndComplete() {
+        filter.filter(exchange("a"), ex -> Mono.error(new IllegalStateException("boom"))).onErrorComplete().block();
+        assertEquals(0, concurrency.inFlight("a"));
+
+        filter.filter(exchange("a"), ex -> Mono.empty()).block();
+        assertEquals(0, concurrency.inFlight("a"));
+        assertEquals(0, metrics.getInFlight());
+    }
+
+    @Test
+    @DisplayName("The permit is taken on subscription, not when the filter is assembled")
+    void acquiresOnSubscribe() {
+        Mono<Void> pending = filter.filter(exchange("a"), ex -> Mono.empty());
+        assertEquals(0, concurrency.inFlight("a"));
+        pending.block();
+        assertEquals(0, concurrency.inFlight("a"));
+    }
+
+    @Test
+    @DisplayName("A per-route adaptive limit rejects beyond its limit and exempts streams and unknown routes")
+    void adaptiveLimitPerRoute() {
+        AdaptiveConcurrency adaptive = new AdaptiveConcurrency(new AdaptiveConcurrencyLimiter.Options(
+                1, 1, 1, Duration.ofMillis(100), Duration.ofMillis(250), 10, 0.5), true, 503);
+        adaptive.register("GET /flux/hello", false);
+        adaptive.register("GET /flux/stream", true);
+        RateLimitWebFilter adaptiveFilter = new RateLimitWebFilter(
+                new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), Clock.systemUTC(), 6),
+                concurrency, adaptive, new RateLimitProperties(), metrics, Map.of(), Map.of());
+        AdaptiveConcurrencyLimiter hello = adaptive.limiter("GET /flux/hello");
+
+        Mono<Void> pending = adaptiveFilter.filter(exchange("/flux/hello", "a"), ex -> Mono.never());
+        assertEquals(0, hello.getInFlight());
+        Disposable open = pending.subscribe();
+        assertEquals(1, hello.getInFlight());
+
+        MockServerWebExchange rejected = exchange("/flux/hello", "b");
+        adaptiveFilter.filter(rejected, ex -> Mono.empty()).block();
+        assertEquals(503, rejected.getResponse().getStatusCode().value());
+        assertEquals(1, hello.getRejected());
+
+        MockServerWebExchange stream = exchange("/flux/stream", "b");
+        adaptiveFilter.filter(stream, ex -> Mono.empty()).block();
+        assertEquals(null, stream.getResponse().getStatusCode());
+        MockServerWebExchange unknown = exchange("/flux/other", "b");
+        adaptiveFilter.filter(unknown, ex -> Mono.empty()).block();
+        assertEquals(null, unknown.getResponse().getStatusCode());
+
+        open.dispose();
+        assertEquals(0, hello.getInFlight());
+        adaptiveFilter.filter(exchange("/flux/hello", "b"), ex -> Mono.empty()).block();
+        assertEquals(0, hello.getInFlight());
+    }
+
+    @Test
+    @DisplayName("A SUBNET limit with malformed prefixes fails when the filter is built, not on each request")
+    void rejectsBadSubnetPrefixes() throws Exception {
+        RateLimit rl = RateLimitWebFilterTest.class.getDeclaredMethod("badSubnet").getAnnotation(RateLimit.class);
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> new RateLimitWebFilter(
+                new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), Clock.systemUTC(), 6),
+                concurrency, new RateLimitProperties(), metrics, Map.of("GET /flux/bad", rl), Map.of()));
+        assertTrue(e.getMessage().contains("GET /flux/bad"), e.getMessage());
+    }
+
+    @RateLimit(permits = 1, strategy = KeyStrategy.SUBNET, strategyArg = "a/b")
+    private void badSubnet() { }
+
+    @Test
+    @DisplayName("An over-limit request waits for the window to slide; a full wait queue rejects at once")
+    void delaysWithinBoundedQueue() throws Exception {
+        RateLimit rl = TestFluxController.class.getDeclaredMethod("smooth").getAnnotation(RateLimit.class);
+        RateLimitWebFilter smoothing = new RateLimitWebFilter(
+                new SlidingWindowRateLimiter(new CaffeineRateLimitStore(1_000), Clock.systemUTC(), 6),
+                concurrency, new RateLimitProperties(), metrics, Map.of("GET /flux/smooth", rl), Map.of());
+
+        smoothing.filter(exchange("/flux/smooth", "w"), ex -> Mono.empty()).block();
+        MockServerWebExchange delayed = exchange("/flux/smooth", "w");
+        Mono<Void> waiting = smoothing.filter(delayed, ex -> Mono.empty()).cache();
+        waiting.subscribe();
+        assertEquals(1, metrics.getWaiting());
+
+        MockServerWebExchange rejected = exchange("/flux/smooth", "w");
+        smoothing.filter(rejected, ex -> Mono.empty()).block();
+        assertEquals(429, rejected.getResponse().getStatusCode().value());
+        assertTrue(rejected.getResponse().getHeaders().containsKey("Retry-After"));
+
+        long start = System.nanoTime();
+        waiting.block(Duration.ofSeconds(3));
+        long waitedMillis = (System.nanoTime() - start) / 1_000_000;
+        assertNull(delayed.getResponse().getStatusCode());
+        assertTrue(waitedMillis < 2_000, "waited " + waitedMillis + "ms");
+        assertEquals(1, metrics.getDelayedTotal());
+        assertEquals(0, metrics.getWaiting());
+    }
+
+    private static MockServerWebExchange exchange(String client) {
+        return exchange("/flux/stream", client);
+    }
+
+    private static MockServerWebExchange exchange(String path, String client) {
+        return MockServerWebExchange.from(MockServerHttpRequest.get(path).header("X-Client", client));
+    }
+}
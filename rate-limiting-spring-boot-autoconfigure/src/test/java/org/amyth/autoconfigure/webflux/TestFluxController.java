@@ -1,5 +1,6 @@
 package org.amyth.autoconfigure.webflux;
 
+import org.amyth.core.annotation.ConcurrencyLimit;
 import org.amyth.core.annotation.RateLimit;
 import org.amyth.core.api.KeyStrategy;
 import org.springframework.http.MediaType;
@@ -31,4 +32,27 @@ class TestFluxController {
     Flux<String> byKey() {
         return Flux.interval(Duration.ofMillis(50)).take(3).map(i -> "v" + i);
     }
+
+    // 1 open stream per header value, endless until the client goes away
+    @ConcurrencyLimit(permits = 1, strategy = KeyStrategy.HEADER, strategyArg = "X-Client")
+    @GetMapping(value = "/flux/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    Flux<String> stream() {
+        return Flux.interval(Duration.ofMillis(20)).onBackpressureDrop().map(i -> "t" + i);
+    }
+
+    // 1 request at a time per header value, completes on its own
+    @ConcurrencyLimit(permits = 1, strategy = KeyStrategy.HEADER, strategyArg = "X-Client")
+    @GetMapping("/flux/finite")
+    Flux<String> finite() {
+        return Flux.interval(Duration.ofMillis(50)).take(3).onBackpressureBuffer().map(i -> "v" + i);
+    }
+
+    // 1 per 500ms per header value; one over-limit request at a time waits up to 2s for its turn
+    @RateLimit(permits = 1, window = 500, unit = TimeUnit.MILLISECONDS,
+            strategy = KeyStrategy.HEADER, strategyArg = "X-Client",
+            maxWait = 2, maxWaitUnit = TimeUnit.SECONDS, maxWaiting = 1)
+    @GetMapping("/flux/smooth")
+    Flux<String> smooth() {
+        return Flux.just("smooth");
+    }
 }
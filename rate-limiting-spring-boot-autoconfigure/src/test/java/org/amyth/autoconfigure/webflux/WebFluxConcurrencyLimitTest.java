@@ -0,0 +1,37 @@
+package org.amyth.autoconfigure.webflux;
+
+import org.amyth.autoconfigure.RateLimitingAutoConfiguration;
+import org.amyth.autoconfigure.metrics.RateLimitMetricsBinder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@WebFluxTest(controllers = TestFluxController.class)
+@ImportAutoConfiguration(RateLimitingAutoConfiguration.class)
+@ContextConfiguration(classes = ReactiveTestBootApp.class)
+@TestPropertySource(properties = {
+        "ratelimit.backend=CAFFEINE"
+})
+class WebFluxConcurrencyLimitTest {
+
+    @Autowired WebTestClient client;
+    @Autowired RateLimitMetricsBinder metrics;
+
+    @Test
+    @DisplayName("A completed response gives its permit back")
+    void releasesOnComplete() {
+        for (int i = 0; i < 3; i++) {
+            client.get().uri("/flux/finite").header("X-Client", "c").exchange()
+                    .expectStatus().isOk()
+                    .expectBody(String.class).isEqualTo("v0v1v2");
+        }
+        assertEquals(0, metrics.getInFlight());
+    }
+}
@@ -0,0 +1,61 @@
+package org.amyth.autoconfigure.webflux;
+
+import org.amyth.autoconfigure.RateLimitingAutoConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@WebFluxTest(controllers = TestFluxController.class)
+@ImportAutoConfiguration(RateLimitingAutoConfiguration.class)
+@ContextConfiguration(classes = ReactiveTestBootApp.class)
+@TestPropertySource(properties = {
+        "ratelimit.backend=CAFFEINE",
+        "ratelimit.recent-decisions-sample-every=1",
+        "ratelimit.recent-decisions-raw-keys=true",
+        "ratelimit.recent-decisions-stream-path=/internal/ratelimit/decisions"
+})
+public class WebFluxRecentDecisionsTest {
+
+    @Autowired WebTestClient client;
+
+    @Test
+    void streams_sampled_decisions_as_server_sent_events() {
+        client.get().uri("/flux/by-key").header("X-Api-Key", "recent-flux").exchange()
+                .expectStatus().isOk();
+
+        ServerSentEvent<Map<String, Object>> event = client.get().uri("/internal/ratelimit/decisions?after=-1")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(new ParameterizedTypeReference<ServerSentEvent<Map<String, Object>>>() { })
+                .getResponseBody()
+                .filter(e -> "recent-flux".equals(e.data().get("key")))
+                .blockFirst(Duration.ofSeconds(5));
+
+        assertNotNull(event);
+        assertEquals("decision", event.event());
+        assertEquals("GET /flux/by-key", event.data().get("route"));
+        assertEquals(true, event.data().get("allowed"));
+    }
+
+    @Test
+    void rejects_a_stream_cursor_that_is_not_a_number() {
+        client.get().uri("/internal/ratelimit/decisions?after=abc")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+}
@@ -1,5 +1,6 @@
 package org.amyth.demo.webflux.controller;
 
+import org.amyth.core.annotation.ConcurrencyLimit;
 import org.amyth.core.annotation.RateLimit;
 import org.amyth.core.api.KeyStrategy;
 import org.springframework.http.MediaType;
@@ -20,8 +21,9 @@ public class SseController {
 
     /**
      * Streams one event every 500ms for 20 events (10 seconds total) as SSE.
-     * Rate limit: 3 streams per minute per IP.
+     * Rate limit: 3 streams per minute per IP, and at most 2 of them open at once.
      */
+    @ConcurrencyLimit(permits = 2, strategy = KeyStrategy.IP)
     @RateLimit(
             permits = 3,
             window = 1, unit = TimeUnit.MINUTES,